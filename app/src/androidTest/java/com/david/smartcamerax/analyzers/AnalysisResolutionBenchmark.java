@@ -0,0 +1,220 @@
+package com.david.smartcamerax.analyzers;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * AnalysisResolutionBenchmark
+ * <p>
+ * Mide, en el dispositivo, latencia de inferencia frente a precisión de cada AnalysisProfile a varias
+ * resoluciones de análisis y graba el resultado en filesDir/analysis_benchmark.csv, de donde
+ * CameraActivity toma la resolución por defecto de cada perfil (ver ResolutionBenchmark.choose).
+ *
+ * - Escena sintética a 1920x1080 (la misma "escena física" para todas las resoluciones): un documento
+ *   con líneas de texto de tamaño conocido y un código Code 39 con valor conocido; se escala a cada
+ *   resolución y se convierte a NV21, el formato que recibe ML Kit desde el pipeline.
+ * - Se ejecutan los detectores del perfil (los mismos adaptadores que usa la app) WARMUP + ITERATIONS
+ *   veces; latencia = suma de los detectores del perfil por frame, precisión = palabras esperadas
+ *   encontradas (texto) y acierto del valor (códigos), la menor de ambas.
+ *
+ * Ejecutar con: ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=
+ * com.david.smartcamerax.analyzers.AnalysisResolutionBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class AnalysisResolutionBenchmark {
+
+    private static final String TAG = "AnalysisBenchmark";
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 15;
+    private static final int[][] RESOLUTIONS = {{640, 480}, {960, 540}, {1280, 720}, {1920, 1080}};
+    private static final int SCENE_W = 1920;
+    private static final int SCENE_H = 1080;
+    private static final String[] WORDS = {"FACTURA", "CLIENTE", "IMPORTE", "TOTAL", "FECHA", "PEDIDO",
+            "ENVIO", "NUMERO", "CANTIDAD", "PRECIO", "DESCUENTO", "IMPUESTO"};
+    private static final String BARCODE_VALUE = "20251016";
+
+    // Code 39: anchura de las 9 barras/espacios de cada carácter (1 = ancho), empezando por barra
+    private static final String[] CODE39_DIGITS = {"000110100", "100100001", "001100001", "101100000",
+            "000110001", "100110000", "001110000", "000100101", "100100100", "001100100"};
+    private static final String CODE39_START_STOP = "010010100";
+
+    @Test
+    public void recordBenchmark() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bitmap scene = drawScene();
+        ResolutionBenchmark benchmark = new ResolutionBenchmark();
+
+        for (AnalysisProfile profile : AnalysisProfile.presets()) {
+            try (MlKitTextDetector text = profile.hasText() ? new MlKitTextDetector() : null;
+                 MlKitBarcodeDetector barcode = profile.hasBarcodes() ? new MlKitBarcodeDetector() : null) {
+                for (int[] size : RESOLUTIONS) {
+                    ResolutionBenchmark.Sample sample = measure(profile, text, barcode, scene, size[0], size[1]);
+                    Log.i(TAG, sample.toString());
+                    benchmark.add(sample);
+                }
+            }
+        }
+
+        File file = new File(context.getFilesDir(), ResolutionBenchmark.FILE_NAME);
+        benchmark.save(file);
+        StringWriter csv = new StringWriter();
+        benchmark.write(csv);
+        Log.i(TAG, "Guardado en " + file + "\n" + csv);
+        for (AnalysisProfile profile : AnalysisProfile.presets()) {
+            Log.i(TAG, "Elegido " + profile.getName() + ": " + benchmark.choose(profile));
+        }
+        assertTrue(file.exists());
+        assertEquals(AnalysisProfile.presets().size() * RESOLUTIONS.length, ResolutionBenchmark.load(file).getSamples().size());
+    }
+
+    private static ResolutionBenchmark.Sample measure(AnalysisProfile profile, Detector text, Detector barcode,
+                                                      Bitmap scene, int width, int height) throws Exception {
+        Bitmap scaled = Bitmap.createScaledBitmap(scene, width, height, true);
+        byte[] nv21 = toNv21(scaled);
+        scaled.recycle();
+
+        long[] nanos = new long[ITERATIONS];
+        float accuracySum = 0f;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            DetectorInput input = DetectorInput.ofNv21(nv21, width, height, 0, System.nanoTime());
+            long start = System.nanoTime();
+            float accuracy = 1f;
+            if (text != null) accuracy = Math.min(accuracy, textAccuracy(detect(text, input)));
+            if (barcode != null) accuracy = Math.min(accuracy, barcodeAccuracy(detect(barcode, input)));
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP) {
+                nanos[i - WARMUP] = elapsed;
+                accuracySum += accuracy;
+            }
+        }
+        Arrays.sort(nanos);
+        return new ResolutionBenchmark.Sample(profile.getName(), width, height,
+                percentileMs(nanos, 50), percentileMs(nanos, 90), accuracySum / ITERATIONS, ITERATIONS);
+    }
+
+    private static AnalysisResult detect(Detector detector, DetectorInput input) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<AnalysisResult> result = new AtomicReference<>(AnalysisResult.EMPTY);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        detector.detect(input, new Detector.Callback() {
+            @Override
+            public void onSuccess(AnalysisResult r) {
+                result.set(r);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        assertTrue("timeout en " + detector.getName(), done.await(10, TimeUnit.SECONDS));
+        if (error.get() != null) throw error.get();
+        return result.get();
+    }
+
+    private static float textAccuracy(AnalysisResult result) {
+        StringBuilder all = new StringBuilder();
+        for (AnalysisResult.Item item : result.getItems(AnalysisResult.Kind.TEXT)) {
+            all.append(item.getValue().toUpperCase(Locale.ROOT)).append(' ');
+        }
+        int found = 0;
+        for (String word : WORDS) {
+            if (all.indexOf(word) >= 0) found++;
+        }
+        return found / (float) WORDS.length;
+    }
+
+    private static float barcodeAccuracy(AnalysisResult result) {
+        for (AnalysisResult.Item item : result.getItems(AnalysisResult.Kind.BARCODE)) {
+            if (BARCODE_VALUE.equals(item.getValue())) return 1f;
+        }
+        return 0f;
+    }
+
+    private static double percentileMs(long[] sorted, int p) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // Documento: texto de 26 px a la izquierda (letra pequeña a 1080p) y el código a la derecha
+    private static Bitmap drawScene() {
+        Bitmap scene = Bitmap.createBitmap(SCENE_W, SCENE_H, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(scene);
+        canvas.drawColor(Color.WHITE);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setTypeface(Typeface.MONOSPACE);
+        paint.setTextSize(26f);
+        float y = 120f;
+        for (int i = 0; i < WORDS.length; i++) {
+            canvas.drawText(String.format(Locale.ROOT, "%-10s %06d", WORDS[i], (i + 1) * 1234), 80f, y, paint);
+            y += 60f;
+        }
+        drawCode39(canvas, BARCODE_VALUE, 900f, 400f, 6f, 240f);
+        return scene;
+    }
+
+    private static void drawCode39(Canvas canvas, String digits, float x, float top, float module, float height) {
+        Paint bar = new Paint();
+        bar.setColor(Color.BLACK);
+        StringBuilder symbols = new StringBuilder(CODE39_START_STOP);
+        for (int i = 0; i < digits.length(); i++) {
+            symbols.append(CODE39_DIGITS[digits.charAt(i) - '0']);
+        }
+        symbols.append(CODE39_START_STOP);
+        for (int i = 0; i < symbols.length(); i++) {
+            float width = symbols.charAt(i) == '1' ? module * 3 : module;
+            // Posiciones pares = barra; tras cada carácter (9 elementos) va un espacio estrecho
+            if (i % 9 % 2 == 0) canvas.drawRect(x, top, x + width, top + height, bar);
+            x += width;
+            if (i % 9 == 8) x += module;
+        }
+    }
+
+    // ARGB -> NV21 (BT.601, rango limitado), como el que recibe ML Kit desde el pipeline
+    private static byte[] toNv21(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] argb = new int[width * height];
+        bitmap.getPixels(argb, 0, width, 0, 0, width, height);
+        byte[] nv21 = new byte[YuvCropper.nv21Size(width, height)];
+        int uv = width * height;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int c = argb[row * width + col];
+                int r = (c >> 16) & 0xff;
+                int g = (c >> 8) & 0xff;
+                int b = c & 0xff;
+                nv21[row * width + col] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+                if ((row & 1) == 0 && (col & 1) == 0) {
+                    nv21[uv++] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+                    nv21[uv++] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+                }
+            }
+        }
+        return nv21;
+    }
+}
@@ -2,6 +2,8 @@ package com.david.smartcamerax;
 
 import android.Manifest;
 import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.net.Uri;
@@ -10,6 +12,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
+import android.util.Size;
 import android.view.View;
 import android.view.ViewTreeObserver;
 import android.widget.ImageButton;
@@ -24,22 +27,45 @@ import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import com.david.smartcamerax.analyzers.AnalysisProfile;
+import com.david.smartcamerax.analyzers.FilterPreviewAnalyzer;
+import com.david.smartcamerax.analyzers.ResolutionBenchmark;
 import com.david.smartcamerax.analyzers.SmartAnalyzer;
+import com.david.smartcamerax.capture.FilteredCapture;
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.FrameBuffer;
+import com.david.smartcamerax.filters.TiledExecutor;
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+import com.david.smartcamerax.metrics.MetricsExporter;
 import com.david.smartcamerax.storage.ImageStore;
+import com.david.smartcamerax.storage.ScanHistory;
+import com.david.smartcamerax.utils.BitmapPool;
+import com.david.smartcamerax.utils.Filters;
+import com.david.smartcamerax.utils.FramePacer;
+import com.david.smartcamerax.utils.LaneScheduler;
+import com.david.smartcamerax.utils.LutLibrary;
+import com.david.smartcamerax.utils.OverlayFrames;
 import com.david.smartcamerax.utils.PermissionHelper;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import androidx.camera.video.FallbackStrategy;
 import androidx.camera.video.MediaStoreOutputOptions;
@@ -62,11 +88,20 @@ import androidx.camera.video.VideoRecordEvent;
  *
  * Resumen rápido:
  * - startCamera() / bindCameraUseCases(): inicializa CameraX y enlaza los use cases (Preview, ImageCapture,
- *   opcionalmente ImageAnalysis cuando smartMode == true).
+ *   opcionalmente ImageAnalysis cuando smartMode == true o hay un filtro activo).
+ * - FilterPreviewAnalyzer: genera el preview filtrado desde el stream YUV de ImageAnalysis y publica un
+ *   bitmap ya listo en ivFilterOverlay (el hilo principal no copia ni convierte frames).
  * - SmartAnalyzer: se instancia una sola vez y se guarda en "smartAnalyzer" para poder cerrarla correctamente
  *   cuando se desactiva el modo inteligente o al destruir la Activity.
+ * - AnalysisProfile: el modo inteligente usa un perfil (códigos, equilibrado, texto denso) que fija los
+ *   detectores y la resolución/formato de ImageAnalysis; la resolución sale del ResolutionBenchmark
+ *   grabado en el dispositivo si existe. Pulsación larga en fabSmart para cambiar de perfil.
  * - takePhoto(): guarda la imagen usando MediaStore y ImageStore.buildContentValues() para que las fotos
- *   queden en Pictures/SmartCameraX en Android Q+.
+ *   queden en Pictures/SmartCameraX en Android Q+. Con un filtro activo la foto pasa por FilteredCapture
+ *   (filtrado por franjas a resolución completa) en el carril io.
+ * - LaneScheduler: carriles separados para análisis (ImageAnalysis), efectos del preview (render del
+ *   overlay filtrado) y E/S (fotos, LUTs, ficheros), cada uno con su cola acotada, política de descarte
+ *   y prioridad; se cierran en onDestroy.
  *
  * Cómo probar:
  * 1. Abrir la app y otorgar permisos de cámara.
@@ -78,6 +113,11 @@ public class CameraActivity extends AppCompatActivity {
     private static final String TAG = "CameraActivity";
     private static final int REQUEST_AUDIO = 2001;
 
+    // Métricas: del disparo a la foto guardada (ambas rutas), fallos, y frame del loop de respaldo
+    private static final LatencyHistogram SHUTTER_TO_SAVE = Metrics.histogram("capture.shutter_to_save");
+    private static final Counter CAPTURE_ERRORS = Metrics.counter("capture.errors");
+    private static final LatencyHistogram FALLBACK_FRAME = Metrics.histogram("filter.fallback_frame");
+
     // PreviewView (vista que muestra la cámara en pantalla)
     private androidx.camera.view.PreviewView previewView;
 
@@ -89,12 +129,34 @@ public class CameraActivity extends AppCompatActivity {
 
     // Estado del modo inteligente (texto/QR)
     private boolean smartMode = false;
+    // Perfil del modo inteligente (detectores, resolución y formato de ImageAnalysis); pulsación larga
+    // en el botón inteligente para cambiarlo
+    private final List<AnalysisProfile> analysisProfiles = AnalysisProfile.presets();
+    private int currentProfile = 1; // balanced()
+    // Resultados del benchmark grabado en este dispositivo (vacío hasta cargarlo o si no existe)
+    private volatile ResolutionBenchmark analysisBenchmark = new ResolutionBenchmark();
+
+    // Filtros disponibles (Filters.presets) e índice del actual; el 0 es "Normal" (sin filtro).
+    // Se aplica también en preview ahora.
+    private List<FilterChain> filterPresets;
+    private int currentFilter = 0;
+
+    // Carriles de ejecución: analysis (ImageAnalysis), preview (overlay filtrado) e io (fotos y ficheros)
+    private LaneScheduler lanes;
+    // Callbacks de ImageCapture: en el carril io; si llegan tras cerrarlo (onDestroy con una foto en
+    // vuelo) se ejecutan en el hilo de CameraX, para que el ImageProxy se cierre siempre y no bloquee
+    // el ImageCapture del siguiente bind
+    private final Executor captureExecutor = command -> lanes.io().execute(new LaneScheduler.Droppable() {
+        @Override
+        public void run() {
+            command.run();
+        }
 
-    // Filter state: 0 normal, 1 B/N, 2 Sepia. Se aplica también en preview ahora.
-    private int currentFilter = 0; // 0 normal, 1 bw, 2 sepia
-
-    // Executor para trabajo en background relacionado con la cámara (análisis)
-    private ExecutorService cameraExecutor;
+        @Override
+        public void onDropped() {
+            command.run();
+        }
+    });
     // CameraX video/recorder fields
     private VideoCapture<Recorder> videoCapture;
     private Recorder recorder;
@@ -135,51 +197,90 @@ public class CameraActivity extends AppCompatActivity {
 
     // Handler del hilo principal para mostrar/ocultar overlays con delay (auto-hide)
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private final Runnable hideResultRunnable = () -> {
-        if (tvResult != null) tvResult.setVisibility(View.GONE);
-    };
     private final Runnable hideFilterRunnable = () -> {
         if (tvFilter != null) tvFilter.setVisibility(View.GONE);
     };
 
-    // Runnable para actualizar el preview filtrado periódicamente (ejecutado desde mainHandler)
+    // Runnable para actualizar el preview filtrado periódicamente (ejecutado desde mainHandler).
+    // Solo se usa como respaldo si no se pudo enlazar ImageAnalysis para el filtro (ver filterAnalyzer).
     private final Runnable filterLoopRunnable = new Runnable() {
         @Override
         public void run() {
             if (!filterRunning) return;
-            // Capturar bitmap del PreviewView en UI thread
-            Bitmap bmp = previewView.getBitmap();
-            if (bmp != null) {
-                final Bitmap src = bmp.copy(Bitmap.Config.ARGB_8888, true);
-                // Procesar en background
-                cameraExecutor.execute(() -> {
-                    Bitmap filtered = null;
-                    try {
-                        if (currentFilter == 1) {
-                            filtered = com.david.smartcamerax.utils.Filters.toGrayscale(src);
-                        } else if (currentFilter == 2) {
-                            filtered = com.david.smartcamerax.utils.Filters.toSepia(src);
+            // Como máximo un frame en vuelo: si el anterior no terminó, este tick se funde con el siguiente.
+            // Capturar bitmap del PreviewView en UI thread; getBitmap() ya devuelve un bitmap nuevo y
+            // solo se lee, así que no hace falta copiarlo
+            final long start = System.nanoTime();
+            boolean begun = filterPacer.tryBegin(start);
+            final Bitmap src = begun ? previewView.getBitmap() : null;
+            if (src != null) {
+                // Procesar en background sobre un bitmap del pool (triple buffer, ver OverlayFrames)
+                final FilterChain chain = filterPresets.get(currentFilter);
+                // Droppable: si el carril descarta la tarea (DROP_OLDEST o shutdownNow) se recicla src
+                // y se libera el turno del pacer igual que al terminar
+                try {
+                    lanes.preview().execute(new LaneScheduler.Droppable() {
+                        @Override
+                        public void run() {
+                            Bitmap target = overlayFrames.obtain(src.getWidth(), src.getHeight());
+                            boolean filtered = false;
+                            try {
+                                filtered = Filters.apply(chain, src, target, filterBuffer, filterTiles);
+                            } catch (Exception e) {
+                                Log.w(TAG, "filter processing failed", e);
+                            } finally {
+                                src.recycle();
+                            }
+                            if (filtered) {
+                                if (overlayFrames.publish(target)) filterPacer.onCoalesced();
+                            } else {
+                                overlayFrames.discard(target);
+                            }
+                            filterPacer.end(System.nanoTime());
+                            FALLBACK_FRAME.recordSince(start);
+                        }
+
+                        @Override
+                        public void onDropped() {
+                            src.recycle();
+                            filterPacer.end(System.nanoTime());
                         }
-                    } catch (Exception e) {
-                        Log.w(TAG, "filter processing failed", e);
-                    }
-                    if (filtered != null) {
-                        final Bitmap finalFiltered = filtered;
-                        mainHandler.post(() -> {
-                            if (ivFilterOverlay != null) ivFilterOverlay.setImageBitmap(finalFiltered);
-                        });
-                    }
-                });
+                    });
+                } catch (RejectedExecutionException e) {
+                    src.recycle();
+                    filterPacer.end(System.nanoTime());
+                }
+            } else if (begun) {
+                // PreviewView aún sin frame: liberar el hueco en vuelo
+                filterPacer.end(System.nanoTime());
             }
 
-            // Repetir cada 120ms
-            mainHandler.postDelayed(this, 120);
+            // Repetir al ritmo sostenible medido (en lugar de un intervalo fijo de 120 ms)
+            mainHandler.postDelayed(this, filterPacer.nextDelayMs(System.nanoTime()));
         }
     };
 
     // Flag para controlar el loop de preview filtrado
     private volatile boolean filterRunning = false;
 
+    // Buffer de píxeles reutilizado por el loop de filtro (solo se usa desde el carril preview)
+    private final FrameBuffer filterBuffer = new FrameBuffer();
+
+    // Pool de bandas para repartir cada frame filtrado entre todos los núcleos
+    private TiledExecutor filterTiles;
+
+    // Bitmaps del overlay de filtros: pool con presupuesto de bytes + triple buffer
+    private static final long FILTER_POOL_BYTES = 24L * 1024 * 1024;
+    private OverlayFrames overlayFrames;
+
+    // Ritmo del preview filtrado: un frame en vuelo, intervalo adaptado al tiempo de procesado (33..500 ms)
+    private final FramePacer filterPacer = new FramePacer(33, 500);
+
+    // Preview filtrado alimentado por el stream YUV de ImageAnalysis (sin copias en el hilo principal)
+    private FilterPreviewAnalyzer filterAnalyzer;
+    // false si el dispositivo no admite el ImageAnalysis extra: se vuelve al loop con getBitmap()
+    private boolean analysisFilterSupported = true;
+
     // OnGlobalLayoutListener guardado para poder removerlo en onDestroy
     private ViewTreeObserver.OnGlobalLayoutListener layoutListener;
 
@@ -231,8 +332,28 @@ public class CameraActivity extends AppCompatActivity {
             ivFilterOverlay = null;
         }
 
-        // Executor dedicado para análisis y tareas relacionadas con la cámara
-        cameraExecutor = Executors.newSingleThreadExecutor();
+        // Carriles dedicados: el análisis no espera a los efectos del preview ni a la E/S
+        lanes = LaneScheduler.create();
+        filterTiles = TiledExecutor.forDevice();
+        filterPresets = Filters.presets(this);
+        // LUTs .cube (assets y almacenamiento de la app): se parsean en background y se añaden al final
+        lanes.io().execute(() -> {
+            List<FilterChain> luts = LutLibrary.loadPresets(getApplicationContext());
+            if (!luts.isEmpty()) mainHandler.post(() -> filterPresets.addAll(luts));
+        });
+        // Benchmark de resolución de análisis (lo escribe el test instrumentado en filesDir)
+        lanes.io().execute(() -> {
+            try {
+                analysisBenchmark = ResolutionBenchmark.load(new File(getFilesDir(), ResolutionBenchmark.FILE_NAME));
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo leer el benchmark de análisis", e);
+            }
+        });
+        overlayFrames = new OverlayFrames(new BitmapPool(FILTER_POOL_BYTES), mainHandler, frame -> {
+            if (filterRunning && ivFilterOverlay != null) ivFilterOverlay.setImageBitmap(frame);
+        });
+        filterAnalyzer = new FilterPreviewAnalyzer(overlayFrames, filterPacer, filterTiles);
+        filterAnalyzer.setRenderExecutor(lanes.preview());
 
         // Ajustar posiciones de los overlays después del layout para evitar solapamiento con FABs
         layoutListener = this::adjustOverlayPositions;
@@ -258,8 +379,10 @@ public class CameraActivity extends AppCompatActivity {
 
         // Botón: cambiar filtro (se aplica también al preview)
         fabFilter.setOnClickListener(v -> {
-            currentFilter = (currentFilter + 1) % 3;
-            String filterName = currentFilter == 0 ? getString(R.string.filter_normal) : currentFilter == 1 ? getString(R.string.filter_bw) : getString(R.string.filter_sepia);
+            boolean wasIdentity = filterPresets.get(currentFilter).isIdentity();
+            currentFilter = (currentFilter + 1) % filterPresets.size();
+            FilterChain chain = filterPresets.get(currentFilter);
+            String filterName = chain.getName();
             if (tvFilter != null) {
                 tvFilter.setText(getString(R.string.msg_filter, filterName));
                 tvFilter.setVisibility(View.VISIBLE);
@@ -268,11 +391,16 @@ public class CameraActivity extends AppCompatActivity {
             }
 
             // Activar/desactivar preview filtrado
-            if (currentFilter == 0) {
+            if (chain.isIdentity()) {
                 stopFilterPreview();
             } else {
                 startFilterPreview();
             }
+            if (analysisFilterSupported) {
+                filterAnalyzer.setChain(chain);
+                // Pasar de/a "Normal" añade o quita el ImageAnalysis del filtro: re-bind
+                if (wasIdentity != chain.isIdentity()) startCamera();
+            }
         });
 
         // Botón: activar/desactivar modo inteligente (análisis en tiempo real)
@@ -282,6 +410,15 @@ public class CameraActivity extends AppCompatActivity {
             Snackbar.make(previewView, msg, Snackbar.LENGTH_SHORT).show();
             startCamera(); // re-bind con o sin ImageAnalysis según smartMode
         });
+        // Pulsación larga: siguiente perfil de análisis (solo re-bind si el modo inteligente está activo)
+        fabSmart.setOnLongClickListener(v -> {
+            currentProfile = (currentProfile + 1) % analysisProfiles.size();
+            AnalysisProfile profile = analysisBenchmark.apply(analysisProfiles.get(currentProfile));
+            Snackbar.make(previewView, getString(R.string.msg_profile, profileLabel(profile),
+                    profile.getWidth(), profile.getHeight()), Snackbar.LENGTH_SHORT).show();
+            if (smartMode) startCamera();
+            return true;
+        });
 
         // Configurar botón único captura/grabación por pulsación
         if (btnCapture != null) {
@@ -377,7 +514,7 @@ public class CameraActivity extends AppCompatActivity {
      * Construye y enlaza los use cases de CameraX según el estado de la UI:
      * - Preview (siempre)
      * - ImageCapture (siempre)
-     * - ImageAnalysis (solo cuando smartMode == true)
+     * - ImageAnalysis (cuando smartMode == true o hay un filtro activo; ambos comparten el mismo use case)
      *
      * Notas importantes:
      * - Se reutiliza una única instancia de SmartAnalyzer y se cierra (close()) cuando se desactiva el modo
@@ -404,8 +541,9 @@ public class CameraActivity extends AppCompatActivity {
 
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
-        // Si SmartMode está desactivado y existía un analyzer, lo cerramos para liberar recursos
-        if (!smartMode && smartAnalyzer != null) {
+        // El analyzer anterior se cierra siempre: sin smartMode para liberar recursos, y con smartMode
+        // porque se crea uno nuevo (el perfil o la cámara pueden haber cambiado)
+        if (smartAnalyzer != null) {
             try {
                 smartAnalyzer.close();
             } catch (Exception e) {
@@ -413,25 +551,61 @@ public class CameraActivity extends AppCompatActivity {
             }
             smartAnalyzer = null;
         }
+        // Los resultados del analyzer anterior ya no valen; el nuevo los volverá a publicar
+        if (tvResult != null) tvResult.setVisibility(View.GONE);
+        ScanHistory.get(this).clearConfirmed();
+
+        // El preview filtrado usa el mismo ImageAnalysis que el modo inteligente (CameraX solo admite uno):
+        // FilterPreviewAnalyzer procesa el frame y se lo pasa a SmartAnalyzer como downstream.
+        FilterChain activeChain = filterPresets.get(currentFilter);
+        boolean filterViaAnalysis = analysisFilterSupported && !activeChain.isIdentity();
 
+        // Resolución del perfil: la elegida por el benchmark grabado o la del preset
+        AnalysisProfile profile = analysisBenchmark.apply(analysisProfiles.get(currentProfile));
         ImageAnalysis imageAnalysis = null;
+        if (smartMode || filterViaAnalysis) {
+            ImageAnalysis.Builder analysisBuilder = new ImageAnalysis.Builder()
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+            // Con filtro manda el preview filtrado (resolución por defecto y YUV, que es lo que lee
+            // FilterPreviewAnalyzer); sin filtro, el stream se ajusta al perfil
+            if (smartMode && !filterViaAnalysis) {
+                analysisBuilder.setResolutionSelector(new ResolutionSelector.Builder()
+                        .setResolutionStrategy(new ResolutionStrategy(new Size(profile.getWidth(), profile.getHeight()),
+                                ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                        .build());
+                if (profile.getFormat() == AnalysisProfile.OutputFormat.RGBA_8888) {
+                    analysisBuilder.setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_RGBA_8888);
+                }
+            }
+            imageAnalysis = analysisBuilder.build();
+        }
         if (smartMode) {
-            imageAnalysis = new ImageAnalysis.Builder()
-                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                    .build();
-
+            Log.d(TAG, "analysis profile " + profile);
             // Crear SmartAnalyzer una sola vez y mantener la referencia
-            smartAnalyzer = new SmartAnalyzer(result -> runOnUiThread(() -> {
-                if (result != null && !result.isEmpty() && tvResult != null) {
-                    // Mostrar el texto/QR detectado en el overlay
-                    tvResult.setText(result);
+            // El listener ya llega en el hilo principal y solo con resultados estables nuevos
+            final ScanHistory scanHistory = ScanHistory.get(this);
+            smartAnalyzer = new SmartAnalyzer(result -> {
+                // Conjunto estable al historial: registra los códigos nuevos (deduplicados y escritos
+                // en lotes en segundo plano) y mantiene vistos los que siguen confirmados
+                scanHistory.record(result);
+                if (tvResult == null) return;
+                // El overlay sigue al conjunto estable: visible mientras haya algo detectado y oculto
+                // cuando llega el resultado vacío (el estabilizador ya filtra el parpadeo)
+                if (result.isEmpty()) {
+                    tvResult.setVisibility(View.GONE);
+                } else {
+                    tvResult.setText(result.toDisplayString());
                     tvResult.setVisibility(View.VISIBLE);
-                    mainHandler.removeCallbacks(hideResultRunnable);
-                    mainHandler.postDelayed(hideResultRunnable, 3000);
                 }
-            }));
-
-            imageAnalysis.setAnalyzer(cameraExecutor, smartAnalyzer);
+            }, profile);
+        }
+        if (filterViaAnalysis) {
+            filterAnalyzer.setChain(activeChain);
+            filterAnalyzer.setMirror(cameraSelector == CameraSelector.DEFAULT_FRONT_CAMERA);
+            filterAnalyzer.setDownstream(smartAnalyzer);
+            imageAnalysis.setAnalyzer(lanes.analysis(), filterAnalyzer);
+        } else if (imageAnalysis != null) {
+            imageAnalysis.setAnalyzer(lanes.analysis(), smartAnalyzer);
         }
 
         try {
@@ -446,33 +620,110 @@ public class CameraActivity extends AppCompatActivity {
             }
         } catch (Exception e) {
             Log.e(TAG, "Use case binding failed", e);
+            if (filterViaAnalysis) {
+                // Combinación de use cases no soportada: filtrar con el loop de PreviewView.getBitmap()
+                analysisFilterSupported = false;
+                bindCameraUseCases(cameraProvider);
+                startFilterPreview();
+                return;
+            }
         }
 
         // Actualizar torch si estaba activo al reiniciar
         updateTorch();
     }
 
+    private String profileLabel(AnalysisProfile profile) {
+        switch (profile.getName()) {
+            case "barcode":
+                return getString(R.string.profile_barcode);
+            case "dense_text":
+                return getString(R.string.profile_dense_text);
+            default:
+                return getString(R.string.profile_balanced);
+        }
+    }
+
     /**
      * takePhoto()
      * <p>
-     * Toma una foto y la guarda usando MediaStore. Si se seleccionó un filtro, se aplica al bitmap
-     * después de guardarlo (operación simple que reescribe la Uri resultante).
+     * Toma una foto y la guarda usando MediaStore. Sin filtro, CameraX escribe el JPEG directamente.
+     * Con filtro se captura en memoria y FilteredCapture lo aplica a resolución completa por franjas
+     * (sin cargar el frame entero) antes de codificarlo. Los callbacks corren en el carril io (captureExecutor).
      */
     private void takePhoto() {
         if (imageCapture == null) return;
+        final long shutter = System.nanoTime();
         String filename = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".jpg";
+        FilterChain chain = filterPresets.get(currentFilter);
+        if (!chain.isIdentity()) {
+            takeFilteredPhoto(chain, filename, shutter);
+            return;
+        }
         ContentValues contentValues = ImageStore.buildContentValues(filename);
         ImageCapture.OutputFileOptions outputOptions = new ImageCapture.OutputFileOptions.Builder(
                 getContentResolver(), MediaStore.Images.Media.EXTERNAL_CONTENT_URI, contentValues).build();
-        imageCapture.takePicture(outputOptions, ContextCompat.getMainExecutor(this), new ImageCapture.OnImageSavedCallback() {
+        imageCapture.takePicture(outputOptions, captureExecutor, new ImageCapture.OnImageSavedCallback() {
             @Override public void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults) {
                 Uri savedUri = outputFileResults.getSavedUri();
                 if (savedUri == null) savedUri = ImageStore.getImageContentUri(CameraActivity.this, filename);
                 Log.d(TAG, "Photo saved at: " + savedUri);
-                Snackbar.make(previewView, getString(R.string.msg_photo_saved), Snackbar.LENGTH_SHORT).show(); }
+                SHUTTER_TO_SAVE.recordSince(shutter);
+                showCaptureResult(true); }
+            @Override public void onError(@NonNull ImageCaptureException exception) {
+                Log.e(TAG, "Photo capture failed: " + exception.getMessage(), exception);
+                CAPTURE_ERRORS.inc();
+                showCaptureResult(false); }
+        });
+    }
+
+    // Captura en memoria (JPEG) y guardado filtrado por franjas en el carril io
+    private void takeFilteredPhoto(FilterChain chain, String filename, long shutter) {
+        // Referencia de escala: el frame sobre el que se ve el filtro (analysis o bitmap del PreviewView)
+        int analyzed = filterAnalyzer != null ? filterAnalyzer.getFrameShortSide() : 0;
+        int previewShortSide = analyzed > 0 ? analyzed : Math.min(previewView.getWidth(), previewView.getHeight());
+        imageCapture.takePicture(captureExecutor, new ImageCapture.OnImageCapturedCallback() {
+            @Override public void onCaptureSuccess(@NonNull ImageProxy image) {
+                byte[] jpeg;
+                int rotation;
+                try {
+                    jpeg = FilteredCapture.readJpeg(image);
+                    rotation = image.getImageInfo().getRotationDegrees();
+                } catch (Exception e) {
+                    Log.e(TAG, "Filtered capture: lectura fallida", e);
+                    CAPTURE_ERRORS.inc();
+                    showCaptureResult(false);
+                    return;
+                } finally {
+                    // Liberar el buffer de la cámara cuanto antes: el JPEG ya está copiado
+                    image.close();
+                }
+                try {
+                    Uri savedUri = FilteredCapture.save(CameraActivity.this, jpeg, rotation, chain,
+                            previewShortSide, filterTiles, filename);
+                    Log.d(TAG, "Filtered photo saved at: " + savedUri);
+                    SHUTTER_TO_SAVE.recordSince(shutter);
+                    showCaptureResult(true);
+                } catch (Exception | OutOfMemoryError e) {
+                    Log.e(TAG, "Filtered capture failed", e);
+                    CAPTURE_ERRORS.inc();
+                    showCaptureResult(false);
+                }
+            }
             @Override public void onError(@NonNull ImageCaptureException exception) {
                 Log.e(TAG, "Photo capture failed: " + exception.getMessage(), exception);
-                Snackbar.make(previewView, getString(R.string.msg_photo_error), Snackbar.LENGTH_SHORT).show(); }
+                CAPTURE_ERRORS.inc();
+                showCaptureResult(false);
+            }
+        });
+    }
+
+    // Se puede llamar desde cualquier hilo
+    private void showCaptureResult(boolean saved) {
+        runOnUiThread(() -> {
+            if (isFinishing() || isDestroyed()) return;
+            Snackbar.make(previewView, getString(saved ? R.string.msg_photo_saved : R.string.msg_photo_error),
+                    Snackbar.LENGTH_SHORT).show();
         });
     }
 
@@ -543,7 +794,7 @@ public class CameraActivity extends AppCompatActivity {
     /**
      * onDestroy()
      * <p>
-     * Limpiamos el executor y cerramos el SmartAnalyzer si sigue activo. También cancelamos callbacks
+     * Cerramos los carriles de ejecución y el SmartAnalyzer si sigue activo. También cancelamos callbacks
      * pendientes del handler para evitar leaks de memoria.
      */
     @Override
@@ -553,10 +804,28 @@ public class CameraActivity extends AppCompatActivity {
         try { if (previewView != null && previewView.getViewTreeObserver() != null && layoutListener != null) previewView.getViewTreeObserver().removeOnGlobalLayoutListener(layoutListener); } catch (Exception e) { Log.w(TAG, "onDestroy: layoutListener", e); }
         // Asegurar detener preview filtrado
         stopFilterPreview();
-        // Limpiar executor
-        try { cameraExecutor.shutdown(); } catch (Exception e) { Log.w(TAG, "onDestroy: executor", e); }
+        // La foto en curso termina de guardarse (usa filterTiles): el pool se cierra después de ella
+        try {
+            final TiledExecutor tiles = filterTiles;
+            if (tiles != null) lanes.io().execute(tiles::close);
+        } catch (Exception e) {
+            Log.w(TAG, "onDestroy: filterTiles", e);
+            filterTiles.close();
+        }
+        // Informe de métricas: logcat siempre; fichero solo en builds depurables (tras la última foto)
+        MetricsExporter.toLogcat();
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            final Context appContext = getApplicationContext();
+            try { lanes.io().execute(() -> MetricsExporter.toFile(appContext)); } catch (Exception e) { Log.w(TAG, "onDestroy: metrics", e); }
+        }
+        // Carriles: el preview descarta lo pendiente; análisis e io terminan lo encolado (fotos incluidas)
+        Log.d(TAG, "lanes " + lanes.stats());
+        try { lanes.shutdown(); } catch (Exception e) { Log.w(TAG, "onDestroy: lanes", e); }
+        if (overlayFrames != null) overlayFrames.getPool().clear();
         // Cerrar SmartAnalyzer si está activo
         if (smartAnalyzer != null) { try { smartAnalyzer.close(); } catch (Exception e) { Log.w(TAG, "onDestroy: analyzer", e); } }
+        // Escribir ya los escaneos pendientes del historial (sin esperar al siguiente lote)
+        ScanHistory.get(this).flush();
         // detener recording si aún está grabando
         try { if (isRecording) stopRecording(); } catch (Exception e) { Log.w(TAG, "onDestroy: recording", e); }
         // limpiar callbacks del pressHandler
@@ -596,13 +865,21 @@ public class CameraActivity extends AppCompatActivity {
         try {
             mainHandler.removeCallbacks(filterLoopRunnable);
             if (ivFilterOverlay != null) { ivFilterOverlay.setImageBitmap(null); ivFilterOverlay.setVisibility(View.GONE); }
+            // Devolver al pool los frames del overlay (ya no los referencia el ImageView)
+            if (overlayFrames != null) {
+                overlayFrames.clear();
+                Log.d(TAG, "filter BitmapPool " + overlayFrames.getPool().stats() + " pacer " + filterPacer.stats());
+            }
         } catch (Exception e) { Log.w(TAG, "stopFilterPreview", e); }
     }
 
     private void startFilterPreview() {
         if (ivFilterOverlay == null) return;
         filterRunning = true;
+        if (overlayFrames != null) overlayFrames.resume();
         ivFilterOverlay.setVisibility(View.VISIBLE);
+        // Con ImageAnalysis los frames llegan solos desde filterAnalyzer; no hace falta el loop
+        if (analysisFilterSupported) return;
         // arrancar loop en UI handler (captura del bitmap debe hacerse en UI thread)
         mainHandler.removeCallbacks(filterLoopRunnable);
         mainHandler.post(filterLoopRunnable);
@@ -1,51 +1,112 @@
 package com.david.smartcamerax;
 
-import android.content.ContentUris;
-import android.content.Context;
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
-import android.provider.MediaStore;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.ImageButton;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import com.david.smartcamerax.storage.ImageStore;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+import com.david.smartcamerax.storage.MediaChangeObserver;
+import com.david.smartcamerax.storage.MediaPagingSource;
+import com.david.smartcamerax.storage.OcrIndexer;
+import com.david.smartcamerax.storage.ThumbnailCache;
+import com.david.smartcamerax.utils.SortedListPatch;
 
 /**
  * GalleryActivity
  * <p>
  * Muestra una grilla de imágenes guardadas por la app (Pictures/SmartCameraX) consultando MediaStore.
- * - Usa GalleryAdapter para renderizar miniaturas.
+ * - La galería se carga por páginas (MediaPagingSource, en un hilo de fondo): la primera página se
+ *   muestra en cuanto se lee y las siguientes se piden al acercarse al final de la grilla.
+ * - Se mantiene al día sin reconsultar: MediaChangeObserver entrega las altas/bajas desde el último
+ *   cambio y se aplican sobre lo cargado (SortedListPatch); submitList anima solo esas celdas.
+ * - Usa GalleryAdapter para renderizar miniaturas: ThumbnailCache (memoria LRU por bytes + disco)
+ *   y decodificación reducida al tamaño de la celda en hilos de fondo con prioridad para lo visible.
  * - Al pulsar una miniatura abre ImageViewerActivity pasando la lista completa de URIs y la posición
- *   pulsada para permitir navegación por swipe.
+ *   pulsada para permitir navegación por swipe (la lista visible, también cuando hay búsqueda).
+ * - Búsqueda por texto: OcrIndexer indexa en segundo plano el texto de las fotos nuevas o modificadas
+ *   y la caja de búsqueda filtra la grilla con el índice en memoria (prefijos, todos los términos),
+ *   sin volver a leer imágenes. Se reaplica cuando el indexador termina un lote.
  *
  * Consideraciones:
  * - En Android Q+ la consulta usa RELATIVE_PATH para filtrar por la carpeta de la app.
  * - En versiones anteriores se filtra por DISPLAY_NAME como heurística.
- * - Se recomienda usar una librería de carga de imágenes (Glide/Picasso) si la galería crece en tamaño.
+ * - Con una búsqueda activa se siguen cargando páginas hasta el final: el resultado puede estar en
+ *   fotos aún no cargadas.
  */
 public class GalleryActivity extends AppCompatActivity {
 
     private static final String TAG = "GalleryActivity";
+    // Una página de la galería (fotos + videos mezclados)
+    private static final LatencyHistogram PAGE_TIME = Metrics.histogram("gallery.page");
+    private static final long SEARCH_DELAY_MS = 250;
+    private static final int SPAN_COUNT = 3;
+    // ~4 pantallas de miniaturas por página
+    private static final int PAGE_SIZE = 60;
+    // Se pide la página siguiente cuando quedan menos de estos items por debajo de lo visible
+    private static final int LOAD_AHEAD = 2 * PAGE_SIZE / 3;
 
     private RecyclerView rvGallery;
-    private TextView tvEmpty;
     private GalleryAdapter adapter;
+    private TextView tvEmpty;
+    private OcrIndexer ocrIndexer;
+    private ThumbnailCache thumbnails;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Todo lo consultado a MediaStore; la grilla muestra esto o el resultado de la búsqueda
+    private List<MediaItem> allItems = new ArrayList<>();
+    private MediaPagingSource pager;
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "gallery-pager"));
+    private boolean pageLoading;
+    private boolean allLoaded;
+    // Cambios del recorrido actual que afectan a filas aún no mostradas: SortedMerge puede tenerlas ya
+    // leídas en una ventana, así que se aplican a cada página que llegue (borrados: todas las páginas)
+    private final Set<Long> removedIds = new HashSet<>();
+    private final Map<Long, MediaItem> pendingUpserts = new HashMap<>();
+    private MediaChangeObserver mediaObserver;
+    private final MediaChangeObserver.Listener mediaListener = new MediaChangeObserver.Listener() {
+        @Override
+        public void onMediaChanged(List<MediaItem> upserts, Set<Long> removedIds) {
+            if (isDestroyed()) return;
+            applyChanges(upserts, removedIds);
+        }
+
+        @Override
+        public void onMediaInvalidated() {
+            if (!isDestroyed()) loadImages();
+        }
+    };
+    private String query = "";
+    private final Runnable applySearchRunnable = this::applySearch;
+    // Avisos del indexador (en su hilo): reaplicar la búsqueda activa con el índice nuevo
+    private final OcrIndexer.Listener indexListener = count -> mainHandler.post(() -> {
+        if (!query.isEmpty() && !isDestroyed()) applySearch();
+    });
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -67,7 +128,9 @@ public class GalleryActivity extends AppCompatActivity {
         }
 
         // Grid de 3 columnas para miniaturas
-        rvGallery.setLayoutManager(new GridLayoutManager(this, 3));
+        rvGallery.setLayoutManager(new GridLayoutManager(this, SPAN_COUNT));
+        thumbnails = ThumbnailCache.get(this);
+        int cellSizePx = getResources().getDisplayMetrics().widthPixels / SPAN_COUNT;
         // cuando se hace click se crea una lista de strings (URIs) y se abre el visor en la posición
         adapter = new GalleryAdapter((item, position) -> {
             ArrayList<String> list = new ArrayList<>();
@@ -78,102 +141,169 @@ public class GalleryActivity extends AppCompatActivity {
                 videoFlags[i++] = mi.isVideo;
             }
             ImageViewerActivity.start(GalleryActivity.this, list, videoFlags, position);
-        });
+        }, thumbnails, cellSizePx);
         rvGallery.setAdapter(adapter);
+        rvGallery.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0) maybeLoadMore();
+            }
+        });
+
+        EditText etSearch = findViewById(R.id.et_gallery_search);
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                query = s.toString().trim();
+                mainHandler.removeCallbacks(applySearchRunnable);
+                mainHandler.postDelayed(applySearchRunnable, SEARCH_DELAY_MS);
+            }
+        });
 
+        ocrIndexer = OcrIndexer.get(this);
+        ocrIndexer.addListener(indexListener);
+        // Antes de la primera página: los cambios desde este momento llegan como diferencias
+        mediaObserver = new MediaChangeObserver(this, mediaListener);
+        mediaObserver.start();
         loadImages();
+        // Solo procesa fotos nuevas o modificadas desde la última pasada
+        ocrIndexer.requestUpdate();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacks(applySearchRunnable);
+        ocrIndexer.removeListener(indexListener);
+        mediaObserver.stop();
+        pageExecutor.shutdownNow();
+        Log.d(TAG, "thumbnails " + thumbnails.stats() + " | loader " + adapter.stats());
+        adapter.release();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // En segundo plano se suelta todo; con la galería visible, la mitad
+        thumbnails.trimMemory(level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN ? 0f : 0.5f);
     }
 
     /**
      * loadImages()
      * <p>
-     * Consulta MediaStore y actualiza el adaptador. Si no hay imágenes muestra un mensaje.
+     * Empieza a recorrer la galería desde el principio: se muestra la primera página en cuanto llega.
+     * También es la recarga completa cuando MediaChangeObserver no puede dar una diferencia; una
+     * página en vuelo del recorrido anterior se descarta al llegar.
      */
     private void loadImages() {
-        List<MediaItem> items = queryAppMedia(this);
-        if (items.isEmpty()) {
-            tvEmpty.setVisibility(View.VISIBLE);
-            rvGallery.setVisibility(View.GONE);
-        } else {
-            tvEmpty.setVisibility(View.GONE);
-            rvGallery.setVisibility(View.VISIBLE);
-            adapter.submitList(items);
-        }
+        pager = new MediaPagingSource(this);
+        allItems = new ArrayList<>();
+        allLoaded = false;
+        pageLoading = false;
+        removedIds.clear();
+        pendingUpserts.clear();
+        loadNextPage();
     }
 
-    /**
-     * queryAppMedia()
-     * <p>
-     * Consulta MediaStore para devolver URIs de imágenes y videos guardados por la app.
-     * - En Android Q+ filtra por RELATIVE_PATH (más fiable).
-     * - En versiones antiguas filtra por DISPLAY_NAME con un patrón (heurística).
-     *
-     * Nota: devuelve URIs content:// que pueden usarse con ImageView.setImageURI o con Glide.
-     */
-    public static List<MediaItem> queryAppMedia(Context ctx) {
-        List<MediaItem> result = new ArrayList<>();
-        // Fotos
-        Uri imgCollection = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-        String[] imgProjection = new String[]{
-                MediaStore.Images.Media._ID,
-                MediaStore.Images.Media.RELATIVE_PATH,
-                MediaStore.Images.Media.DATE_ADDED
-        };
-        String imgSelection;
-        String[] imgSelectionArgs;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            imgSelection = MediaStore.Images.Media.RELATIVE_PATH + " LIKE ?";
-            imgSelectionArgs = new String[]{"%" + ImageStore.RELATIVE_PATH + "%"};
-        } else {
-            imgSelection = MediaStore.Images.Media.DISPLAY_NAME + " LIKE ?";
-            imgSelectionArgs = new String[]{"%SmartCameraX%"};
+    // Pide la página siguiente si la grilla está cerca del final de lo cargado
+    private void maybeLoadMore() {
+        GridLayoutManager grid = (GridLayoutManager) rvGallery.getLayoutManager();
+        if (grid != null && grid.findLastVisibleItemPosition() >= adapter.getItemCount() - LOAD_AHEAD) {
+            loadNextPage();
         }
-        String sort = MediaStore.Images.Media.DATE_ADDED + " DESC";
-        try (Cursor cursor = ctx.getContentResolver().query(imgCollection, imgProjection, imgSelection, imgSelectionArgs, sort)) {
-            if (cursor != null) {
-                int idCol = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
-                int dateCol = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_ADDED);
-                while (cursor.moveToNext()) {
-                    long id = cursor.getLong(idCol);
-                    long date = cursor.getLong(dateCol);
-                    Uri contentUri = ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id);
-                    result.add(new MediaItem(contentUri, false, date));
+    }
+
+    // Lee una página en el hilo de fondo y la añade a allItems en el principal
+    private void loadNextPage() {
+        if (pageLoading || allLoaded) return;
+        pageLoading = true;
+        MediaPagingSource source = pager;
+        pageExecutor.execute(() -> {
+            long start = System.nanoTime();
+            List<MediaItem> page = source.nextPage(PAGE_SIZE);
+            boolean exhausted = source.isExhausted();
+            PAGE_TIME.recordSince(start);
+            mainHandler.post(() -> {
+                if (isDestroyed() || source != pager) return;
+                pageLoading = false;
+                allLoaded = exhausted;
+                // Los cambios pendientes que caen en esta página ganan a la copia leída de MediaStore
+                MediaItem limit = exhausted || page.isEmpty() ? null : page.get(page.size() - 1);
+                List<MediaItem> upserts = new ArrayList<>(page);
+                Iterator<MediaItem> pending = pendingUpserts.values().iterator();
+                while (pending.hasNext()) {
+                    MediaItem item = pending.next();
+                    if (limit == null || MediaPagingSource.ORDER.compare(item, limit) <= 0) {
+                        upserts.add(item);
+                        pending.remove();
+                    }
                 }
+                // Lista nueva (ListAdapter compara contra la anterior), sin repetir lo que ya trajo el
+                // observer y sin lo borrado aunque la ventana de SortedMerge aún lo tuviera
+                allItems = SortedListPatch.apply(allItems, upserts, removedIds, m -> m.id,
+                        MediaPagingSource.ORDER, limit);
+                applySearch();
+            });
+        });
+    }
+
+    // Aplica una diferencia de MediaStore sobre lo cargado; lo que cae después de la última página se
+    // guarda para aplicarlo cuando llegue su página
+    private void applyChanges(List<MediaItem> upserts, Set<Long> removed) {
+        removedIds.addAll(removed);
+        for (Long id : removed) pendingUpserts.remove(id);
+        boolean nothingShown = !allLoaded && allItems.isEmpty();
+        MediaItem limit = allLoaded || nothingShown ? null : allItems.get(allItems.size() - 1);
+        for (MediaItem item : upserts) {
+            if (nothingShown || (limit != null && MediaPagingSource.ORDER.compare(item, limit) > 0)) {
+                pendingUpserts.put(item.id, item);
+            } else {
+                pendingUpserts.remove(item.id);
             }
-        } catch (Exception e) { Log.w(TAG, "queryAppMedia images error", e); }
-
-        // Videos (guardados en Movies/SmartCameraX)
-        Uri vidCollection = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
-        String[] vidProjection = new String[]{
-                MediaStore.Video.Media._ID,
-                MediaStore.Video.Media.RELATIVE_PATH,
-                MediaStore.Video.Media.DATE_ADDED
-        };
-        String vidSelection;
-        String[] vidSelectionArgs;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            vidSelection = MediaStore.Video.Media.RELATIVE_PATH + " LIKE ?";
-            vidSelectionArgs = new String[]{"%Movies/SmartCameraX%"};
-        } else {
-            vidSelection = MediaStore.Video.Media.DISPLAY_NAME + " LIKE ?";
-            vidSelectionArgs = new String[]{"%SmartCameraX%"};
         }
-        try (Cursor cursor = ctx.getContentResolver().query(vidCollection, vidProjection, vidSelection, vidSelectionArgs, MediaStore.Video.Media.DATE_ADDED + " DESC")) {
-            if (cursor != null) {
-                int idCol = cursor.getColumnIndexOrThrow(MediaStore.Video.Media._ID);
-                int dateCol = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DATE_ADDED);
-                while (cursor.moveToNext()) {
-                    long id = cursor.getLong(idCol);
-                    long date = cursor.getLong(dateCol);
-                    Uri contentUri = ContentUris.withAppendedId(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, id);
-                    result.add(new MediaItem(contentUri, true, date));
-                }
+        if (nothingShown) return; // la primera página aún no llegó: se aplicará sobre ella
+        allItems = SortedListPatch.apply(allItems, upserts, removed, m -> m.id, MediaPagingSource.ORDER, limit);
+        applySearch();
+        for (MediaItem item : upserts) {
+            if (!item.isVideo) {
+                // Fotos nuevas o editadas: al índice de búsqueda
+                ocrIndexer.requestUpdate();
+                break;
             }
-        } catch (Exception e) { Log.w(TAG, "queryAppMedia videos error", e); }
-
-        // Orden combinado por fecha descendente
-        Collections.sort(result, Comparator.comparingLong((MediaItem m) -> m.dateAdded).reversed());
-        return result;
+        }
     }
 
+    // Filtra allItems con el índice OCR (sin búsqueda se muestra todo); los videos no tienen texto
+    private void applySearch() {
+        // Con búsqueda, los resultados pueden estar en páginas aún no leídas
+        if (!query.isEmpty()) loadNextPage();
+        List<MediaItem> items;
+        if (query.isEmpty()) {
+            items = allItems;
+        } else {
+            Set<Long> ids = new HashSet<>(ocrIndexer.search(query));
+            items = new ArrayList<>();
+            for (MediaItem item : allItems) {
+                if (!item.isVideo && ids.contains(item.id)) items.add(item);
+            }
+        }
+        // Mientras quedan páginas la grilla vacía no es definitiva
+        if (items.isEmpty() && allLoaded) {
+            tvEmpty.setText(query.isEmpty() ? R.string.no_images : R.string.no_search_results);
+            tvEmpty.setVisibility(View.VISIBLE);
+            rvGallery.setVisibility(View.GONE);
+        } else {
+            tvEmpty.setVisibility(View.GONE);
+            rvGallery.setVisibility(View.VISIBLE);
+        }
+        adapter.submitList(items);
+    }
 }
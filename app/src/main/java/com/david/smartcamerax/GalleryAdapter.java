@@ -1,6 +1,8 @@
 package com.david.smartcamerax;
 
-import android.net.Uri;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,16 +10,50 @@ import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.david.smartcamerax.storage.ThumbnailCache;
+import com.david.smartcamerax.utils.PriorityLoader;
+
+/**
+ * GalleryAdapter
+ * <p>
+ * Grilla de miniaturas. onBindViewHolder nunca decodifica en el hilo principal:
+ * - Si la miniatura está en la caché de memoria (ThumbnailCache.getCached) se pone directamente.
+ * - Si no, la celda queda vacía y pide la miniatura al PriorityLoader (un hilo por núcleo) con
+ *   prioridad VISIBLE. onViewRecycled cancela la petición: lo que salió de pantalla deja la cola.
+ * - Al hacer scroll se hace prefetch (prioridad PREFETCH, siempre detrás de lo visible) de las
+ *   PREFETCH_ROWS filas siguientes en la dirección del scroll; si la dirección cambia, los prefetch
+ *   pendientes se descartan.
+ * - Un resultado solo se aplica si la celda sigue mostrando el mismo item: el loader no entrega a
+ *   peticiones canceladas y la celda comprueba además su item actual.
+ *
+ * release() cierra los hilos (onDestroy de la actividad); stats() da profundidad de cola y cancelaciones.
+ */
 public class GalleryAdapter extends ListAdapter<MediaItem, GalleryAdapter.ViewHolder> {
 
     public interface Listener {
         void onItemClick(MediaItem item, int position);
     }
 
+    private static final int PREFETCH_ROWS = 3;
+
     private final Listener listener;
+    private final ThumbnailCache thumbnails;
+    private final PriorityLoader<MediaItem, Bitmap> loader;
+    // Lado de la celda en píxeles (tamaño de las miniaturas)
+    private final int cellSizePx;
+    // Dirección del último scroll (1 abajo, -1 arriba, 0 ninguno)
+    private int scrollDirection;
+
+    private final RecyclerView.OnScrollListener prefetcher = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (dy != 0) prefetchAhead(recyclerView, dy > 0 ? 1 : -1);
+        }
+    };
 
     // DIFF callback estático
     private static final DiffUtil.ItemCallback<MediaItem> DIFF = new DiffUtil.ItemCallback<>() {
@@ -32,9 +68,37 @@ public class GalleryAdapter extends ListAdapter<MediaItem, GalleryAdapter.ViewHo
         }
     };
 
-    public GalleryAdapter(Listener listener) {
+    public GalleryAdapter(Listener listener, ThumbnailCache thumbnails, int cellSizePx) {
         super(DIFF);
         this.listener = listener;
+        this.thumbnails = thumbnails;
+        this.cellSizePx = cellSizePx;
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        // Decodificar es CPU + E/S: más hilos que núcleos solo compiten con el hilo de UI
+        this.loader = new PriorityLoader<>("thumbs.loader", Runtime.getRuntime().availableProcessors(),
+                Thread.NORM_PRIORITY - 1, item -> thumbnails.load(item, cellSizePx), mainHandler::post);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(prefetcher);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(prefetcher);
+        super.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    /** Cierra los hilos de decodificación; las peticiones pendientes se descartan. */
+    public void release() {
+        loader.shutdown();
+    }
+
+    /** Profundidad de cola, cancelaciones y tiempos del loader. */
+    public String stats() {
+        return loader.stats();
     }
 
     @NonNull
@@ -47,15 +111,47 @@ public class GalleryAdapter extends ListAdapter<MediaItem, GalleryAdapter.ViewHo
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         MediaItem item = getItem(position);
-        holder.bind(item);
+        holder.bind(item, thumbnails, loader, cellSizePx);
+        // Posición al pulsar, no la del bind: submitList puede haber movido la celda desde entonces
         holder.itemView.setOnClickListener(v -> {
-            if (listener != null) listener.onItemClick(item, position);
+            int current = holder.getBindingAdapterPosition();
+            if (listener != null && current != RecyclerView.NO_POSITION) {
+                listener.onItemClick(getItem(current), current);
+            }
         });
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        holder.unbind();
+        super.onViewRecycled(holder);
+    }
+
+    // Pide las filas que van a entrar por el borde hacia el que se mueve el scroll
+    private void prefetchAhead(RecyclerView recyclerView, int direction) {
+        if (!(recyclerView.getLayoutManager() instanceof GridLayoutManager)) return;
+        GridLayoutManager grid = (GridLayoutManager) recyclerView.getLayoutManager();
+        if (direction != scrollDirection) {
+            loader.cancelPrefetches();
+            scrollDirection = direction;
+        }
+        int edge = direction > 0 ? grid.findLastVisibleItemPosition() : grid.findFirstVisibleItemPosition();
+        if (edge == RecyclerView.NO_POSITION) return;
+        int count = PREFETCH_ROWS * grid.getSpanCount();
+        for (int i = 1; i <= count; i++) {
+            int position = edge + i * direction;
+            if (position < 0 || position >= getItemCount()) break;
+            MediaItem item = getItem(position);
+            if (!thumbnails.isCached(item, cellSizePx)) loader.prefetch(item);
+        }
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private final ImageView iv;
         private final ImageView ivBadge;
+        // Item mostrado ahora: una carga que vuelve para otro item (celda reciclada) se ignora
+        private MediaItem bound;
+        private PriorityLoader<MediaItem, Bitmap>.Request pending;
 
         ViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -63,12 +159,36 @@ public class GalleryAdapter extends ListAdapter<MediaItem, GalleryAdapter.ViewHo
             ivBadge = itemView.findViewById(R.id.iv_video_badge);
         }
 
-        void bind(MediaItem item) {
-            Uri uri = item.uri;
-            iv.setImageURI(uri); // para simplificar; se puede reemplazar por Glide para mejor performance
+        void bind(MediaItem item, ThumbnailCache thumbnails, PriorityLoader<MediaItem, Bitmap> loader, int sizePx) {
+            if (item.equals(bound) && (pending != null || iv.getDrawable() != null)) {
+                // Rebind del mismo item (notifyItemChanged o instancia nueva igual tras un parche): se
+                // mantiene la carga en curso o la miniatura ya mostrada, aunque la caché la haya desalojado
+                bound = item;
+            } else {
+                unbind();
+                bound = item;
+                Bitmap cached = thumbnails.getCached(item, sizePx);
+                iv.setImageBitmap(cached);
+                if (cached == null) {
+                    pending = loader.request(item, bitmap -> {
+                        if (!item.equals(bound)) return; // la celda ya muestra otro item
+                        pending = null;
+                        if (bitmap != null) iv.setImageBitmap(bitmap);
+                    });
+                }
+            }
             if (ivBadge != null) {
                 ivBadge.setVisibility(item.isVideo ? View.VISIBLE : View.GONE);
             }
         }
+
+        // La celda deja de mostrar su item: su petición (si sigue en cola) se cancela
+        void unbind() {
+            if (pending != null) {
+                pending.cancel();
+                pending = null;
+            }
+            bound = null;
+        }
     }
 }
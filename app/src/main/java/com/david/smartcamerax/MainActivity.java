@@ -31,6 +31,10 @@ public class MainActivity extends AppCompatActivity {
         MaterialButton btnGallery = findViewById(R.id.btn_open_gallery);
         btnGallery.setOnClickListener(v -> startActivity(new Intent(this, GalleryActivity.class)));
 
+        // botón para abrir el historial de códigos escaneados
+        MaterialButton btnHistory = findViewById(R.id.btn_open_history);
+        btnHistory.setOnClickListener(v -> startActivity(new Intent(this, ScanHistoryActivity.class)));
+
         // botón para salir de la aplicación
         MaterialButton btnExit = findViewById(R.id.btn_exit);
         btnExit.setOnClickListener(v -> {
@@ -5,16 +5,21 @@ import androidx.annotation.NonNull;
 
 /**
  * MediaItem representa una entrada de la galería (foto o video).
+ * id y dateModified identifican la versión del fichero (clave de las miniaturas en caché).
  */
 public class MediaItem {
     public final Uri uri;
     public final boolean isVideo;
-    public final long dateAdded; // segundos desde epoch (MediaStore.DATE_ADDED)
+    public final long id;           // MediaStore._ID
+    public final long dateAdded;    // segundos desde epoch (MediaStore.DATE_ADDED)
+    public final long dateModified; // segundos desde epoch (MediaStore.DATE_MODIFIED)
 
-    public MediaItem(@NonNull Uri uri, boolean isVideo, long dateAdded) {
+    public MediaItem(@NonNull Uri uri, boolean isVideo, long id, long dateAdded, long dateModified) {
         this.uri = uri;
         this.isVideo = isVideo;
+        this.id = id;
         this.dateAdded = dateAdded;
+        this.dateModified = dateModified;
     }
 
     @Override
@@ -22,13 +27,13 @@ public class MediaItem {
         if (this == o) return true;
         if (!(o instanceof MediaItem)) return false;
         MediaItem other = (MediaItem) o;
-        return uri.equals(other.uri) && isVideo == other.isVideo;
+        return uri.equals(other.uri) && isVideo == other.isVideo && dateModified == other.dateModified;
     }
 
     @Override
     public int hashCode() {
         int r = uri.hashCode();
-        return 31 * r + (isVideo ? 1 : 0);
+        r = 31 * r + (isVideo ? 1 : 0);
+        return 31 * r + Long.hashCode(dateModified);
     }
 }
-
@@ -0,0 +1,168 @@
+package com.david.smartcamerax;
+
+import android.content.ClipData;
+import android.content.ClipboardManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ImageButton;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.david.smartcamerax.storage.ScanHistory;
+import com.david.smartcamerax.storage.ScanRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ScanHistoryActivity
+ * <p>
+ * Historial de códigos escaneados en el modo inteligente (ScanHistory), del más reciente al más antiguo.
+ * - Paginado: se cargan PAGE_SIZE filas y la siguiente página cuando el scroll se acerca al final
+ *   (paginación por cursor en ScanHistoryStore, sin OFFSET).
+ * - Filtro por texto: reinicia la paginación con el valor como subcadena (con un pequeño retardo para
+ *   no consultar en cada tecla).
+ * - Pulsar una entrada copia su valor al portapapeles.
+ * - Todas las consultas van a un executor de fondo; la lista solo se toca en el hilo principal.
+ */
+public class ScanHistoryActivity extends AppCompatActivity {
+
+    private static final String TAG = "ScanHistoryActivity";
+    private static final int PAGE_SIZE = 50;
+    // Cargar la página siguiente cuando quedan menos de estas filas por mostrar
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final long FILTER_DELAY_MS = 250;
+
+    private RecyclerView rvHistory;
+    private TextView tvEmpty;
+    private ScanHistoryAdapter adapter;
+    private ScanHistory history;
+    private ExecutorService ioExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Estado de la paginación (solo en el hilo principal)
+    private final List<ScanRecord> items = new ArrayList<>();
+    private String filter = "";
+    private boolean loading;
+    private boolean endReached;
+    // Se incrementa al cambiar el filtro: descarta páginas de consultas anteriores
+    private int generation;
+
+    private final Runnable applyFilterRunnable = this::reload;
+
+    @Override
+    protected void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_scan_history);
+
+        history = ScanHistory.get(this);
+        ioExecutor = Executors.newSingleThreadExecutor();
+        rvHistory = findViewById(R.id.rv_history);
+        tvEmpty = findViewById(R.id.tv_history_empty);
+
+        ImageButton btnBack = findViewById(R.id.btn_back_history);
+        if (btnBack != null) btnBack.setOnClickListener(v -> finish());
+
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        rvHistory.setLayoutManager(layoutManager);
+        adapter = new ScanHistoryAdapter(record -> {
+            ClipboardManager clipboard = (ClipboardManager) getSystemService(CLIPBOARD_SERVICE);
+            if (clipboard != null) {
+                clipboard.setPrimaryClip(ClipData.newPlainText("scan", record.value));
+                Toast.makeText(this, R.string.msg_copied, Toast.LENGTH_SHORT).show();
+            }
+        });
+        rvHistory.setAdapter(adapter);
+        rvHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= items.size() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        EditText etFilter = findViewById(R.id.et_history_filter);
+        etFilter.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filter = s.toString().trim();
+                mainHandler.removeCallbacks(applyFilterRunnable);
+                mainHandler.postDelayed(applyFilterRunnable, FILTER_DELAY_MS);
+            }
+        });
+
+        reload();
+    }
+
+    // Vuelve a la primera página (al abrir o al cambiar el filtro)
+    private void reload() {
+        generation++;
+        items.clear();
+        endReached = false;
+        loading = false;
+        adapter.submitList(new ArrayList<>(items));
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (loading || endReached) return;
+        loading = true;
+        final int gen = generation;
+        final ScanRecord after = items.isEmpty() ? null : items.get(items.size() - 1);
+        final String query = filter;
+        ioExecutor.execute(() -> {
+            List<ScanRecord> page;
+            try {
+                // Primera página: incluir los escaneos que aún estén en la cola del escritor
+                if (after == null) history.flushAndWait();
+                page = history.getStore().page(after, query, PAGE_SIZE);
+            } catch (Exception e) {
+                Log.w(TAG, "Error leyendo historial", e);
+                page = new ArrayList<>();
+            }
+            final List<ScanRecord> result = page;
+            mainHandler.post(() -> onPageLoaded(gen, result));
+        });
+    }
+
+    private void onPageLoaded(int gen, List<ScanRecord> page) {
+        if (gen != generation || isDestroyed()) return;
+        loading = false;
+        endReached = page.size() < PAGE_SIZE;
+        items.addAll(page);
+        adapter.submitList(new ArrayList<>(items));
+        boolean empty = items.isEmpty();
+        tvEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
+        rvHistory.setVisibility(empty ? View.GONE : View.VISIBLE);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacks(applyFilterRunnable);
+        ioExecutor.shutdown();
+    }
+}
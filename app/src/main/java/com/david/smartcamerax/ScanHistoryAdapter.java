@@ -0,0 +1,98 @@
+package com.david.smartcamerax;
+
+import android.text.format.DateFormat;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.david.smartcamerax.storage.ScanRecord;
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+import java.util.Date;
+
+public class ScanHistoryAdapter extends ListAdapter<ScanRecord, ScanHistoryAdapter.ViewHolder> {
+
+    public interface Listener {
+        void onItemClick(ScanRecord record);
+    }
+
+    private final Listener listener;
+
+    // DIFF callback estático: la identidad es el id de la base de datos
+    private static final DiffUtil.ItemCallback<ScanRecord> DIFF = new DiffUtil.ItemCallback<>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ScanRecord oldItem, @NonNull ScanRecord newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ScanRecord oldItem, @NonNull ScanRecord newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    public ScanHistoryAdapter(Listener listener) {
+        super(DIFF);
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_scan, parent, false);
+        return new ViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        ScanRecord record = getItem(position);
+        holder.bind(record);
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) listener.onItemClick(record);
+        });
+    }
+
+    static String formatName(int format) {
+        switch (format) {
+            case Barcode.FORMAT_QR_CODE: return "QR";
+            case Barcode.FORMAT_EAN_13: return "EAN-13";
+            case Barcode.FORMAT_EAN_8: return "EAN-8";
+            case Barcode.FORMAT_UPC_A: return "UPC-A";
+            case Barcode.FORMAT_UPC_E: return "UPC-E";
+            case Barcode.FORMAT_CODE_128: return "Code 128";
+            case Barcode.FORMAT_CODE_39: return "Code 39";
+            case Barcode.FORMAT_CODE_93: return "Code 93";
+            case Barcode.FORMAT_CODABAR: return "Codabar";
+            case Barcode.FORMAT_ITF: return "ITF";
+            case Barcode.FORMAT_DATA_MATRIX: return "Data Matrix";
+            case Barcode.FORMAT_PDF417: return "PDF417";
+            case Barcode.FORMAT_AZTEC: return "Aztec";
+            default: return "?";
+        }
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        private final TextView tvValue;
+        private final TextView tvMeta;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvValue = itemView.findViewById(R.id.tv_scan_value);
+            tvMeta = itemView.findViewById(R.id.tv_scan_meta);
+        }
+
+        void bind(ScanRecord record) {
+            tvValue.setText(record.value);
+            Date date = new Date(record.timestampMs);
+            String when = DateFormat.getDateFormat(itemView.getContext()).format(date) + " "
+                    + DateFormat.getTimeFormat(itemView.getContext()).format(date);
+            tvMeta.setText(formatName(record.format) + " · " + when);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.david.smartcamerax.analyzers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * AnalysisProfile
+ * <p>
+ * Qué detectores ejecuta el modo inteligente y con qué stream de ImageAnalysis:
+ * - Resolución objetivo (tamaño del sensor, sin rotar): CameraX elige la más cercana soportada.
+ * - Formato de salida: YUV_420_888 (sin conversión; ML Kit lo lee directamente y permite recortar la
+ *   ROI y la puerta de escena) o RGBA_8888 (CameraX convierte; útil si el backend solo acepta Bitmap).
+ * - Cadencia del detector de texto (0 = sin texto) y si se buscan códigos.
+ * - Región de interés que SmartAnalyzer entrega a ML Kit: en barcode() el centro (donde se apunta al
+ *   código: menos área y menos latencia); en los demás el frame completo.
+ * - Criterio para elegir la resolución con un ResolutionBenchmark grabado: la más pequeña con al
+ *   menos {@code minAccuracy} y un p50 dentro de {@code latencyBudgetMs}.
+ *
+ * Presets: barcode() (QR a 640x480 sobra), balanced() (el comportamiento por defecto) y denseText()
+ * (documentos con letra pequeña). Inmutable: withResolution()/withFormat() devuelven una copia.
+ */
+public final class AnalysisProfile {
+
+    public enum OutputFormat { YUV_420_888, RGBA_8888 }
+
+    private final String name;
+    private final int width;
+    private final int height;
+    private final OutputFormat format;
+    private final int textEveryN;
+    private final float textDuty;
+    private final boolean barcodes;
+    private final float minAccuracy;
+    private final long latencyBudgetMs;
+    private final RegionOfInterest roi;
+
+    private AnalysisProfile(String name, int width, int height, OutputFormat format, int textEveryN, float textDuty,
+                            boolean barcodes, float minAccuracy, long latencyBudgetMs, RegionOfInterest roi) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.textEveryN = textEveryN;
+        this.textDuty = textDuty;
+        this.barcodes = barcodes;
+        this.minAccuracy = minAccuracy;
+        this.latencyBudgetMs = latencyBudgetMs;
+        this.roi = roi;
+    }
+
+    /**
+     * Solo códigos: 640x480 basta para QR a distancia de lectura y la inferencia cabe en un frame. Se
+     * analiza el 70% central: el código se apunta con el centro del visor.
+     */
+    public static AnalysisProfile barcode() {
+        return new AnalysisProfile("barcode", 640, 480, OutputFormat.YUV_420_888, 0, 0f, true, 0.95f, 33,
+                RegionOfInterest.center(0.7f));
+    }
+
+    /**
+     * Texto cada 3 frames (como mucho la mitad del tiempo) y códigos en cada frame, a 640x480 (la
+     * resolución por defecto de ImageAnalysis, con la que se analizaba antes de los perfiles). Un
+     * ResolutionBenchmark grabado puede elegir otra; sin medidas no se paga el coste de 720p.
+     */
+    public static AnalysisProfile balanced() {
+        return new AnalysisProfile("balanced", 640, 480, OutputFormat.YUV_420_888, 3, 0.5f, true, 0.9f, 150,
+                RegionOfInterest.full());
+    }
+
+    /** Solo texto, a 1080p y cada 2 frames: letra pequeña donde la resolución manda sobre la latencia. */
+    public static AnalysisProfile denseText() {
+        return new AnalysisProfile("dense_text", 1920, 1080, OutputFormat.YUV_420_888, 2, 0.7f, false, 0.9f, 400,
+                RegionOfInterest.full());
+    }
+
+    /** Presets en el orden en que la UI los recorre. */
+    public static List<AnalysisProfile> presets() {
+        return Collections.unmodifiableList(Arrays.asList(barcode(), balanced(), denseText()));
+    }
+
+    /** Preset con ese nombre, o null. */
+    public static AnalysisProfile byName(String name) {
+        for (AnalysisProfile profile : presets()) {
+            if (profile.name.equals(name)) return profile;
+        }
+        return null;
+    }
+
+    public AnalysisProfile withResolution(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Resolución inválida: " + width + "x" + height);
+        return new AnalysisProfile(name, width, height, format, textEveryN, textDuty, barcodes, minAccuracy,
+                latencyBudgetMs, roi);
+    }
+
+    public AnalysisProfile withFormat(OutputFormat format) {
+        return new AnalysisProfile(name, width, height, format, textEveryN, textDuty, barcodes, minAccuracy,
+                latencyBudgetMs, roi);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    public boolean hasText() {
+        return textEveryN > 0;
+    }
+
+    public int getTextEveryN() {
+        return textEveryN;
+    }
+
+    public float getTextDuty() {
+        return textDuty;
+    }
+
+    public boolean hasBarcodes() {
+        return barcodes;
+    }
+
+    public float getMinAccuracy() {
+        return minAccuracy;
+    }
+
+    public long getLatencyBudgetMs() {
+        return latencyBudgetMs;
+    }
+
+    /** Región de interés del perfil (copia nueva: el cursor de baldosas no se comparte). */
+    public RegionOfInterest getRegionOfInterest() {
+        return roi.copy();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s %dx%d %s text=%s barcodes=%b roi=%s", name, width, height, format,
+                hasText() ? "1/" + textEveryN : "off", barcodes, roi.getMode());
+    }
+}
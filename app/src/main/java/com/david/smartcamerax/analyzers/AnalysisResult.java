@@ -0,0 +1,190 @@
+package com.david.smartcamerax.analyzers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AnalysisResult
+ * <p>
+ * Resultado estructurado de SmartAnalyzer (sustituye al String "TEXTO: ... QR: ..."):
+ * - Items de texto (bloques de TextRecognizer) y de códigos (BarcodeScanner), cada uno con su valor,
+ *   formato y caja en coordenadas del frame ya rotado (las que devuelve ML Kit).
+ * - Timestamp (System.nanoTime del frame) y tamaño del frame al que se refieren las cajas.
+ *
+ * Inmutable, así que el mismo objeto se puede pasar al hilo principal, guardar en historial o
+ * comparar entre frames sin copiarlo. El texto para mostrar se construye solo bajo demanda.
+ */
+public final class AnalysisResult {
+
+    public enum Kind { TEXT, BARCODE }
+
+    /** Resultado vacío (sin detecciones). */
+    public static final AnalysisResult EMPTY = new Builder().build(0, 0, 0);
+
+    /** Una detección: bloque de texto o código. */
+    public static final class Item {
+        private final Kind kind;
+        private final String value;
+        private final int format;
+        private final int left;
+        private final int top;
+        private final int right;
+        private final int bottom;
+
+        Item(Kind kind, String value, int format, int left, int top, int right, int bottom) {
+            this.kind = kind;
+            this.value = value;
+            this.format = format;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /** Formato de ML Kit (Barcode.FORMAT_*) o 0 para texto. */
+        public int getFormat() {
+            return format;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public int getRight() {
+            return right;
+        }
+
+        public int getBottom() {
+            return bottom;
+        }
+
+        /** false si ML Kit no dio caja para esta detección. */
+        public boolean hasBounds() {
+            return right > left && bottom > top;
+        }
+
+        /** Copia con la caja desplazada (de coordenadas de un recorte a las del frame completo). */
+        Item translated(int dx, int dy) {
+            if ((dx == 0 && dy == 0) || !hasBounds()) return this;
+            return new Item(kind, value, format, left + dx, top + dy, right + dx, bottom + dy);
+        }
+
+        /** Clave de identidad entre frames: tipo + valor (la caja se mueve con la mano). */
+        String key() {
+            return (kind == Kind.TEXT ? "T:" : "B:") + value;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "{" + value + " [" + left + "," + top + "," + right + "," + bottom + "]}";
+        }
+    }
+
+    private final List<Item> items;
+    private final long timestampNanos;
+    private final int frameWidth;
+    private final int frameHeight;
+
+    private AnalysisResult(List<Item> items, long timestampNanos, int frameWidth, int frameHeight) {
+        this.items = Collections.unmodifiableList(items);
+        this.timestampNanos = timestampNanos;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Item> getItems(Kind kind) {
+        List<Item> out = new ArrayList<>();
+        for (Item item : items) {
+            if (item.kind == kind) out.add(item);
+        }
+        return out;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    /** Texto para el overlay, con el mismo formato que usaba SmartAnalyzer ("TEXTO: ..." / "QR: ..."). */
+    public String toDisplayString() {
+        StringBuilder text = new StringBuilder();
+        StringBuilder codes = new StringBuilder();
+        for (Item item : items) {
+            StringBuilder sb = item.kind == Kind.TEXT ? text : codes;
+            if (sb.length() > 0) sb.append(item.kind == Kind.TEXT ? '\n' : ' ');
+            sb.append(item.value);
+        }
+        StringBuilder out = new StringBuilder();
+        if (text.length() > 0) out.append("TEXTO: ").append(text);
+        if (codes.length() > 0) {
+            if (out.length() > 0) out.append('\n');
+            out.append("QR: ").append(codes);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisResult{" + items + "}";
+    }
+
+    /**
+     * Builder de AnalysisResult. Normaliza los valores (espacios) y descarta los vacíos.
+     */
+    public static final class Builder {
+        private final List<Item> items = new ArrayList<>();
+
+        public Builder addText(String text, int left, int top, int right, int bottom) {
+            return add(Kind.TEXT, text, 0, left, top, right, bottom);
+        }
+
+        public Builder addBarcode(String rawValue, int format, int left, int top, int right, int bottom) {
+            return add(Kind.BARCODE, rawValue, format, left, top, right, bottom);
+        }
+
+        Builder add(Item item) {
+            items.add(item);
+            return this;
+        }
+
+        private Builder add(Kind kind, String value, int format, int left, int top, int right, int bottom) {
+            if (value == null) return this;
+            String normalized = kind == Kind.TEXT ? value.trim().replaceAll("\\s+", " ") : value;
+            if (normalized.isEmpty()) return this;
+            items.add(new Item(kind, normalized, format, left, top, right, bottom));
+            return this;
+        }
+
+        public AnalysisResult build(long timestampNanos, int frameWidth, int frameHeight) {
+            return new AnalysisResult(new ArrayList<>(items), timestampNanos, frameWidth, frameHeight);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.david.smartcamerax.analyzers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CameraFrame
+ * <p>
+ * Vista Java pura de un frame YUV_420_888 para DetectorPipeline: planos con sus strides (para la
+ * puerta de escena y la copia a NV21) y rotación. SmartAnalyzer la construye a partir del ImageProxy;
+ * los tests la construyen con buffers sintéticos.
+ *
+ * Un frame sin planos (ofNativeImage, p.ej. un Bitmap de un stream RGBA) solo admite la región
+ * completa y no pasa por la puerta de escena.
+ */
+public final class CameraFrame {
+
+    private final int width;
+    private final int height;
+    private final int rotation;
+    private final ByteBuffer y;
+    private final int yRowStride;
+    private final ByteBuffer u;
+    private final ByteBuffer v;
+    private final int uvRowStride;
+    private final int uvPixelStride;
+    private final Object nativeImage;
+
+    /** Frame con planos YUV: los detectores reciben siempre una copia NV21 (el frame no se retiene). */
+    public CameraFrame(int width, int height, int rotation,
+                       ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride) {
+        this(width, height, rotation, y, yRowStride, u, v, uvRowStride, uvPixelStride, null);
+    }
+
+    private CameraFrame(int width, int height, int rotation,
+                        ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                        Object nativeImage) {
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.y = y;
+        this.yRowStride = yRowStride;
+        this.u = u;
+        this.v = v;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.nativeImage = nativeImage;
+    }
+
+    /** Frame sin planos YUV: los detectores reciben siempre {@code nativeImage} completa. */
+    public static CameraFrame ofNativeImage(int width, int height, int rotation, Object nativeImage) {
+        if (nativeImage == null) throw new IllegalArgumentException("nativeImage == null");
+        return new CameraFrame(width, height, rotation, null, 0, null, null, 0, 0, nativeImage);
+    }
+
+    /** true si hay planos YUV (recorte de ROI y puerta de escena posibles). */
+    public boolean hasPlanes() {
+        return y != null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    /** Ancho tras aplicar la rotación (el espacio de las cajas del resultado). */
+    public int getRotatedWidth() {
+        return rotation == 90 || rotation == 270 ? height : width;
+    }
+
+    /** Alto tras aplicar la rotación. */
+    public int getRotatedHeight() {
+        return rotation == 90 || rotation == 270 ? width : height;
+    }
+
+    public ByteBuffer getY() {
+        return y;
+    }
+
+    public int getYRowStride() {
+        return yRowStride;
+    }
+
+    public Object getNativeImage() {
+        return nativeImage;
+    }
+
+    /** Copia {@code region} a {@code out} en NV21 (ver YuvCropper). */
+    void cropToNv21(RegionOfInterest.Region region, byte[] out) {
+        YuvCropper.cropToNv21(y, yRowStride, u, v, uvRowStride, uvPixelStride,
+                region.getLeft(), region.getTop(), region.getWidth(), region.getHeight(), out);
+    }
+}
@@ -0,0 +1,39 @@
+package com.david.smartcamerax.analyzers;
+
+import java.io.Closeable;
+
+/**
+ * Detector
+ * <p>
+ * Un backend de detección (texto, códigos...) que DetectorPipeline puede planificar. Las
+ * implementaciones de ML Kit (MlKitTextDetector, MlKitBarcodeDetector) son adaptadores finos; en los
+ * tests se usan detectores falsos con latencia configurable para medir rendimiento y descartes en la
+ * JVM sin cámara ni ML Kit.
+ *
+ * Contrato:
+ * - detect() es asíncrono y debe llamar exactamente una vez a onSuccess u onFailure del callback,
+ *   desde cualquier hilo. El pipeline no lanza otra detección en el mismo detector hasta entonces.
+ * - La entrada solo es válida hasta ese callback (el frame o el buffer NV21 se reutilizan después).
+ * - Las cajas del resultado van en coordenadas de la imagen de entrada ya rotada; el pipeline las
+ *   traslada al frame completo.
+ */
+public interface Detector extends Closeable {
+
+    interface Callback {
+        void onSuccess(AnalysisResult result);
+
+        void onFailure(Exception e);
+    }
+
+    /** Nombre corto para métricas y logs ("text", "barcode"). */
+    String getName();
+
+    /** Tipo de las detecciones que produce. */
+    AnalysisResult.Kind getKind();
+
+    void detect(DetectorInput input, Callback callback);
+
+    /** Libera el backend (sin excepciones comprobadas). */
+    @Override
+    void close();
+}
@@ -0,0 +1,64 @@
+package com.david.smartcamerax.analyzers;
+
+/**
+ * DetectorInput
+ * <p>
+ * Imagen que recibe un Detector, en una de dos formas:
+ * - NV21 (getNv21() != null): la región de interés ya recortada y copiada por el pipeline.
+ * - Imagen nativa (getNativeImage() != null): el frame completo sin copiar, p.ej. el
+ *   android.media.Image del ImageProxy o un Bitmap si el stream es RGBA. Se pasa como Object para que
+ *   el pipeline no dependa de Android.
+ *
+ * width/height son los de la imagen sin rotar; rotation es la que hay que aplicar (0/90/180/270).
+ */
+public final class DetectorInput {
+
+    private final int width;
+    private final int height;
+    private final int rotation;
+    private final long timestampNanos;
+    private final byte[] nv21;
+    private final Object nativeImage;
+
+    private DetectorInput(int width, int height, int rotation, long timestampNanos, byte[] nv21, Object nativeImage) {
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.timestampNanos = timestampNanos;
+        this.nv21 = nv21;
+        this.nativeImage = nativeImage;
+    }
+
+    public static DetectorInput ofNv21(byte[] nv21, int width, int height, int rotation, long timestampNanos) {
+        return new DetectorInput(width, height, rotation, timestampNanos, nv21, null);
+    }
+
+    public static DetectorInput ofNativeImage(Object image, int width, int height, int rotation, long timestampNanos) {
+        return new DetectorInput(width, height, rotation, timestampNanos, null, image);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /** Píxeles NV21 (exactamente YuvCropper.nv21Size(width, height) bytes), o null. */
+    public byte[] getNv21() {
+        return nv21;
+    }
+
+    public Object getNativeImage() {
+        return nativeImage;
+    }
+}
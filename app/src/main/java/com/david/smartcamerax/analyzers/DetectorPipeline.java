@@ -0,0 +1,475 @@
+package com.david.smartcamerax.analyzers;
+
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DetectorPipeline
+ * <p>
+ * Compone N detectores sobre el mismo frame compartido. Es la lógica de planificación de
+ * SmartAnalyzer sin dependencias de Android ni de ML Kit, así que se puede probar y medir en la JVM
+ * con detectores falsos:
+ *
+ * <pre>
+ * DetectorPipeline pipeline = new DetectorPipeline.Builder(listener)
+ *         .add(textDetector, 3, 0.5f)      // cada 3 frames, como mucho la mitad del tiempo ocupado
+ *         .add(barcodeDetector, 1, 1f)     // cada frame
+ *         .sceneGate(new SceneChangeGate(6f, 2000))
+ *         .presenceGate(new TextPresenceDetector())
+ *         .build();
+ * pipeline.submit(frame, imageProxy::close);
+ * </pre>
+ *
+ * - Cada detector va en su carril (Lane) con un DetectorScheduler: a lo sumo una detección en vuelo,
+ *   cadencia propia y ajuste por latencia media móvil. Un carril lento no frena a los demás.
+ * - Con planos YUV cada carril copia su región (la completa sin ROI) a su propio buffer NV21 y el
+ *   frame se cierra al salir de submit(): con KEEP_ONLY_LATEST la cámara no entrega otro frame hasta
+ *   cerrar el actual, así que un carril lento que lo retuviera dejaría sin frames a los rápidos. Los
+ *   frames sin planos (Bitmap RGBA) se comparten con RefCountedFrame y se cierran cuando los suelta
+ *   el último carril que los lee.
+ * - SceneChangeGate opcional antes de lanzar nada (cada carril con su referencia: compara con lo
+ *   último que él procesó, no con lo que procesó otro carril a otra cadencia) y, tras ella,
+ *   TextPresenceDetector opcional: solo se lanzan los detectores si el frame parece contener texto o
+ *   códigos; si no, el frame cuenta como vacío para sus estabilizadores (lo confirmado caduca).
+ * - RegionOfInterest por carril (cursor de baldosas propio, ciclo completo acumulado antes de votar).
+ * - Un ResultStabilizer por carril; el listener recibe la unión de los últimos resultados estables,
+ *   en el hilo que completa la detección y con el lock de resultados tomado, para que dos carriles
+ *   que terminan a la vez no entreguen sus uniones en desorden.
+ * - Métricas: "analyzer.frames", "analyzer.<detector>.inference", etc. (ver Metrics).
+ *
+ * submit() se llama desde un único hilo (el del analizador); los callbacks pueden llegar desde
+ * cualquiera.
+ */
+public final class DetectorPipeline implements Closeable {
+
+    /** Destino de los resultados; se llama desde el hilo que completa cada detección. */
+    public interface Listener {
+        /**
+         * Unión de los resultados estables de todos los detectores tras un cambio en alguno. Se llama
+         * con un lock tomado (orden de entrega garantizado): no bloquear, p.ej. solo postear.
+         */
+        void onResult(AnalysisResult result);
+
+        /** Fallo de un detector (el frame cuenta como sin detecciones para ese carril). */
+        void onError(String detector, Exception e);
+    }
+
+    // Métricas de proceso: frames recibidos, descartados y tiempo de submit() en el hilo de cámara
+    private static final Counter FRAMES = Metrics.counter("analyzer.frames");
+    private static final Counter NOT_DUE = Metrics.counter("analyzer.frames_not_due");
+    private static final Counter SCENE_SKIPPED = Metrics.counter("analyzer.scene_skipped");
+    private static final Counter PRESENCE_SKIPPED = Metrics.counter("analyzer.presence_skipped");
+    private static final LatencyHistogram PRESENCE = Metrics.histogram("analyzer.presence");
+    private static final LatencyHistogram ANALYZE = Metrics.histogram("analyzer.analyze");
+    // ROI de los frames sin planos YUV (no se pueden recortar)
+    private static final RegionOfInterest FULL_ONLY = RegionOfInterest.full();
+
+    private final Listener listener;
+    private final SceneChangeGate sceneGate;
+    private final TextPresenceDetector presenceGate;
+    private final Lane[] lanes;
+    // Carriles a lanzar en el frame actual (solo se usa desde el hilo de submit())
+    private final boolean[] due;
+    // Último resultado estable de cada tipo; la unión es lo que ve el listener
+    private final Map<AnalysisResult.Kind, AnalysisResult> stableByKind = new LinkedHashMap<>();
+
+    // Región de interés configurada; cada carril trabaja con su propia copia (cursor de baldosas)
+    private volatile RegionOfInterest roi = RegionOfInterest.full();
+
+    private DetectorPipeline(Builder builder) {
+        this.listener = builder.listener;
+        this.sceneGate = builder.sceneGate;
+        this.presenceGate = builder.presenceGate;
+        this.lanes = new Lane[builder.detectors.size()];
+        for (int i = 0; i < lanes.length; i++) {
+            Detector detector = builder.detectors.get(i);
+            lanes[i] = new Lane(detector, builder.schedulers.get(i),
+                    new ResultStabilizer(builder.voteWindow, builder.voteConfirm));
+            stableByKind.put(detector.getKind(), AnalysisResult.EMPTY);
+        }
+        this.due = new boolean[lanes.length];
+    }
+
+    /**
+     * Cambia la región que se entrega a los detectores (FULL por defecto). Se puede llamar desde
+     * cualquier hilo; cada carril la aplica en su siguiente detección y reinicia su ciclo de baldosas.
+     */
+    public void setRegionOfInterest(RegionOfInterest roi) {
+        this.roi = roi;
+    }
+
+    public RegionOfInterest getRegionOfInterest() {
+        return roi;
+    }
+
+    public SceneChangeGate getSceneGate() {
+        return sceneGate;
+    }
+
+    public TextPresenceDetector getPresenceGate() {
+        return presenceGate;
+    }
+
+    /** Planificador del detector de {@code kind} (cadencia, latencia media móvil, runs/skips). */
+    public DetectorScheduler getScheduler(AnalysisResult.Kind kind) {
+        return lane(kind).scheduler;
+    }
+
+    /** Latencias de detección de {@code kind} con el modo de ROI indicado. */
+    public LatencyStats getLatency(AnalysisResult.Kind kind, RegionOfInterest.Mode mode) {
+        return lane(kind).latency.get(mode);
+    }
+
+    /** true si hay un detector de {@code kind} en el pipeline. */
+    public boolean has(AnalysisResult.Kind kind) {
+        for (Lane lane : lanes) {
+            if (lane.detector.getKind() == kind) return true;
+        }
+        return false;
+    }
+
+    private Lane lane(AnalysisResult.Kind kind) {
+        for (Lane lane : lanes) {
+            if (lane.detector.getKind() == kind) return lane;
+        }
+        throw new IllegalArgumentException("Sin detector para " + kind);
+    }
+
+    /**
+     * Entrega un frame. Lanza los detectores a los que les toca y garantiza que {@code close} se
+     * ejecuta exactamente una vez: al salir si nadie retiene el frame, o cuando lo suelte el último.
+     *
+     * @return número de detectores lanzados (0 si el frame se descartó)
+     */
+    public int submit(CameraFrame frame, Runnable close) {
+        long now = System.nanoTime();
+        FRAMES.inc();
+        RegionOfInterest roi = frame.hasPlanes() ? this.roi : FULL_ONLY;
+        boolean anyDue = false;
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = lanes[i];
+            lane.scheduler.tick();
+            due[i] = lane.scheduler.isDue(now);
+            if (due[i]) {
+                // Libre: ya no hay callback tocando su estado, se puede cambiar de ROI
+                lane.syncRoi(roi);
+                anyDue = true;
+            } else {
+                lane.scheduler.skip();
+                lane.skipped.inc();
+            }
+        }
+        if (!anyDue) {
+            NOT_DUE.inc();
+            close.run();
+            return 0;
+        }
+
+        // Escena sin cambios desde la última inferencia de cada carril: ese carril no se lanza. Con
+        // baldosas solo se evalúa al empezar un ciclo, para no dejar el ciclo a medias con la escena quieta.
+        if (sceneGate != null && frame.hasPlanes() && !gateScene(frame, now)) {
+            SCENE_SKIPPED.inc();
+            close.run();
+            return 0;
+        }
+        boolean midCycle = false;
+        for (int i = 0; i < lanes.length; i++) {
+            if (due[i]) midCycle |= lanes[i].roi.getNextTile() != 0;
+        }
+
+        // Nada con aspecto de texto ni de código: ML Kit no encontraría nada (mismo criterio de ciclo)
+        if (presenceGate != null && !midCycle && frame.hasPlanes()) {
+            long start = System.nanoTime();
+            boolean likely = presenceGate.shouldProcess(frame.getY(), frame.getYRowStride(), frame.getWidth(), frame.getHeight());
+            PRESENCE.recordSince(start);
+            if (!likely) {
+                PRESENCE_SKIPPED.inc();
+                for (int i = 0; i < lanes.length; i++) {
+                    if (due[i]) lanes[i].offerEmpty(frame, now);
+                }
+                close.run();
+                return 0;
+            }
+        }
+
+        // Referencia de submit(): el frame sigue abierto al menos hasta lanzar todos los carriles
+        RefCountedFrame shared = new RefCountedFrame(close);
+        int launched = 0;
+        try {
+            for (int i = 0; i < lanes.length; i++) {
+                if (due[i] && lanes[i].run(frame, shared, now)) launched++;
+            }
+        } finally {
+            shared.release();
+        }
+        ANALYZE.recordSince(now);
+        return launched;
+    }
+
+    // Pasa por la puerta de escena los carriles que empiezan ciclo; false si ya no queda ninguno
+    private boolean gateScene(CameraFrame frame, long now) {
+        boolean sampled = false;
+        boolean anyDue = false;
+        for (int i = 0; i < lanes.length; i++) {
+            if (!due[i]) continue;
+            Lane lane = lanes[i];
+            if (lane.roi.getNextTile() == 0) {
+                if (!sampled) {
+                    sceneGate.sample(frame.getY(), frame.getYRowStride(), frame.getWidth(), frame.getHeight());
+                    sampled = true;
+                }
+                due[i] = sceneGate.shouldProcess(lane.sceneReference, now);
+            }
+            anyDue |= due[i];
+        }
+        return anyDue;
+    }
+
+    // Publica el nuevo resultado estable de un carril junto con el último de los demás. La entrega va
+    // dentro del lock: si no, la unión de un carril podría llegar después de otra más reciente
+    private void publish(AnalysisResult.Kind kind, AnalysisResult stable) {
+        synchronized (stableByKind) {
+            stableByKind.put(kind, stable);
+            AnalysisResult.Builder builder = new AnalysisResult.Builder();
+            for (AnalysisResult result : stableByKind.values()) {
+                for (AnalysisResult.Item item : result.getItems()) builder.add(item);
+            }
+            listener.onResult(builder.build(stable.getTimestampNanos(), stable.getFrameWidth(), stable.getFrameHeight()));
+        }
+    }
+
+    /** Resumen de una línea por detector (planificador, votación) para el log. */
+    public String stats() {
+        StringBuilder sb = new StringBuilder();
+        for (Lane lane : lanes) {
+            if (sb.length() > 0) sb.append(" | ");
+            sb.append(lane.scheduler.stats()).append(" emitted=").append(lane.stabilizer.getEmitted())
+                    .append(" suppressed=").append(lane.stabilizer.getSuppressed());
+        }
+        return sb.toString();
+    }
+
+    /** Cierra todos los detectores (aunque alguno falle; se relanza el primer error). */
+    @Override
+    public void close() {
+        RuntimeException first = null;
+        for (Lane lane : lanes) {
+            try {
+                lane.detector.close();
+            } catch (RuntimeException e) {
+                if (first == null) first = e;
+            }
+        }
+        if (first != null) throw first;
+    }
+
+    /**
+     * Un detector con su planificador, su estabilizador y su cursor de ROI.
+     * <p>
+     * roi, cycle, nv21 y el estabilizador solo se tocan con el detector ocupado o recién visto libre:
+     * desde submit() (tras isDue()) y desde su callback antes de scheduler.finish(); el planificador
+     * sincronizado ordena ambos accesos.
+     */
+    private final class Lane implements Detector.Callback {
+        final Detector detector;
+        final DetectorScheduler scheduler;
+        final ResultStabilizer stabilizer;
+        final Map<RegionOfInterest.Mode, LatencyStats> latency = new EnumMap<>(RegionOfInterest.Mode.class);
+        final LatencyHistogram inference;
+        final Counter skipped;
+        final Counter errors;
+        // Firma de la escena en la última inferencia de este carril (solo desde submit())
+        final SceneChangeGate.Reference sceneReference = new SceneChangeGate.Reference();
+        private RegionOfInterest configured;
+        RegionOfInterest roi;
+        private AnalysisResult.Builder cycle = new AnalysisResult.Builder();
+        private byte[] nv21;
+
+        // Detección en vuelo (válidos entre run() y el callback)
+        private RefCountedFrame held;
+        private long startNanos;
+        private RegionOfInterest.Mode mode;
+        private boolean cycleEnd;
+        private int dx;
+        private int dy;
+        private int frameWidth;
+        private int frameHeight;
+
+        Lane(Detector detector, DetectorScheduler scheduler, ResultStabilizer stabilizer) {
+            this.detector = detector;
+            this.scheduler = scheduler;
+            this.stabilizer = stabilizer;
+            this.inference = Metrics.histogram("analyzer." + detector.getName() + ".inference");
+            this.skipped = Metrics.counter("analyzer." + detector.getName() + ".skipped");
+            this.errors = Metrics.counter("analyzer." + detector.getName() + ".errors");
+            for (RegionOfInterest.Mode m : RegionOfInterest.Mode.values()) {
+                latency.put(m, new LatencyStats());
+            }
+        }
+
+        // Nueva ROI: copia con cursor propio y ciclo limpio (descarta baldosas de la anterior)
+        void syncRoi(RegionOfInterest current) {
+            if (current != configured) {
+                configured = current;
+                roi = current.copy();
+                cycle = new AnalysisResult.Builder();
+            }
+        }
+
+        boolean run(CameraFrame frame, RefCountedFrame shared, long now) {
+            int width = frame.getWidth();
+            int height = frame.getHeight();
+            int rotation = frame.getRotation();
+            RegionOfInterest.Region region = roi.next(width, height);
+            // Con TILES el resultado se acumula y se entrega al estabilizador al cerrar cada ciclo
+            cycleEnd = roi.getNextTile() == 0;
+            dx = region.offsetX(rotation, width, height);
+            dy = region.offsetY(rotation, width, height);
+            mode = roi.getMode();
+            frameWidth = frame.getRotatedWidth();
+            frameHeight = frame.getRotatedHeight();
+            startNanos = now;
+
+            DetectorInput input;
+            if (!frame.hasPlanes()) {
+                // Sin planos no hay copia posible (siempre región completa): se retiene la imagen
+                shared.retain();
+                held = shared;
+                input = DetectorInput.ofNativeImage(frame.getNativeImage(), width, height, rotation, now);
+            } else {
+                // Los píxeles se copian: este carril no retiene el frame
+                held = null;
+                int size = YuvCropper.nv21Size(region.getWidth(), region.getHeight());
+                if (nv21 == null || nv21.length != size) {
+                    nv21 = new byte[size];
+                }
+                frame.cropToNv21(region, nv21);
+                input = DetectorInput.ofNv21(nv21, region.getWidth(), region.getHeight(), rotation, now);
+            }
+
+            scheduler.start(now);
+            try {
+                detector.detect(input, this);
+            } catch (RuntimeException e) {
+                onFailure(e);
+                return false;
+            }
+            return true;
+        }
+
+        // Frame descartado por la puerta de presencia: cuenta como una inferencia sin detecciones, para
+        // que lo confirmado caduque igual que si ML Kit hubiera devuelto un resultado vacío
+        void offerEmpty(CameraFrame frame, long now) {
+            AnalysisResult stable = stabilizer.offer(new AnalysisResult.Builder()
+                    .build(now, frame.getRotatedWidth(), frame.getRotatedHeight()));
+            if (stable != null) publish(detector.getKind(), stable);
+        }
+
+        @Override
+        public void onSuccess(AnalysisResult result) {
+            complete(result, null);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            complete(null, e);
+        }
+
+        private void complete(AnalysisResult result, Exception error) {
+            long end = System.nanoTime();
+            RefCountedFrame frame = held;
+            held = null;
+            try {
+                long nanos = end - startNanos;
+                latency.get(mode).record(nanos);
+                inference.recordNanos(nanos);
+                if (error != null) {
+                    errors.inc();
+                    listener.onError(detector.getName(), error);
+                } else if (result != null) {
+                    for (AnalysisResult.Item item : result.getItems()) {
+                        cycle.add(item.translated(dx, dy));
+                    }
+                }
+                if (cycleEnd) {
+                    AnalysisResult frameResult = cycle.build(startNanos, frameWidth, frameHeight);
+                    cycle = new AnalysisResult.Builder();
+                    AnalysisResult stable = stabilizer.offer(frameResult);
+                    if (stable != null) publish(detector.getKind(), stable);
+                }
+            } finally {
+                if (frame != null) frame.release();
+                // Libera el carril para próximos frames
+                scheduler.finish(end);
+            }
+        }
+    }
+
+    /**
+     * Builder de DetectorPipeline. Los detectores se planifican y su resultado se une en el orden
+     * en que se añaden.
+     */
+    public static final class Builder {
+        private final Listener listener;
+        private final List<Detector> detectors = new ArrayList<>();
+        private final List<DetectorScheduler> schedulers = new ArrayList<>();
+        private SceneChangeGate sceneGate;
+        private TextPresenceDetector presenceGate;
+        private int voteWindow = 5;
+        private int voteConfirm = 3;
+
+        public Builder(Listener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @param everyNthFrame cadencia objetivo (1 = todos los frames)
+         * @param maxDutyCycle  fracción máxima de tiempo ocupado (1 = sin ajuste por latencia)
+         */
+        public Builder add(Detector detector, int everyNthFrame, float maxDutyCycle) {
+            for (Detector d : detectors) {
+                if (d.getKind() == detector.getKind()) {
+                    throw new IllegalArgumentException("Ya hay un detector de " + detector.getKind());
+                }
+            }
+            detectors.add(detector);
+            schedulers.add(new DetectorScheduler(detector.getName(), everyNthFrame, maxDutyCycle));
+            return this;
+        }
+
+        /** Puerta de cambio de escena (por defecto ninguna: se procesan todos los frames que tocan). */
+        public Builder sceneGate(SceneChangeGate gate) {
+            this.sceneGate = gate;
+            return this;
+        }
+
+        /**
+         * Pre-detector de texto/códigos (por defecto ninguno). Se evalúa tras la puerta de escena y
+         * solo en frames con planos YUV.
+         */
+        public Builder presenceGate(TextPresenceDetector gate) {
+            this.presenceGate = gate;
+            return this;
+        }
+
+        /** Votación de ResultStabilizer por carril (por defecto 3 de 5). */
+        public Builder voting(int window, int confirmVotes) {
+            this.voteWindow = window;
+            this.voteConfirm = confirmVotes;
+            return this;
+        }
+
+        public DetectorPipeline build() {
+            if (detectors.isEmpty()) throw new IllegalStateException("Sin detectores");
+            return new DetectorPipeline(this);
+        }
+    }
+}
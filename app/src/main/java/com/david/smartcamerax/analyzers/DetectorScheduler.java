@@ -0,0 +1,111 @@
+package com.david.smartcamerax.analyzers;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DetectorScheduler
+ * <p>
+ * Decide, frame a frame, si un detector (texto, códigos...) debe lanzarse. Cada detector tiene el
+ * suyo, así que uno lento no frena a uno rápido:
+ * - A lo sumo una inferencia en vuelo por detector (si sigue ocupado, el frame no le llega).
+ * - Cadencia objetivo: una inferencia cada {@code everyNthFrame} frames (1 = todos).
+ * - Ajuste adaptativo: con latencia media móvil L, el detector no arranca antes de L / maxDutyCycle
+ *   desde su último arranque. Con duty 0.5 un reconocedor de 200 ms corre como mucho cada 400 ms y
+ *   deja la mitad del tiempo de CPU/NPU a los demás; si la escena se simplifica y L baja, sube la
+ *   frecuencia sola.
+ *
+ * Tiempos en nanosegundos pasados por el llamador (probable en la JVM). Sincronizado: tick/isDue/start
+ * se llaman desde el hilo del analizador y finish() desde el callback del detector.
+ */
+public class DetectorScheduler {
+
+    private final String name;
+    private final int everyNthFrame;
+    private final float maxDutyCycle;
+    private final LatencyStats latency = new LatencyStats();
+
+    private boolean busy;
+    private long framesSinceStart;
+    private long lastStartNanos;
+    private boolean started;
+    private long runs;
+    private long skipped;
+
+    /**
+     * @param everyNthFrame cadencia objetivo (>= 1)
+     * @param maxDutyCycle  fracción máxima del tiempo que el detector puede estar ocupado (0..1];
+     *                      1 desactiva el ajuste adaptativo
+     */
+    public DetectorScheduler(String name, int everyNthFrame, float maxDutyCycle) {
+        if (everyNthFrame < 1 || !(maxDutyCycle > 0f && maxDutyCycle <= 1f)) {
+            throw new IllegalArgumentException("Cadencia no válida: " + everyNthFrame + "/" + maxDutyCycle);
+        }
+        this.name = name;
+        this.everyNthFrame = everyNthFrame;
+        this.maxDutyCycle = maxDutyCycle;
+    }
+
+    /** Cuenta un frame entrante (llamar una vez por frame, antes de isDue()). */
+    public synchronized void tick() {
+        framesSinceStart++;
+    }
+
+    /** true si el detector está libre y le toca según la cadencia y su latencia reciente. */
+    public synchronized boolean isDue(long nowNanos) {
+        if (busy || framesSinceStart < everyNthFrame) return false;
+        return !started || nowNanos - lastStartNanos >= getMinIntervalNanos();
+    }
+
+    /** Marca el arranque de una inferencia (tras isDue() == true). */
+    public synchronized void start(long nowNanos) {
+        busy = true;
+        started = true;
+        lastStartNanos = nowNanos;
+        framesSinceStart = 0;
+        runs++;
+    }
+
+    /** Frame no entregado a este detector (ocupado o fuera de cadencia). */
+    public synchronized void skip() {
+        skipped++;
+    }
+
+    /** Fin de la inferencia: registra su latencia y libera el detector. */
+    public synchronized void finish(long nowNanos) {
+        if (!busy) return;
+        busy = false;
+        latency.record(nowNanos - lastStartNanos);
+    }
+
+    /** Intervalo mínimo actual entre arranques según la latencia media móvil. */
+    public synchronized long getMinIntervalNanos() {
+        if (maxDutyCycle >= 1f || latency.getCount() == 0) return 0;
+        return (long) (latency.getEmaMs() / maxDutyCycle * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    public synchronized boolean isBusy() {
+        return busy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "%s runs=%d skipped=%d minInterval=%.0fms latency[%s]",
+                name, runs, skipped, getMinIntervalNanos() / 1_000_000.0, latency);
+    }
+}
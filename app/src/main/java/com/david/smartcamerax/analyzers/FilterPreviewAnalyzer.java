@@ -0,0 +1,237 @@
+package com.david.smartcamerax.analyzers;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.FrameBuffer;
+import com.david.smartcamerax.filters.TiledExecutor;
+import com.david.smartcamerax.filters.YuvConverter;
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+import com.david.smartcamerax.utils.FramePacer;
+import com.david.smartcamerax.utils.LaneScheduler;
+import com.david.smartcamerax.utils.OverlayFrames;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * FilterPreviewAnalyzer
+ * <p>
+ * ImageAnalysis.Analyzer que genera el preview filtrado a partir del stream YUV_420_888, en lugar
+ * de PreviewView.getBitmap() + copy() en el hilo principal.
+ *
+ * Flujo por frame (en el executor de análisis, o en el de render si se configuró uno):
+ * 1. Lee los planos YUV directamente (solo el plano Y si el filtro es monocromo, p.ej. B/N).
+ * 2. Convierte a ARGB con rotación/espejo en un FrameBuffer reutilizado y aplica el FilterChain a
+ *    la escala de su QualityTier (los filtros de convolución se procesan reducidos).
+ * 3. Escribe el resultado en un bitmap de OverlayFrames (pool + triple buffer) y lo publica.
+ * El hilo principal solo recibe la referencia al bitmap: no copia ni convierte nada, y el bitmap
+ * visible nunca se sobrescribe (ver OverlayFrames).
+ *
+ * Ritmo: un FramePacer decide qué frames se procesan según el tiempo de procesado medido; el resto
+ * pasa directamente al downstream sin filtrar (cuentan como descartados en el pacer).
+ *
+ * Con setRenderExecutor() (carril preview de LaneScheduler) el análisis solo copia los planos YUV a
+ * un snapshot reutilizado y entrega el ImageProxy al downstream enseguida: la conversión y el filtro
+ * corren en el otro carril y no retrasan la detección. El pacer garantiza un solo frame en vuelo, así
+ * que un único snapshot basta; si el carril descarta la tarea (Droppable) el turno del pacer se libera.
+ *
+ * Puede encadenar otro analizador (downstream, p.ej. SmartAnalyzer) porque CameraX solo admite un
+ * ImageAnalysis: el downstream recibe el mismo ImageProxy y pasa a ser responsable de cerrarlo.
+ */
+public class FilterPreviewAnalyzer implements ImageAnalysis.Analyzer {
+
+    private static final String TAG = "FilterPreviewAnalyzer";
+    // Tiempo por frame filtrado (conversión + cadena + publicación) y frames que el pacer no dejó pasar
+    private static final LatencyHistogram FRAME_TIME = Metrics.histogram("filter.frame");
+    private static final Counter SKIPPED = Metrics.counter("filter.skipped");
+
+    private final OverlayFrames frames;
+    private final FramePacer pacer;
+    private final TiledExecutor tiles;
+    private final FrameBuffer buffer = new FrameBuffer();
+    // Copia de los planos para el render asíncrono (solo la usa el frame en vuelo)
+    private final YuvSnapshot snapshot = new YuvSnapshot();
+
+    private volatile FilterChain chain = FilterChain.NONE;
+    private volatile boolean mirror;
+    private volatile ImageAnalysis.Analyzer downstream;
+    // Lado corto del último frame filtrado (referencia para escalar el filtro en la captura)
+    private volatile int frameShortSide;
+    private volatile Executor renderExecutor;
+
+    public FilterPreviewAnalyzer(@NonNull OverlayFrames frames, @NonNull FramePacer pacer, TiledExecutor tiles) {
+        this.frames = frames;
+        this.pacer = pacer;
+        this.tiles = tiles;
+    }
+
+    public void setChain(@NonNull FilterChain chain) {
+        this.chain = chain;
+    }
+
+    /** Espejo horizontal (cámara frontal, igual que PreviewView). */
+    public void setMirror(boolean mirror) {
+        this.mirror = mirror;
+    }
+
+    /** Analizador que recibe el frame a continuación (o null para cerrar aquí el ImageProxy). */
+    public void setDownstream(ImageAnalysis.Analyzer downstream) {
+        this.downstream = downstream;
+    }
+
+    /**
+     * Executor donde convertir y filtrar (o null para hacerlo en el propio analyze(), como antes).
+     * Si rechaza la tarea el frame se pierde sin bloquear el análisis.
+     */
+    public void setRenderExecutor(Executor renderExecutor) {
+        this.renderExecutor = renderExecutor;
+    }
+
+    /** Lado corto (px) del último frame procesado, o 0 si aún no se ha procesado ninguno. */
+    public int getFrameShortSide() {
+        return frameShortSide;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy imageProxy) {
+        try {
+            FilterChain current = chain;
+            if (!current.isIdentity()) {
+                long start = System.nanoTime();
+                if (pacer.tryBegin(start)) {
+                    Executor executor = renderExecutor;
+                    if (executor != null) {
+                        renderAsync(executor, imageProxy, current, start);
+                    } else {
+                        try {
+                            renderFrame(imageProxy, current);
+                        } finally {
+                            pacer.end(System.nanoTime());
+                            FRAME_TIME.recordSince(start);
+                        }
+                    }
+                } else {
+                    SKIPPED.inc();
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "filter preview frame failed", e);
+        }
+        ImageAnalysis.Analyzer next = downstream;
+        if (next != null) {
+            next.analyze(imageProxy);
+        } else {
+            imageProxy.close();
+        }
+    }
+
+    // Copia los planos (el ImageProxy sigue al downstream) y renderiza en el executor; libera el pacer
+    // al terminar o si la tarea no llega a ejecutarse (rechazada, o descartada por el carril)
+    private void renderAsync(Executor executor, ImageProxy imageProxy, FilterChain current, long start) {
+        boolean submitted = false;
+        try {
+            snapshot.copy(imageProxy, current.isMonochrome());
+            executor.execute(new LaneScheduler.Droppable() {
+                @Override
+                public void run() {
+                    try {
+                        renderFrame(snapshot, current);
+                    } catch (Exception e) {
+                        Log.w(TAG, "filter preview frame failed", e);
+                    } finally {
+                        pacer.end(System.nanoTime());
+                        FRAME_TIME.recordSince(start);
+                    }
+                }
+
+                @Override
+                public void onDropped() {
+                    SKIPPED.inc();
+                    pacer.end(System.nanoTime());
+                }
+            });
+            submitted = true;
+        } catch (RejectedExecutionException e) {
+            SKIPPED.inc();
+        } finally {
+            if (!submitted) pacer.end(System.nanoTime());
+        }
+    }
+
+    private void renderFrame(ImageProxy imageProxy, FilterChain current) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        renderFrame(planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                imageProxy.getWidth(), imageProxy.getHeight(), imageProxy.getImageInfo().getRotationDegrees(), current);
+    }
+
+    private void renderFrame(YuvSnapshot s, FilterChain current) {
+        renderFrame(s.y, s.yRowStride, s.u, s.v, s.uvRowStride, s.uvPixelStride, s.width, s.height, s.rotation, current);
+    }
+
+    private void renderFrame(ByteBuffer yPlane, int yRowStride, ByteBuffer uPlane, ByteBuffer vPlane,
+                             int uvRowStride, int uvPixelStride, int w, int h, int rotation, FilterChain current) {
+        int outW = YuvConverter.rotatedWidth(w, h, rotation);
+        int outH = YuvConverter.rotatedHeight(w, h, rotation);
+        int[] px = buffer.obtain(w * h);
+        frameShortSide = Math.min(outW, outH);
+
+        if (current.isMonochrome()) {
+            YuvConverter.lumaToArgb(yPlane, yRowStride, w, h, rotation, mirror, px);
+        } else {
+            YuvConverter.yuvToArgb(yPlane, yRowStride, uPlane, vPlane, uvRowStride, uvPixelStride,
+                    w, h, rotation, mirror, px);
+        }
+        current.applyAtTier(px, px, outW, outH, tiles);
+
+        Bitmap target = frames.obtain(outW, outH);
+        target.setPixels(px, 0, outW, 0, 0, outW, outH);
+        if (frames.publish(target)) pacer.onCoalesced();
+    }
+
+    // Planos YUV copiados a buffers de heap que se reutilizan mientras el tamaño no crezca
+    private static final class YuvSnapshot {
+        ByteBuffer y;
+        ByteBuffer u;
+        ByteBuffer v;
+        int yRowStride;
+        int uvRowStride;
+        int uvPixelStride;
+        int width;
+        int height;
+        int rotation;
+
+        void copy(ImageProxy imageProxy, boolean lumaOnly) {
+            ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+            width = imageProxy.getWidth();
+            height = imageProxy.getHeight();
+            rotation = imageProxy.getImageInfo().getRotationDegrees();
+            yRowStride = planes[0].getRowStride();
+            y = copyOf(planes[0].getBuffer(), y);
+            if (lumaOnly) return;
+            uvRowStride = planes[1].getRowStride();
+            uvPixelStride = planes[1].getPixelStride();
+            u = copyOf(planes[1].getBuffer(), u);
+            v = copyOf(planes[2].getBuffer(), v);
+        }
+
+        private static ByteBuffer copyOf(ByteBuffer src, ByteBuffer dst) {
+            ByteBuffer from = src.duplicate();
+            from.rewind();
+            if (dst == null || dst.capacity() < from.remaining()) dst = ByteBuffer.allocate(from.remaining());
+            dst.clear();
+            dst.put(from);
+            dst.flip();
+            return dst;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.david.smartcamerax.analyzers;
+
+import java.util.Locale;
+
+/**
+ * LatencyStats
+ * <p>
+ * Estadística mínima de latencias de inferencia: número de muestras, media, media móvil exponencial
+ * (EMA, refleja el coste reciente tras un cambio de ROI o de escena) y máximo. Sin asignaciones al
+ * registrar. Sincronizada: se registra desde el callback de ML Kit y se lee desde el log o la UI.
+ */
+public class LatencyStats {
+
+    // Peso de la muestra nueva en la EMA (~las últimas 10 muestras)
+    private static final double EMA_ALPHA = 0.2;
+
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private double emaNanos;
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0) return;
+        emaNanos = count == 0 ? nanos : emaNanos + EMA_ALPHA * (nanos - emaNanos);
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMs() {
+        return count == 0 ? 0 : totalNanos / (double) count / 1_000_000.0;
+    }
+
+    public synchronized double getEmaMs() {
+        return emaNanos / 1_000_000.0;
+    }
+
+    public synchronized double getMaxMs() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        emaNanos = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "n=%d mean=%.1fms ema=%.1fms max=%.1fms",
+                count, getMeanMs(), getEmaMs(), getMaxMs());
+    }
+}
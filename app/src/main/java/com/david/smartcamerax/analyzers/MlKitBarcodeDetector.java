@@ -0,0 +1,60 @@
+package com.david.smartcamerax.analyzers;
+
+import android.graphics.Rect;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+import java.util.List;
+
+/**
+ * MlKitBarcodeDetector
+ * <p>
+ * Adaptador de BarcodeScanner (ML Kit, todos los formatos) a {@link Detector}: un item por código,
+ * con su valor, formato y caja. El cliente se crea una sola vez y se cierra con close().
+ */
+public class MlKitBarcodeDetector implements Detector {
+
+    private final BarcodeScanner scanner = BarcodeScanning.getClient();
+
+    @Override
+    public String getName() {
+        return "barcode";
+    }
+
+    @Override
+    public AnalysisResult.Kind getKind() {
+        return AnalysisResult.Kind.BARCODE;
+    }
+
+    @Override
+    public void detect(DetectorInput input, Callback callback) {
+        Task<List<Barcode>> task = scanner.process(MlKitInputs.toInputImage(input));
+        task.addOnCompleteListener(MlKitInputs.DIRECT, t -> {
+            if (!t.isSuccessful()) {
+                callback.onFailure(t.getException() != null ? t.getException() : new IllegalStateException("barcode"));
+                return;
+            }
+            AnalysisResult.Builder out = new AnalysisResult.Builder();
+            List<Barcode> barcodes = t.getResult();
+            if (barcodes != null) {
+                for (Barcode barcode : barcodes) {
+                    Rect box = barcode.getBoundingBox();
+                    if (box != null) {
+                        out.addBarcode(barcode.getRawValue(), barcode.getFormat(), box.left, box.top, box.right, box.bottom);
+                    } else {
+                        out.addBarcode(barcode.getRawValue(), barcode.getFormat(), 0, 0, 0, 0);
+                    }
+                }
+            }
+            callback.onSuccess(out.build(input.getTimestampNanos(), input.getWidth(), input.getHeight()));
+        });
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+}
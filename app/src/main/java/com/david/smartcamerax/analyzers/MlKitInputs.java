@@ -0,0 +1,35 @@
+package com.david.smartcamerax.analyzers;
+
+import android.graphics.Bitmap;
+import android.media.Image;
+
+import com.google.mlkit.vision.common.InputImage;
+
+import java.util.concurrent.Executor;
+
+/**
+ * MlKitInputs
+ * <p>
+ * Utilidades compartidas por los adaptadores de ML Kit: DetectorInput a InputImage (NV21, Image o
+ * Bitmap, sin copiar) y el executor directo para los listeners de Tasks.
+ */
+final class MlKitInputs {
+
+    // Ejecuta los listeners de Tasks en el hilo que completa la tarea (no en el principal)
+    static final Executor DIRECT = Runnable::run;
+
+    private MlKitInputs() {
+    }
+
+    static InputImage toInputImage(DetectorInput input) {
+        if (input.getNv21() != null) {
+            return InputImage.fromByteArray(input.getNv21(), input.getWidth(), input.getHeight(),
+                    input.getRotation(), InputImage.IMAGE_FORMAT_NV21);
+        }
+        Object image = input.getNativeImage();
+        if (image instanceof Bitmap) {
+            return InputImage.fromBitmap((Bitmap) image, input.getRotation());
+        }
+        return InputImage.fromMediaImage((Image) image, input.getRotation());
+    }
+}
@@ -0,0 +1,59 @@
+package com.david.smartcamerax.analyzers;
+
+import android.graphics.Rect;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.vision.text.Text;
+import com.google.mlkit.vision.text.TextRecognition;
+import com.google.mlkit.vision.text.TextRecognizer;
+import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+
+/**
+ * MlKitTextDetector
+ * <p>
+ * Adaptador de TextRecognizer (ML Kit, alfabeto latino) a {@link Detector}: un bloque de texto por
+ * item, con su caja. El cliente se crea una sola vez y se cierra con close().
+ */
+public class MlKitTextDetector implements Detector {
+
+    private final TextRecognizer recognizer = TextRecognition.getClient(new TextRecognizerOptions.Builder().build());
+
+    @Override
+    public String getName() {
+        return "text";
+    }
+
+    @Override
+    public AnalysisResult.Kind getKind() {
+        return AnalysisResult.Kind.TEXT;
+    }
+
+    @Override
+    public void detect(DetectorInput input, Callback callback) {
+        Task<Text> task = recognizer.process(MlKitInputs.toInputImage(input));
+        task.addOnCompleteListener(MlKitInputs.DIRECT, t -> {
+            if (!t.isSuccessful()) {
+                callback.onFailure(t.getException() != null ? t.getException() : new IllegalStateException("text"));
+                return;
+            }
+            AnalysisResult.Builder out = new AnalysisResult.Builder();
+            Text text = t.getResult();
+            if (text != null) {
+                for (Text.TextBlock block : text.getTextBlocks()) {
+                    Rect box = block.getBoundingBox();
+                    if (box != null) {
+                        out.addText(block.getText(), box.left, box.top, box.right, box.bottom);
+                    } else {
+                        out.addText(block.getText(), 0, 0, 0, 0);
+                    }
+                }
+            }
+            callback.onSuccess(out.build(input.getTimestampNanos(), input.getWidth(), input.getHeight()));
+        });
+    }
+
+    @Override
+    public void close() {
+        recognizer.close();
+    }
+}
@@ -0,0 +1,50 @@
+package com.david.smartcamerax.analyzers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RefCountedFrame
+ * <p>
+ * Cierra un recurso compartido (el ImageProxy del frame) cuando lo suelta el último que lo usa.
+ * Con detectores independientes cada uno termina cuando termina, así que ninguno puede cerrar el
+ * frame por su cuenta: el analizador crea la referencia (cuenta 1), cada detector que lee la imagen
+ * hace retain() y release() al acabar, y el analizador suelta la suya al salir de analyze().
+ */
+public final class RefCountedFrame {
+
+    private final AtomicInteger refs = new AtomicInteger(1);
+    private final Runnable onClose;
+
+    /**
+     * @param onClose cierre del recurso; lo ejecuta el último release()
+     */
+    public RefCountedFrame(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    public void retain() {
+        if (refs.getAndIncrement() <= 0) {
+            throw new IllegalStateException("retain() sobre un frame ya liberado");
+        }
+    }
+
+    /**
+     * Suelta una referencia; la última ejecuta el cierre.
+     *
+     * @return true si este release() cerró el frame
+     */
+    public boolean release() {
+        int left = refs.decrementAndGet();
+        if (left < 0) {
+            throw new IllegalStateException("release() de más");
+        }
+        if (left > 0) return false;
+        onClose.run();
+        return true;
+    }
+
+    /** Referencias vivas (0 = cerrado). */
+    public int getRefCount() {
+        return refs.get();
+    }
+}
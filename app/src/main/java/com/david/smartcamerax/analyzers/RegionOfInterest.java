@@ -0,0 +1,209 @@
+package com.david.smartcamerax.analyzers;
+
+/**
+ * RegionOfInterest
+ * <p>
+ * Qué parte del frame de análisis se entrega a ML Kit. La latencia del reconocimiento de texto crece
+ * con el área, así que recortar a la zona que interesa (la retícula central) la reduce directamente:
+ * - FULL: frame completo (comportamiento original, sin recorte).
+ * - CENTER: rectángulo centrado con {@code fraction} del ancho y del alto.
+ * - TILES: rejilla de {@code cols} x {@code rows} baldosas (con solape para no partir una línea de
+ *   texto en el borde) que se recorren en round-robin, una por frame analizado.
+ *
+ * Las regiones están en coordenadas del sensor (sin rotar) y alineadas a píxeles pares para que el
+ * recorte de los planos U/V (4:2:0) caiga exactamente sobre muestras de croma. Region.offsetX/Y dan la
+ * traslación que lleva las cajas de ML Kit (frame recortado ya rotado) al frame completo rotado.
+ *
+ * No es thread-safe (el índice de baldosa avanza en cada next()): se usa desde el hilo del analizador.
+ */
+public final class RegionOfInterest {
+
+    public enum Mode { FULL, CENTER, TILES }
+
+    private final Mode mode;
+    private final float fraction;
+    private final int cols;
+    private final int rows;
+    private final float overlap;
+    private int nextTile;
+
+    private RegionOfInterest(Mode mode, float fraction, int cols, int rows, float overlap) {
+        this.mode = mode;
+        this.fraction = fraction;
+        this.cols = cols;
+        this.rows = rows;
+        this.overlap = overlap;
+    }
+
+    /** Sin recorte. */
+    public static RegionOfInterest full() {
+        return new RegionOfInterest(Mode.FULL, 1f, 1, 1, 0f);
+    }
+
+    /**
+     * Rectángulo centrado.
+     *
+     * @param fraction fracción del ancho y del alto del frame (0..1]
+     */
+    public static RegionOfInterest center(float fraction) {
+        if (!(fraction > 0f && fraction <= 1f)) {
+            throw new IllegalArgumentException("Fracción no válida: " + fraction);
+        }
+        return new RegionOfInterest(Mode.CENTER, fraction, 1, 1, 0f);
+    }
+
+    /**
+     * Baldosas en round-robin.
+     *
+     * @param overlap fracción del tamaño de baldosa que se extiende sobre cada vecina [0..0.5]
+     */
+    public static RegionOfInterest tiles(int cols, int rows, float overlap) {
+        if (cols < 1 || rows < 1 || overlap < 0f || overlap > 0.5f) {
+            throw new IllegalArgumentException("Rejilla no válida: " + cols + "x" + rows + " solape " + overlap);
+        }
+        return new RegionOfInterest(Mode.TILES, 1f, cols, rows, overlap);
+    }
+
+    /** Misma configuración con su propio cursor de baldosas (empieza en la primera). */
+    public RegionOfInterest copy() {
+        return new RegionOfInterest(mode, fraction, cols, rows, overlap);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** Regiones por ciclo completo (1 salvo en TILES). */
+    public int getTileCount() {
+        return cols * rows;
+    }
+
+    /** Índice (0..getTileCount()-1) de la región que devolverá el próximo next(). */
+    public int getNextTile() {
+        return nextTile;
+    }
+
+    /** Vuelve a empezar el ciclo de baldosas. */
+    public void reset() {
+        nextTile = 0;
+    }
+
+    /**
+     * Región a analizar en este frame; en TILES avanza a la siguiente baldosa.
+     *
+     * @param width  ancho del frame del sensor
+     * @param height alto del frame del sensor
+     */
+    public Region next(int width, int height) {
+        switch (mode) {
+            case CENTER: {
+                int w = even(Math.max(2, Math.round(width * fraction)));
+                int h = even(Math.max(2, Math.round(height * fraction)));
+                return clamp(even((width - w) / 2), even((height - h) / 2), w, h, width, height);
+            }
+            case TILES: {
+                int tile = nextTile;
+                nextTile = (nextTile + 1) % (cols * rows);
+                int col = tile % cols;
+                int row = tile / cols;
+                float tw = (float) width / cols;
+                float th = (float) height / rows;
+                int left = even(Math.round(col * tw - tw * overlap));
+                int top = even(Math.round(row * th - th * overlap));
+                int right = even(Math.round((col + 1) * tw + tw * overlap) + 1);
+                int bottom = even(Math.round((row + 1) * th + th * overlap) + 1);
+                return clamp(left, top, right - left, bottom - top, width, height);
+            }
+            default:
+                return new Region(0, 0, width, height);
+        }
+    }
+
+    // Recorta la región al frame manteniendo origen y tamaño pares
+    private static Region clamp(int left, int top, int w, int h, int width, int height) {
+        int l = Math.max(0, left);
+        int t = Math.max(0, top);
+        int r = Math.min(even(width), left + w);
+        int b = Math.min(even(height), top + h);
+        return new Region(l, t, Math.max(2, r - l), Math.max(2, b - t));
+    }
+
+    private static int even(int v) {
+        return v & ~1;
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case CENTER: return "CENTER(" + fraction + ")";
+            case TILES: return "TILES(" + cols + "x" + rows + ")";
+            default: return "FULL";
+        }
+    }
+
+    /**
+     * Rectángulo del sensor (sin rotar) a recortar.
+     */
+    public static final class Region {
+        private final int left;
+        private final int top;
+        private final int width;
+        private final int height;
+
+        Region(int left, int top, int width, int height) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /** true si cubre todo el frame (no hace falta recortar). */
+        public boolean covers(int frameWidth, int frameHeight) {
+            return left == 0 && top == 0 && width >= frameWidth && height >= frameHeight;
+        }
+
+        /**
+         * Traslación en X que lleva una caja del recorte rotado al frame completo rotado.
+         * Rotar no cambia el tamaño de las cajas, así que basta con sumar este desplazamiento.
+         */
+        public int offsetX(int rotation, int frameWidth, int frameHeight) {
+            switch (rotation) {
+                case 90: return frameHeight - top - height;
+                case 180: return frameWidth - left - width;
+                case 270: return top;
+                default: return left;
+            }
+        }
+
+        /** Traslación en Y; ver offsetX. */
+        public int offsetY(int rotation, int frameWidth, int frameHeight) {
+            switch (rotation) {
+                case 90: return left;
+                case 180: return frameHeight - top - height;
+                case 270: return frameWidth - left - width;
+                default: return top;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Region{" + left + "," + top + " " + width + "x" + height + "}";
+        }
+    }
+}
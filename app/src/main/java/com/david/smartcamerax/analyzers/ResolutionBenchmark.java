@@ -0,0 +1,190 @@
+package com.david.smartcamerax.analyzers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ResolutionBenchmark
+ * <p>
+ * Resultados grabados de latencia de inferencia frente a precisión por perfil y resolución. Los
+ * genera el benchmark instrumentado (androidTest AnalysisResolutionBenchmark) en el propio
+ * dispositivo y se guardan como CSV en filesDir/{@link #FILE_NAME}; CameraActivity los carga al
+ * arrancar y elige con {@link #apply(AnalysisProfile)} la resolución de cada perfil.
+ *
+ * Elección (choose):
+ * - Entre las muestras del perfil con precisión >= minAccuracy y p50 <= latencyBudgetMs, la de menos
+ *   píxeles (más barata sin perder detecciones).
+ * - Si ninguna cabe en el presupuesto, la más rápida de las suficientemente precisas.
+ * - Si ninguna es suficientemente precisa, la más precisa.
+ * - Sin muestras del perfil, se mantiene la resolución por defecto del preset.
+ */
+public final class ResolutionBenchmark {
+
+    public static final String FILE_NAME = "analysis_benchmark.csv";
+    static final String HEADER = "profile,width,height,p50_ms,p90_ms,accuracy,iterations";
+
+    /** Una medición: un perfil a una resolución. */
+    public static final class Sample {
+        final String profile;
+        final int width;
+        final int height;
+        final double p50Ms;
+        final double p90Ms;
+        final float accuracy;
+        final int iterations;
+
+        public Sample(String profile, int width, int height, double p50Ms, double p90Ms, float accuracy, int iterations) {
+            this.profile = profile;
+            this.width = width;
+            this.height = height;
+            this.p50Ms = p50Ms;
+            this.p90Ms = p90Ms;
+            this.accuracy = accuracy;
+            this.iterations = iterations;
+        }
+
+        public String getProfile() {
+            return profile;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public double getP90Ms() {
+            return p90Ms;
+        }
+
+        public float getAccuracy() {
+            return accuracy;
+        }
+
+        long pixels() {
+            return (long) width * height;
+        }
+
+        String toCsv() {
+            return String.format(Locale.US, "%s,%d,%d,%.2f,%.2f,%.3f,%d", profile, width, height, p50Ms, p90Ms, accuracy, iterations);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %dx%d p50=%.1fms p90=%.1fms acc=%.2f", profile, width, height, p50Ms, p90Ms, accuracy);
+        }
+    }
+
+    private final List<Sample> samples = new ArrayList<>();
+
+    public void add(Sample sample) {
+        samples.add(sample);
+    }
+
+    public List<Sample> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    public boolean isEmpty() {
+        return samples.isEmpty();
+    }
+
+    /** Muestra elegida para el perfil (ver criterio en la cabecera), o null si no hay muestras suyas. */
+    public Sample choose(AnalysisProfile profile) {
+        Sample withinBudget = null;
+        Sample fastestAccurate = null;
+        Sample mostAccurate = null;
+        for (Sample s : samples) {
+            if (!s.profile.equals(profile.getName())) continue;
+            if (mostAccurate == null || s.accuracy > mostAccurate.accuracy
+                    || (s.accuracy == mostAccurate.accuracy && s.p50Ms < mostAccurate.p50Ms)) {
+                mostAccurate = s;
+            }
+            if (s.accuracy < profile.getMinAccuracy()) continue;
+            if (fastestAccurate == null || s.p50Ms < fastestAccurate.p50Ms) {
+                fastestAccurate = s;
+            }
+            if (s.p50Ms <= profile.getLatencyBudgetMs() && (withinBudget == null || s.pixels() < withinBudget.pixels())) {
+                withinBudget = s;
+            }
+        }
+        if (withinBudget != null) return withinBudget;
+        return fastestAccurate != null ? fastestAccurate : mostAccurate;
+    }
+
+    /** El perfil con la resolución elegida por choose(), o el mismo perfil si no hay muestras. */
+    public AnalysisProfile apply(AnalysisProfile profile) {
+        Sample chosen = choose(profile);
+        return chosen != null ? profile.withResolution(chosen.width, chosen.height) : profile;
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        for (Sample s : samples) {
+            out.write(s.toCsv());
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /** Lee un CSV escrito por write(). Líneas vacías y comentarios (#) se ignoran. */
+    public static ResolutionBenchmark read(Reader in) throws IOException {
+        ResolutionBenchmark benchmark = new ResolutionBenchmark();
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.equals(HEADER)) continue;
+            String[] f = line.split(",");
+            if (f.length != 7) throw new IOException("Línea " + lineNumber + ": se esperaban 7 campos: " + line);
+            try {
+                benchmark.add(new Sample(f[0], Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+                        Double.parseDouble(f[3]), Double.parseDouble(f[4]), Float.parseFloat(f[5]), Integer.parseInt(f[6])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Línea " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return benchmark;
+    }
+
+    /** Carga {@code file}; si no existe devuelve un benchmark vacío (se usan los presets tal cual). */
+    public static ResolutionBenchmark load(File file) throws IOException {
+        if (!file.exists()) return new ResolutionBenchmark();
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    /** Escribe a un temporal y lo renombra, para no dejar un CSV a medias si el proceso muere. */
+    public void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            write(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("No se pudo renombrar " + tmp + " a " + file);
+        }
+    }
+}
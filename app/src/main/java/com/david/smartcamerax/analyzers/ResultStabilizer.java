@@ -0,0 +1,110 @@
+package com.david.smartcamerax.analyzers;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ResultStabilizer
+ * <p>
+ * Votación temporal sobre los resultados por frame de SmartAnalyzer para no parpadear ni despertar
+ * al hilo principal con resultados repetidos:
+ * - Cada detección (tipo + valor) cuenta un voto por frame en una ventana de los últimos
+ *   {@code window} frames analizados.
+ * - Se confirma al reunir {@code confirmVotes} votos; una vez confirmada solo se retira cuando
+ *   desaparece de toda la ventana (histéresis: una lectura fallida suelta no la quita).
+ * - offer() devuelve un resultado solo cuando el conjunto confirmado cambia; si no, null.
+ *
+ * El resultado emitido lleva, para cada detección confirmada, su última caja y el timestamp del
+ * último frame. No es thread-safe: se llama desde un único hilo (el callback de ML Kit).
+ */
+public class ResultStabilizer {
+
+    private final int window;
+    private final int confirmVotes;
+
+    private final ArrayDeque<Set<String>> history = new ArrayDeque<>();
+    private final Map<String, Integer> votes = new HashMap<>();
+    private final Map<String, AnalysisResult.Item> latest = new HashMap<>();
+    // Confirmadas en orden de confirmación (estable en pantalla)
+    private final Set<String> confirmed = new LinkedHashSet<>();
+
+    private long emitted;
+    private long suppressed;
+
+    /**
+     * @param window       frames en la ventana de votación
+     * @param confirmVotes votos necesarios para confirmar (1..window)
+     */
+    public ResultStabilizer(int window, int confirmVotes) {
+        if (window < 1 || confirmVotes < 1 || confirmVotes > window) {
+            throw new IllegalArgumentException("Ventana/votos no válidos: " + window + "/" + confirmVotes);
+        }
+        this.window = window;
+        this.confirmVotes = confirmVotes;
+    }
+
+    /**
+     * Añade el resultado de un frame (incluidos los vacíos, para que las detecciones caduquen).
+     *
+     * @return el nuevo resultado estable si cambió, o null si no hay nada nuevo que mostrar
+     */
+    public AnalysisResult offer(AnalysisResult frame) {
+        Set<String> keys = new HashSet<>();
+        for (AnalysisResult.Item item : frame.getItems()) {
+            String key = item.key();
+            if (keys.add(key)) {
+                votes.merge(key, 1, Integer::sum);
+            }
+            latest.put(key, item);
+        }
+        history.addLast(keys);
+        if (history.size() > window) {
+            for (String old : history.removeFirst()) {
+                int left = votes.merge(old, -1, Integer::sum);
+                if (left <= 0) {
+                    votes.remove(old);
+                    latest.remove(old);
+                }
+            }
+        }
+
+        boolean changed = confirmed.removeIf(key -> !votes.containsKey(key));
+        for (Map.Entry<String, Integer> entry : votes.entrySet()) {
+            if (entry.getValue() >= confirmVotes && confirmed.add(entry.getKey())) {
+                changed = true;
+            }
+        }
+        if (!changed) {
+            suppressed++;
+            return null;
+        }
+        emitted++;
+        AnalysisResult.Builder builder = new AnalysisResult.Builder();
+        for (String key : confirmed) {
+            builder.add(latest.get(key));
+        }
+        return builder.build(frame.getTimestampNanos(), frame.getFrameWidth(), frame.getFrameHeight());
+    }
+
+    /** Olvida todo (p.ej. al cambiar de cámara). */
+    public void reset() {
+        history.clear();
+        votes.clear();
+        latest.clear();
+        confirmed.clear();
+    }
+
+    /** Resultados emitidos (cambios del conjunto confirmado). */
+    public long getEmitted() {
+        return emitted;
+    }
+
+    /** Frames cuyo resultado no cambió nada y no se emitió. */
+    public long getSuppressed() {
+        return suppressed;
+    }
+}
@@ -0,0 +1,171 @@
+package com.david.smartcamerax.analyzers;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SceneChangeGate
+ * <p>
+ * Filtro barato para no repetir inferencias de ML Kit sobre la misma escena (p.ej. la cámara
+ * apuntando a un documento durante minutos):
+ * - Firma: media de luminancia de una rejilla de GRID_W x GRID_H celdas, muestreando unos pocos
+ *   píxeles del plano Y por celda (cientos de lecturas por frame, sin convertir color).
+ * - Se compara con la firma del último frame que SÍ se procesó (no con el anterior), así que un
+ *   cambio lento también acaba superando el umbral.
+ * - Diferencia = media del valor absoluto por celda, en niveles de luma (0..255).
+ * - Refresco forzado: pasado {@code refreshMs} desde la última inferencia se procesa igualmente.
+ * - Referencias: con varios consumidores a cadencias distintas (los carriles de DetectorPipeline) cada
+ *   uno tiene su Reference y compara contra lo último que él procesó; sample() calcula la firma una
+ *   vez por frame. shouldProcess(y, ...) usa una referencia propia de la puerta.
+ *
+ * Tiempos en nanosegundos pasados por el llamador para poder probarlo en la JVM. Se usa desde el hilo
+ * del analizador; los métodos están sincronizados para poder leer los contadores desde otro hilo.
+ * Los contadores cuentan decisiones (una por referencia evaluada).
+ */
+public class SceneChangeGate {
+
+    static final int GRID_W = 16;
+    static final int GRID_H = 12;
+    // Muestras por eje dentro de cada celda
+    private static final int SAMPLES = 4;
+
+    private final float threshold;
+    private final long refreshNanos;
+
+    /** Firma y hora de la última inferencia de un consumidor de la puerta. */
+    public static final class Reference {
+        private final int[] signature = new int[GRID_W * GRID_H];
+        private boolean valid;
+        private int epoch;
+        private long lastRunNanos;
+    }
+
+    private final int[] signature = new int[GRID_W * GRID_H];
+    private final Reference own = new Reference();
+    private boolean sampled;
+    // invalidate() sube la época: las referencias anteriores dejan de valer
+    private int epoch;
+    private float lastDifference;
+
+    private long processed;
+    private long skipped;
+    private long forced;
+
+    /**
+     * @param threshold diferencia media mínima (niveles de luma) para considerar que la escena cambió
+     * @param refreshMs intervalo máximo entre inferencias aunque la escena no cambie
+     */
+    public SceneChangeGate(float threshold, long refreshMs) {
+        this.threshold = threshold;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMs);
+    }
+
+    /**
+     * Decide si el frame merece inferencia. Si devuelve true, su firma pasa a ser la referencia.
+     *
+     * @param y         plano Y (se leen posiciones absolutas, no se modifica su position)
+     * @param rowStride bytes por fila del plano Y
+     */
+    public synchronized boolean shouldProcess(ByteBuffer y, int rowStride, int width, int height, long nowNanos) {
+        sample(y, rowStride, width, height);
+        return shouldProcess(own, nowNanos);
+    }
+
+    /** Calcula la firma del frame actual, con la que se evalúan después las referencias. */
+    public synchronized void sample(ByteBuffer y, int rowStride, int width, int height) {
+        computeSignature(y, rowStride, width, height, signature);
+        sampled = true;
+    }
+
+    /**
+     * Decide para {@code ref} con la firma del último sample(). Si devuelve true, esa firma pasa a ser
+     * la referencia de {@code ref}.
+     */
+    public synchronized boolean shouldProcess(Reference ref, long nowNanos) {
+        if (!sampled) throw new IllegalStateException("shouldProcess() sin sample()");
+        boolean run;
+        if (!ref.valid || ref.epoch != epoch) {
+            run = true;
+            lastDifference = Float.NaN;
+        } else {
+            lastDifference = difference(signature, ref.signature);
+            run = lastDifference >= threshold;
+            if (!run && nowNanos - ref.lastRunNanos >= refreshNanos) {
+                run = true;
+                forced++;
+            }
+        }
+        if (run) {
+            System.arraycopy(signature, 0, ref.signature, 0, signature.length);
+            ref.valid = true;
+            ref.epoch = epoch;
+            ref.lastRunNanos = nowNanos;
+            processed++;
+        } else {
+            skipped++;
+        }
+        return run;
+    }
+
+    /** Olvida todas las referencias (p.ej. al cambiar de cámara): el siguiente frame se procesa. */
+    public synchronized void invalidate() {
+        epoch++;
+    }
+
+    static void computeSignature(ByteBuffer y, int rowStride, int width, int height, int[] out) {
+        for (int cy = 0; cy < GRID_H; cy++) {
+            int top = cy * height / GRID_H;
+            int cellH = Math.max(1, (cy + 1) * height / GRID_H - top);
+            for (int cx = 0; cx < GRID_W; cx++) {
+                int left = cx * width / GRID_W;
+                int cellW = Math.max(1, (cx + 1) * width / GRID_W - left);
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    int row = (top + (2 * sy + 1) * cellH / (2 * SAMPLES)) * rowStride;
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        sum += y.get(row + left + (2 * sx + 1) * cellW / (2 * SAMPLES)) & 0xFF;
+                    }
+                }
+                out[cy * GRID_W + cx] = sum / (SAMPLES * SAMPLES);
+            }
+        }
+    }
+
+    static float difference(int[] a, int[] b) {
+        int total = 0;
+        for (int i = 0; i < a.length; i++) {
+            total += Math.abs(a[i] - b[i]);
+        }
+        return total / (float) a.length;
+    }
+
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    /** Inferencias lanzadas solo por el refresco periódico. */
+    public synchronized long getForced() {
+        return forced;
+    }
+
+    /** Fracción de frames evaluados que se saltaron (0..1). */
+    public synchronized double getSkipRatio() {
+        long total = processed + skipped;
+        return total == 0 ? 0 : skipped / (double) total;
+    }
+
+    /** Diferencia del último frame evaluado frente a la referencia (NaN si no había referencia). */
+    public synchronized float getLastDifference() {
+        return lastDifference;
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "processed=%d skipped=%d forced=%d skipRatio=%.2f",
+                processed, skipped, forced, getSkipRatio());
+    }
+}
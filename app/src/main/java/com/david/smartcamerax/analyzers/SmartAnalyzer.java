@@ -1,5 +1,7 @@
 package com.david.smartcamerax.analyzers;
 
+import android.graphics.Bitmap;
+import android.graphics.PixelFormat;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -9,34 +11,41 @@ import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 
-import com.google.android.gms.tasks.Task;
-import com.google.android.gms.tasks.Tasks;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
-import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.text.Text;
-import com.google.mlkit.vision.text.TextRecognition;
-import com.google.mlkit.vision.text.TextRecognizer;
-import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
+import com.david.smartcamerax.utils.BitmapPool;
 
 import java.io.Closeable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.ByteBuffer;
 
 /**
  * SmartAnalyzer
  * <p>
- * ImageAnalysis.Analyzer que ejecuta dos detectores de ML Kit en paralelo:
- * - Reconocimiento de texto (TextRecognizer)
- * - Escaneo de códigos de barras (BarcodeScanner)
+ * ImageAnalysis.Analyzer que ejecuta hasta dos detectores de ML Kit de forma independiente:
+ * - Reconocimiento de texto (MlKitTextDetector)
+ * - Escaneo de códigos de barras (MlKitBarcodeDetector)
  *
  * Diseño y decisiones importantes:
- * - Reusa instancias de TextRecognizer y BarcodeScanner para evitar recrearlas en cada frame
- *   (coste elevado y posibles fugas si no se cierran).
- * - Usa un AtomicBoolean (isProcessing) para evitar procesar más de un frame a la vez. Si llega
- *   otro frame mientras está procesando, se descarta (mejor que acumular cola y subir latencia).
+ * - Es un adaptador fino de CameraX sobre DetectorPipeline, que no depende de Android: aquí solo se
+ *   traduce el ImageProxy a CameraFrame (planos y rotación) y se cierra el proxy cuando
+ *   el pipeline lo indica. La planificación, la ROI, la votación y las métricas viven en el pipeline
+ *   y se prueban en la JVM con detectores falsos.
+ * - Qué detectores se ejecutan y con qué cadencia lo decide el AnalysisProfile (por defecto
+ *   balanced(): códigos en cada frame y texto cada 3). Cada detector va en su propio carril con un
+ *   DetectorScheduler: a lo sumo una inferencia en vuelo por detector y ajuste por latencia media
+ *   móvil. Un frame que no toca a ningún detector se descarta (mejor que acumular cola
+ *   y subir latencia).
+ * - SceneChangeGate: si la escena no ha cambiado desde la última inferencia (documento estático) el
+ *   frame se salta, con un refresco periódico forzado.
+ * - TextPresenceDetector: tras la puerta de escena, un pre-detector en Java puro sobre el plano Y
+ *   (densidad y polaridad de bordes en una rejilla) descarta los frames sin nada parecido a texto o
+ *   códigos antes de llegar a ML Kit.
+ * - Resultados estructurados (AnalysisResult) estabilizados por votación en cada carril; se emite la
+ *   unión de ambos.
+ * - Región de interés (RegionOfInterest): CENTER recorta los planos YUV a NV21 antes de la inferencia
+ *   y TILES recorre baldosas en round-robin; las cajas se trasladan al frame completo. La inicial es
+ *   la del perfil (AnalysisProfile.getRegionOfInterest()).
+ * - Stream RGBA_8888 (perfil con ese formato): el frame se copia a un Bitmap de un BitmapPool y el
+ *   ImageProxy se cierra enseguida; el Bitmap vuelve al pool cuando lo suelta el último detector. Sin
+ *   planos YUV no hay recorte de ROI ni puerta de escena.
  * - Llama a listener.onResult(...) en el hilo principal usando un Handler.
  * - Implementa Closeable: es responsabilidad de quien instancie este analizador llamar close()
  *   cuando deje de usarse (por ejemplo al desactivar smartMode o en onDestroy de la Activity).
@@ -44,131 +53,246 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class SmartAnalyzer implements ImageAnalysis.Analyzer, Closeable {
 
     public interface Listener {
-        void onResult(String result);
+        /** Resultado estable nuevo (cambió respecto al anterior); se llama en el hilo principal. */
+        void onResult(@NonNull AnalysisResult result);
     }
 
+    private static final String TAG = "SmartAnalyzer";
+    // Umbral por defecto (niveles de luma) y refresco máximo de la puerta de cambio de escena
+    private static final float SCENE_THRESHOLD = 6f;
+    private static final long SCENE_REFRESH_MS = 2000;
+    // Cada cuántos frames recibidos se registran las estadísticas del pipeline y de la puerta
+    private static final int STATS_LOG_EVERY = 300;
+    // Votación: una detección se confirma al verse en 3 de las últimas 5 inferencias del carril
+    private static final int VOTE_WINDOW = 5;
+    private static final int VOTE_CONFIRM = 3;
+    // Los códigos son baratos y se buscan en cada frame; la cadencia del texto la fija el perfil
+    private static final int BARCODE_EVERY_N = 1;
+    private static final float BARCODE_DUTY = 1f;
+    // Bitmaps RGBA libres: hasta dos frames 1080p (un detector lento puede retener el anterior)
+    private static final long RGBA_POOL_BYTES = 2L * 1920 * 1080 * 4;
+
     private final Listener listener;
-    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-
-    // Reusar reconocedores para mejorar rendimiento
-    private final TextRecognizer textRecognizer;
-    private final BarcodeScanner barcodeScanner;
+    private final DetectorPipeline pipeline;
+    private final BitmapPool rgbaPool = new BitmapPool(RGBA_POOL_BYTES);
+    // Tras close() los préstamos que terminen tarde no vuelven al pool (se comprueba bajo su monitor)
+    private boolean closed;
+    // Filas RGBA compactadas cuando el plano trae relleno al final de cada fila (hilo del analizador)
+    private ByteBuffer rgbaRows;
+    private int frames;
 
     /**
      * Constructor: crea los clientes de ML Kit una sola vez.
      * @param listener callback que recibe el texto/QR extraído (puede ser null)
      */
     public SmartAnalyzer(Listener listener) {
+        this(listener, AnalysisProfile.balanced());
+    }
+
+    /**
+     * @param profile detectores y cadencias (la resolución y el formato los aplica quien crea el ImageAnalysis)
+     */
+    public SmartAnalyzer(Listener listener, AnalysisProfile profile) {
+        this(listener, profile, new SceneChangeGate(SCENE_THRESHOLD, SCENE_REFRESH_MS));
+    }
+
+    /**
+     * @param sceneGate puerta de cambio de escena (o null para procesar todos los frames aceptados)
+     */
+    public SmartAnalyzer(Listener listener, AnalysisProfile profile, SceneChangeGate sceneGate) {
+        this(listener, profile, sceneGate, new TextPresenceDetector(),
+                profile.hasText() ? new MlKitTextDetector() : null,
+                profile.hasBarcodes() ? new MlKitBarcodeDetector() : null);
+    }
+
+    /**
+     * @param presenceGate pre-detector de texto/códigos (o null para no filtrar por contenido)
+     * @param text         detector de texto (cadencia del perfil) o null si el perfil no busca texto
+     * @param barcode      detector de códigos (cada frame) o null si el perfil no busca códigos
+     */
+    public SmartAnalyzer(Listener listener, AnalysisProfile profile, SceneChangeGate sceneGate,
+                         TextPresenceDetector presenceGate, Detector text, Detector barcode) {
         this.listener = listener;
-        this.textRecognizer = TextRecognition.getClient(new TextRecognizerOptions.Builder().build());
-        this.barcodeScanner = BarcodeScanning.getClient();
+        DetectorPipeline.Builder builder = new DetectorPipeline.Builder(new DetectorPipeline.Listener() {
+            @Override
+            public void onResult(AnalysisResult result) {
+                if (SmartAnalyzer.this.listener != null) {
+                    mainHandler.post(() -> SmartAnalyzer.this.listener.onResult(result));
+                }
+            }
+
+            @Override
+            public void onError(String detector, Exception e) {
+                Log.w(TAG, "Error en " + detector, e);
+            }
+        });
+        // Orden de los detectores = orden en el resultado (texto y luego códigos, como antes)
+        if (text != null) builder.add(text, profile.getTextEveryN(), profile.getTextDuty());
+        if (barcode != null) builder.add(barcode, BARCODE_EVERY_N, BARCODE_DUTY);
+        this.pipeline = builder.sceneGate(sceneGate).presenceGate(presenceGate).voting(VOTE_WINDOW, VOTE_CONFIRM).build();
+        // ROI del perfil (centro en el de códigos); setRegionOfInterest() la puede cambiar después
+        pipeline.setRegionOfInterest(profile.getRegionOfInterest());
+    }
+
+    /**
+     * Cambia la región que se entrega a ML Kit (FULL por defecto). Se puede llamar desde cualquier
+     * hilo; cada detector la aplica en su siguiente inferencia y reinicia su ciclo de baldosas.
+     */
+    public void setRegionOfInterest(@NonNull RegionOfInterest roi) {
+        pipeline.setRegionOfInterest(roi);
+    }
+
+    public RegionOfInterest getRegionOfInterest() {
+        return pipeline.getRegionOfInterest();
+    }
+
+    /** Latencias de inferencia (de process() a resultado) de un detector con el modo de ROI indicado. */
+    public LatencyStats getLatency(AnalysisResult.Kind kind, RegionOfInterest.Mode mode) {
+        return pipeline.getLatency(kind, mode);
+    }
+
+    /** Planificador del detector de {@code kind} (cadencia, latencia media móvil, runs/skips). */
+    public DetectorScheduler getScheduler(AnalysisResult.Kind kind) {
+        return pipeline.getScheduler(kind);
+    }
+
+    /** Puerta de cambio de escena (null si está desactivada), p.ej. para consultar estadísticas. */
+    public SceneChangeGate getSceneGate() {
+        return pipeline.getSceneGate();
     }
 
     /**
      * analyze()
      * <p>
      * Se ejecuta por CameraX en un thread del executor que se haya configurado.
+     * - Stream RGBA: copia a Bitmap, cierra el imageProxy y entrega el Bitmap como frame sin planos.
      * - Si la imagen interna es null, cierra el imageProxy y retorna.
-     * - Si ya se está procesando un frame, cierra el imageProxy y retorna (evita solapamiento).
-     * - Lanza las tareas de ML Kit y, cuando ambas se completan, construye un String resultado
-     *   con texto y/o valores de códigos y pasa el resultado al listener en el hilo principal.
+     * - Si no, entrega el frame al pipeline: cada detector lanzado copia su región a NV21 y el
+     *   imageProxy se cierra al volver de submit(), sin esperar a las inferencias.
      */
     @Override
     @ExperimentalGetImage
     public void analyze(@NonNull ImageProxy imageProxy) {
+        if (imageProxy.getFormat() == PixelFormat.RGBA_8888) {
+            analyzeRgba(imageProxy);
+            return;
+        }
         // imageProxy no puede ser null según la firma, comprobar solo la imagen interna
         if (imageProxy.getImage() == null) {
             imageProxy.close();
             return;
         }
 
-        // Evitar solapamiento de procesos: si ya estamos procesando, descartamos este frame.
-        if (!isProcessing.compareAndSet(false, true)) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        CameraFrame frame = new CameraFrame(imageProxy.getWidth(), imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees(),
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+        pipeline.submit(frame, () -> {
+            try {
+                imageProxy.close();
+            } catch (Exception e) {
+                Log.w(TAG, "Error cerrando imageProxy", e);
+            }
+        });
+
+        if (++frames % STATS_LOG_EVERY == 0) {
+            logStats("");
+        }
+    }
+
+    private void analyzeRgba(ImageProxy imageProxy) {
+        Bitmap bitmap = null;
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        try {
+            bitmap = rgbaPool.acquire(imageProxy.getWidth(), imageProxy.getHeight(), Bitmap.Config.ARGB_8888);
+            copyRgba(imageProxy.getPlanes()[0], bitmap);
+        } catch (Exception e) {
+            Log.w(TAG, "Error convirtiendo frame RGBA", e);
+            // El préstamo no llegó al pipeline: devolverlo aquí
+            if (bitmap != null) releaseRgba(bitmap);
+            return;
+        } finally {
             imageProxy.close();
+        }
+        // El ImageProxy ya está cerrado; lo que el pipeline "cierra" es el préstamo del Bitmap
+        final Bitmap frame = bitmap;
+        pipeline.submit(CameraFrame.ofNativeImage(bitmap.getWidth(), bitmap.getHeight(), rotation, bitmap),
+                () -> releaseRgba(frame));
+        if (++frames % STATS_LOG_EVERY == 0) {
+            logStats("");
+        }
+    }
+
+    // El pipeline ya no lee el Bitmap: al pool, o reciclado si el analizador se cerró mientras tanto
+    private void releaseRgba(Bitmap frame) {
+        synchronized (rgbaPool) {
+            if (!closed) {
+                rgbaPool.release(frame);
+                return;
+            }
+        }
+        frame.recycle();
+    }
+
+    // Copia el plano RGBA al Bitmap (mismo tamaño); compacta las filas si el stride trae relleno
+    private void copyRgba(ImageProxy.PlaneProxy plane, Bitmap bitmap) {
+        ByteBuffer src = plane.getBuffer();
+        int rowBytes = bitmap.getWidth() * 4;
+        int height = bitmap.getHeight();
+        src.rewind();
+        if (plane.getRowStride() == rowBytes) {
+            bitmap.copyPixelsFromBuffer(src);
             return;
         }
+        if (rgbaRows == null || rgbaRows.capacity() < rowBytes * height) {
+            rgbaRows = ByteBuffer.allocateDirect(rowBytes * height);
+        }
+        rgbaRows.clear();
+        ByteBuffer row = src.duplicate();
+        for (int y = 0; y < height; y++) {
+            int start = y * plane.getRowStride();
+            row.limit(start + rowBytes).position(start);
+            rgbaRows.put(row);
+        }
+        rgbaRows.flip();
+        bitmap.copyPixelsFromBuffer(rgbaRows);
+    }
 
-        InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
-
-        // Crear tareas para texto y códigos de barras usando instancias reusables
-        Task<Text> textTask = textRecognizer.process(image);
-        Task<List<Barcode>> barcodeTask = barcodeScanner.process(image);
-
-        // Esperar a que ambas tareas terminen (completadas) y luego procesar resultados y cerrar imageProxy
-        Tasks.whenAllComplete(textTask, barcodeTask)
-                .addOnSuccessListener(ignored -> {
-                    StringBuilder sb = new StringBuilder();
-
-                    if (textTask.isSuccessful()) {
-                        try {
-                            Text text = textTask.getResult();
-                            if (text != null) {
-                                String t = text.getText();
-                                if (!t.trim().isEmpty()) {
-                                    sb.append("TEXTO: ").append(t.trim()).append("\n");
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.w("SmartAnalyzer", "Error obteniendo texto", e);
-                        }
-                    }
-
-                    if (barcodeTask.isSuccessful()) {
-                        try {
-                            List<Barcode> barcodes = barcodeTask.getResult();
-                            if (barcodes != null && !barcodes.isEmpty()) {
-                                List<String> vals = new ArrayList<>();
-                                for (Barcode b : barcodes) {
-                                    String raw = b.getRawValue();
-                                    if (raw != null && !raw.isEmpty()) {
-                                        vals.add(raw);
-                                    }
-                                }
-                                if (!vals.isEmpty()) {
-                                    sb.append("QR: ").append(String.join(" ", vals));
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.w("SmartAnalyzer", "Error procesando códigos de barras", e);
-                        }
-                    }
-
-                    String finalResult = sb.length() > 0 ? sb.toString().trim() : null;
-                    if (finalResult != null && !finalResult.isEmpty()) {
-                        // Asegurar llamada en hilo principal
-                        mainHandler.post(() -> listener.onResult(finalResult));
-                    }
-                })
-                .addOnFailureListener(e -> Log.w("SmartAnalyzer", "Tarea falló", e))
-                .addOnCompleteListener(task -> {
-                    try {
-                        imageProxy.close();
-                    } catch (Exception e) {
-                        Log.w("SmartAnalyzer", "Error cerrando imageProxy", e);
-                    } finally {
-                        // Restablecer flag para permitir procesar próximos frames
-                        isProcessing.set(false);
-                    }
-                });
+    private void logStats(String prefix) {
+        SceneChangeGate gate = pipeline.getSceneGate();
+        if (gate != null) Log.d(TAG, prefix + "scene gate " + gate.stats());
+        TextPresenceDetector presence = pipeline.getPresenceGate();
+        if (presence != null) Log.d(TAG, prefix + "presence gate " + presence.stats());
+        Log.d(TAG, prefix + pipeline.stats());
+        for (AnalysisResult.Kind kind : AnalysisResult.Kind.values()) {
+            if (!pipeline.has(kind)) continue;
+            for (RegionOfInterest.Mode mode : RegionOfInterest.Mode.values()) {
+                LatencyStats stats = pipeline.getLatency(kind, mode);
+                if (stats.getCount() > 0) {
+                    Log.d(TAG, prefix + "latency " + kind + " " + mode + " " + stats);
+                }
+            }
+        }
     }
 
     /**
      * close()
      * <p>
-     * Cierra los reconocedores de ML Kit. Debe llamarse desde el lifecycle owning (e.g. Activity.onDestroy).
+     * Cierra los detectores de ML Kit y libera los bitmaps RGBA del pool. Debe llamarse desde el lifecycle owning (e.g. Activity.onDestroy).
      */
     @Override
     public void close() {
+        logStats("close: ");
         try {
-            textRecognizer.close();
+            pipeline.close();
         } catch (Exception e) {
-            Log.w("SmartAnalyzer", "Error cerrando textRecognizer", e);
+            Log.w(TAG, "Error cerrando detectores", e);
         }
-        try {
-            barcodeScanner.close();
-        } catch (Exception e) {
-            Log.w("SmartAnalyzer", "Error cerrando barcodeScanner", e);
+        synchronized (rgbaPool) {
+            closed = true;
+            rgbaPool.clear();
         }
     }
 }
@@ -4,21 +4,56 @@ import androidx.annotation.NonNull;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 
+/**
+ * TextAnalyzer
+ * <p>
+ * ImageAnalysis.Analyzer ligero que solo estima si hay texto o códigos en el frame, sin ML Kit:
+ * ejecuta TextPresenceDetector sobre el plano Y y cierra el ImageProxy enseguida. Útil para indicar
+ * en la UI "apunta a un texto" o para decidir cuándo activar el modo inteligente; SmartAnalyzer usa
+ * el mismo pre-detector como puerta antes de sus detectores.
+ *
+ * El listener se llama en el hilo del analizador, solo cuando cambia la decisión (aparece o
+ * desaparece el texto).
+ */
 public class TextAnalyzer implements ImageAnalysis.Analyzer {
 
     public interface Listener {
-        void onTextDetected(String text);
+        /**
+         * @param likely true si el frame parece contener texto o códigos
+         * @param score  fracción de la rejilla con aspecto de texto (0..1)
+         */
+        void onTextPresence(boolean likely, float score);
     }
 
     private final Listener listener;
+    private final TextPresenceDetector detector;
+    private Boolean lastLikely;
 
     public TextAnalyzer(Listener listener) {
+        this(listener, new TextPresenceDetector());
+    }
+
+    public TextAnalyzer(Listener listener, @NonNull TextPresenceDetector detector) {
         this.listener = listener;
+        this.detector = detector;
+    }
+
+    public TextPresenceDetector getDetector() {
+        return detector;
     }
 
     @Override
     public void analyze(@NonNull ImageProxy imageProxy) {
-        // Stub simple: cerramos el imageProxy inmediatamente. Use SmartAnalyzer para ML Kit.
-        if (imageProxy != null) imageProxy.close();
+        try {
+            ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+            boolean likely = detector.shouldProcess(plane.getBuffer(), plane.getRowStride(),
+                    imageProxy.getWidth(), imageProxy.getHeight());
+            if (listener != null && (lastLikely == null || lastLikely != likely)) {
+                listener.onTextPresence(likely, detector.getLastScore());
+            }
+            lastLikely = likely;
+        } finally {
+            imageProxy.close();
+        }
     }
 }
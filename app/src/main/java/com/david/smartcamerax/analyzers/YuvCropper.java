@@ -0,0 +1,61 @@
+package com.david.smartcamerax.analyzers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YuvCropper
+ * <p>
+ * Recorta una región de un frame YUV_420_888 y la escribe en NV21 (plano Y seguido de V/U
+ * entrelazados), el formato que acepta InputImage.fromByteArray(). Así ML Kit solo ve los píxeles de
+ * la región de interés y el ImageProxy se puede cerrar en cuanto se copia.
+ *
+ * - El plano Y se copia por filas con lecturas en bloque (el caso dominante: 2/3 de los bytes).
+ * - U/V se leen por muestra respetando uvPixelStride, así que vale tanto para buffers planares
+ *   (stride 1) como semiplanares (stride 2).
+ * - {@code left}/{@code top}/{@code width}/{@code height} deben ser pares (RegionOfInterest ya los
+ *   alinea) para que la croma 2x2 corresponda exactamente a la luma recortada.
+ *
+ * Java puro: no modifica position/limit de los buffers recibidos.
+ */
+public final class YuvCropper {
+
+    private YuvCropper() {}
+
+    /** Bytes de un frame NV21 de {@code width} x {@code height}. */
+    public static int nv21Size(int width, int height) {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    /**
+     * Copia la región en {@code out} (al menos nv21Size(width, height) bytes) en formato NV21.
+     */
+    public static void cropToNv21(ByteBuffer y, int yRowStride,
+                                  ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                                  int left, int top, int width, int height, byte[] out) {
+        if (((left | top | width | height) & 1) != 0) {
+            throw new IllegalArgumentException("La región debe estar alineada a píxeles pares");
+        }
+        if (out.length < nv21Size(width, height)) {
+            throw new IllegalArgumentException("Buffer NV21 demasiado pequeño");
+        }
+        // duplicate(): posición propia para get() en bloque sin tocar la del plano original
+        ByteBuffer luma = y.duplicate();
+        int o = 0;
+        for (int row = 0; row < height; row++) {
+            luma.position((top + row) * yRowStride + left);
+            luma.get(out, o, width);
+            o += width;
+        }
+        int cLeft = left >> 1;
+        int cTop = top >> 1;
+        int cw = width >> 1;
+        int ch = height >> 1;
+        for (int row = 0; row < ch; row++) {
+            int in = (cTop + row) * uvRowStride + cLeft * uvPixelStride;
+            for (int col = 0; col < cw; col++, in += uvPixelStride) {
+                out[o++] = v.get(in);
+                out[o++] = u.get(in);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.david.smartcamerax.capture;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
+
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.TiledExecutor;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+import com.david.smartcamerax.storage.ImageStore;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * FilteredCapture
+ * <p>
+ * Guarda una foto con el filtro aplicado a resolución completa sin tener nunca el frame ARGB entero
+ * en memoria (12 MP = 48 MB por bitmap):
+ * 1. La captura llega como JPEG en memoria (ImageCapture.OnImageCapturedCallback), unos pocos MB.
+ * 2. BitmapRegionDecoder decodifica franjas horizontales (con halo) sobre un único Bitmap reutilizado.
+ * 3. StripPipeline filtra cada franja y StripJpegEncoder la codifica y la escribe en MediaStore.
+ * La rotación no se aplica a los píxeles: se guarda como orientación Exif.
+ *
+ * Hace I/O y CPU intensivo: llamar desde un executor de fondo, nunca desde el hilo principal.
+ */
+public final class FilteredCapture {
+
+    private static final String TAG = "FilteredCapture";
+    private static final int JPEG_QUALITY = 92;
+    // Memoria objetivo por franja (el Bitmap de decodificación y el buffer int[] ocupan esto cada uno)
+    private static final long STRIP_BUDGET_BYTES = 4L * 1024 * 1024;
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+    // Decodificar + filtrar + codificar + escribir, de una foto guardada con éxito
+    private static final LatencyHistogram SAVE_TIME = Metrics.histogram("capture.filtered_save");
+
+    private FilteredCapture() {
+    }
+
+    /** Copia los bytes JPEG de una captura en memoria (el llamador cierra el ImageProxy). */
+    @NonNull
+    public static byte[] readJpeg(@NonNull ImageProxy image) throws IOException {
+        if (image.getFormat() != ImageFormat.JPEG) {
+            throw new IOException("Formato de captura no soportado: " + image.getFormat());
+        }
+        ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+        byte[] jpeg = new byte[buffer.remaining()];
+        buffer.get(jpeg);
+        return jpeg;
+    }
+
+    /**
+     * Filtra {@code jpeg} por franjas y lo guarda como nueva imagen en MediaStore.
+     *
+     * @param previewShortSide lado corto (px) del frame sobre el que se ve el filtro en el preview;
+     *                         los filtros de vecindad se escalan para que la foto se vea igual
+     * @param tiles            pool de bandas para filtrar cada franja, o null
+     * @return Uri de la imagen guardada
+     */
+    @NonNull
+    public static Uri save(@NonNull Context ctx, @NonNull byte[] jpeg, int rotationDegrees, @NonNull FilterChain chain,
+                           int previewShortSide, TiledExecutor tiles, @NonNull String displayName) throws IOException {
+        long start = System.nanoTime();
+        BitmapRegionDecoder decoder = newRegionDecoder(jpeg);
+        Bitmap strip = null;
+        ContentResolver resolver = ctx.getContentResolver();
+        Uri uri = null;
+        try {
+            int width = decoder.getWidth();
+            int height = decoder.getHeight();
+            float scale = previewShortSide > 0 ? Math.min(width, height) / (float) previewShortSide : 1f;
+            StripPipeline pipeline = new StripPipeline(chain.scaled(scale), width, height, STRIP_BUDGET_BYTES);
+
+            // Un único Bitmap para todas las franjas: el decoder escribe arriba a la izquierda y
+            // conserva su tamaño aunque la región sea menor (la última franja)
+            strip = Bitmap.createBitmap(width, (int) (pipeline.getStripBytes() / (4L * width)), Bitmap.Config.ARGB_8888);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            options.inMutable = true;
+            options.inBitmap = strip;
+            final Bitmap target = strip;
+            Rect region = new Rect();
+
+            ContentValues values = ImageStore.buildContentValues(displayName);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                values.put(MediaStore.Images.Media.IS_PENDING, 1);
+            }
+            uri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+            if (uri == null) throw new IOException("MediaStore no devolvió Uri");
+
+            try (OutputStream os = resolver.openOutputStream(uri)) {
+                if (os == null) throw new IOException("No se pudo abrir " + uri);
+                OutputStream out = new BufferedOutputStream(os, OUTPUT_BUFFER_BYTES);
+                StripJpegEncoder encoder = new StripJpegEncoder(out, width, height, JPEG_QUALITY, rotationDegrees);
+                pipeline.run((top, rows, dst) -> {
+                    region.set(0, top, width, top + rows);
+                    Bitmap decoded = decoder.decodeRegion(region, options);
+                    if (decoded == null) throw new IOException("No se pudo decodificar la franja " + region);
+                    decoded.getPixels(dst, 0, width, 0, 0, width, rows);
+                    if (decoded != target) decoded.recycle();
+                }, encoder::writeRows, tiles);
+                encoder.finish();
+                out.flush();
+            } finally {
+                pipeline.release();
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                ContentValues done = new ContentValues();
+                done.put(MediaStore.Images.Media.IS_PENDING, 0);
+                resolver.update(uri, done, null, null);
+            }
+            Log.d(TAG, "save: " + width + "x" + height + " '" + chain.getName() + "' en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms, franja " + pipeline.getStripRows()
+                    + "+2x" + pipeline.getHaloRows() + " filas (" + pipeline.getStripBytes() / 1024
+                    + " KB) frente a " + 4L * width * height / 1024 + " KB del frame completo");
+            SAVE_TIME.recordSince(start);
+            Uri saved = uri;
+            uri = null;
+            return saved;
+        } finally {
+            if (uri != null) {
+                // Fallo a mitad: no dejar una entrada vacía o pendiente en la galería
+                try { resolver.delete(uri, null, null); } catch (Exception e) { Log.w(TAG, "save: limpieza", e); }
+            }
+            if (strip != null) strip.recycle();
+            decoder.recycle();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newRegionDecoder(byte[] jpeg) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(jpeg, 0, jpeg.length);
+        }
+        return BitmapRegionDecoder.newInstance(jpeg, 0, jpeg.length, false);
+    }
+}
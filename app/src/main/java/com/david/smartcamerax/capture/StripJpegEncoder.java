@@ -0,0 +1,435 @@
+package com.david.smartcamerax.capture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * StripJpegEncoder
+ * <p>
+ * Codificador JPEG baseline (YCbCr 4:2:0, tablas Huffman estándar) que recibe la imagen por franjas
+ * de filas en orden, de modo que nunca hace falta tener el frame completo en memoria:
+ * - Solo guarda las filas de una fila de MCUs (16 filas); al completarla la codifica y la escribe.
+ * - Bitmap.compress() exige el Bitmap entero; aquí la memoria es 16 x ancho píxeles.
+ * - Escribe un APP1 Exif mínimo con la orientación, para no tener que rotar los píxeles.
+ *
+ * Uso: constructor (escribe cabeceras) -> writeRows(...) hasta completar {@code height} filas ->
+ * finish() (escribe EOI). No cierra el OutputStream.
+ */
+public final class StripJpegEncoder {
+
+    private static final int[] ZIGZAG = {
+            0, 1, 8, 16, 9, 2, 3, 10,
+            17, 24, 32, 25, 18, 11, 4, 5,
+            12, 19, 26, 33, 40, 48, 41, 34,
+            27, 20, 13, 6, 7, 14, 21, 28,
+            35, 42, 49, 56, 57, 50, 43, 36,
+            29, 22, 15, 23, 30, 37, 44, 51,
+            58, 59, 52, 45, 38, 31, 39, 46,
+            53, 60, 61, 54, 47, 55, 62, 63
+    };
+
+    // Tablas de cuantización de referencia (ITU T.81 Anexo K), en orden natural
+    private static final int[] LUMA_QUANT = {
+            16, 11, 10, 16, 24, 40, 51, 61,
+            12, 12, 14, 19, 26, 58, 60, 55,
+            14, 13, 16, 24, 40, 57, 69, 56,
+            14, 17, 22, 29, 51, 87, 80, 62,
+            18, 22, 37, 56, 68, 109, 103, 77,
+            24, 35, 55, 64, 81, 104, 113, 92,
+            49, 64, 78, 87, 103, 121, 120, 101,
+            72, 92, 95, 98, 112, 100, 103, 99
+    };
+    private static final int[] CHROMA_QUANT = {
+            17, 18, 24, 47, 99, 99, 99, 99,
+            18, 21, 26, 66, 99, 99, 99, 99,
+            24, 26, 56, 99, 99, 99, 99, 99,
+            47, 66, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99,
+            99, 99, 99, 99, 99, 99, 99, 99
+    };
+
+    // Tablas Huffman estándar (Anexo K.3): número de códigos por longitud y símbolos
+    private static final int[] DC_LUMA_BITS = {0, 1, 5, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] DC_CHROMA_BITS = {0, 3, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0};
+    private static final int[] DC_VALUES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+    private static final int[] AC_LUMA_BITS = {0, 2, 1, 3, 3, 2, 4, 3, 5, 5, 4, 4, 0, 0, 1, 0x7d};
+    private static final int[] AC_LUMA_VALUES = {
+            0x01, 0x02, 0x03, 0x00, 0x04, 0x11, 0x05, 0x12, 0x21, 0x31, 0x41, 0x06, 0x13, 0x51, 0x61, 0x07,
+            0x22, 0x71, 0x14, 0x32, 0x81, 0x91, 0xa1, 0x08, 0x23, 0x42, 0xb1, 0xc1, 0x15, 0x52, 0xd1, 0xf0,
+            0x24, 0x33, 0x62, 0x72, 0x82, 0x09, 0x0a, 0x16, 0x17, 0x18, 0x19, 0x1a, 0x25, 0x26, 0x27, 0x28,
+            0x29, 0x2a, 0x34, 0x35, 0x36, 0x37, 0x38, 0x39, 0x3a, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48, 0x49,
+            0x4a, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59, 0x5a, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69,
+            0x6a, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7a, 0x83, 0x84, 0x85, 0x86, 0x87, 0x88, 0x89,
+            0x8a, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97, 0x98, 0x99, 0x9a, 0xa2, 0xa3, 0xa4, 0xa5, 0xa6, 0xa7,
+            0xa8, 0xa9, 0xaa, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xb9, 0xba, 0xc2, 0xc3, 0xc4, 0xc5,
+            0xc6, 0xc7, 0xc8, 0xc9, 0xca, 0xd2, 0xd3, 0xd4, 0xd5, 0xd6, 0xd7, 0xd8, 0xd9, 0xda, 0xe1, 0xe2,
+            0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9, 0xea, 0xf1, 0xf2, 0xf3, 0xf4, 0xf5, 0xf6, 0xf7, 0xf8,
+            0xf9, 0xfa
+    };
+    private static final int[] AC_CHROMA_BITS = {0, 2, 1, 2, 4, 4, 3, 4, 7, 5, 4, 4, 0, 1, 2, 0x77};
+    private static final int[] AC_CHROMA_VALUES = {
+            0x00, 0x01, 0x02, 0x03, 0x11, 0x04, 0x05, 0x21, 0x31, 0x06, 0x12, 0x41, 0x51, 0x07, 0x61, 0x71,
+            0x13, 0x22, 0x32, 0x81, 0x08, 0x14, 0x42, 0x91, 0xa1, 0xb1, 0xc1, 0x09, 0x23, 0x33, 0x52, 0xf0,
+            0x15, 0x62, 0x72, 0xd1, 0x0a, 0x16, 0x24, 0x34, 0xe1, 0x25, 0xf1, 0x17, 0x18, 0x19, 0x1a, 0x26,
+            0x27, 0x28, 0x29, 0x2a, 0x35, 0x36, 0x37, 0x38, 0x39, 0x3a, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48,
+            0x49, 0x4a, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59, 0x5a, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68,
+            0x69, 0x6a, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7a, 0x82, 0x83, 0x84, 0x85, 0x86, 0x87,
+            0x88, 0x89, 0x8a, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97, 0x98, 0x99, 0x9a, 0xa2, 0xa3, 0xa4, 0xa5,
+            0xa6, 0xa7, 0xa8, 0xa9, 0xaa, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xb9, 0xba, 0xc2, 0xc3,
+            0xc4, 0xc5, 0xc6, 0xc7, 0xc8, 0xc9, 0xca, 0xd2, 0xd3, 0xd4, 0xd5, 0xd6, 0xd7, 0xd8, 0xd9, 0xda,
+            0xe2, 0xe3, 0xe4, 0xe5, 0xe6, 0xe7, 0xe8, 0xe9, 0xea, 0xf2, 0xf3, 0xf4, 0xf5, 0xf6, 0xf7, 0xf8,
+            0xf9, 0xfa
+    };
+
+    // Factores de escala de la DCT AAN (jfdctflt.c)
+    private static final float[] AAN_SCALE = {
+            1.0f, 1.387039845f, 1.306562965f, 1.175875602f, 1.0f, 0.785694958f, 0.541196100f, 0.275899379f
+    };
+
+    private static final int MCU = 16;
+
+    // Códigos Huffman [símbolo] y sus longitudes, generados desde las tablas estándar
+    private static final int[][] DC_LUMA = buildCodes(DC_LUMA_BITS, DC_VALUES);
+    private static final int[][] DC_CHROMA = buildCodes(DC_CHROMA_BITS, DC_VALUES);
+    private static final int[][] AC_LUMA = buildCodes(AC_LUMA_BITS, AC_LUMA_VALUES);
+    private static final int[][] AC_CHROMA = buildCodes(AC_CHROMA_BITS, AC_CHROMA_VALUES);
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final int[] lumaQuant = new int[64];
+    private final int[] chromaQuant = new int[64];
+    // Divisores de cuantización combinados con el escalado AAN (orden natural)
+    private final float[] lumaDivisors = new float[64];
+    private final float[] chromaDivisors = new float[64];
+
+    // Filas pendientes de una fila de MCUs
+    private final int[] rows;
+    private int bufferedRows;
+    private int rowsWritten;
+
+    private final float[] block = new float[64];
+    private final float[] cbBlock = new float[64];
+    private final float[] crBlock = new float[64];
+    private final int[] quantized = new int[64];
+    private int dcY;
+    private int dcCb;
+    private int dcCr;
+
+    // Salida con relleno 0xFF00 y acumulador de bits
+    private final byte[] outBuffer = new byte[8192];
+    private int outPos;
+    private int bitBuffer;
+    private int bitCount;
+    private boolean finished;
+
+    /**
+     * @param quality        1..100 (escala IJG de las tablas de referencia)
+     * @param rotationDegrees 0, 90, 180 o 270: se guarda como orientación Exif
+     */
+    public StripJpegEncoder(OutputStream out, int width, int height, int quality, int rotationDegrees) throws IOException {
+        if (width <= 0 || height <= 0 || width > 65535 || height > 65535) {
+            throw new IllegalArgumentException("Tamaño JPEG no válido: " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.rows = new int[MCU * width];
+        initQuantization(Math.max(1, Math.min(100, quality)));
+        writeHeaders(exifOrientation(rotationDegrees));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Filas recibidas hasta ahora. */
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Añade {@code count} filas ARGB (la siguiente franja de arriba abajo) desde
+     * {@code argb[offset]} con {@code stride} elementos por fila.
+     */
+    public void writeRows(int[] argb, int offset, int stride, int count) throws IOException {
+        if (finished) throw new IllegalStateException("El JPEG ya está cerrado");
+        if (rowsWritten + count > height) {
+            throw new IllegalArgumentException("Demasiadas filas: " + (rowsWritten + count) + " > " + height);
+        }
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(argb, offset + i * stride, rows, bufferedRows * width, width);
+            bufferedRows++;
+            rowsWritten++;
+            if (bufferedRows == MCU) {
+                encodeMcuRow(MCU);
+                bufferedRows = 0;
+            }
+        }
+    }
+
+    /** Codifica las filas pendientes y escribe el final del fichero. Exige haber recibido todas. */
+    public void finish() throws IOException {
+        if (finished) return;
+        if (rowsWritten != height) {
+            throw new IllegalStateException("Faltan filas: " + rowsWritten + " de " + height);
+        }
+        if (bufferedRows > 0) {
+            encodeMcuRow(bufferedRows);
+            bufferedRows = 0;
+        }
+        // Completar el último byte con unos y cerrar con EOI
+        if (bitCount > 0) writeBits(0x7F, 7);
+        flushBuffer();
+        out.write(0xFF);
+        out.write(0xD9);
+        out.flush();
+        finished = true;
+    }
+
+    // ---- Cabeceras ----
+
+    private void initQuantization(int quality) {
+        int scale = quality < 50 ? 5000 / quality : 200 - quality * 2;
+        for (int i = 0; i < 64; i++) {
+            lumaQuant[i] = Math.max(1, Math.min(255, (LUMA_QUANT[i] * scale + 50) / 100));
+            chromaQuant[i] = Math.max(1, Math.min(255, (CHROMA_QUANT[i] * scale + 50) / 100));
+            float aan = AAN_SCALE[i >> 3] * AAN_SCALE[i & 7] * 8f;
+            lumaDivisors[i] = 1f / (lumaQuant[i] * aan);
+            chromaDivisors[i] = 1f / (chromaQuant[i] * aan);
+        }
+    }
+
+    static int exifOrientation(int rotationDegrees) {
+        switch (((rotationDegrees % 360) + 360) % 360) {
+            case 90: return 6;
+            case 180: return 3;
+            case 270: return 8;
+            default: return 1;
+        }
+    }
+
+    private void writeHeaders(int orientation) throws IOException {
+        OutputStream o = out;
+        o.write(new byte[]{(byte) 0xFF, (byte) 0xD8});
+        // APP1 Exif: cabecera TIFF big-endian con un único IFD que contiene la orientación (0x0112)
+        byte[] exif = {
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, 0, 0, 0, 8,
+                0, 1,
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0
+        };
+        o.write(exif);
+        // DQT: tablas en orden zigzag
+        o.write(new byte[]{(byte) 0xFF, (byte) 0xDB, 0, (byte) 132});
+        o.write(0);
+        for (int i = 0; i < 64; i++) o.write(lumaQuant[ZIGZAG[i]]);
+        o.write(1);
+        for (int i = 0; i < 64; i++) o.write(chromaQuant[ZIGZAG[i]]);
+        // SOF0: 3 componentes, Y con muestreo 2x2 y croma 1x1 (4:2:0)
+        o.write(new byte[]{(byte) 0xFF, (byte) 0xC0, 0, 17, 8,
+                (byte) (height >> 8), (byte) height, (byte) (width >> 8), (byte) width, 3,
+                1, 0x22, 0, 2, 0x11, 1, 3, 0x11, 1});
+        writeHuffmanTable(0x00, DC_LUMA_BITS, DC_VALUES);
+        writeHuffmanTable(0x10, AC_LUMA_BITS, AC_LUMA_VALUES);
+        writeHuffmanTable(0x01, DC_CHROMA_BITS, DC_VALUES);
+        writeHuffmanTable(0x11, AC_CHROMA_BITS, AC_CHROMA_VALUES);
+        // SOS
+        o.write(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 12, 3, 1, 0x00, 2, 0x11, 3, 0x11, 0, 63, 0});
+    }
+
+    private void writeHuffmanTable(int classAndId, int[] bits, int[] values) throws IOException {
+        int length = 2 + 1 + 16 + values.length;
+        out.write(0xFF);
+        out.write(0xC4);
+        out.write(length >> 8);
+        out.write(length);
+        out.write(classAndId);
+        for (int b : bits) out.write(b);
+        for (int v : values) out.write(v);
+    }
+
+    // Códigos canónicos (T.81 Anexo C): [0][símbolo] = código, [1][símbolo] = longitud
+    private static int[][] buildCodes(int[] bits, int[] values) {
+        int[][] table = new int[2][256];
+        int code = 0;
+        int k = 0;
+        for (int len = 1; len <= 16; len++) {
+            for (int i = 0; i < bits[len - 1]; i++) {
+                table[0][values[k]] = code;
+                table[1][values[k]] = len;
+                k++;
+                code++;
+            }
+            code <<= 1;
+        }
+        if (k != values.length) throw new IllegalStateException("Tabla Huffman inconsistente");
+        return table;
+    }
+
+    // ---- Codificación ----
+
+    // Codifica una fila de MCUs de 16x16 con las primeras {@code valid} filas de {@code rows}
+    private void encodeMcuRow(int valid) throws IOException {
+        for (int mx = 0; mx < width; mx += MCU) {
+            // Cuatro bloques Y (arriba-izq, arriba-der, abajo-izq, abajo-der)
+            for (int by = 0; by < MCU; by += 8) {
+                for (int bx = 0; bx < MCU; bx += 8) {
+                    loadLuma(mx + bx, by, valid);
+                    dcY = encodeBlock(block, lumaDivisors, dcY, DC_LUMA, AC_LUMA);
+                }
+            }
+            loadChroma(mx, valid);
+            dcCb = encodeBlock(cbBlock, chromaDivisors, dcCb, DC_CHROMA, AC_CHROMA);
+            dcCr = encodeBlock(crBlock, chromaDivisors, dcCr, DC_CHROMA, AC_CHROMA);
+        }
+    }
+
+    // Bordes: se replica la última columna/fila válida
+    private void loadLuma(int x0, int y0, int valid) {
+        for (int y = 0; y < 8; y++) {
+            int row = Math.min(y0 + y, valid - 1) * width;
+            for (int x = 0; x < 8; x++) {
+                int p = rows[row + Math.min(x0 + x, width - 1)];
+                int r = (p >> 16) & 0xFF;
+                int g = (p >> 8) & 0xFF;
+                int b = p & 0xFF;
+                block[y * 8 + x] = 0.299f * r + 0.587f * g + 0.114f * b - 128f;
+            }
+        }
+    }
+
+    // Croma 4:2:0: media de cada bloque 2x2 del MCU
+    private void loadChroma(int x0, int valid) {
+        for (int y = 0; y < 8; y++) {
+            int row0 = Math.min(2 * y, valid - 1) * width;
+            int row1 = Math.min(2 * y + 1, valid - 1) * width;
+            for (int x = 0; x < 8; x++) {
+                int xa = Math.min(x0 + 2 * x, width - 1);
+                int xb = Math.min(x0 + 2 * x + 1, width - 1);
+                int p0 = rows[row0 + xa], p1 = rows[row0 + xb], p2 = rows[row1 + xa], p3 = rows[row1 + xb];
+                float r = (((p0 >> 16) & 0xFF) + ((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF)) * 0.25f;
+                float g = (((p0 >> 8) & 0xFF) + ((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF)) * 0.25f;
+                float b = ((p0 & 0xFF) + (p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF)) * 0.25f;
+                cbBlock[y * 8 + x] = -0.168736f * r - 0.331264f * g + 0.5f * b;
+                crBlock[y * 8 + x] = 0.5f * r - 0.418688f * g - 0.081312f * b;
+            }
+        }
+    }
+
+    private int encodeBlock(float[] data, float[] divisors, int prevDc, int[][] dcTable, int[][] acTable) throws IOException {
+        fdct(data);
+        for (int i = 0; i < 64; i++) {
+            int n = ZIGZAG[i];
+            quantized[i] = Math.round(data[n] * divisors[n]);
+        }
+        int dc = quantized[0];
+        int diff = dc - prevDc;
+        int cat = category(diff);
+        writeBits(dcTable[0][cat], dcTable[1][cat]);
+        if (cat > 0) writeBits(diff < 0 ? diff - 1 : diff, cat);
+
+        int run = 0;
+        for (int i = 1; i < 64; i++) {
+            int v = quantized[i];
+            if (v == 0) {
+                run++;
+                continue;
+            }
+            while (run > 15) {
+                writeBits(acTable[0][0xF0], acTable[1][0xF0]);
+                run -= 16;
+            }
+            int c = category(v);
+            int symbol = (run << 4) | c;
+            writeBits(acTable[0][symbol], acTable[1][symbol]);
+            writeBits(v < 0 ? v - 1 : v, c);
+            run = 0;
+        }
+        if (run > 0) writeBits(acTable[0][0x00], acTable[1][0x00]);
+        return dc;
+    }
+
+    private static int category(int v) {
+        return v == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(Math.abs(v));
+    }
+
+    // DCT directa AAN en coma flotante (jfdctflt.c), in situ; la salida queda escalada por AAN_SCALE
+    private static void fdct(float[] d) {
+        for (int p = 0; p < 64; p += 8) {
+            dct8(d, p, 1);
+        }
+        for (int p = 0; p < 8; p++) {
+            dct8(d, p, 8);
+        }
+    }
+
+    private static void dct8(float[] d, int o, int s) {
+        float tmp0 = d[o] + d[o + 7 * s];
+        float tmp7 = d[o] - d[o + 7 * s];
+        float tmp1 = d[o + s] + d[o + 6 * s];
+        float tmp6 = d[o + s] - d[o + 6 * s];
+        float tmp2 = d[o + 2 * s] + d[o + 5 * s];
+        float tmp5 = d[o + 2 * s] - d[o + 5 * s];
+        float tmp3 = d[o + 3 * s] + d[o + 4 * s];
+        float tmp4 = d[o + 3 * s] - d[o + 4 * s];
+
+        float tmp10 = tmp0 + tmp3;
+        float tmp13 = tmp0 - tmp3;
+        float tmp11 = tmp1 + tmp2;
+        float tmp12 = tmp1 - tmp2;
+        d[o] = tmp10 + tmp11;
+        d[o + 4 * s] = tmp10 - tmp11;
+        float z1 = (tmp12 + tmp13) * 0.707106781f;
+        d[o + 2 * s] = tmp13 + z1;
+        d[o + 6 * s] = tmp13 - z1;
+
+        tmp10 = tmp4 + tmp5;
+        tmp11 = tmp5 + tmp6;
+        tmp12 = tmp6 + tmp7;
+        float z5 = (tmp10 - tmp12) * 0.382683433f;
+        float z2 = 0.541196100f * tmp10 + z5;
+        float z4 = 1.306562965f * tmp12 + z5;
+        float z3 = tmp11 * 0.707106781f;
+        float z11 = tmp7 + z3;
+        float z13 = tmp7 - z3;
+        d[o + 5 * s] = z13 + z2;
+        d[o + 3 * s] = z13 - z2;
+        d[o + s] = z11 + z4;
+        d[o + 7 * s] = z11 - z4;
+    }
+
+    // ---- Salida de bits ----
+
+    private void writeBits(int value, int length) throws IOException {
+        bitBuffer = (bitBuffer << length) | (value & ((1 << length) - 1));
+        bitCount += length;
+        while (bitCount >= 8) {
+            int b = (bitBuffer >> (bitCount - 8)) & 0xFF;
+            bitCount -= 8;
+            writeByte(b);
+            if (b == 0xFF) writeByte(0);
+        }
+        bitBuffer &= (1 << bitCount) - 1;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (outPos == outBuffer.length) flushBuffer();
+        outBuffer[outPos++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (outPos > 0) {
+            out.write(outBuffer, 0, outPos);
+            outPos = 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.david.smartcamerax.capture;
+
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.FrameBuffer;
+import com.david.smartcamerax.filters.TiledExecutor;
+
+import java.io.IOException;
+
+/**
+ * StripPipeline
+ * <p>
+ * Aplica un FilterChain a una imagen grande por franjas horizontales: lee una franja de la fuente,
+ * la filtra y entrega sus filas al destino (normalmente StripJpegEncoder) antes de pasar a la
+ * siguiente. La memoria depende del alto de franja, no del de la imagen.
+ *
+ * - Halo: los filtros de vecindad necesitan filas de contexto. Cada franja se lee con
+ *   {@link #getHaloRows()} filas extra por arriba y por abajo que se filtran y se descartan, así que
+ *   el resultado coincide con filtrar la imagen completa.
+ * - Resolución: la foto se filtra siempre a resolución completa (apply). El QualityTier de la cadena
+ *   es solo para el preview; aplicarlo aquí guardaría la foto con el detalle reducido del preview.
+ */
+public final class StripPipeline {
+
+    /** Origen de filas ARGB (p.ej. BitmapRegionDecoder). */
+    public interface StripSource {
+        /** Copia las filas [top, top + rows) en {@code dst}, empezando en el índice 0, con stride = ancho. */
+        void readRows(int top, int rows, int[] dst) throws IOException;
+    }
+
+    /** Destino de las filas ya filtradas, en orden de arriba abajo. */
+    public interface StripSink {
+        void writeRows(int[] argb, int offset, int stride, int count) throws IOException;
+    }
+
+    // Alineación de franjas: filas de MCU del JPEG (16)
+    private static final int ALIGN = 16;
+
+    private final FilterChain chain;
+    private final int width;
+    private final int height;
+    private final int stripRows;
+    private final int haloRows;
+    private final FrameBuffer buffer = new FrameBuffer();
+
+    /**
+     * @param budgetBytes memoria objetivo del buffer de una franja (incluido el halo); la franja útil
+     *                    nunca baja de 16 filas aunque el halo lo supere
+     */
+    public StripPipeline(FilterChain chain, int width, int height, long budgetBytes) {
+        this.chain = chain;
+        this.width = width;
+        this.height = height;
+        this.haloRows = chain.getHaloRows();
+        long budgetRows = budgetBytes / (4L * width);
+        int rows = (int) Math.min(height, Math.max(ALIGN, budgetRows - 2L * haloRows));
+        this.stripRows = Math.max(ALIGN, rows / ALIGN * ALIGN);
+    }
+
+    public int getStripRows() {
+        return stripRows;
+    }
+
+    public int getHaloRows() {
+        return haloRows;
+    }
+
+    /** Bytes del buffer de franja (el mayor bloque de memoria del procesado). */
+    public long getStripBytes() {
+        return 4L * width * Math.min(height, stripRows + 2L * haloRows);
+    }
+
+    /** Lee, filtra y entrega todas las franjas en orden. */
+    public void run(StripSource source, StripSink sink, TiledExecutor tiles) throws IOException {
+        int[] px = buffer.obtain((int) (getStripBytes() / 4));
+        for (int top = 0; top < height; top += stripRows) {
+            int rows = Math.min(stripRows, height - top);
+            int from = Math.max(0, top - haloRows);
+            int to = Math.min(height, top + rows + haloRows);
+            source.readRows(from, to - from, px);
+            chain.apply(px, px, width, to - from, tiles);
+            sink.writeRows(px, (top - from) * width, width, rows);
+        }
+    }
+
+    /** Libera el buffer de franja. */
+    public void release() {
+        buffer.release();
+    }
+}
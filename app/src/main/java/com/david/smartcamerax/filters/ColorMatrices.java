@@ -0,0 +1,112 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * ColorMatrices
+ * <p>
+ * Construcción y composición de matrices de color 4x5 (20 floats por filas, offsets en 0..255),
+ * con la misma convención que android.graphics.ColorMatrix. Todo en Java puro.
+ */
+public final class ColorMatrices {
+
+    // Pesos de luminancia que usa ColorMatrix.setSaturation
+    private static final float LUMA_R = 0.213f;
+    private static final float LUMA_G = 0.715f;
+    private static final float LUMA_B = 0.072f;
+
+    private ColorMatrices() {}
+
+    public static float[] identity() {
+        return new float[]{
+                1, 0, 0, 0, 0,
+                0, 1, 0, 0, 0,
+                0, 0, 1, 0, 0,
+                0, 0, 0, 1, 0
+        };
+    }
+
+    /** 0 = grises, 1 = sin cambios, >1 = más saturado. */
+    public static float[] saturation(float s) {
+        float inv = 1 - s;
+        float r = LUMA_R * inv;
+        float g = LUMA_G * inv;
+        float b = LUMA_B * inv;
+        return new float[]{
+                r + s, g, b, 0, 0,
+                r, g + s, b, 0, 0,
+                r, g, b + s, 0, 0,
+                0, 0, 0, 1, 0
+        };
+    }
+
+    public static float[] sepia() {
+        return ColorMatrixKernel.SEPIA.getMatrix();
+    }
+
+    /** Desplaza RGB; {@code amount} en -1..1 (fracción del rango completo). */
+    public static float[] brightness(float amount) {
+        float o = amount * 255f;
+        return new float[]{
+                1, 0, 0, 0, o,
+                0, 1, 0, 0, o,
+                0, 0, 1, 0, o,
+                0, 0, 0, 1, 0
+        };
+    }
+
+    /** Escala RGB alrededor del gris medio; 1 = sin cambios. */
+    public static float[] contrast(float c) {
+        float o = 128f * (1 - c);
+        return new float[]{
+                c, 0, 0, 0, o,
+                0, c, 0, 0, o,
+                0, 0, c, 0, o,
+                0, 0, 0, 1, 0
+        };
+    }
+
+    /**
+     * Tiñe multiplicando cada canal por el color dado.
+     *
+     * @param rgb    color 0xRRGGBB (el alfa se ignora)
+     * @param amount 0 = sin cambios, 1 = multiplicación completa
+     */
+    public static float[] tint(int rgb, float amount) {
+        float r = 1 + amount * (((rgb >> 16) & 0xFF) / 255f - 1);
+        float g = 1 + amount * (((rgb >> 8) & 0xFF) / 255f - 1);
+        float b = 1 + amount * ((rgb & 0xFF) / 255f - 1);
+        return new float[]{
+                r, 0, 0, 0, 0,
+                0, g, 0, 0, 0,
+                0, 0, b, 0, 0,
+                0, 0, 0, 1, 0
+        };
+    }
+
+    /**
+     * Composición: devuelve la matriz que equivale a aplicar {@code first} y después {@code then}
+     * (igual que ColorMatrix.postConcat). No hay recorte intermedio a 0..255.
+     */
+    public static float[] concat(float[] then, float[] first) {
+        float[] out = new float[20];
+        for (int row = 0; row < 4; row++) {
+            int r = row * 5;
+            for (int col = 0; col < 5; col++) {
+                float v = 0;
+                for (int k = 0; k < 4; k++) {
+                    v += then[r + k] * first[k * 5 + col];
+                }
+                if (col == 4) v += then[r + 4];
+                out[r + col] = v;
+            }
+        }
+        return out;
+    }
+
+    public static boolean isIdentity(float[] m) {
+        float[] id = identity();
+        for (int i = 0; i < 20; i++) {
+            if (Math.abs(m[i] - id[i]) > 1e-6f) return false;
+        }
+        return true;
+    }
+}
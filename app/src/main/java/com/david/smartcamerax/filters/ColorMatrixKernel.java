@@ -0,0 +1,147 @@
+package com.david.smartcamerax.filters;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ColorMatrixKernel
+ * <p>
+ * Matriz de color 4x5 (misma semántica que android.graphics.ColorMatrix) compilada a coeficientes
+ * enteros en punto fijo para aplicarla sobre buffers primitivos sin pasar por Canvas/Paint.
+ *
+ * Diseño:
+ * - Es inmutable: se construye una vez (p.ej. como constante) y se comparte entre hilos.
+ * - Trabaja sobre int[] ARGB (formato de Bitmap.getPixels) o ByteBuffer RGBA (formato RGBA_8888 de
+ *   ImageAnalysis). El destino lo aporta el llamador, por lo que no hay asignaciones por frame.
+ * - src y dst pueden ser el mismo array (cada píxel se lee antes de escribirse).
+ * - Aritmética entera: el resultado es determinista y no depende del hilo ni del dispositivo.
+ */
+public final class ColorMatrixKernel implements FilterStage {
+
+    // Bits de la parte fraccionaria de los coeficientes
+    static final int SHIFT = 12;
+    static final int ONE = 1 << SHIFT;
+    private static final int ROUND = 1 << (SHIFT - 1);
+
+    /** Matriz identidad (no modifica los píxeles). */
+    public static final ColorMatrixKernel IDENTITY = new ColorMatrixKernel(new float[]{
+            1, 0, 0, 0, 0,
+            0, 1, 0, 0, 0,
+            0, 0, 1, 0, 0,
+            0, 0, 0, 1, 0
+    });
+
+    /** Equivalente a ColorMatrix.setSaturation(0) (pesos de luminancia de Android). */
+    public static final ColorMatrixKernel GRAYSCALE = new ColorMatrixKernel(new float[]{
+            0.213f, 0.715f, 0.072f, 0, 0,
+            0.213f, 0.715f, 0.072f, 0, 0,
+            0.213f, 0.715f, 0.072f, 0, 0,
+            0, 0, 0, 1, 0
+    });
+
+    /** Sepia clásico (la misma matriz que usaba Filters.toSepia). */
+    public static final ColorMatrixKernel SEPIA = new ColorMatrixKernel(new float[]{
+            0.393f, 0.769f, 0.189f, 0, 0,
+            0.349f, 0.686f, 0.168f, 0, 0,
+            0.272f, 0.534f, 0.131f, 0, 0,
+            0, 0, 0, 1, 0
+    });
+
+    private final float[] matrix;
+    // Coeficientes en punto fijo; la columna de offset ya incluye el redondeo
+    private final int rr, rg, rb, ra, ro;
+    private final int gr, gg, gb, ga, go;
+    private final int br, bg, bb, ba, bo;
+    private final int ar, ag, ab, aa, ao;
+    // La mayoría de filtros dejan el alfa intacto: evita calcular la cuarta fila
+    private final boolean alphaIdentity;
+
+    /**
+     * @param matrix 20 valores en orden por filas (R, G, B, A), offsets en unidades 0..255
+     */
+    public ColorMatrixKernel(float[] matrix) {
+        if (matrix == null || matrix.length != 20) {
+            throw new IllegalArgumentException("La matriz de color debe tener 20 elementos");
+        }
+        this.matrix = matrix.clone();
+        rr = fixed(matrix[0]); rg = fixed(matrix[1]); rb = fixed(matrix[2]); ra = fixed(matrix[3]); ro = offset(matrix[4]);
+        gr = fixed(matrix[5]); gg = fixed(matrix[6]); gb = fixed(matrix[7]); ga = fixed(matrix[8]); go = offset(matrix[9]);
+        br = fixed(matrix[10]); bg = fixed(matrix[11]); bb = fixed(matrix[12]); ba = fixed(matrix[13]); bo = offset(matrix[14]);
+        ar = fixed(matrix[15]); ag = fixed(matrix[16]); ab = fixed(matrix[17]); aa = fixed(matrix[18]); ao = offset(matrix[19]);
+        alphaIdentity = ar == 0 && ag == 0 && ab == 0 && aa == ONE && matrix[19] == 0f;
+    }
+
+    /**
+     * true si las filas R, G y B son iguales: la salida es gris y solo depende de la intensidad,
+     * así que puede alimentarse directamente con la luminancia (plano Y).
+     */
+    public boolean isMonochrome() {
+        return rr == gr && gr == br && rg == gg && gg == bg && rb == gb && gb == bb
+                && ra == ga && ga == ba && ro == go && go == bo && alphaIdentity;
+    }
+
+    /** Copia de los 20 coeficientes originales (float). */
+    public float[] getMatrix() {
+        return matrix.clone();
+    }
+
+    /**
+     * Aplica la matriz a {@code count} píxeles ARGB.
+     */
+    public void apply(int[] src, int srcOffset, int[] dst, int dstOffset, int count) {
+        final int end = srcOffset + count;
+        int d = dstOffset;
+        for (int i = srcOffset; i < end; i++, d++) {
+            final int c = src[i];
+            final int a = c >>> 24;
+            final int r = (c >> 16) & 0xFF;
+            final int g = (c >> 8) & 0xFF;
+            final int b = c & 0xFF;
+            final int nr = clamp((rr * r + rg * g + rb * b + ra * a + ro) >> SHIFT);
+            final int ng = clamp((gr * r + gg * g + gb * b + ga * a + go) >> SHIFT);
+            final int nb = clamp((br * r + bg * g + bb * b + ba * a + bo) >> SHIFT);
+            final int na = alphaIdentity ? a : clamp((ar * r + ag * g + ab * b + aa * a + ao) >> SHIFT);
+            dst[d] = (na << 24) | (nr << 16) | (ng << 8) | nb;
+        }
+    }
+
+    /**
+     * Aplica la matriz a un rango de filas de una imagen ARGB de ancho {@code width}
+     * (mismo stride en origen y destino).
+     */
+    @Override
+    public void applyRows(int[] src, int[] dst, int width, int rowFrom, int rowTo) {
+        final int offset = rowFrom * width;
+        apply(src, offset, dst, offset, (rowTo - rowFrom) * width);
+    }
+
+    /**
+     * Aplica la matriz a {@code count} píxeles RGBA_8888 (4 bytes por píxel, orden R,G,B,A).
+     * Usa accesos absolutos: no modifica position/limit de los buffers.
+     */
+    public void applyRgba(ByteBuffer src, int srcOffset, ByteBuffer dst, int dstOffset, int count) {
+        int s = srcOffset;
+        int d = dstOffset;
+        for (int i = 0; i < count; i++, s += 4, d += 4) {
+            final int r = src.get(s) & 0xFF;
+            final int g = src.get(s + 1) & 0xFF;
+            final int b = src.get(s + 2) & 0xFF;
+            final int a = src.get(s + 3) & 0xFF;
+            dst.put(d, (byte) clamp((rr * r + rg * g + rb * b + ra * a + ro) >> SHIFT));
+            dst.put(d + 1, (byte) clamp((gr * r + gg * g + gb * b + ga * a + go) >> SHIFT));
+            dst.put(d + 2, (byte) clamp((br * r + bg * g + bb * b + ba * a + bo) >> SHIFT));
+            dst.put(d + 3, alphaIdentity ? (byte) a : (byte) clamp((ar * r + ag * g + ab * b + aa * a + ao) >> SHIFT));
+        }
+    }
+
+    private static int fixed(float v) {
+        return Math.round(v * ONE);
+    }
+
+    private static int offset(float v) {
+        return Math.round(v * ONE) + ROUND;
+    }
+
+    static int clamp(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+}
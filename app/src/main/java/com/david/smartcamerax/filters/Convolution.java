@@ -0,0 +1,161 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * Convolution
+ * <p>
+ * Kernels de convolución separable compartidos por SeparableBlur, UnsharpMask y SobelEdges.
+ *
+ * - Box blur con ventana deslizante: la suma de la ventana se actualiza sumando el píxel que entra
+ *   y restando el que sale, así que el coste por píxel es constante sea cual sea el radio.
+ * - Pasada horizontal por filas y vertical por franjas de columnas: ambas recorren memoria en orden
+ *   de fila (la vertical lleva una suma por columna de la franja), lo que mantiene la caché caliente.
+ * - Bordes replicados: fuera de la imagen se repite el píxel del borde.
+ *
+ * Los buffers de línea y de sumas son por hilo (ThreadLocal): los workers del TiledExecutor los
+ * reutilizan frame a frame sin asignar memoria.
+ */
+final class Convolution {
+
+    // Precisión del recíproco del ancho de ventana (suma * MUL >> SHIFT == suma / ancho)
+    private static final int SHIFT = 22;
+    private static final int HALF = 1 << (SHIFT - 1);
+
+    private static final ThreadLocal<FrameBuffer> LINE_A = ThreadLocal.withInitial(FrameBuffer::new);
+    private static final ThreadLocal<FrameBuffer> LINE_B = ThreadLocal.withInitial(FrameBuffer::new);
+    private static final ThreadLocal<FrameBuffer> SUMS = ThreadLocal.withInitial(FrameBuffer::new);
+
+    private Convolution() {
+    }
+
+    /** Ejecuta {@code kernel} sobre [0, count) en bandas, o en el hilo actual si no hay pool. */
+    static void forEach(TiledExecutor tiles, int count, TiledExecutor.RowKernel kernel) {
+        if (tiles != null) {
+            tiles.forEachBand(count, kernel);
+        } else {
+            kernel.run(0, count);
+        }
+    }
+
+    /** Buffer de línea del hilo actual con al menos {@code size} elementos. */
+    static int[] line(int size) {
+        return LINE_A.get().obtain(size);
+    }
+
+    /**
+     * Radios de {@code passes} box blurs sucesivos cuya varianza total aproxima una gaussiana de
+     * desviación {@code sigma} (anchos impares lo más parecidos posible entre sí).
+     */
+    static int[] gaussianRadii(float sigma, int passes) {
+        double variance = (double) sigma * sigma;
+        double ideal = Math.sqrt(12.0 * variance / passes + 1);
+        int lower = (int) Math.floor(ideal);
+        if (lower % 2 == 0) lower--;
+        int upper = lower + 2;
+        // Cuántas pasadas usan el ancho menor para que la varianza sume lo más cerca de sigma^2
+        long m = Math.round((12.0 * variance - passes * lower * lower - 4.0 * passes * lower - 3.0 * passes)
+                / (-4.0 * lower - 4));
+        int[] radii = new int[passes];
+        for (int i = 0; i < passes; i++) {
+            radii[i] = ((i < m ? lower : upper) - 1) / 2;
+        }
+        return radii;
+    }
+
+    /**
+     * Pasadas horizontales sucesivas ({@code radii}) sobre las filas [rowFrom, rowTo) de src hacia
+     * dst. Cada fila se copia primero a un buffer de línea, así que src y dst pueden coincidir.
+     */
+    static void boxRows(int[] src, int[] dst, int width, int rowFrom, int rowTo, int[] radii) {
+        int[] a = LINE_A.get().obtain(width);
+        int[] b = LINE_B.get().obtain(width);
+        for (int y = rowFrom; y < rowTo; y++) {
+            int off = y * width;
+            System.arraycopy(src, off, a, 0, width);
+            for (int k = 0; k < radii.length; k++) {
+                if (k == radii.length - 1) {
+                    boxLine(a, dst, off, width, radii[k]);
+                } else {
+                    boxLine(a, b, 0, width, radii[k]);
+                    int[] t = a;
+                    a = b;
+                    b = t;
+                }
+            }
+        }
+    }
+
+    // Box blur 1D de in[0, n) hacia out[outOff, outOff + n); in y out deben ser arrays distintos
+    private static void boxLine(int[] in, int[] out, int outOff, int n, int radius) {
+        final int mul = multiplier(radius);
+        final int last = n - 1;
+        int p = in[0];
+        int sr = (radius + 1) * ((p >> 16) & 0xFF);
+        int sg = (radius + 1) * ((p >> 8) & 0xFF);
+        int sb = (radius + 1) * (p & 0xFF);
+        for (int i = 1; i <= radius; i++) {
+            p = in[Math.min(i, last)];
+            sr += (p >> 16) & 0xFF;
+            sg += (p >> 8) & 0xFF;
+            sb += p & 0xFF;
+        }
+        for (int x = 0; x < n; x++) {
+            out[outOff + x] = (in[x] & 0xFF000000)
+                    | (((sr * mul + HALF) >>> SHIFT) << 16)
+                    | (((sg * mul + HALF) >>> SHIFT) << 8)
+                    | ((sb * mul + HALF) >>> SHIFT);
+            int add = in[Math.min(x + radius + 1, last)];
+            int sub = in[Math.max(x - radius, 0)];
+            sr += ((add >> 16) & 0xFF) - ((sub >> 16) & 0xFF);
+            sg += ((add >> 8) & 0xFF) - ((sub >> 8) & 0xFF);
+            sb += (add & 0xFF) - (sub & 0xFF);
+        }
+    }
+
+    /**
+     * Box blur vertical de las columnas [colFrom, colTo) de src hacia dst (arrays distintos).
+     * Recorre la franja fila a fila con una suma deslizante por columna.
+     */
+    static void boxColumns(int[] src, int[] dst, int width, int height, int colFrom, int colTo, int radius) {
+        final int cols = colTo - colFrom;
+        final int[] sums = SUMS.get().obtain(cols * 3);
+        final int mul = multiplier(radius);
+        final int last = height - 1;
+        for (int c = 0, j = 0; c < cols; c++, j += 3) {
+            int p = src[colFrom + c];
+            sums[j] = (radius + 1) * ((p >> 16) & 0xFF);
+            sums[j + 1] = (radius + 1) * ((p >> 8) & 0xFF);
+            sums[j + 2] = (radius + 1) * (p & 0xFF);
+        }
+        for (int i = 1; i <= radius; i++) {
+            int row = Math.min(i, last) * width + colFrom;
+            for (int c = 0, j = 0; c < cols; c++, j += 3) {
+                int p = src[row + c];
+                sums[j] += (p >> 16) & 0xFF;
+                sums[j + 1] += (p >> 8) & 0xFF;
+                sums[j + 2] += p & 0xFF;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            int row = y * width + colFrom;
+            int addRow = Math.min(y + radius + 1, last) * width + colFrom;
+            int subRow = Math.max(y - radius, 0) * width + colFrom;
+            for (int c = 0, j = 0; c < cols; c++, j += 3) {
+                dst[row + c] = (src[row + c] & 0xFF000000)
+                        | (((sums[j] * mul + HALF) >>> SHIFT) << 16)
+                        | (((sums[j + 1] * mul + HALF) >>> SHIFT) << 8)
+                        | ((sums[j + 2] * mul + HALF) >>> SHIFT);
+                int add = src[addRow + c];
+                int sub = src[subRow + c];
+                sums[j] += ((add >> 16) & 0xFF) - ((sub >> 16) & 0xFF);
+                sums[j + 1] += ((add >> 8) & 0xFF) - ((sub >> 8) & 0xFF);
+                sums[j + 2] += (add & 0xFF) - (sub & 0xFF);
+            }
+        }
+    }
+
+    // Recíproco en punto fijo del ancho de ventana 2r+1 (suma máxima 255 * ancho: no desborda)
+    private static int multiplier(int radius) {
+        int window = 2 * radius + 1;
+        return ((1 << SHIFT) + window / 2) / window;
+    }
+}
@@ -0,0 +1,304 @@
+package com.david.smartcamerax.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FilterChain
+ * <p>
+ * Secuencia inmutable de efectos que se aplica a un frame ARGB. Se construye con {@link Builder}:
+ *
+ * <pre>
+ * FilterChain vintage = new FilterChain.Builder("Vintage")
+ *         .saturation(0.6f).sepia().contrast(1.1f).brightness(0.03f).tint(0xFFE0B0, 0.3f)
+ *         .build();
+ * </pre>
+ *
+ * Optimizaciones al construir:
+ * - Las matrices de color adyacentes se pliegan en una sola matriz 4x5 (ColorMatrices.concat),
+ *   así cinco efectos de color cuestan lo mismo que uno.
+ * - Las etapas puntuales restantes se ejecutan juntas en una sola pasada por banda de filas
+ *   (la banda sigue en caché entre etapas) en lugar de recorrer el frame completo por etapa.
+ * - Las etapas de vecindad (FrameFilter: desenfoque, nitidez, bordes) cortan esa fusión: necesitan
+ *   el frame completo, así que la cadena se compila en grupos puntuales separados por ellas.
+ *
+ * Calidad del preview: cada cadena tiene un QualityTier. applyAtTier() procesa a esa escala
+ * (reduce, filtra y vuelve a escalar); apply() siempre trabaja a resolución completa (captura).
+ * Por defecto las cadenas solo de color van a FULL y las que tienen convolución a HALF.
+ *
+ * Es thread-safe: la misma cadena puede usarse a la vez desde el preview y desde la captura.
+ */
+public final class FilterChain {
+
+    /** Cadena vacía: no modifica el frame. */
+    public static final FilterChain NONE = new Builder("Normal").build();
+
+    // Imagen reducida de applyAtTier(), una por hilo y compartida por todas las cadenas
+    private static final ThreadLocal<FrameBuffer> SCALED = ThreadLocal.withInitial(FrameBuffer::new);
+
+    private final String name;
+    private final Pass[] passes;
+    private final int stageCount;
+    private final QualityTier tier;
+
+    private FilterChain(String name, List<Pass> passes, QualityTier tier) {
+        this.name = name;
+        this.tier = tier;
+        this.passes = passes.toArray(new Pass[0]);
+        int count = 0;
+        for (Pass pass : this.passes) {
+            count += pass.frame != null ? 1 : pass.stages.length;
+        }
+        this.stageCount = count;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** true si la cadena no hace nada (se puede saltar el procesamiento). */
+    public boolean isIdentity() {
+        return passes.length == 0;
+    }
+
+    /**
+     * true si la cadena es una única matriz monocroma (p.ej. B/N): el preview puede alimentarla
+     * solo con el plano Y, sin convertir color.
+     */
+    public boolean isMonochrome() {
+        if (passes.length != 1 || passes[0].stages == null || passes[0].stages.length != 1) return false;
+        FilterStage stage = passes[0].stages[0];
+        return stage instanceof ColorMatrixKernel && ((ColorMatrixKernel) stage).isMonochrome();
+    }
+
+    /** Número de etapas compiladas (tras plegar las matrices de color). */
+    public int getStageCount() {
+        return stageCount;
+    }
+
+    /** true si alguna etapa depende de los píxeles vecinos (FrameFilter). */
+    public boolean hasFrameFilters() {
+        return hasFrameFilters(passes);
+    }
+
+    private static boolean hasFrameFilters(Pass[] passes) {
+        for (Pass pass : passes) {
+            if (pass.frame != null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Filas de contexto que necesita una franja a cada lado para procesarse a resolución completa
+     * igual que la imagen entera (0 si la cadena es puntual).
+     */
+    public int getHaloRows() {
+        int halo = 0;
+        for (Pass pass : passes) {
+            if (pass.frame != null) halo += pass.frame.getHaloRows();
+        }
+        return halo;
+    }
+
+    /**
+     * Copia con las etapas de vecindad escaladas por {@code factor} (mismo nombre y tier). Sirve para
+     * aplicar a la foto, {@code factor} veces mayor que el preview, el mismo aspecto que se ve en él.
+     */
+    public FilterChain scaled(float factor) {
+        if (factor == 1f || !hasFrameFilters()) return this;
+        List<Pass> copy = new ArrayList<>(passes.length);
+        for (Pass pass : passes) {
+            copy.add(pass.frame != null ? new Pass(null, pass.frame.scaled(factor)) : pass);
+        }
+        return new FilterChain(name, copy, tier);
+    }
+
+    /** Escala a la que se procesa el preview con esta cadena. */
+    public QualityTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Como {@link #apply} pero procesando a la escala del tier: reduce src por bloques, aplica la
+     * cadena y escala de vuelta (bilineal) a {@code width} x {@code height} en dst. Con FULL equivale
+     * a apply(). Los parámetros de las etapas (radios, sigmas) se interpretan a la escala reducida.
+     */
+    public void applyAtTier(int[] src, int[] dst, int width, int height, TiledExecutor tiles) {
+        int factor = tier.getFactor();
+        if (factor == 1 || passes.length == 0 || width < factor || height < factor) {
+            apply(src, dst, width, height, tiles);
+            return;
+        }
+        int w = tier.scale(width);
+        int h = tier.scale(height);
+        int[] small = SCALED.get().obtain(w * h);
+        Resampler.downsample(src, width, height, factor, small, tiles);
+        apply(small, small, w, h, tiles);
+        Resampler.upscale(small, w, h, dst, width, height, tiles);
+    }
+
+    /**
+     * Aplica la cadena a una imagen {@code width} x {@code height}. {@code src} y {@code dst} pueden
+     * ser el mismo array. Si la cadena es identidad y son arrays distintos se copia src en dst.
+     *
+     * @param tiles pool de bandas o null para procesar en el hilo actual
+     */
+    public void apply(int[] src, int[] dst, int width, int height, TiledExecutor tiles) {
+        if (passes.length == 0) {
+            if (src != dst) System.arraycopy(src, 0, dst, 0, width * height);
+            return;
+        }
+        // La primera pasada lee src; las siguientes trabajan sobre dst
+        int[] in = src;
+        for (Pass pass : passes) {
+            if (pass.frame != null) {
+                pass.frame.apply(in, dst, width, height, tiles);
+            } else {
+                final int[] from = in;
+                final FilterStage[] stages = pass.stages;
+                if (tiles != null) {
+                    tiles.forEachBand(height, (rowFrom, rowTo) -> applyBand(stages, from, dst, width, rowFrom, rowTo));
+                } else {
+                    applyBand(stages, from, dst, width, 0, height);
+                }
+            }
+            in = dst;
+        }
+    }
+
+    // Todas las etapas puntuales sobre la misma banda: la primera lee src, las siguientes dst
+    private static void applyBand(FilterStage[] stages, int[] src, int[] dst, int width, int rowFrom, int rowTo) {
+        stages[0].applyRows(src, dst, width, rowFrom, rowTo);
+        for (int i = 1; i < stages.length; i++) {
+            stages[i].applyRows(dst, dst, width, rowFrom, rowTo);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FilterChain{" + name + ", stages=" + stageCount + ", tier=" + tier + "}";
+    }
+
+    // Grupo de etapas puntuales fusionadas o una única etapa de vecindad
+    private static final class Pass {
+        final FilterStage[] stages;
+        final FrameFilter frame;
+
+        Pass(FilterStage[] stages, FrameFilter frame) {
+            this.stages = stages;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * Builder de FilterChain. Los efectos se aplican en el orden en que se añaden.
+     */
+    public static final class Builder {
+        private final String name;
+        private final List<Pass> passes = new ArrayList<>();
+        // Etapas puntuales consecutivas aún sin agrupar en una pasada
+        private final List<FilterStage> stages = new ArrayList<>();
+        // Matriz de color acumulada aún sin compilar (null si no hay ninguna pendiente)
+        private float[] pendingMatrix;
+        // null: se elige según las etapas al construir
+        private QualityTier tier;
+
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        /** Fija la escala del preview para esta cadena (por defecto FULL, o HALF con convolución). */
+        public Builder tier(QualityTier tier) {
+            this.tier = tier;
+            return this;
+        }
+
+        /** Añade una matriz de color 4x5 arbitraria. */
+        public Builder colorMatrix(float[] matrix) {
+            if (matrix == null || matrix.length != 20) {
+                throw new IllegalArgumentException("La matriz de color debe tener 20 elementos");
+            }
+            pendingMatrix = pendingMatrix == null ? matrix.clone() : ColorMatrices.concat(matrix, pendingMatrix);
+            return this;
+        }
+
+        public Builder saturation(float s) {
+            return colorMatrix(ColorMatrices.saturation(s));
+        }
+
+        public Builder grayscale() {
+            return saturation(0f);
+        }
+
+        public Builder sepia() {
+            return colorMatrix(ColorMatrices.sepia());
+        }
+
+        public Builder brightness(float amount) {
+            return colorMatrix(ColorMatrices.brightness(amount));
+        }
+
+        public Builder contrast(float c) {
+            return colorMatrix(ColorMatrices.contrast(c));
+        }
+
+        public Builder tint(int rgb, float amount) {
+            return colorMatrix(ColorMatrices.tint(rgb, amount));
+        }
+
+        /** Añade una etapa puntual que no es una matriz de color (p.ej. una LUT). */
+        public Builder stage(FilterStage stage) {
+            flushMatrix();
+            stages.add(stage);
+            return this;
+        }
+
+        /** Añade una etapa de vecindad; separa las etapas puntuales de antes y de después. */
+        public Builder frame(FrameFilter filter) {
+            flushStages();
+            passes.add(new Pass(null, filter));
+            return this;
+        }
+
+        public Builder boxBlur(int radius) {
+            return frame(SeparableBlur.box(radius));
+        }
+
+        public Builder gaussianBlur(float sigma) {
+            return frame(SeparableBlur.gaussian(sigma));
+        }
+
+        public Builder sharpen(float amount, float sigma) {
+            return frame(new UnsharpMask(amount, sigma));
+        }
+
+        public Builder edges() {
+            return frame(new SobelEdges());
+        }
+
+        public FilterChain build() {
+            flushStages();
+            Pass[] compiled = passes.toArray(new Pass[0]);
+            QualityTier chosen = tier != null ? tier
+                    : (hasFrameFilters(compiled) ? QualityTier.HALF : QualityTier.FULL);
+            return new FilterChain(name, passes, chosen);
+        }
+
+        // Cierra el grupo de etapas puntuales pendiente (incluida la matriz acumulada)
+        private void flushStages() {
+            flushMatrix();
+            if (!stages.isEmpty()) {
+                passes.add(new Pass(stages.toArray(new FilterStage[0]), null));
+                stages.clear();
+            }
+        }
+
+        // Compila la matriz acumulada a un único kernel (se descarta si es la identidad)
+        private void flushMatrix() {
+            if (pendingMatrix != null && !ColorMatrices.isIdentity(pendingMatrix)) {
+                stages.add(new ColorMatrixKernel(pendingMatrix));
+            }
+            pendingMatrix = null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * FilterStage
+ * <p>
+ * Etapa puntual de un FilterChain: cada píxel de salida depende solo del mismo píxel de entrada,
+ * por eso puede procesarse por bandas de filas y encadenarse con otras etapas en la misma pasada.
+ */
+public interface FilterStage {
+
+    /**
+     * Procesa las filas [rowFrom, rowTo) de una imagen ARGB de ancho {@code width}.
+     * {@code src} y {@code dst} pueden ser el mismo array.
+     */
+    void applyRows(int[] src, int[] dst, int width, int rowFrom, int rowTo);
+}
@@ -0,0 +1,37 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * FrameBuffer
+ * <p>
+ * Buffer int[] reutilizable para píxeles ARGB. Solo crece cuando llega un frame más grande que el
+ * anterior, de modo que en estado estacionario (mismo tamaño de preview) no hay asignaciones.
+ *
+ * No es thread-safe: cada hilo/loop de procesamiento debe tener su propio FrameBuffer.
+ */
+public final class FrameBuffer {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] pixels = EMPTY;
+
+    /**
+     * Devuelve un array con al menos {@code size} elementos. El contenido previo no se conserva
+     * si hubo que crecer.
+     */
+    public int[] obtain(int size) {
+        if (pixels.length < size) {
+            pixels = new int[size];
+        }
+        return pixels;
+    }
+
+    /** Capacidad actual en píxeles. */
+    public int capacity() {
+        return pixels.length;
+    }
+
+    /** Libera el array (p.ej. al parar el preview filtrado). */
+    public void release() {
+        pixels = EMPTY;
+    }
+}
@@ -0,0 +1,31 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * FrameFilter
+ * <p>
+ * Etapa de FilterChain que no es puntual: cada píxel de salida depende de sus vecinos (desenfoque,
+ * nitidez, bordes), así que necesita el frame completo y no puede fusionarse con otras etapas por
+ * bandas. Internamente puede seguir repartiendo sus pasadas en el TiledExecutor.
+ */
+public interface FrameFilter {
+
+    /**
+     * Procesa una imagen ARGB {@code width} x {@code height}. {@code src} y {@code dst} pueden ser
+     * el mismo array.
+     *
+     * @param tiles pool de bandas o null para procesar en el hilo actual
+     */
+    void apply(int[] src, int[] dst, int width, int height, TiledExecutor tiles);
+
+    /**
+     * Filas de contexto que necesita a cada lado de una franja para que sus filas centrales salgan
+     * idénticas a procesar la imagen completa (procesado por franjas de la captura).
+     */
+    int getHaloRows();
+
+    /**
+     * Copia con la vecindad escalada por {@code factor}, para que en una imagen {@code factor} veces
+     * mayor (la foto frente al preview) el efecto se vea igual.
+     */
+    FrameFilter scaled(float factor);
+}
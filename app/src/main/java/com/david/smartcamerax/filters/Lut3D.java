@@ -0,0 +1,244 @@
+package com.david.smartcamerax.filters;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Lut3D
+ * <p>
+ * LUT de color 3D (formato .cube de Adobe/Resolve) compilada a una tabla primitiva compacta y
+ * aplicada con interpolación tetraédrica en aritmética entera. Es una etapa puntual de FilterChain.
+ *
+ * Compilación (una vez, al cargar):
+ * - Cada nodo se guarda como un int con R, G, B en 10 bits cada uno (escala 0..1020 = 4 x 255, para
+ *   que bajar a 8 bits sea un desplazamiento exacto), N^3 enteros en total (33^3 ocupa ~140 KB).
+ * - Se precalculan tablas de 256 entradas por canal con el índice de nodo (ya multiplicado por su
+ *   stride) y el peso fraccionario, así que el bucle por píxel no hace divisiones ni floats.
+ * - DOMAIN_MIN/MAX describen el rango de ENTRADA que cubre la rejilla: se aplican al construir esas
+ *   tablas (la entrada fuera del dominio se recorta al nodo extremo). Los valores de salida de la
+ *   LUT se usan tal cual, recortados a [0, 1].
+ *
+ * Interpolación tetraédrica: 4 lecturas por píxel en lugar de 8 (trilineal) y es la que usan las
+ * herramientas de gradación, así que los resultados coinciden con ellas.
+ */
+public final class Lut3D implements FilterStage {
+
+    private static final int VALUE_BITS = 10;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+    private static final int VALUE_SCALE = 4 * 255;
+    // Bits de la fracción entre nodos
+    private static final int FRAC_BITS = 8;
+    private static final int FRAC_ONE = 1 << FRAC_BITS;
+    // Mayor LUT_3D_SIZE admitido (el máximo que generan las herramientas habituales); acota la
+    // tabla de floats que parseCube reserva al leer la cabecera, antes de ver los datos
+    public static final int MAX_SIZE = 65;
+
+    private final String title;
+    private final int size;
+    private final int[] table;
+    // Por valor de entrada 0..255: offset del nodo inferior en cada eje y peso hacia el superior
+    private final int[] rIndex = new int[256];
+    private final int[] gIndex = new int[256];
+    private final int[] bIndex = new int[256];
+    private final int[] rFrac = new int[256];
+    private final int[] gFrac = new int[256];
+    private final int[] bFrac = new int[256];
+    // Distancia en la tabla entre nodos vecinos de cada eje
+    private final int rStep;
+    private final int gStep;
+    private final int bStep;
+
+    /**
+     * @param size  nodos por eje (2..MAX_SIZE)
+     * @param rgb   N^3 tripletas en orden .cube (R varía más rápido), valores de salida en [0, 1]
+     * @param min   DOMAIN_MIN por canal (entrada que corresponde al primer nodo)
+     * @param max   DOMAIN_MAX por canal (entrada que corresponde al último nodo)
+     */
+    public Lut3D(String title, int size, float[] rgb, float[] min, float[] max) {
+        if (size < 2 || size > MAX_SIZE) throw new IllegalArgumentException("LUT_3D_SIZE fuera de rango: " + size);
+        if (rgb.length != size * size * size * 3) {
+            throw new IllegalArgumentException("Se esperaban " + size * size * size + " entradas en la LUT");
+        }
+        for (int c = 0; c < 3; c++) {
+            if (!(max[c] > min[c])) throw new IllegalArgumentException("DOMAIN_MAX debe ser mayor que DOMAIN_MIN");
+        }
+        this.title = title;
+        this.size = size;
+        this.table = new int[size * size * size];
+        for (int i = 0, j = 0; i < table.length; i++, j += 3) {
+            int r = quantize(rgb[j]);
+            int g = quantize(rgb[j + 1]);
+            int b = quantize(rgb[j + 2]);
+            table[i] = (r << 20) | (g << 10) | b;
+        }
+        rStep = 1;
+        gStep = size;
+        bStep = size * size;
+        buildAxis(rIndex, rFrac, rStep, min[0], max[0]);
+        buildAxis(gIndex, gFrac, gStep, min[1], max[1]);
+        buildAxis(bIndex, bFrac, bStep, min[2], max[2]);
+    }
+
+    // Para cada valor de entrada 0..255: nodo inferior (ya por su stride) y peso hacia el superior
+    private void buildAxis(int[] index, int[] frac, int step, float min, float max) {
+        int last = size - 1;
+        for (int v = 0; v < 256; v++) {
+            // Entrada normalizada dentro del dominio, a posición en nodos con FRAC_BITS de precisión
+            float n = (v / 255f - min) / (max - min);
+            n = n < 0f ? 0f : (n > 1f ? 1f : n);
+            int pos = Math.round(n * last * FRAC_ONE);
+            // El nodo inferior nunca es el último (el peso lo cubre): el vecino superior siempre existe
+            int node = Math.min(pos >> FRAC_BITS, last - 1);
+            index[v] = node * step;
+            frac[v] = pos - (node << FRAC_BITS);
+        }
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** Bytes que ocupa la tabla compilada (sin las tablas de índices). */
+    public int getTableBytes() {
+        return table.length * 4;
+    }
+
+    @Override
+    public void applyRows(int[] src, int[] dst, int width, int rowFrom, int rowTo) {
+        final int[] t = table;
+        final int end = rowTo * width;
+        for (int i = rowFrom * width; i < end; i++) {
+            final int c = src[i];
+            final int r = (c >> 16) & 0xFF;
+            final int g = (c >> 8) & 0xFF;
+            final int b = c & 0xFF;
+            final int base = rIndex[r] + gIndex[g] + bIndex[b];
+            final int fr = rFrac[r];
+            final int fg = gFrac[g];
+            final int fb = bFrac[b];
+
+            // Tetraedro según el orden de las fracciones; (s1, s2) son los pasos al 2º y 3º vértice
+            int w0, w1, w2, w3;
+            int s1, s2;
+            if (fr >= fg) {
+                if (fg >= fb) {        // r >= g >= b
+                    w1 = fr - fg; w2 = fg - fb; w3 = fb; s1 = rStep; s2 = rStep + gStep;
+                } else if (fr >= fb) { // r >= b > g
+                    w1 = fr - fb; w2 = fb - fg; w3 = fg; s1 = rStep; s2 = rStep + bStep;
+                } else {               // b > r >= g
+                    w1 = fb - fr; w2 = fr - fg; w3 = fg; s1 = bStep; s2 = rStep + bStep;
+                }
+            } else {
+                if (fb > fg) {         // b > g > r
+                    w1 = fb - fg; w2 = fg - fr; w3 = fr; s1 = bStep; s2 = gStep + bStep;
+                } else if (fb > fr) {  // g >= b > r
+                    w1 = fg - fb; w2 = fb - fr; w3 = fr; s1 = gStep; s2 = gStep + bStep;
+                } else {               // g > r >= b
+                    w1 = fg - fr; w2 = fr - fb; w3 = fb; s1 = gStep; s2 = rStep + gStep;
+                }
+            }
+            w0 = FRAC_ONE - w1 - w2 - w3;
+
+            final int c0 = t[base];
+            final int c1 = t[base + s1];
+            final int c2 = t[base + s2];
+            final int c3 = t[base + rStep + gStep + bStep];
+
+            int nr = w0 * (c0 >>> 20) + w1 * (c1 >>> 20) + w2 * (c2 >>> 20) + w3 * (c3 >>> 20);
+            int ng = w0 * ((c0 >> 10) & VALUE_MASK) + w1 * ((c1 >> 10) & VALUE_MASK)
+                    + w2 * ((c2 >> 10) & VALUE_MASK) + w3 * ((c3 >> 10) & VALUE_MASK);
+            int nb = w0 * (c0 & VALUE_MASK) + w1 * (c1 & VALUE_MASK) + w2 * (c2 & VALUE_MASK) + w3 * (c3 & VALUE_MASK);
+            // De escala 4x255 con FRAC_BITS de peso a 8 bits, con redondeo
+            nr = (nr + (1 << (FRAC_BITS + 1))) >> (FRAC_BITS + 2);
+            ng = (ng + (1 << (FRAC_BITS + 1))) >> (FRAC_BITS + 2);
+            nb = (nb + (1 << (FRAC_BITS + 1))) >> (FRAC_BITS + 2);
+            dst[i] = (c & 0xFF000000) | (Math.min(nr, 255) << 16) | (Math.min(ng, 255) << 8) | Math.min(nb, 255);
+        }
+    }
+
+    private static int quantize(float v) {
+        int q = Math.round(v * VALUE_SCALE);
+        return q < 0 ? 0 : (q > VALUE_SCALE ? VALUE_SCALE : q);
+    }
+
+    /**
+     * Parsea un fichero .cube (solo LUT 3D). Admite TITLE, LUT_3D_SIZE, DOMAIN_MIN/MAX y comentarios.
+     *
+     * @throws IOException si el formato no es válido o faltan entradas
+     */
+    public static Lut3D parseCube(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String title = "LUT";
+        int size = -1;
+        float[] min = {0f, 0f, 0f};
+        float[] max = {1f, 1f, 1f};
+        float[] data = null;
+        int count = 0;
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') continue;
+            char first = line.charAt(0);
+            if ((first >= '0' && first <= '9') || first == '-' || first == '.' || first == '+') {
+                if (data == null) throw new IOException("Datos antes de LUT_3D_SIZE (línea " + lineNo + ")");
+                if (count + 3 > data.length) throw new IOException("Demasiadas entradas en la LUT (línea " + lineNo + ")");
+                parseTriplet(line, data, count, lineNo);
+                count += 3;
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            String key = parts[0].toUpperCase(Locale.US);
+            switch (key) {
+                case "TITLE":
+                    title = line.substring(5).trim().replace("\"", "");
+                    break;
+                case "LUT_3D_SIZE":
+                    if (data != null) throw new IOException("LUT_3D_SIZE repetido (línea " + lineNo + ")");
+                    try {
+                        size = Integer.parseInt(parts[1]);
+                    } catch (RuntimeException e) {
+                        throw new IOException("LUT_3D_SIZE no válido (línea " + lineNo + ")", e);
+                    }
+                    if (size < 2 || size > MAX_SIZE) throw new IOException("LUT_3D_SIZE fuera de rango: " + size);
+                    data = new float[size * size * size * 3];
+                    break;
+                case "DOMAIN_MIN":
+                    parseTriplet(line.substring(key.length()).trim(), min, 0, lineNo);
+                    break;
+                case "DOMAIN_MAX":
+                    parseTriplet(line.substring(key.length()).trim(), max, 0, lineNo);
+                    break;
+                case "LUT_1D_SIZE":
+                    throw new IOException("Solo se admiten LUT 3D");
+                default:
+                    // Palabras clave desconocidas (LUT_IN_VIDEO_RANGE, etc.): se ignoran
+                    break;
+            }
+        }
+        if (data == null) throw new IOException("Falta LUT_3D_SIZE");
+        if (count != data.length) {
+            throw new IOException("LUT incompleta: " + count / 3 + " de " + data.length / 3 + " entradas");
+        }
+        return new Lut3D(title, size, data, min, max);
+    }
+
+    private static void parseTriplet(String line, float[] out, int offset, int lineNo) throws IOException {
+        String[] parts = line.split("\\s+");
+        if (parts.length < 3) throw new IOException("Se esperaban 3 valores (línea " + lineNo + ")");
+        try {
+            out[offset] = Float.parseFloat(parts[0]);
+            out[offset + 1] = Float.parseFloat(parts[1]);
+            out[offset + 2] = Float.parseFloat(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Valor no numérico (línea " + lineNo + ")", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * QualityTier
+ * <p>
+ * Escala de procesamiento del preview filtrado. El overlay se muestra con CENTER_CROP en la
+ * pantalla del móvil, así que los filtros caros (convolución) apenas pierden calidad visible a 1/2
+ * o 1/4 y cuestan 4x o 16x menos. Los filtros de color son baratos y se quedan a resolución completa.
+ */
+public enum QualityTier {
+    FULL(1),
+    HALF(2),
+    QUARTER(4);
+
+    private final int factor;
+
+    QualityTier(int factor) {
+        this.factor = factor;
+    }
+
+    /** Divisor de cada dimensión (1, 2 o 4). */
+    public int getFactor() {
+        return factor;
+    }
+
+    /** Tamaño reducido de una dimensión (al menos 1 píxel). */
+    public int scale(int size) {
+        return Math.max(1, size / factor);
+    }
+}
@@ -0,0 +1,112 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * Resampler
+ * <p>
+ * Cambios de resolución en CPU para procesar el preview a una escala reducida (QualityTier):
+ * - downsample(): media de bloques factor x factor (box), solo sumas y un desplazamiento.
+ * - upscale(): bilineal en punto fijo de vuelta al tamaño original, para que el bitmap publicado
+ *   mantenga siempre el mismo tamaño (el pool de bitmaps y el ImageView no cambian con el tier).
+ * Ambos trabajan por bandas de filas de salida y se reparten en el TiledExecutor.
+ */
+public final class Resampler {
+
+    private Resampler() {
+    }
+
+    /**
+     * Reduce src ({@code srcW} x {@code srcH}) por {@code factor} (potencia de 2) en dst, de tamaño
+     * (srcW / factor) x (srcH / factor). Las filas/columnas sobrantes del borde se ignoran.
+     */
+    public static void downsample(int[] src, int srcW, int srcH, int factor, int[] dst, TiledExecutor tiles) {
+        if (factor <= 0 || Integer.bitCount(factor) != 1) {
+            throw new IllegalArgumentException("El factor debe ser potencia de 2: " + factor);
+        }
+        int dstH = Math.max(1, srcH / factor);
+        if (factor == 1) {
+            if (src != dst) System.arraycopy(src, 0, dst, 0, srcW * srcH);
+            return;
+        }
+        Convolution.forEach(tiles, dstH, (from, to) -> downsampleRows(src, srcW, srcH, factor, dst, from, to));
+    }
+
+    static void downsampleRows(int[] src, int srcW, int srcH, int factor, int[] dst, int rowFrom, int rowTo) {
+        final int dstW = Math.max(1, srcW / factor);
+        final int blockW = Math.min(factor, srcW);
+        final int blockH = Math.min(factor, srcH);
+        // Si la imagen es menor que el factor el bloque se recorta y su área puede no ser potencia de 2:
+        // en ese caso (solo imágenes diminutas) se divide en lugar de desplazar
+        final int area = blockW * blockH;
+        final int shift = Integer.bitCount(area) == 1 ? Integer.numberOfTrailingZeros(area) : -1;
+        final int half = area >> 1;
+        for (int y = rowFrom; y < rowTo; y++) {
+            int srcRow = y * blockH * srcW;
+            int out = y * dstW;
+            for (int x = 0; x < dstW; x++) {
+                int a = 0, r = 0, g = 0, b = 0;
+                int base = srcRow + x * blockW;
+                for (int dy = 0; dy < blockH; dy++) {
+                    int i = base + dy * srcW;
+                    for (int dx = 0; dx < blockW; dx++) {
+                        int p = src[i + dx];
+                        a += p >>> 24;
+                        r += (p >> 16) & 0xFF;
+                        g += (p >> 8) & 0xFF;
+                        b += p & 0xFF;
+                    }
+                }
+                if (shift >= 0) {
+                    dst[out + x] = (((a + half) >> shift) << 24) | (((r + half) >> shift) << 16)
+                            | (((g + half) >> shift) << 8) | ((b + half) >> shift);
+                } else {
+                    dst[out + x] = (((a + half) / area) << 24) | (((r + half) / area) << 16)
+                            | (((g + half) / area) << 8) | ((b + half) / area);
+                }
+            }
+        }
+    }
+
+    /**
+     * Escala src ({@code srcW} x {@code srcH}) a dst ({@code dstW} x {@code dstH}) con interpolación
+     * bilineal. Los centros de píxel quedan alineados y los bordes se replican.
+     */
+    public static void upscale(int[] src, int srcW, int srcH, int[] dst, int dstW, int dstH, TiledExecutor tiles) {
+        Convolution.forEach(tiles, dstH, (from, to) -> upscaleRows(src, srcW, srcH, dst, dstW, dstH, from, to));
+    }
+
+    static void upscaleRows(int[] src, int srcW, int srcH, int[] dst, int dstW, int dstH, int rowFrom, int rowTo) {
+        // Paso en coordenadas de origen por píxel de destino, en 16.16
+        final int stepX = (int) (((long) srcW << 16) / dstW);
+        final long stepY = ((long) srcH << 16) / dstH;
+        final int lastX = srcW - 1;
+        final int lastY = srcH - 1;
+        for (int y = rowFrom; y < rowTo; y++) {
+            int fy = (int) (((2L * y + 1) * stepY >> 1) - 0x8000);
+            if (fy < 0) fy = 0;
+            int y0 = Math.min(fy >> 16, lastY);
+            int wy = (fy >> 8) & 0xFF;
+            int row0 = y0 * srcW;
+            int row1 = Math.min(y0 + 1, lastY) * srcW;
+            int out = y * dstW;
+            int fx = (stepX >> 1) - 0x8000;
+            for (int x = 0; x < dstW; x++, fx += stepX) {
+                int cx = fx < 0 ? 0 : fx;
+                int x0 = Math.min(cx >> 16, lastX);
+                int x1 = Math.min(x0 + 1, lastX);
+                int wx = (cx >> 8) & 0xFF;
+                int top = lerp(src[row0 + x0], src[row0 + x1], wx);
+                int bottom = lerp(src[row1 + x0], src[row1 + x1], wx);
+                dst[out + x] = lerp(top, bottom, wy);
+            }
+        }
+    }
+
+    // Interpola dos píxeles ARGB con peso w/256 hacia b; dos canales por multiplicación (AR/GB en 16 bits)
+    private static int lerp(int a, int b, int w) {
+        if (w == 0) return a;
+        int iw = 256 - w;
+        int rb = ((((a & 0xFF00FF) * iw) + ((b & 0xFF00FF) * w)) >>> 8) & 0xFF00FF;
+        int ag = ((((a >>> 8) & 0xFF00FF) * iw) + (((b >>> 8) & 0xFF00FF) * w)) & 0xFF00FF00;
+        return ag | rb;
+    }
+}
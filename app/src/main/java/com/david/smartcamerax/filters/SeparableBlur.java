@@ -0,0 +1,87 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * SeparableBlur
+ * <p>
+ * Desenfoque separable: una o varias pasadas de box blur horizontales y otras tantas verticales.
+ * - box(r): una pasada de radio r.
+ * - gaussian(sigma): tres box blurs con radios elegidos para aproximar la gaussiana (el error
+ *   frente a la gaussiana exacta es de pocos niveles y el coste no depende de sigma).
+ *
+ * Las pasadas horizontales de una fila se encadenan en buffers de línea (la fila no sale de caché);
+ * las verticales alternan entre un frame intermedio y dst. El intermedio es por hilo llamante, así
+ * que la misma instancia se puede usar a la vez desde el preview y desde la captura.
+ */
+public final class SeparableBlur implements FrameFilter {
+
+    private static final int GAUSSIAN_PASSES = 3;
+
+    private final int[] radii;
+    // Parámetro de construcción, para poder escalarlo (sigma < 0: box de radio boxRadius)
+    private final float sigma;
+    private final int boxRadius;
+    private final ThreadLocal<FrameBuffer> scratch = ThreadLocal.withInitial(FrameBuffer::new);
+
+    private SeparableBlur(int[] radii, float sigma, int boxRadius) {
+        this.sigma = sigma;
+        this.boxRadius = boxRadius;
+        int count = 0;
+        for (int r : radii) {
+            if (r < 0) throw new IllegalArgumentException("Radio negativo: " + r);
+            if (r > 0) count++;
+        }
+        // Las pasadas de radio 0 no hacen nada: se descartan
+        this.radii = new int[count];
+        for (int i = 0, j = 0; i < radii.length; i++) {
+            if (radii[i] > 0) this.radii[j++] = radii[i];
+        }
+    }
+
+    public static SeparableBlur box(int radius) {
+        return new SeparableBlur(new int[]{radius}, -1f, radius);
+    }
+
+    public static SeparableBlur gaussian(float sigma) {
+        if (sigma < 0) throw new IllegalArgumentException("Sigma negativa: " + sigma);
+        return new SeparableBlur(Convolution.gaussianRadii(sigma, GAUSSIAN_PASSES), sigma, 0);
+    }
+
+    /** Radios de las pasadas efectivas (vacío si el desenfoque no hace nada). */
+    public int[] getRadii() {
+        return radii.clone();
+    }
+
+    /** La vecindad vertical de varias pasadas se acumula: suma de los radios. */
+    @Override
+    public int getHaloRows() {
+        int halo = 0;
+        for (int r : radii) halo += r;
+        return halo;
+    }
+
+    @Override
+    public SeparableBlur scaled(float factor) {
+        return sigma < 0 ? box(Math.round(boxRadius * factor)) : gaussian(sigma * factor);
+    }
+
+    @Override
+    public void apply(int[] src, int[] dst, int width, int height, TiledExecutor tiles) {
+        final int passes = radii.length;
+        if (passes == 0) {
+            if (src != dst) System.arraycopy(src, 0, dst, 0, width * height);
+            return;
+        }
+        final int[] tmp = scratch.get().obtain(width * height);
+        // Se elige el destino horizontal para que la última pasada vertical acabe en dst
+        int[] a = passes % 2 == 1 ? tmp : dst;
+        final int[] horizontal = a;
+        Convolution.forEach(tiles, height, (from, to) -> Convolution.boxRows(src, horizontal, width, from, to, radii));
+        for (int k = 0; k < passes; k++) {
+            final int[] in = a;
+            final int[] out = a == tmp ? dst : tmp;
+            final int radius = radii[k];
+            Convolution.forEach(tiles, width, (from, to) -> Convolution.boxColumns(in, out, width, height, from, to, radius));
+            a = out;
+        }
+    }
+}
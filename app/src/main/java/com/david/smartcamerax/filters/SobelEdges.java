@@ -0,0 +1,69 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * SobelEdges
+ * <p>
+ * Detección de bordes Sobel sobre la luminancia, con salida en grises (bordes claros sobre negro).
+ * El operador 3x3 es separable: la pasada horizontal calcula por fila la derivada [-1 0 1] y el
+ * suavizado [1 2 1], y la vertical los combina con el kernel complementario. Ambas pasadas son por
+ * bandas de filas (la vertical solo lee los intermedios), así que se reparten en el TiledExecutor.
+ */
+public final class SobelEdges implements FrameFilter {
+
+    private final ThreadLocal<FrameBuffer> scratch = ThreadLocal.withInitial(FrameBuffer::new);
+
+    @Override
+    public int getHaloRows() {
+        return 1;
+    }
+
+    /** El operador es de 3x3 fijo: a más resolución marca los mismos bordes, más finos. */
+    @Override
+    public SobelEdges scaled(float factor) {
+        return this;
+    }
+
+    @Override
+    public void apply(int[] src, int[] dst, int width, int height, TiledExecutor tiles) {
+        final int size = width * height;
+        // [0, size): derivada horizontal; [size, 2 * size): suavizado horizontal
+        final int[] buf = scratch.get().obtain(2 * size);
+        Convolution.forEach(tiles, height, (from, to) -> horizontal(src, buf, width, size, from, to));
+        Convolution.forEach(tiles, height, (from, to) -> vertical(src, dst, buf, width, height, size, from, to));
+    }
+
+    private static void horizontal(int[] src, int[] buf, int width, int size, int rowFrom, int rowTo) {
+        final int[] luma = Convolution.line(width);
+        final int last = width - 1;
+        for (int y = rowFrom; y < rowTo; y++) {
+            int off = y * width;
+            for (int x = 0; x < width; x++) {
+                int c = src[off + x];
+                // Coeficientes Rec.709 en 8 bits (suman 256)
+                luma[x] = (((c >> 16) & 0xFF) * 54 + ((c >> 8) & 0xFF) * 183 + (c & 0xFF) * 19) >> 8;
+            }
+            for (int x = 0; x < width; x++) {
+                int l = luma[Math.max(x - 1, 0)];
+                int r = luma[Math.min(x + 1, last)];
+                buf[off + x] = r - l;
+                buf[size + off + x] = l + 2 * luma[x] + r;
+            }
+        }
+    }
+
+    private static void vertical(int[] src, int[] dst, int[] buf, int width, int height, int size,
+                                 int rowFrom, int rowTo) {
+        for (int y = rowFrom; y < rowTo; y++) {
+            int off = y * width;
+            int up = Math.max(y - 1, 0) * width;
+            int down = Math.min(y + 1, height - 1) * width;
+            for (int x = 0; x < width; x++) {
+                int gx = buf[up + x] + 2 * buf[off + x] + buf[down + x];
+                int gy = buf[size + down + x] - buf[size + up + x];
+                // |gx| + |gy| llega a 2040: se escala a 0..255 con saturación
+                int m = Math.min(255, (Math.abs(gx) + Math.abs(gy)) >> 2);
+                dst[off + x] = (src[off + x] & 0xFF000000) | (m << 16) | (m << 8) | m;
+            }
+        }
+    }
+}
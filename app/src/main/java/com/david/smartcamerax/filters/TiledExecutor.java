@@ -0,0 +1,172 @@
+package com.david.smartcamerax.filters;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TiledExecutor
+ * <p>
+ * Reparte el procesamiento de un frame en bandas de filas y las ejecuta en un pool fijo de hilos
+ * dimensionado a los núcleos del dispositivo. El hilo que llama también procesa bandas, así que
+ * con N hilos solo se crean N-1 workers.
+ *
+ * Determinismo: cada fila se procesa con el mismo código sea cual sea el reparto, por lo que la
+ * salida es idéntica bit a bit con 1 o con N hilos (los kernels no comparten estado entre filas).
+ *
+ * Uso: una llamada a forEachBand() a la vez (está sincronizada). Por frame solo se asigna el
+ * pequeño Job de la llamada (más lo que haga el propio kernel).
+ */
+public final class TiledExecutor implements Closeable {
+
+    /** Trabajo sobre un rango de filas [rowFrom, rowTo). */
+    public interface RowKernel {
+        void run(int rowFrom, int rowTo);
+    }
+
+    // Bandas por hilo: más de una para equilibrar si un núcleo va más lento (big.LITTLE)
+    private static final int BANDS_PER_THREAD = 3;
+    // Por debajo de este alto por banda el coste de coordinación supera a la ganancia
+    private static final int MIN_BAND_ROWS = 16;
+
+    private final int threads;
+    private final ExecutorService workers;
+
+    /**
+     * Estado de una llamada a forEachBand(). Cada llamada crea el suyo y los helpers lo capturan: un
+     * helper rezagado de la llamada anterior solo ve su propio trabajo (ya agotado) y nunca toma
+     * bandas ni el kernel de la siguiente.
+     */
+    private static final class Job implements Runnable {
+        final RowKernel kernel;
+        final int rows;
+        final int bandRows;
+        final int bandCount;
+        final AtomicInteger nextBand = new AtomicInteger();
+        final AtomicInteger pendingBands;
+        volatile Throwable failure;
+
+        Job(RowKernel kernel, int rows, int bands) {
+            this.kernel = kernel;
+            this.rows = rows;
+            this.bandRows = (rows + bands - 1) / bands;
+            this.bandCount = (rows + bandRows - 1) / bandRows;
+            this.pendingBands = new AtomicInteger(bandCount);
+        }
+
+        // Toma bandas libres hasta agotarlas; lo ejecutan tanto el llamador como los workers
+        @Override
+        public void run() {
+            int band;
+            while ((band = nextBand.getAndIncrement()) < bandCount) {
+                int from = band * bandRows;
+                int to = Math.min(rows, from + bandRows);
+                try {
+                    kernel.run(from, to);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                if (pendingBands.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        // Deja de repartir bandas: las no empezadas cuentan como hechas (interrupción del llamador)
+        void cancelRemaining() {
+            int band;
+            while ((band = nextBand.getAndIncrement()) < bandCount) {
+                if (pendingBands.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        // Espera a que no quede ninguna banda en curso (también tras una interrupción)
+        boolean await() {
+            boolean interrupted = false;
+            synchronized (this) {
+                while (pendingBands.get() > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        cancelRemaining();
+                    }
+                }
+            }
+            return interrupted;
+        }
+    }
+
+    /**
+     * @param threads número total de hilos (incluido el que llama); 1 = ejecución secuencial
+     */
+    public TiledExecutor(int threads) {
+        this.threads = Math.max(1, threads);
+        if (this.threads > 1) {
+            workers = Executors.newFixedThreadPool(this.threads - 1, new TileThreadFactory());
+        } else {
+            workers = null;
+        }
+    }
+
+    /** Pool con un hilo por núcleo disponible. */
+    public static TiledExecutor forDevice() {
+        return new TiledExecutor(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Ejecuta {@code kernel} sobre todas las filas [0, rows) repartidas en bandas y bloquea hasta
+     * que terminan todas. Si algún kernel lanza una excepción se relanza aquí.
+     */
+    public synchronized void forEachBand(int rows, RowKernel kernel) {
+        if (rows <= 0) return;
+        int bands = Math.min(threads * BANDS_PER_THREAD, rows / MIN_BAND_ROWS);
+        if (workers == null || bands <= 1) {
+            kernel.run(0, rows);
+            return;
+        }
+        Job job = new Job(kernel, rows, bands);
+        int helpers = Math.min(threads - 1, job.bandCount - 1);
+        for (int i = 0; i < helpers; i++) {
+            workers.execute(job);
+        }
+        job.run();
+
+        // Nunca se vuelve con bandas escribiendo todavía: una interrupción solo evita las no empezadas
+        if (job.await()) Thread.currentThread().interrupt();
+        Throwable t = job.failure;
+        if (t != null) {
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (workers != null) workers.shutdownNow();
+    }
+
+    private static final class TileThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "filter-tile-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * UnsharpMask
+ * <p>
+ * Enfoque por máscara de desenfoque: out = src + amount * (src - blur(src)), por canal y recortado
+ * a 0..255. El desenfoque es un SeparableBlur gaussiano, así que el coste no depende del radio.
+ */
+public final class UnsharpMask implements FrameFilter {
+
+    private static final int AMOUNT_SHIFT = 8;
+
+    private final SeparableBlur blur;
+    private final float amountValue;
+    private final float sigma;
+    // Intensidad en punto fijo (256 = 1.0)
+    private final int amount;
+    private final ThreadLocal<FrameBuffer> scratch = ThreadLocal.withInitial(FrameBuffer::new);
+
+    /**
+     * @param amount intensidad (1.0 = duplicar el detalle)
+     * @param sigma  tamaño del detalle a realzar, en píxeles
+     */
+    public UnsharpMask(float amount, float sigma) {
+        this.blur = SeparableBlur.gaussian(sigma);
+        this.amountValue = amount;
+        this.sigma = sigma;
+        this.amount = Math.round(amount * (1 << AMOUNT_SHIFT));
+    }
+
+    @Override
+    public int getHaloRows() {
+        return blur.getHaloRows();
+    }
+
+    @Override
+    public UnsharpMask scaled(float factor) {
+        return new UnsharpMask(amountValue, sigma * factor);
+    }
+
+    @Override
+    public void apply(int[] src, int[] dst, int width, int height, TiledExecutor tiles) {
+        final int[] blurred = scratch.get().obtain(width * height);
+        blur.apply(src, blurred, width, height, tiles);
+        Convolution.forEach(tiles, height, (from, to) -> {
+            final int end = to * width;
+            for (int i = from * width; i < end; i++) {
+                int s = src[i];
+                int b = blurred[i];
+                dst[i] = (s & 0xFF000000)
+                        | (sharpen((s >> 16) & 0xFF, (b >> 16) & 0xFF) << 16)
+                        | (sharpen((s >> 8) & 0xFF, (b >> 8) & 0xFF) << 8)
+                        | sharpen(s & 0xFF, b & 0xFF);
+            }
+        });
+    }
+
+    private int sharpen(int s, int b) {
+        return ColorMatrixKernel.clamp(s + (((s - b) * amount) >> AMOUNT_SHIFT));
+    }
+}
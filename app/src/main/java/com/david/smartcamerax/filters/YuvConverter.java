@@ -0,0 +1,105 @@
+package com.david.smartcamerax.filters;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YuvConverter
+ * <p>
+ * Conversión de planos YUV_420_888 (los que entrega ImageAnalysis) a píxeles ARGB en un int[] que
+ * aporta el llamador, aplicando la rotación del sensor y el espejo de la cámara frontal en la misma
+ * pasada. Java puro: recibe los ByteBuffer de cada plano con sus strides.
+ *
+ * - yuvToArgb(): color completo (BT.601 full range, el rango que usan las cámaras).
+ * - lumaToArgb(): solo el plano Y replicado en R=G=B. Para filtros monocromos no hace falta leer
+ *   U/V, lo que ahorra más de la mitad de lecturas.
+ */
+public final class YuvConverter {
+
+    // Coeficientes BT.601 en punto fijo (10 bits)
+    private static final int CR_R = 1436; // 1.402
+    private static final int CB_G = 352;  // 0.344
+    private static final int CR_G = 731;  // 0.714
+    private static final int CB_B = 1815; // 1.772
+
+    private YuvConverter() {}
+
+    /** Ancho de la salida tras rotar {@code rotation} grados. */
+    public static int rotatedWidth(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? height : width;
+    }
+
+    /** Alto de la salida tras rotar {@code rotation} grados. */
+    public static int rotatedHeight(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? width : height;
+    }
+
+    /**
+     * Convierte un frame YUV_420_888 a ARGB opaco.
+     *
+     * @param rotation 0, 90, 180 o 270 (sentido horario), como ImageInfo.getRotationDegrees()
+     * @param mirror   espejo horizontal tras rotar (cámara frontal)
+     * @param out      destino con al menos width*height elementos
+     */
+    public static void yuvToArgb(ByteBuffer y, int yRowStride,
+                                 ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                                 int width, int height, int rotation, boolean mirror, int[] out) {
+        for (int row = 0; row < height; row++) {
+            int o = outIndex(0, row, width, height, rotation, mirror);
+            int step = outIndex(1, row, width, height, rotation, mirror) - o;
+            int yOff = row * yRowStride;
+            int uvRow = (row >> 1) * uvRowStride;
+            for (int col = 0; col < width; col++, o += step) {
+                int yy = y.get(yOff + col) & 0xFF;
+                int uvOff = uvRow + (col >> 1) * uvPixelStride;
+                int cb = (u.get(uvOff) & 0xFF) - 128;
+                int cr = (v.get(uvOff) & 0xFF) - 128;
+                int r = yy + ((CR_R * cr) >> 10);
+                int g = yy - ((CB_G * cb + CR_G * cr) >> 10);
+                int b = yy + ((CB_B * cb) >> 10);
+                r = r < 0 ? 0 : (r > 255 ? 255 : r);
+                g = g < 0 ? 0 : (g > 255 ? 255 : g);
+                b = b < 0 ? 0 : (b > 255 ? 255 : b);
+                out[o] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+
+    /**
+     * Convierte solo el plano Y a ARGB gris (R=G=B=Y). Mismos parámetros que yuvToArgb.
+     */
+    public static void lumaToArgb(ByteBuffer y, int yRowStride, int width, int height,
+                                  int rotation, boolean mirror, int[] out) {
+        for (int row = 0; row < height; row++) {
+            int o = outIndex(0, row, width, height, rotation, mirror);
+            int step = outIndex(1, row, width, height, rotation, mirror) - o;
+            int yOff = row * yRowStride;
+            for (int col = 0; col < width; col++, o += step) {
+                int yy = y.get(yOff + col) & 0xFF;
+                out[o] = 0xFF000000 | (yy << 16) | (yy << 8) | yy;
+            }
+        }
+    }
+
+    // Índice en la salida (ya rotada/espejada) del píxel (x, y) de la imagen del sensor
+    static int outIndex(int x, int y, int width, int height, int rotation, boolean mirror) {
+        int ox;
+        int oy;
+        int outW;
+        switch (rotation) {
+            case 90:
+                ox = height - 1 - y; oy = x; outW = height;
+                break;
+            case 180:
+                ox = width - 1 - x; oy = height - 1 - y; outW = width;
+                break;
+            case 270:
+                ox = y; oy = width - 1 - x; outW = height;
+                break;
+            default:
+                ox = x; oy = y; outW = width;
+                break;
+        }
+        if (mirror) ox = outW - 1 - ox;
+        return oy * outW + ox;
+    }
+}
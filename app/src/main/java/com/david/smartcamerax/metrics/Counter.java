@@ -0,0 +1,40 @@
+package com.david.smartcamerax.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counter
+ * <p>
+ * Contador monótono sobre LongAdder: celdas repartidas por hilo, así que incrementar desde el hilo
+ * de cámara, los workers de filtros y los callbacks de ML Kit a la vez no compite por una sola línea
+ * de caché. Sin asignaciones al incrementar. Se obtiene con {@link Metrics#counter(String)}.
+ */
+public final class Counter {
+
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void reset() {
+        value.reset();
+    }
+}
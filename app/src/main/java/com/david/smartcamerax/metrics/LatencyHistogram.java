@@ -0,0 +1,155 @@
+package com.david.smartcamerax.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram
+ * <p>
+ * Histograma de latencias con cubetas logarítmicas, actualizado con atómicos (sin locks ni
+ * asignaciones en record()):
+ * - Unidad: microsegundos. Cada potencia de dos se divide en SUB_BUCKETS cubetas lineales, así que
+ *   el error relativo de un percentil es como mucho 1/SUB_BUCKETS (12.5%) en todo el rango.
+ * - Rango: de 1 µs a 2^MAX_EXPONENT µs (~73 min); lo que pase de ahí cae en la última cubeta.
+ * - count y total van en LongAdder (muy escritos desde varios hilos); max con CAS.
+ *
+ * snapshot() copia los contadores (fuera del camino caliente) para calcular p50/p90/p99.
+ * Se obtiene con {@link Metrics#histogram(String)}.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int MAX_EXPONENT = 32;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Registra una duración en nanosegundos (las negativas se ignoran). */
+    public void recordNanos(long nanos) {
+        if (nanos < 0) return;
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        buckets.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /** Registra el tiempo transcurrido desde {@code startNanos} (System.nanoTime). */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = buckets.get(i);
+            total += copy[i];
+        }
+        // total sale de las cubetas copiadas para que los percentiles sean coherentes entre sí
+        return new Snapshot(name, copy, total, totalMicros.sum(), maxMicros.get());
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    // Cubeta de un valor: lineal por debajo de SUB_BUCKETS y luego SUB_BUCKETS por potencia de dos
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Menor valor (µs) que cae en la cubeta
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Copia inmutable del histograma en un instante.
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long[] buckets;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        Snapshot(String name, long[] buckets, long count, long totalMicros, long maxMicros) {
+            this.name = name;
+            this.buckets = buckets;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMs() {
+            return count == 0 ? 0 : totalMicros / (double) count / 1000.0;
+        }
+
+        public double getMaxMs() {
+            return maxMicros / 1000.0;
+        }
+
+        /**
+         * Percentil en milisegundos: punto medio de la cubeta que contiene el rango pedido
+         * (acotado por el máximo observado).
+         *
+         * @param p percentil en [0, 100]
+         */
+        public double percentileMs(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, p)) / 100.0));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    long low = lowerBound(i);
+                    long high = i + 1 < BUCKETS ? lowerBound(i + 1) : low;
+                    double mid = (low + Math.max(low, high - 1)) / 2.0;
+                    return Math.min(mid, maxMicros) / 1000.0;
+                }
+            }
+            return getMaxMs();
+        }
+    }
+}
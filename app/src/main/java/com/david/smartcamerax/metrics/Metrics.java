@@ -0,0 +1,83 @@
+package com.david.smartcamerax.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics
+ * <p>
+ * Registro de proceso de contadores e histogramas de latencia, por nombre con puntos
+ * ("analyzer.text.inference", "capture.shutter_to_save"...). Pensado para guardarse en campos
+ * static final de quien mide, de modo que en el camino caliente solo hay incrementos atómicos:
+ *
+ * <pre>
+ * private static final LatencyHistogram FRAME = Metrics.histogram("filter.frame");
+ * ...
+ * long start = System.nanoTime();
+ * renderFrame(...);
+ * FRAME.recordSince(start);
+ * </pre>
+ *
+ * report() da una tabla de texto (count, p50, p90, p99, max, media) ordenada por nombre para
+ * volcarla en logcat o en un fichero (MetricsExporter) y comparar entre versiones.
+ */
+public final class Metrics {
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    /** Contador con ese nombre (se crea la primera vez). */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    /** Histograma con ese nombre (se crea la primera vez). */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /** Copia de todos los histogramas, ordenada por nombre. */
+    public static List<LatencyHistogram.Snapshot> snapshotHistograms() {
+        List<LatencyHistogram.Snapshot> out = new ArrayList<>();
+        for (LatencyHistogram histogram : new TreeMap<>(HISTOGRAMS).values()) {
+            out.add(histogram.snapshot());
+        }
+        return out;
+    }
+
+    /** Valores actuales de los contadores, ordenados por nombre. */
+    public static Map<String, Long> snapshotCounters() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Counter counter : COUNTERS.values()) {
+            out.put(counter.getName(), counter.get());
+        }
+        return out;
+    }
+
+    /** Tabla de texto con todas las métricas (una línea por métrica). */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram.Snapshot s : snapshotHistograms()) {
+            if (s.getCount() == 0) continue;
+            sb.append(String.format(Locale.US, "%-32s n=%-7d p50=%8.2fms p90=%8.2fms p99=%8.2fms max=%8.2fms mean=%8.2fms%n",
+                    s.getName(), s.getCount(), s.percentileMs(50), s.percentileMs(90), s.percentileMs(99),
+                    s.getMaxMs(), s.getMeanMs()));
+        }
+        for (Map.Entry<String, Long> entry : snapshotCounters().entrySet()) {
+            sb.append(String.format(Locale.US, "%-32s %d%n", entry.getKey(), entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+    /** Pone todas las métricas a cero (p.ej. entre dos pasadas de una prueba). */
+    public static void reset() {
+        for (Counter counter : COUNTERS.values()) counter.reset();
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) histogram.reset();
+    }
+}
@@ -0,0 +1,79 @@
+package com.david.smartcamerax.metrics;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * MetricsExporter
+ * <p>
+ * Vuelca el informe de {@link Metrics} a logcat (tag "Metrics", una línea por métrica) o a un fichero
+ * filesDir/metrics/metrics-yyyyMMdd_HHmmss.txt con cabecera de versión y dispositivo, para comparar
+ * p50/p99 entre versiones (adb pull o adb shell run-as). Escribir el fichero hace I/O: llamarlo fuera
+ * del hilo principal. Se conservan los últimos MAX_FILES informes.
+ */
+public class MetricsExporter {
+
+    private static final String TAG = "Metrics";
+    public static final String METRICS_DIR = "metrics";
+    // Informes que se conservan (los más antiguos se borran al escribir uno nuevo)
+    private static final int MAX_FILES = 20;
+
+    public static void toLogcat() {
+        for (String line : Metrics.report().split("\n")) {
+            if (!line.isEmpty()) Log.i(TAG, line);
+        }
+    }
+
+    /**
+     * @return el fichero escrito, o null si falló
+     */
+    public static File toFile(Context ctx) {
+        File dir = new File(ctx.getFilesDir(), METRICS_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "toFile: no se pudo crear " + dir);
+            return null;
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "metrics-" + stamp + ".txt");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write("# version=" + versionName(ctx) + " device=" + Build.MANUFACTURER + " " + Build.MODEL
+                    + " sdk=" + Build.VERSION.SDK_INT + " time=" + stamp + "\n");
+            out.write(Metrics.report());
+        } catch (IOException e) {
+            Log.w(TAG, "toFile: error escribiendo " + file, e);
+            return null;
+        }
+        prune(dir);
+        return file;
+    }
+
+    // El nombre lleva la fecha, así que el orden alfabético es el cronológico
+    private static void prune(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("metrics-") && name.endsWith(".txt"));
+        if (files == null || files.length <= MAX_FILES) return;
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - MAX_FILES; i++) {
+            if (!files[i].delete()) Log.w(TAG, "prune: no se pudo borrar " + files[i]);
+        }
+    }
+
+    private static String versionName(Context ctx) {
+        try {
+            return ctx.getPackageManager().getPackageInfo(ctx.getPackageName(), 0).versionName;
+        } catch (Exception e) {
+            return "?";
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.david.smartcamerax.storage;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import com.david.smartcamerax.MediaItem;
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MediaChangeObserver
+ * <p>
+ * Avisa a la galería de los cambios en las fotos y videos de la app como diferencias (altas o
+ * modificaciones + ids borrados), para aplicarlas sobre la lista cargada en vez de reconsultarla:
+ * - Un ContentObserver sobre las colecciones de fotos y de videos; las ráfagas de avisos (guardar una
+ *   foto genera varios) se agrupan con DEBOUNCE_MS y el cálculo va en un hilo propio.
+ * - Android R+: solo se leen las filas con GENERATION_MODIFIED posterior a la última generación vista
+ *   (MediaStore.getGeneration); las borradas llegan por id en el propio aviso (NOTIFY_DELETE) y las
+ *   enviadas a la papelera salen de la misma consulta. Si un borrado llega sin id se pide recargar.
+ * - Antes de R: se compara la lista de {_ID, DATE_MODIFIED} (dos columnas, sin construir items) con
+ *   la anterior y solo se leen las filas nuevas o modificadas.
+ *
+ * Los listeners se llaman en el hilo principal. start() toma la referencia inicial: llamarlo antes de
+ * la primera consulta de la galería para no perder cambios intermedios (un item que llegue por ambos
+ * lados se deduplica al aplicar la diferencia).
+ */
+public final class MediaChangeObserver {
+
+    public interface Listener {
+        /** {@code upserts}: items nuevos o modificados; {@code removedIds}: borrados o en la papelera. */
+        void onMediaChanged(List<MediaItem> upserts, Set<Long> removedIds);
+
+        /** No se pudo calcular la diferencia: hay que recargar la galería entera. */
+        void onMediaInvalidated();
+    }
+
+    private static final String TAG = "MediaChangeObserver";
+    private static final long DEBOUNCE_MS = 300;
+
+    private static final LatencyHistogram DIFF_TIME = Metrics.histogram("gallery.diff");
+    private static final Counter UPSERTS = Metrics.counter("gallery.diff_upserts");
+    private static final Counter REMOVED = Metrics.counter("gallery.diff_removed");
+
+    private final Context appContext;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "gallery-observer"));
+    private final MediaPagingSource.MediaCollection images;
+    private final MediaPagingSource.MediaCollection videos;
+    private final Runnable flushRunnable = this::scheduleDiff;
+
+    // Ids borrados anunciados por los avisos (R+), pendientes del siguiente cálculo; hilo principal
+    private final Set<Long> notifiedDeletes = new HashSet<>();
+    private boolean deleteWithoutId;
+
+    // Solo en el hilo del observer
+    private long generation = -1;
+    private Map<Long, Long> imageSnapshot;
+    private Map<Long, Long> videoSnapshot;
+
+    private final ContentObserver observer = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri, int flags) {
+            if ((flags & ContentResolver.NOTIFY_DELETE) != 0) {
+                long id = uri != null ? parseId(uri) : -1;
+                if (id >= 0) {
+                    notifiedDeletes.add(id);
+                } else {
+                    deleteWithoutId = true;
+                }
+            }
+            onChange(selfChange, uri);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            mainHandler.removeCallbacks(flushRunnable);
+            mainHandler.postDelayed(flushRunnable, DEBOUNCE_MS);
+        }
+    };
+
+    public MediaChangeObserver(Context context, Listener listener) {
+        this.appContext = context.getApplicationContext();
+        this.listener = listener;
+        this.images = MediaPagingSource.MediaCollection.images(appContext.getContentResolver());
+        this.videos = MediaPagingSource.MediaCollection.videos(appContext.getContentResolver());
+    }
+
+    /** Toma la referencia (generación o lista de ids) y empieza a escuchar. */
+    public void start() {
+        executor.execute(this::takeBaseline);
+        ContentResolver resolver = appContext.getContentResolver();
+        resolver.registerContentObserver(images.getUri(), true, observer);
+        resolver.registerContentObserver(videos.getUri(), true, observer);
+    }
+
+    public void stop() {
+        appContext.getContentResolver().unregisterContentObserver(observer);
+        mainHandler.removeCallbacks(flushRunnable);
+        executor.shutdownNow();
+    }
+
+    // Hilo principal: pasa los borrados anunciados al hilo del observer
+    private void scheduleDiff() {
+        Set<Long> deletes = new HashSet<>(notifiedDeletes);
+        boolean invalidate = deleteWithoutId;
+        notifiedDeletes.clear();
+        deleteWithoutId = false;
+        try {
+            executor.execute(() -> computeDiff(deletes, invalidate));
+        } catch (RuntimeException e) {
+            // Observer parado
+        }
+    }
+
+    private void takeBaseline() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            generation = MediaStore.getGeneration(appContext, MediaStore.VOLUME_EXTERNAL_PRIMARY);
+        } else {
+            imageSnapshot = images.scanIds();
+            videoSnapshot = videos.scanIds();
+        }
+    }
+
+    // Hilo del observer
+    private void computeDiff(Set<Long> notifiedDeletes, boolean deleteWithoutId) {
+        long start = System.nanoTime();
+        List<MediaItem> upserts = new ArrayList<>();
+        Set<Long> removed = new HashSet<>(notifiedDeletes);
+        boolean ok;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && deleteWithoutId) {
+            // La recarga completa ya incluye todo lo cambiado hasta ahora
+            generation = MediaStore.getGeneration(appContext, MediaStore.VOLUME_EXTERNAL_PRIMARY);
+            ok = false;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            ok = diffByGeneration(upserts, removed);
+        } else {
+            ok = diffBySnapshot(upserts, removed);
+        }
+        DIFF_TIME.recordSince(start);
+        if (!ok) {
+            Log.d(TAG, "Diferencia no disponible, recarga completa");
+            mainHandler.post(listener::onMediaInvalidated);
+            return;
+        }
+        if (upserts.isEmpty() && removed.isEmpty()) return;
+        UPSERTS.add(upserts.size());
+        REMOVED.add(removed.size());
+        mainHandler.post(() -> listener.onMediaChanged(upserts, removed));
+    }
+
+    private boolean diffByGeneration(List<MediaItem> upserts, Set<Long> removed) {
+        // Se lee antes de consultar: un cambio durante la consulta se vuelve a ver la próxima vez
+        long current = MediaStore.getGeneration(appContext, MediaStore.VOLUME_EXTERNAL_PRIMARY);
+        if (generation < 0 || current < generation) {
+            // Sin referencia o volumen recreado: las generaciones no son comparables
+            generation = current;
+            return false;
+        }
+        List<Long> trashed = new ArrayList<>();
+        if (!images.loadChangedSince(generation, upserts, trashed)) return false;
+        if (!videos.loadChangedSince(generation, upserts, trashed)) return false;
+        removed.addAll(trashed);
+        generation = current;
+        return true;
+    }
+
+    private boolean diffBySnapshot(List<MediaItem> upserts, Set<Long> removed) {
+        Map<Long, Long> imageIds = images.scanIds();
+        Map<Long, Long> videoIds = videos.scanIds();
+        if (imageIds == null || videoIds == null || imageSnapshot == null || videoSnapshot == null) {
+            imageSnapshot = imageIds;
+            videoSnapshot = videoIds;
+            return false;
+        }
+        upserts.addAll(images.loadIds(changedIds(imageSnapshot, imageIds, removed)));
+        upserts.addAll(videos.loadIds(changedIds(videoSnapshot, videoIds, removed)));
+        imageSnapshot = imageIds;
+        videoSnapshot = videoIds;
+        return true;
+    }
+
+    // Ids nuevos o con otro DATE_MODIFIED; los que ya no están se añaden a removed
+    private static List<Long> changedIds(Map<Long, Long> before, Map<Long, Long> after, Set<Long> removed) {
+        List<Long> changed = new ArrayList<>();
+        for (Map.Entry<Long, Long> e : after.entrySet()) {
+            if (!e.getValue().equals(before.get(e.getKey()))) changed.add(e.getKey());
+        }
+        for (Long id : before.keySet()) {
+            if (!after.containsKey(id)) removed.add(id);
+        }
+        return changed;
+    }
+
+    private static long parseId(Uri uri) {
+        try {
+            return ContentUris.parseId(uri);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
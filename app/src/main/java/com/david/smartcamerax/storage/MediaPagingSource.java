@@ -0,0 +1,238 @@
+package com.david.smartcamerax.storage;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import com.david.smartcamerax.MediaItem;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+import com.david.smartcamerax.utils.SortedMerge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MediaPagingSource
+ * <p>
+ * Fotos y videos de la app (Pictures/SmartCameraX y Movies/SmartCameraX) por páginas, en orden de
+ * DATE_ADDED descendente, sin consultar la biblioteca entera:
+ * - Cada colección se lee por ventanas de WINDOW_SIZE filas con paginación por clave
+ *   ((DATE_ADDED, _ID) menor que la última fila leída), así que el coste de una ventana no crece con
+ *   la posición y una foto nueva no desplaza las siguientes ventanas.
+ * - SortedMerge mezcla las dos colecciones en streaming (ya vienen ordenadas): no hace falta
+ *   Collections.sort sobre la lista combinada.
+ * - En Android R+ el límite va en QUERY_ARG_LIMIT; antes, como " LIMIT n" en el orden (MediaStore
+ *   lo acepta hasta Q).
+ *
+ * MediaChangeObserver reutiliza MediaCollection (mismo filtro y mismos items) para sus diferencias.
+ *
+ * nextPage() hace consultas: se llama desde un hilo de fondo. Una instancia recorre la galería una
+ * vez; para volver a empezar se crea otra. Filtro de carpeta como antes: RELATIVE_PATH en Q+,
+ * DISPLAY_NAME como heurística en versiones anteriores.
+ */
+public final class MediaPagingSource {
+
+    private static final String TAG = "MediaPagingSource";
+    private static final int WINDOW_SIZE = 120;
+    // Una ventana de una colección (consulta a MediaStore)
+    private static final LatencyHistogram WINDOW_TIME = Metrics.histogram("gallery.window");
+
+    /** Orden de la galería: más reciente primero; el id desempata (es único entre fotos y videos). */
+    public static final Comparator<MediaItem> ORDER = (a, b) -> {
+        if (a.dateAdded != b.dateAdded) return Long.compare(b.dateAdded, a.dateAdded);
+        return Long.compare(b.id, a.id);
+    };
+
+    private final SortedMerge<MediaItem> merge;
+
+    public MediaPagingSource(Context context) {
+        ContentResolver resolver = context.getContentResolver();
+        this.merge = new SortedMerge<>(ORDER, WINDOW_SIZE,
+                Arrays.asList(MediaCollection.images(resolver), MediaCollection.videos(resolver)));
+    }
+
+    /** Los {@code count} siguientes items (menos al final de la galería). Bloqueante. */
+    public List<MediaItem> nextPage(int count) {
+        return merge.nextPage(count);
+    }
+
+    public boolean isExhausted() {
+        return merge.isExhausted();
+    }
+
+    /**
+     * Una colección de MediaStore (fotos o videos) filtrada a la carpeta de la app. Se lee por
+     * ventanas ordenadas por (DATE_ADDED, _ID) descendente; MediaChangeObserver usa además las
+     * consultas de cambios (por generación, por ids o la lista de ids).
+     */
+    static final class MediaCollection implements SortedMerge.Source<MediaItem> {
+        private static final String[] PROJECTION = {
+                MediaStore.MediaColumns._ID,
+                MediaStore.MediaColumns.DATE_ADDED,
+                MediaStore.MediaColumns.DATE_MODIFIED
+        };
+        private static final String SORT = MediaStore.MediaColumns.DATE_ADDED + " DESC, "
+                + MediaStore.MediaColumns._ID + " DESC";
+        // IN (...) por trozos: SQLite limita el número de argumentos
+        private static final int MAX_IDS_PER_QUERY = 500;
+        private static final String AFTER = " AND (" + MediaStore.MediaColumns.DATE_ADDED + " < ? OR ("
+                + MediaStore.MediaColumns.DATE_ADDED + " = ? AND " + MediaStore.MediaColumns._ID + " < ?))";
+
+        private final ContentResolver resolver;
+        private final Uri collection;
+        private final boolean isVideo;
+        private final String selection;
+        private final String folderArg;
+
+        private MediaCollection(ContentResolver resolver, Uri collection, boolean isVideo, String folderArg) {
+            this.resolver = resolver;
+            this.collection = collection;
+            this.isVideo = isVideo;
+            this.selection = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                    ? MediaStore.MediaColumns.RELATIVE_PATH : MediaStore.MediaColumns.DISPLAY_NAME) + " LIKE ?";
+            this.folderArg = folderArg;
+        }
+
+        static MediaCollection images(ContentResolver resolver) {
+            return new MediaCollection(resolver, MediaStore.Images.Media.EXTERNAL_CONTENT_URI, false,
+                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? "%" + ImageStore.RELATIVE_PATH + "%" : "%SmartCameraX%");
+        }
+
+        static MediaCollection videos(ContentResolver resolver) {
+            return new MediaCollection(resolver, MediaStore.Video.Media.EXTERNAL_CONTENT_URI, true,
+                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? "%Movies/SmartCameraX%" : "%SmartCameraX%");
+        }
+
+        Uri getUri() {
+            return collection;
+        }
+
+        @Override
+        public List<MediaItem> loadAfter(MediaItem last, int limit) {
+            long start = System.nanoTime();
+            List<MediaItem> window = new ArrayList<>(limit);
+            String where = selection;
+            String[] args;
+            if (last == null) {
+                args = new String[]{folderArg};
+            } else {
+                where += AFTER;
+                args = new String[]{folderArg, String.valueOf(last.dateAdded), String.valueOf(last.dateAdded),
+                        String.valueOf(last.id)};
+            }
+            try (Cursor cursor = query(where, args, limit)) {
+                // Si el proveedor ignora el límite se leen igualmente solo limit filas
+                readItems(cursor, limit, window, null);
+            } catch (Exception e) {
+                // Como antes: una colección ilegible se muestra vacía (la ventana corta la da por terminada)
+                Log.w(TAG, "loadAfter " + (isVideo ? "videos" : "images") + " error", e);
+            }
+            WINDOW_TIME.recordSince(start);
+            return window;
+        }
+
+        /**
+         * Filas con GENERATION_MODIFIED &gt; {@code generation} (Android R+): altas y modificaciones
+         * en {@code upserts}; las enviadas a la papelera, que ya no se muestran, en {@code trashed}.
+         * false si la consulta falla.
+         */
+        boolean loadChangedSince(long generation, List<MediaItem> upserts, List<Long> trashed) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return false;
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                    selection + " AND " + MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?");
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS,
+                    new String[]{folderArg, String.valueOf(generation)});
+            queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+            String[] projection = Arrays.copyOf(PROJECTION, PROJECTION.length + 1);
+            projection[PROJECTION.length] = MediaStore.MediaColumns.IS_TRASHED;
+            try (Cursor cursor = resolver.query(collection, projection, queryArgs, null)) {
+                if (cursor == null) return false;
+                readItems(cursor, Integer.MAX_VALUE, upserts, trashed);
+                return true;
+            } catch (Exception e) {
+                Log.w(TAG, "loadChangedSince error", e);
+                return false;
+            }
+        }
+
+        /** {_ID -&gt; DATE_MODIFIED} de toda la colección (solo dos columnas), o null si falla. */
+        Map<Long, Long> scanIds() {
+            Map<Long, Long> ids = new HashMap<>();
+            String[] projection = {MediaStore.MediaColumns._ID, MediaStore.MediaColumns.DATE_MODIFIED};
+            try (Cursor cursor = resolver.query(collection, projection, selection, new String[]{folderArg}, null)) {
+                if (cursor == null) return null;
+                while (cursor.moveToNext()) ids.put(cursor.getLong(0), cursor.getLong(1));
+                return ids;
+            } catch (Exception e) {
+                Log.w(TAG, "scanIds error", e);
+                return null;
+            }
+        }
+
+        /** Items de los {@code ids} dados que sigan existiendo. */
+        List<MediaItem> loadIds(Collection<Long> ids) {
+            List<MediaItem> items = new ArrayList<>(ids.size());
+            List<Long> all = new ArrayList<>(ids);
+            for (int from = 0; from < all.size(); from += MAX_IDS_PER_QUERY) {
+                List<Long> chunk = all.subList(from, Math.min(all.size(), from + MAX_IDS_PER_QUERY));
+                StringBuilder in = new StringBuilder(MediaStore.MediaColumns._ID).append(" IN (");
+                String[] args = new String[chunk.size()];
+                for (int i = 0; i < args.length; i++) {
+                    in.append(i == 0 ? "?" : ",?");
+                    args[i] = String.valueOf(chunk.get(i));
+                }
+                try (Cursor cursor = resolver.query(collection, PROJECTION, in.append(')').toString(), args, null)) {
+                    readItems(cursor, Integer.MAX_VALUE, items, null);
+                } catch (Exception e) {
+                    Log.w(TAG, "loadIds error", e);
+                }
+            }
+            return items;
+        }
+
+        // Convierte filas en MediaItem; con {@code trashed} != null separa las que están en la papelera
+        private void readItems(Cursor cursor, int limit, List<MediaItem> out, List<Long> trashed) {
+            if (cursor == null) return;
+            int idCol = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns._ID);
+            int dateCol = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_ADDED);
+            int modifiedCol = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED);
+            int trashedCol = trashed != null ? cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.IS_TRASHED) : -1;
+            int read = 0;
+            while (read < limit && cursor.moveToNext()) {
+                read++;
+                long id = cursor.getLong(idCol);
+                if (trashedCol >= 0 && cursor.getInt(trashedCol) != 0) {
+                    trashed.add(id);
+                    continue;
+                }
+                Uri uri = ContentUris.withAppendedId(collection, id);
+                out.add(new MediaItem(uri, isVideo, id, cursor.getLong(dateCol), cursor.getLong(modifiedCol)));
+            }
+        }
+
+        private Cursor query(String where, String[] args, int limit) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                Bundle queryArgs = new Bundle();
+                queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, where);
+                queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, args);
+                queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, SORT);
+                queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+                return resolver.query(collection, PROJECTION, queryArgs, null);
+            }
+            return resolver.query(collection, PROJECTION, where, args, SORT + " LIMIT " + limit);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.david.smartcamerax.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * OcrIndex
+ * <p>
+ * Índice invertido del texto reconocido en las fotos de la app: token -> IDs de MediaStore.
+ * - Tokens: texto normalizado (minúsculas, sin acentos) partido por todo lo que no sea letra o
+ *   dígito; se guardan los de al menos MIN_TOKEN_LENGTH caracteres (los números siempre: "4711").
+ * - Los tokens están en un TreeMap, así que la búsqueda por prefijo es un subMap: search("fact 47")
+ *   devuelve las fotos con algún token que empiece por "fact" Y alguno que empiece por "47".
+ * - Incremental: cada documento guarda el DATE_MODIFIED con el que se indexó; needsIndexing() dice
+ *   si una foto es nueva o cambió, y retainOnly() olvida las que ya no existen.
+ * - Persistencia: fichero binario con los documentos (id, fecha, tokens); el índice invertido se
+ *   reconstruye al cargar. save() escribe a un temporal y lo renombra.
+ *
+ * Thread-safe (métodos sincronizados): el indexador escribe en segundo plano mientras la galería busca.
+ */
+public final class OcrIndex {
+
+    public static final String FILE_NAME = "ocr_index.bin";
+    static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAGIC = 0x4f435231; // "OCR1"
+
+    // Documento indexado: fecha de modificación con la que se procesó y sus tokens únicos
+    private static final class Doc {
+        final long dateModified;
+        final String[] tokens;
+
+        Doc(long dateModified, String[] tokens) {
+            this.dateModified = dateModified;
+            this.tokens = tokens;
+        }
+    }
+
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+    private boolean dirty;
+
+    /** true si {@code id} no está indexado o se indexó con otra fecha de modificación. */
+    public synchronized boolean needsIndexing(long id, long dateModified) {
+        Doc doc = docs.get(id);
+        return doc == null || doc.dateModified != dateModified;
+    }
+
+    /** Indexa (o reindexa) el texto de una foto; {@code text} puede ser vacío (foto sin texto). */
+    public synchronized void put(long id, long dateModified, String text) {
+        removeInternal(id);
+        Set<String> unique = new LinkedHashSet<>(tokenize(text));
+        String[] tokens = unique.toArray(new String[0]);
+        docs.put(id, new Doc(dateModified, tokens));
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, k -> new HashSet<>()).add(id);
+        }
+        dirty = true;
+    }
+
+    public synchronized void remove(long id) {
+        if (removeInternal(id)) dirty = true;
+    }
+
+    /** Olvida los documentos que no estén en {@code ids} (fotos borradas); devuelve cuántos. */
+    public synchronized int retainOnly(Collection<Long> ids) {
+        Set<Long> keep = new HashSet<>(ids);
+        List<Long> gone = new ArrayList<>();
+        for (Long id : docs.keySet()) {
+            if (!keep.contains(id)) gone.add(id);
+        }
+        for (Long id : gone) removeInternal(id);
+        if (!gone.isEmpty()) dirty = true;
+        return gone.size();
+    }
+
+    private boolean removeInternal(long id) {
+        Doc old = docs.remove(id);
+        if (old == null) return false;
+        for (String token : old.tokens) {
+            Set<Long> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) postings.remove(token);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * IDs de las fotos que contienen, para cada término de la consulta, algún token que empiece por
+     * él. Ordenados de mayor a menor (en MediaStore, lo más reciente primero). Consulta vacía: nada.
+     */
+    public synchronized List<Long> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return new ArrayList<>();
+        Set<Long> result = null;
+        for (String term : new LinkedHashSet<>(terms)) {
+            Set<Long> matches = new HashSet<>();
+            NavigableMap<String, Set<Long>> range = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+            for (Set<Long> ids : range.values()) {
+                if (result == null) {
+                    matches.addAll(ids);
+                } else {
+                    // Solo hace falta conservar los que ya cumplían los términos anteriores
+                    for (Long id : ids) {
+                        if (result.contains(id)) matches.add(id);
+                    }
+                }
+            }
+            result = matches;
+            if (result.isEmpty()) break;
+        }
+        return new ArrayList<>(new TreeSet<>(result).descendingSet());
+    }
+
+    public synchronized int size() {
+        return docs.size();
+    }
+
+    public synchronized int tokenCount() {
+        return postings.size();
+    }
+
+    /** true si hay cambios sin guardar. */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /** Normaliza y parte {@code text} en tokens (en orden, con repeticiones). */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) return tokens;
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        int start = -1;
+        boolean digits = true;
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) {
+                    start = i;
+                    digits = true;
+                }
+                digits &= Character.isDigit(c);
+            } else if (start >= 0) {
+                if (digits || i - start >= MIN_TOKEN_LENGTH) tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // --- Persistencia ---
+
+    public synchronized void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(docs.size());
+        for (Map.Entry<Long, Doc> e : docs.entrySet()) {
+            data.writeLong(e.getKey());
+            data.writeLong(e.getValue().dateModified);
+            data.writeInt(e.getValue().tokens.length);
+            for (String token : e.getValue().tokens) data.writeUTF(token);
+        }
+        data.flush();
+    }
+
+    public static OcrIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) throw new IOException("Formato de índice OCR desconocido");
+        OcrIndex index = new OcrIndex();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = data.readLong();
+            long dateModified = data.readLong();
+            String[] tokens = new String[data.readInt()];
+            for (int t = 0; t < tokens.length; t++) tokens[t] = data.readUTF();
+            index.docs.put(id, new Doc(dateModified, tokens));
+            for (String token : tokens) {
+                index.postings.computeIfAbsent(token, k -> new HashSet<>()).add(id);
+            }
+        }
+        return index;
+    }
+
+    /** Carga {@code file}; si no existe devuelve un índice vacío (se indexará todo). */
+    public static OcrIndex load(File file) throws IOException {
+        if (!file.exists()) return new OcrIndex();
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /** Escribe a un temporal y lo renombra, para no dejar un índice a medias si el proceso muere. */
+    public synchronized void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            write(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("No se pudo renombrar " + tmp + " a " + file);
+        }
+        dirty = false;
+    }
+}
@@ -0,0 +1,302 @@
+package com.david.smartcamerax.storage;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import com.david.smartcamerax.analyzers.AnalysisResult;
+import com.david.smartcamerax.analyzers.Detector;
+import com.david.smartcamerax.analyzers.DetectorInput;
+import com.david.smartcamerax.analyzers.MlKitTextDetector;
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * OcrIndexer
+ * <p>
+ * Indexador en segundo plano del texto de las fotos de la app (Pictures/SmartCameraX), uno por
+ * proceso (get()):
+ * - requestUpdate() encola una pasada en un hilo propio de baja prioridad; las peticiones que llegan
+ *   mientras hay una pendiente se funden en ella.
+ * - Cada pasada consulta MediaStore (_ID, DATE_MODIFIED), olvida las fotos borradas y reconoce solo
+ *   las nuevas o modificadas (OcrIndex.needsIndexing): decodifica la foto reducida (lado largo
+ *   &lt;= MAX_SIDE, con su orientación EXIF) y pasa MlKitTextDetector, el mismo adaptador que usa el
+ *   modo inteligente.
+ * - El índice se guarda en filesDir/{@link OcrIndex#FILE_NAME} cada SAVE_EVERY fotos y al terminar,
+ *   así que una pasada interrumpida no se repite entera.
+ * - search() consulta el índice en memoria (milisegundos, sin tocar las imágenes); los listeners se
+ *   avisan (en el hilo del indexador) al cargar el índice y cada vez que se guarda.
+ */
+public final class OcrIndexer {
+
+    public interface Listener {
+        /** El índice cambió (cargado, fotos nuevas indexadas o borradas). */
+        void onIndexUpdated(int indexedPhotos);
+    }
+
+    private static final String TAG = "OcrIndexer";
+    // Suficiente para leer texto de documento sin decodificar la foto completa
+    private static final int MAX_SIDE = 2048;
+    private static final int SAVE_EVERY = 20;
+    private static final long RECOGNIZE_TIMEOUT_S = 20;
+
+    private static final LatencyHistogram ITEM_TIME = Metrics.histogram("ocr.index_item");
+    private static final LatencyHistogram SEARCH_TIME = Metrics.histogram("ocr.search");
+    private static final Counter INDEXED = Metrics.counter("ocr.indexed");
+    private static final Counter ERRORS = Metrics.counter("ocr.errors");
+
+    private static volatile OcrIndexer instance;
+
+    private final Context appContext;
+    private final File file;
+    private final ExecutorService executor;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Vacío hasta que la primera pasada cargue el fichero (solo el hilo del indexador lo reemplaza)
+    private volatile OcrIndex index = new OcrIndex();
+    private boolean loaded;
+
+    private OcrIndexer(Context appContext) {
+        this.appContext = appContext;
+        this.file = new File(appContext.getFilesDir(), OcrIndex.FILE_NAME);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ocr-indexer");
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static OcrIndexer get(Context context) {
+        OcrIndexer i = instance;
+        if (i == null) {
+            synchronized (OcrIndexer.class) {
+                i = instance;
+                if (i == null) {
+                    i = new OcrIndexer(context.getApplicationContext());
+                    instance = i;
+                }
+            }
+        }
+        return i;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Pide una pasada incremental (no bloquea; si ya hay una pendiente no se encola otra). */
+    public void requestUpdate() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::update);
+        }
+    }
+
+    /** IDs de MediaStore de las fotos cuyo texto contiene todos los términos (por prefijo). */
+    public List<Long> search(String query) {
+        long start = System.nanoTime();
+        List<Long> ids = index.search(query);
+        SEARCH_TIME.recordSince(start);
+        return ids;
+    }
+
+    public int getIndexedCount() {
+        return index.size();
+    }
+
+    // Solo en el hilo del indexador
+    private void update() {
+        scheduled.set(false);
+        if (!loaded) {
+            try {
+                index = OcrIndex.load(file);
+            } catch (IOException e) {
+                Log.w(TAG, "Índice OCR ilegible, se reconstruye", e);
+                index = new OcrIndex();
+            }
+            loaded = true;
+            notifyUpdated();
+        }
+
+        List<long[]> photos = queryPhotos();
+        // Sin resultado fiable de MediaStore no se borra nada del índice
+        if (photos == null) return;
+        List<Long> ids = new ArrayList<>(photos.size());
+        for (long[] photo : photos) ids.add(photo[0]);
+        int removed = index.retainOnly(ids);
+
+        Detector detector = null;
+        int sinceSave = removed;
+        try {
+            for (long[] photo : photos) {
+                long id = photo[0];
+                long dateModified = photo[1];
+                if (!index.needsIndexing(id, dateModified)) continue;
+                if (detector == null) detector = new MlKitTextDetector();
+                long start = System.nanoTime();
+                try {
+                    index.put(id, dateModified, recognize(detector, id));
+                    INDEXED.inc();
+                    ITEM_TIME.recordSince(start);
+                } catch (Exception e) {
+                    // Fallo transitorio de ML Kit: se reintenta en la siguiente pasada
+                    ERRORS.inc();
+                    Log.w(TAG, "No se pudo indexar " + id, e);
+                    continue;
+                }
+                if (++sinceSave >= SAVE_EVERY) {
+                    save();
+                    sinceSave = 0;
+                }
+            }
+        } finally {
+            if (detector != null) detector.close();
+        }
+        if (index.isDirty()) save();
+    }
+
+    private void save() {
+        try {
+            index.save(file);
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo guardar el índice OCR", e);
+        }
+        notifyUpdated();
+    }
+
+    private void notifyUpdated() {
+        int count = index.size();
+        for (Listener listener : listeners) listener.onIndexUpdated(count);
+    }
+
+    // {_ID, DATE_MODIFIED} de las fotos de la app, las más recientes primero; null si la consulta falla
+    private List<long[]> queryPhotos() {
+        List<long[]> photos = new ArrayList<>();
+        String[] projection = {MediaStore.Images.Media._ID, MediaStore.Images.Media.DATE_MODIFIED};
+        String selection;
+        String[] selectionArgs;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            selection = MediaStore.Images.Media.RELATIVE_PATH + " LIKE ?";
+            selectionArgs = new String[]{"%" + ImageStore.RELATIVE_PATH + "%"};
+        } else {
+            selection = MediaStore.Images.Media.DISPLAY_NAME + " LIKE ?";
+            selectionArgs = new String[]{"%SmartCameraX%"};
+        }
+        try (Cursor cursor = appContext.getContentResolver().query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                projection, selection, selectionArgs, MediaStore.Images.Media._ID + " DESC")) {
+            if (cursor == null) return null;
+            int idCol = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+            int dateCol = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_MODIFIED);
+            while (cursor.moveToNext()) {
+                photos.add(new long[]{cursor.getLong(idCol), cursor.getLong(dateCol)});
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "queryPhotos error", e);
+            return null;
+        }
+        return photos;
+    }
+
+    // Texto reconocido en la foto ("" si no se puede decodificar: no se reintenta hasta que cambie)
+    private String recognize(Detector detector, long id) throws Exception {
+        Uri uri = ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id);
+        Bitmap bitmap = decodeScaled(appContext.getContentResolver(), uri);
+        if (bitmap == null) return "";
+        // Solo se recicla cuando ML Kit ya no puede leerlo: tras su callback o si detect() ni empezó
+        boolean released = true;
+        try {
+            DetectorInput input = DetectorInput.ofNativeImage(bitmap, bitmap.getWidth(), bitmap.getHeight(),
+                    readRotation(appContext.getContentResolver(), uri), System.nanoTime());
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<AnalysisResult> result = new AtomicReference<>();
+            AtomicReference<Exception> error = new AtomicReference<>();
+            detector.detect(input, new Detector.Callback() {
+                @Override
+                public void onSuccess(AnalysisResult r) {
+                    result.set(r);
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    error.set(e);
+                    done.countDown();
+                }
+            });
+            // Desde aquí ML Kit puede estar leyendo el bitmap (también si se interrumpe la espera)
+            released = false;
+            released = done.await(RECOGNIZE_TIMEOUT_S, TimeUnit.SECONDS);
+            // Con timeout la tarea puede seguir leyendo el bitmap: se deja al GC
+            if (!released) throw new IOException("Timeout reconociendo " + uri);
+            if (error.get() != null) throw error.get();
+            StringBuilder text = new StringBuilder();
+            for (AnalysisResult.Item item : result.get().getItems(AnalysisResult.Kind.TEXT)) {
+                text.append(item.getValue()).append('\n');
+            }
+            return text.toString();
+        } finally {
+            if (released) bitmap.recycle();
+        }
+    }
+
+    private static Bitmap decodeScaled(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (Math.max(bounds.outWidth, bounds.outHeight) / options.inSampleSize > MAX_SIDE) {
+            options.inSampleSize *= 2;
+        }
+        try (InputStream in = resolver.openInputStream(uri)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+
+    private static int readRotation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return 0;
+            switch (new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.david.smartcamerax.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ScanDedupeCache
+ * <p>
+ * Caché LRU + TTL por valor de código para no registrar el mismo código una y otra vez mientras sigue
+ * en el encuadre:
+ * - shouldRecord(valor, ahora) devuelve true la primera vez y cuando el código lleva más de
+ *   {@code ttlMs} sin verse; cada avistamiento renueva su marca, así que un código que no sale del
+ *   encuadre se registra una sola vez.
+ * - updateConfirmed(conjunto, ahora) para resultados estables, que solo llegan cuando el conjunto
+ *   cambia: un código que sigue confirmado cuenta como visto en todo momento y, al salir, su marca es
+ *   la hora de salida. Así, tenerlo delante más que el TTL y que parpadee no lo registra otra vez.
+ * - Como mucho {@code maxEntries} valores (LinkedHashMap en orden de acceso): al superar el tamaño se
+ *   descarta el menos reciente, sin barridos periódicos.
+ *
+ * Tiempos en milisegundos monótonos pasados por el llamador (SystemClock.elapsedRealtime() en la app),
+ * para poder probarlo en la JVM. Sincronizada: se llama desde el hilo principal y se puede consultar
+ * desde otros.
+ */
+public class ScanDedupeCache {
+
+    private final long ttlMs;
+    private final LinkedHashMap<String, Long> lastSeen;
+
+    // Códigos del último conjunto confirmado (updateConfirmed)
+    private Set<String> confirmed = new LinkedHashSet<>();
+
+    private long recorded;
+    private long suppressed;
+
+    public ScanDedupeCache(final int maxEntries, long ttlMs) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries < 1");
+        this.ttlMs = ttlMs;
+        this.lastSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** true si {@code key} hay que registrarlo (nuevo o caducado); en ambos casos renueva su marca. */
+    public synchronized boolean shouldRecord(String key, long nowMs) {
+        Long previous = lastSeen.put(key, nowMs);
+        if (previous != null && nowMs - previous <= ttlMs) {
+            suppressed++;
+            return false;
+        }
+        recorded++;
+        return true;
+    }
+
+    /**
+     * Nuevo conjunto de códigos confirmados (resultado estable del analizador; vacío si no queda
+     * ninguno). Los que siguen confirmados no se vuelven a evaluar; los que salen quedan marcados con
+     * {@code nowMs}.
+     *
+     * @return los códigos que entran al conjunto y hay que registrar (nuevos o caducados)
+     */
+    public synchronized List<String> updateConfirmed(Collection<String> keys, long nowMs) {
+        Set<String> current = new LinkedHashSet<>(keys);
+        List<String> toRecord = new ArrayList<>();
+        for (String key : current) {
+            if (confirmed.contains(key)) {
+                lastSeen.put(key, nowMs);
+            } else if (shouldRecord(key, nowMs)) {
+                toRecord.add(key);
+            }
+        }
+        for (String key : confirmed) {
+            if (!current.contains(key)) lastSeen.put(key, nowMs);
+        }
+        confirmed = current;
+        return toRecord;
+    }
+
+    public synchronized int size() {
+        return lastSeen.size();
+    }
+
+    public synchronized void clear() {
+        lastSeen.clear();
+        confirmed.clear();
+    }
+
+    public synchronized long getRecorded() {
+        return recorded;
+    }
+
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+}
@@ -0,0 +1,103 @@
+package com.david.smartcamerax.storage;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.david.smartcamerax.analyzers.AnalysisResult;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ScanHistory
+ * <p>
+ * Punto de entrada del historial de escaneos, uno por proceso (get()):
+ * - record(): recibe cada resultado estable del analizador (también los vacíos) y ScanDedupeCache
+ *   decide qué códigos son escaneos nuevos: los que entran al conjunto confirmado sin haberse visto en
+ *   los últimos DEDUPE_TTL_MS. Un código cuenta como visto mientras siga confirmado, así que tenerlo
+ *   delante mucho rato y que parpadee no lo registra dos veces. Solo esos se encolan en
+ *   ScanHistoryWriter. Barato: se puede llamar desde el hilo principal.
+ * - El escritor vuelca a ScanHistoryStore en lotes (BATCH_SIZE o BATCH_DELAY_MS).
+ * - getStore() para leer y paginar; flushAndWait() antes de leer para incluir lo último escaneado.
+ */
+public final class ScanHistory {
+
+    // Un código que sigue en el encuadre (o vuelve antes de 10 s) no se registra otra vez
+    private static final long DEDUPE_TTL_MS = 10_000;
+    private static final int DEDUPE_MAX_ENTRIES = 256;
+    private static final int BATCH_SIZE = 32;
+    private static final long BATCH_DELAY_MS = 2_000;
+
+    private static volatile ScanHistory instance;
+
+    private final ScanHistoryStore store;
+    private final ScanDedupeCache dedupe = new ScanDedupeCache(DEDUPE_MAX_ENTRIES, DEDUPE_TTL_MS);
+    private final ScanHistoryWriter writer;
+
+    private ScanHistory(Context appContext) {
+        this.store = new ScanHistoryStore(appContext);
+        this.writer = new ScanHistoryWriter(store, BATCH_SIZE, BATCH_DELAY_MS);
+    }
+
+    public static ScanHistory get(Context context) {
+        ScanHistory h = instance;
+        if (h == null) {
+            synchronized (ScanHistory.class) {
+                h = instance;
+                if (h == null) {
+                    h = new ScanHistory(context.getApplicationContext());
+                    instance = h;
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Registra los códigos nuevos de {@code result} (el conjunto estable completo, no solo lo que
+     * cambió); devuelve cuántos se encolaron.
+     */
+    public int record(AnalysisResult result) {
+        long now = SystemClock.elapsedRealtime();
+        long wallClock = System.currentTimeMillis();
+        Map<String, Integer> formats = new LinkedHashMap<>();
+        for (AnalysisResult.Item item : result.getItems(AnalysisResult.Kind.BARCODE)) {
+            if (item.getValue() == null || item.getValue().isEmpty()) continue;
+            formats.put(item.getValue(), item.getFormat());
+        }
+        List<String> fresh = dedupe.updateConfirmed(formats.keySet(), now);
+        for (String value : fresh) {
+            writer.enqueue(ScanRecord.of(value, formats.get(value), wallClock));
+        }
+        return fresh.size();
+    }
+
+    /** El analizador se paró: lo confirmado hasta ahora se da por visto por última vez ahora. */
+    public void clearConfirmed() {
+        dedupe.updateConfirmed(Collections.emptyList(), SystemClock.elapsedRealtime());
+    }
+
+    /** Vuelca lo pendiente sin esperar (p.ej. al salir de la cámara). */
+    public void flush() {
+        writer.flush();
+    }
+
+    /** Vuelca lo pendiente y espera; solo desde un hilo de fondo. */
+    public void flushAndWait() throws InterruptedException {
+        writer.flushAndWait(2_000);
+    }
+
+    public ScanHistoryStore getStore() {
+        return store;
+    }
+
+    public ScanDedupeCache getDedupe() {
+        return dedupe;
+    }
+
+    public ScanHistoryWriter getWriter() {
+        return writer;
+    }
+}
@@ -0,0 +1,118 @@
+package com.david.smartcamerax.storage;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ScanHistoryStore
+ * <p>
+ * Historial de escaneos en SQLite (tabla "scans", índice por (ts, id)).
+ * - write(): un lote por transacción con una sentencia compilada reutilizada (Sink de ScanHistoryWriter).
+ * - page(): paginación por cursor (keyset) en orden más reciente primero: la página siguiente empieza
+ *   después del último (ts, id) mostrado, así que cuesta lo mismo en la página 1 que en la 100 (OFFSET
+ *   recorrería todas las filas anteriores) y no se duplican filas si entran escaneos nuevos mientras
+ *   se pagina.
+ * - Filtro opcional por subcadena del valor.
+ *
+ * Las llamadas hacen E/S: no usar en el hilo principal.
+ */
+public class ScanHistoryStore extends SQLiteOpenHelper implements ScanHistoryWriter.Sink {
+
+    private static final String DB_NAME = "scan_history.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "scans";
+
+    public ScanHistoryStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "value TEXT NOT NULL, "
+                + "format INTEGER NOT NULL, "
+                + "ts INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_scans_ts ON " + TABLE + " (ts DESC, id DESC)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Sin migraciones todavía (versión 1)
+    }
+
+    @Override
+    public void write(List<ScanRecord> batch) throws IOException {
+        try {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try (SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO " + TABLE + " (value, format, ts) VALUES (?, ?, ?)")) {
+                for (ScanRecord record : batch) {
+                    insert.bindString(1, record.value);
+                    insert.bindLong(2, record.format);
+                    insert.bindLong(3, record.timestampMs);
+                    insert.executeInsert();
+                    insert.clearBindings();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (RuntimeException e) {
+            // SQLiteException y similares: el escritor reencola el lote
+            throw new IOException("Error escribiendo " + batch.size() + " escaneos", e);
+        }
+    }
+
+    /**
+     * Página de como mucho {@code limit} escaneos, del más reciente al más antiguo.
+     * @param after  último escaneo de la página anterior (null para la primera)
+     * @param filter subcadena que debe contener el valor (null o vacío = todos)
+     */
+    public List<ScanRecord> page(ScanRecord after, String filter, int limit) {
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        if (after != null) {
+            where.append("(ts < ? OR (ts = ? AND id < ?))");
+            args.add(Long.toString(after.timestampMs));
+            args.add(Long.toString(after.timestampMs));
+            args.add(Long.toString(after.id));
+        }
+        if (filter != null && !filter.isEmpty()) {
+            if (where.length() > 0) where.append(" AND ");
+            where.append("value LIKE ? ESCAPE '\\'");
+            args.add("%" + escapeLike(filter) + "%");
+        }
+        List<ScanRecord> result = new ArrayList<>(limit);
+        try (Cursor c = getReadableDatabase().query(TABLE, new String[]{"id", "value", "format", "ts"},
+                where.length() > 0 ? where.toString() : null, args.toArray(new String[0]),
+                null, null, "ts DESC, id DESC", Integer.toString(limit))) {
+            while (c.moveToNext()) {
+                result.add(new ScanRecord(c.getLong(0), c.getString(1), c.getInt(2), c.getLong(3)));
+            }
+        }
+        return result;
+    }
+
+    public long count() {
+        try (Cursor c = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    public void clear() {
+        getWritableDatabase().delete(TABLE, null, null);
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,182 @@
+package com.david.smartcamerax.storage;
+
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ScanHistoryWriter
+ * <p>
+ * Escritor en lotes del historial de escaneos: enqueue() solo añade a una lista en memoria y un hilo
+ * de fondo vuelca al Sink (SQLite en la app) un lote por transacción, en vez de una escritura por
+ * escaneo:
+ * - Se vuelca al llegar a {@code maxBatch} pendientes o a los {@code maxDelayMs} del primero que
+ *   quedó pendiente, lo que ocurra antes.
+ * - Un único hilo escribe, así que el Sink nunca se llama en paralelo.
+ * - Si el Sink falla, el lote vuelve a la cola (hasta {@code maxPending}; lo más antiguo se descarta
+ *   después) y se reintenta en el siguiente volcado.
+ * - flush() fuerza un volcado (p.ej. antes de leer el historial); close() vuelca lo pendiente y para
+ *   el hilo.
+ */
+public class ScanHistoryWriter implements Closeable {
+
+    /** Destino de los lotes; se llama siempre desde el hilo del escritor. */
+    public interface Sink {
+        void write(List<ScanRecord> batch) throws IOException;
+    }
+
+    // Métricas: escaneos encolados, lotes escritos (tiempo por lote), fallos y descartes
+    private static final Counter ENQUEUED = Metrics.counter("history.enqueued");
+    private static final LatencyHistogram BATCH_WRITE = Metrics.histogram("history.batch_write");
+    private static final Counter WRITE_ERRORS = Metrics.counter("history.write_errors");
+    private static final Counter DROPPED = Metrics.counter("history.dropped");
+
+    private final Sink sink;
+    private final int maxBatch;
+    private final long maxDelayMs;
+    private final int maxPending;
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "scan-history-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Guardados por this
+    private List<ScanRecord> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    private boolean closed;
+    private long batches;
+    private long written;
+
+    public ScanHistoryWriter(Sink sink, int maxBatch, long maxDelayMs) {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch < 1");
+        this.sink = sink;
+        this.maxBatch = maxBatch;
+        this.maxDelayMs = maxDelayMs;
+        this.maxPending = maxBatch * 20;
+        // close() vuelca con una tarea inmediata; los volcados diferidos no deben retrasar el cierre
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /** Añade un escaneo a la cola (no bloquea ni toca disco). Tras close() se ignora. */
+    public void enqueue(ScanRecord record) {
+        synchronized (this) {
+            if (closed) return;
+            pending.add(record);
+            ENQUEUED.inc();
+            if (pending.size() >= maxBatch) {
+                flushScheduled = true;
+                executor.execute(this::drain);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::drain, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Vuelca lo pendiente en el hilo del escritor; el Future termina cuando está escrito. */
+    public Future<?> flush() {
+        synchronized (this) {
+            // Dentro del lock: close() marca closed antes de parar el executor, así que lo que se
+            // encola aquí nunca se rechaza. Cerrado, close() ya volcó lo pendiente
+            if (!closed) return executor.submit(this::drain);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** flush() y espera como mucho {@code timeoutMs}. */
+    public void flushAndWait(long timeoutMs) throws InterruptedException {
+        try {
+            flush().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // El lote sigue en la cola; se reintenta en el siguiente volcado
+        }
+    }
+
+    // Solo en el hilo del escritor
+    private void drain() {
+        List<ScanRecord> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        // Lotes de como mucho maxBatch: transacciones cortas aunque se haya acumulado mucho
+        int done = 0;
+        try {
+            while (done < batch.size()) {
+                int end = Math.min(batch.size(), done + maxBatch);
+                long start = System.nanoTime();
+                sink.write(batch.subList(done, end));
+                BATCH_WRITE.recordSince(start);
+                synchronized (this) {
+                    batches++;
+                    written += end - done;
+                }
+                done = end;
+            }
+        } catch (IOException | RuntimeException e) {
+            WRITE_ERRORS.inc();
+            // Lo ya escrito no se reintenta
+            requeue(batch.subList(done, batch.size()));
+        }
+    }
+
+    private void requeue(List<ScanRecord> failed) {
+        synchronized (this) {
+            List<ScanRecord> merged = new ArrayList<>(failed.size() + pending.size());
+            merged.addAll(failed);
+            merged.addAll(pending);
+            int overflow = merged.size() - maxPending;
+            if (overflow > 0) {
+                DROPPED.add(overflow);
+                merged = new ArrayList<>(merged.subList(overflow, merged.size()));
+            }
+            pending = merged;
+            if (!closed && !flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::drain, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /** Vuelca lo pendiente (esperando como mucho 2 s) y para el hilo. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        executor.execute(this::drain);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
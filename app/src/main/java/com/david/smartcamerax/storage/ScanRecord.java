@@ -0,0 +1,49 @@
+package com.david.smartcamerax.storage;
+
+import java.util.Objects;
+
+/**
+ * ScanRecord
+ * <p>
+ * Una entrada del historial de escaneos: valor leído, formato (constantes Barcode.FORMAT_* de ML Kit)
+ * y hora del escaneo en milisegundos desde epoch. {@code id} es la clave de la base de datos
+ * (0 mientras no se ha guardado); la paginación usa (timestampMs, id) como cursor.
+ */
+public final class ScanRecord {
+
+    public final long id;
+    public final String value;
+    public final int format;
+    public final long timestampMs;
+
+    public ScanRecord(long id, String value, int format, long timestampMs) {
+        this.id = id;
+        this.value = value;
+        this.format = format;
+        this.timestampMs = timestampMs;
+    }
+
+    /** Escaneo nuevo, aún sin id. */
+    public static ScanRecord of(String value, int format, long timestampMs) {
+        return new ScanRecord(0, value, format, timestampMs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScanRecord)) return false;
+        ScanRecord other = (ScanRecord) o;
+        return id == other.id && format == other.format && timestampMs == other.timestampMs
+                && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, value, format, timestampMs);
+    }
+
+    @Override
+    public String toString() {
+        return "ScanRecord{" + id + ", " + value + ", format=" + format + ", t=" + timestampMs + "}";
+    }
+}
@@ -0,0 +1,189 @@
+package com.david.smartcamerax.storage;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ThumbnailUtils;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Log;
+import android.util.Size;
+
+import com.david.smartcamerax.MediaItem;
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+import com.david.smartcamerax.utils.SizedLruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ThumbnailCache
+ * <p>
+ * Miniaturas de la galería en dos niveles, una instancia por proceso (get()):
+ * 1. Memoria: SizedLruCache de bitmaps con presupuesto en bytes (1/8 del heap, como mucho
+ *    MAX_MEMORY_BYTES). getCached() solo mira aquí y es lo único que se llama en el hilo principal.
+ * 2. Disco: ThumbnailDiskCache en cacheDir/thumbs con JPEG ya reducidos, clave id + DATE_MODIFIED +
+ *    tamaño; decodificar una miniatura de disco es mucho más barato que la foto original.
+ * 3. Origen: en Android Q+ ContentResolver.loadThumbnail() (usa las miniaturas del sistema si
+ *    existen); antes, BitmapFactory con inSampleSize para no decodificar la foto completa, o
+ *    ThumbnailUtils para videos.
+ *
+ * load() es bloqueante: se llama desde los hilos de decodificación de GalleryAdapter. El tamaño
+ * pedido es el lado de la celda en píxeles; la miniatura resultante tiene al menos ese lado corto.
+ */
+public final class ThumbnailCache {
+
+    private static final String TAG = "ThumbnailCache";
+    private static final long MAX_MEMORY_BYTES = 48L * 1024 * 1024;
+    private static final long DISK_BYTES = 64L * 1024 * 1024;
+    private static final int JPEG_QUALITY = 85;
+
+    private static final Counter MEMORY_HITS = Metrics.counter("thumbs.memory_hit");
+    private static final Counter DISK_HITS = Metrics.counter("thumbs.disk_hit");
+    private static final LatencyHistogram DECODE_TIME = Metrics.histogram("thumbs.decode_source");
+    private static final LatencyHistogram DISK_TIME = Metrics.histogram("thumbs.decode_disk");
+
+    private static volatile ThumbnailCache instance;
+
+    private final ContentResolver resolver;
+    private final SizedLruCache<String, Bitmap> memory;
+    private final ThumbnailDiskCache disk;
+
+    private ThumbnailCache(Context appContext) {
+        this.resolver = appContext.getContentResolver();
+        long budget = Math.min(MAX_MEMORY_BYTES, Runtime.getRuntime().maxMemory() / 8);
+        this.memory = new SizedLruCache<>(budget, Bitmap::getAllocationByteCount);
+        this.disk = new ThumbnailDiskCache(new File(appContext.getCacheDir(), "thumbs"), DISK_BYTES);
+    }
+
+    public static ThumbnailCache get(Context context) {
+        ThumbnailCache c = instance;
+        if (c == null) {
+            synchronized (ThumbnailCache.class) {
+                c = instance;
+                if (c == null) {
+                    c = new ThumbnailCache(context.getApplicationContext());
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Miniatura ya en memoria, o null. Barato: apto para onBindViewHolder. */
+    public Bitmap getCached(MediaItem item, int sizePx) {
+        Bitmap bitmap = memory.get(ThumbnailDiskCache.key(item.id, item.dateModified, sizePx));
+        if (bitmap != null) MEMORY_HITS.inc();
+        return bitmap;
+    }
+
+    /** true si la miniatura ya está en memoria (sin tocar estadísticas ni el orden LRU). */
+    public boolean isCached(MediaItem item, int sizePx) {
+        return memory.contains(ThumbnailDiskCache.key(item.id, item.dateModified, sizePx));
+    }
+
+    /** Miniatura de memoria, disco u origen (en ese orden), o null si no se pudo decodificar. Bloqueante. */
+    public Bitmap load(MediaItem item, int sizePx) {
+        String key = ThumbnailDiskCache.key(item.id, item.dateModified, sizePx);
+        Bitmap bitmap = memory.get(key);
+        if (bitmap != null) {
+            MEMORY_HITS.inc();
+            return bitmap;
+        }
+
+        long start = System.nanoTime();
+        byte[] cached = disk.get(key);
+        if (cached != null) {
+            bitmap = BitmapFactory.decodeByteArray(cached, 0, cached.length);
+            if (bitmap != null) {
+                DISK_HITS.inc();
+                DISK_TIME.recordSince(start);
+                memory.put(key, bitmap);
+                return bitmap;
+            }
+        }
+
+        start = System.nanoTime();
+        try {
+            bitmap = decodeSource(item, sizePx);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No se pudo generar la miniatura de " + item.uri, e);
+            return null;
+        }
+        if (bitmap == null) return null;
+        DECODE_TIME.recordSince(start);
+        memory.put(key, bitmap);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+            try {
+                disk.put(key, out.toByteArray());
+            } catch (IOException e) {
+                Log.w(TAG, "No se pudo guardar la miniatura en disco", e);
+            }
+        }
+        return bitmap;
+    }
+
+    /** Libera memoria (p.ej. en onTrimMemory): {@code fraction} = parte del presupuesto a conservar. */
+    public void trimMemory(float fraction) {
+        memory.trimTo((long) (memory.getMaxBytes() * fraction));
+    }
+
+    public String stats() {
+        return "memory " + memory.stats() + " | disk " + disk.stats();
+    }
+
+    private Bitmap decodeSource(MediaItem item, int sizePx) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Bitmap thumb = resolver.loadThumbnail(item.uri, new Size(sizePx, sizePx), null);
+            return scaleDown(thumb, sizePx);
+        }
+        if (item.isVideo) {
+            String path = queryPath(item);
+            Bitmap frame = path != null ? ThumbnailUtils.createVideoThumbnail(path, MediaStore.Images.Thumbnails.MINI_KIND) : null;
+            return frame != null ? scaleDown(frame, sizePx) : null;
+        }
+        // Potencia de 2 más grande que deja el lado corto por encima de la celda
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(item.uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (Math.min(bounds.outWidth, bounds.outHeight) / (options.inSampleSize * 2) >= sizePx) {
+            options.inSampleSize *= 2;
+        }
+        try (InputStream in = resolver.openInputStream(item.uri)) {
+            return scaleDown(BitmapFactory.decodeStream(in, null, options), sizePx);
+        }
+    }
+
+    // Reduce para que el lado corto sea sizePx (inSampleSize y loadThumbnail se quedan por encima)
+    private static Bitmap scaleDown(Bitmap source, int sizePx) {
+        if (source == null) return null;
+        int shortSide = Math.min(source.getWidth(), source.getHeight());
+        if (shortSide <= sizePx) return source;
+        float scale = sizePx / (float) shortSide;
+        Bitmap scaled = Bitmap.createScaledBitmap(source, Math.round(source.getWidth() * scale),
+                Math.round(source.getHeight() * scale), true);
+        if (scaled != source) source.recycle();
+        return scaled;
+    }
+
+    @SuppressWarnings("deprecation")
+    private String queryPath(MediaItem item) {
+        try (android.database.Cursor cursor = resolver.query(item.uri, new String[]{MediaStore.MediaColumns.DATA}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) return cursor.getString(0);
+        } catch (Exception e) {
+            Log.w(TAG, "queryPath error", e);
+        }
+        return null;
+    }
+}
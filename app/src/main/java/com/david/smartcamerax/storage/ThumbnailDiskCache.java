@@ -0,0 +1,145 @@
+package com.david.smartcamerax.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ThumbnailDiskCache
+ * <p>
+ * Caché en disco de miniaturas ya reducidas y codificadas (JPEG), un fichero por clave:
+ * - Clave = id de MediaStore + DATE_MODIFIED + tamaño (key()): una foto editada tiene otra clave y la
+ *   miniatura vieja deja de pedirse y acaba expulsada.
+ * - Índice en memoria (LinkedHashMap en orden de acceso) de nombre -> bytes, construido al abrir con
+ *   el listado del directorio ordenado por fecha de modificación; no se lista el directorio por
+ *   petición. Al superar {@code maxBytes} se borran los ficheros menos usados.
+ * - put() escribe a un temporal y lo renombra: un fichero a medias nunca se lee como miniatura.
+ *
+ * Sin dependencias de Android (bytes ya codificados) para probarla en la JVM. Sincronizada: la usan
+ * los hilos de decodificación.
+ */
+public class ThumbnailDiskCache {
+
+    private static final String SUFFIX = ".jpg";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final File dir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+    private boolean opened;
+
+    public ThumbnailDiskCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Clave de la miniatura de {@code id} modificada en {@code dateModified} a {@code sizePx}. */
+    public static String key(long id, long dateModified, int sizePx) {
+        return id + "_" + dateModified + "_" + sizePx;
+    }
+
+    /** Bytes de la miniatura, o null si no está (o no se pudo leer: se olvida). */
+    public synchronized byte[] get(String key) {
+        open();
+        String name = key + SUFFIX;
+        Long size = entries.get(name);
+        if (size == null) return null;
+        File file = new File(dir, name);
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) throw new IOException("Fichero truncado: " + file);
+                read += n;
+            }
+            // Orden LRU también entre procesos (el índice se reconstruye por fecha de modificación)
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            entries.remove(name);
+            bytes -= size;
+            file.delete();
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, byte[] data) throws IOException {
+        open();
+        String name = key + SUFFIX;
+        File tmp = new File(dir, name + TMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+        }
+        File file = new File(dir, name);
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("No se pudo renombrar " + tmp + " a " + file);
+        }
+        Long previous = entries.put(name, (long) data.length);
+        if (previous != null) bytes -= previous;
+        bytes += data.length;
+        trim();
+    }
+
+    public synchronized void clear() {
+        open();
+        for (String name : entries.keySet()) new File(dir, name).delete();
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        open();
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        open();
+        return bytes;
+    }
+
+    // Carga perezosa del índice: la primera operación lista el directorio una sola vez
+    private void open() {
+        if (opened) return;
+        opened = true;
+        if (!dir.isDirectory() && !dir.mkdirs()) return;
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TMP_SUFFIX)) {
+                file.delete();
+            } else if (name.endsWith(SUFFIX)) {
+                entries.put(name, file.length());
+                bytes += file.length();
+            }
+        }
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            new File(dir, eldest.getKey()).delete();
+            bytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "files=%d bytes=%d/%d", entries.size(), bytes, maxBytes);
+    }
+}
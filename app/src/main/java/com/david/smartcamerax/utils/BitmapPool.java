@@ -0,0 +1,97 @@
+package com.david.smartcamerax.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * BitmapPool
+ * <p>
+ * Pool de bitmaps mutables indexado por tamaño y configuración, con un presupuesto máximo de bytes
+ * para los bitmaps libres. Evita crear un Bitmap por frame en el overlay de filtros.
+ *
+ * - acquire(): devuelve un bitmap libre con el mismo ancho/alto/config (hit) o crea uno (miss).
+ * - release(): devuelve un bitmap al pool; si se supera el presupuesto se reciclan los más antiguos.
+ * - Contadores (hits, misses, evictions, bytes retenidos) para comprobar el reuso en estado estacionario.
+ *
+ * Thread-safe: se adquiere desde el hilo de filtrado y se devuelve desde el hilo principal.
+ * En la práctica hay pocos bitmaps libres a la vez, así que la búsqueda lineal es suficiente y no asigna.
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    // Bitmaps libres en orden de devolución (el primero es el más antiguo)
+    private final ArrayList<Bitmap> free = new ArrayList<>();
+    private long bytesHeld;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        for (int i = free.size() - 1; i >= 0; i--) {
+            Bitmap b = free.get(i);
+            if (b.getWidth() == width && b.getHeight() == height && b.getConfig() == config) {
+                free.remove(i);
+                bytesHeld -= b.getAllocationByteCount();
+                hits++;
+                return b;
+            }
+        }
+        misses++;
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /** Devuelve un bitmap al pool. Ignora null, bitmaps reciclados o inmutables. */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+        if (free.contains(bitmap)) return;
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            evictions++;
+            return;
+        }
+        free.add(bitmap);
+        bytesHeld += size;
+        while (bytesHeld > maxBytes && !free.isEmpty()) {
+            Bitmap oldest = free.remove(0);
+            bytesHeld -= oldest.getAllocationByteCount();
+            oldest.recycle();
+            evictions++;
+        }
+    }
+
+    /** Recicla todos los bitmaps libres (p.ej. al parar el preview o en onTrimMemory). */
+    public synchronized void clear() {
+        for (Bitmap b : free) b.recycle();
+        free.clear();
+        bytesHeld = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Bytes retenidos por bitmaps libres dentro del pool. */
+    public synchronized long getBytesHeld() {
+        return bytesHeld;
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "hits=%d misses=%d evictions=%d free=%d bytesHeld=%d/%d",
+                hits, misses, evictions, free.size(), bytesHeld, maxBytes);
+    }
+}
@@ -1,39 +1,99 @@
-    package com.david.smartcamerax.utils;
-
-    import android.graphics.Bitmap;
-    import android.graphics.Canvas;
-    import android.graphics.Color;
-    import android.graphics.ColorMatrix;
-    import android.graphics.ColorMatrixColorFilter;
-    import android.graphics.Paint;
-
-    public class Filters {
-
-        public static Bitmap toGrayscale(Bitmap src) {
-            Bitmap bmpGrayscale = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(bmpGrayscale);
-            ColorMatrix cm = new ColorMatrix();
-            cm.setSaturation(0);
-            Paint paint = new Paint();
-            paint.setColorFilter(new ColorMatrixColorFilter(cm));
-            canvas.drawBitmap(src, 0, 0, paint);
-            return bmpGrayscale;
-        }
+package com.david.smartcamerax.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.david.smartcamerax.R;
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.FrameBuffer;
+import com.david.smartcamerax.filters.QualityTier;
+import com.david.smartcamerax.filters.TiledExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters
+ * <p>
+ * Fachada Android (Bitmap) sobre el motor de píxeles de {@code com.david.smartcamerax.filters}.
+ * El trabajo real se hace en int[] con FilterChain, así que se puede probar en la JVM.
+ *
+ * - presets(): cadenas que recorre el botón de filtro de CameraActivity (la primera es "Normal").
+ *   Las LUTs .cube se añaden aparte con LutLibrary.loadPresets() porque requieren I/O.
+ * - apply(...): ruta sin asignaciones para el preview; el llamador aporta bitmap destino y buffer.
+ *   Procesa a la escala del QualityTier de la cadena y opcionalmente reparte el trabajo en bandas
+ *   sobre un TiledExecutor (todos los núcleos).
+ * - toGrayscale()/toSepia()/blur(): crean un Bitmap nuevo (útil para usos puntuales).
+ */
+public class Filters {
+
+    private static final FilterChain GRAYSCALE = new FilterChain.Builder("B/N").grayscale().build();
+    private static final FilterChain SEPIA = new FilterChain.Builder("Sepia").sepia().build();
+
+    /**
+     * Lista de filtros disponibles en orden de rotación. Los nombres salen de strings.xml.
+     */
+    public static List<FilterChain> presets(Context ctx) {
+        List<FilterChain> list = new ArrayList<>();
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_normal)).build());
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_bw)).grayscale().build());
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_sepia)).sepia().build());
+        // Cinco efectos de color apilados: se pliegan en una única matriz (una sola pasada)
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_vintage))
+                .saturation(0.7f)
+                .sepia()
+                .contrast(1.15f)
+                .brightness(-0.04f)
+                .tint(0xFFE8C8, 0.35f)
+                .build());
+        // Filtros de vecindad: separables y con coste por píxel independiente del radio.
+        // El desenfoque no pierde nada a 1/4 (sigma en píxeles de esa escala); la nitidez realza
+        // detalle fino, que desaparecería al reducir, así que se queda a resolución completa.
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_blur))
+                .gaussianBlur(1.5f).tier(QualityTier.QUARTER).build());
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_sharpen))
+                .sharpen(1.2f, 1.5f).tier(QualityTier.FULL).build());
+        list.add(new FilterChain.Builder(ctx.getString(R.string.filter_edges)).edges().build());
+        return list;
+    }
 
-        public static Bitmap toSepia(Bitmap src) {
-            Bitmap bmp = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(bmp);
-            ColorMatrix sepia = new ColorMatrix();
-            sepia.set(new float[]{
-                    0.393f, 0.769f, 0.189f, 0, 0,
-                    0.349f, 0.686f, 0.168f, 0, 0,
-                    0.272f, 0.534f, 0.131f, 0, 0,
-                    0, 0, 0, 1, 0
-            });
-            Paint paint = new Paint();
-            paint.setColorFilter(new ColorMatrixColorFilter(sepia));
-            canvas.drawBitmap(src, 0, 0, paint);
-            return bmp;
+    /**
+     * Aplica {@code chain} de {@code src} a {@code dst} (pueden ser el mismo bitmap si es mutable)
+     * usando {@code buffer} como almacenamiento intermedio. Sin asignaciones en estado estacionario.
+     *
+     * @param tiles pool de bandas; null para procesar en el hilo actual
+     * @return false si la cadena es identidad y no se hizo nada
+     */
+    public static boolean apply(FilterChain chain, Bitmap src, Bitmap dst, FrameBuffer buffer, TiledExecutor tiles) {
+        if (chain == null || chain.isIdentity()) return false;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        if (dst.getWidth() != w || dst.getHeight() != h) {
+            throw new IllegalArgumentException("src y dst deben tener el mismo tamaño");
         }
+        int[] px = buffer.obtain(w * h);
+        src.getPixels(px, 0, w, 0, 0, w, h);
+        chain.applyAtTier(px, px, w, h, tiles);
+        dst.setPixels(px, 0, w, 0, 0, w, h);
+        return true;
     }
 
+    public static Bitmap toGrayscale(Bitmap src) {
+        return applyToCopy(GRAYSCALE, src);
+    }
+
+    public static Bitmap toSepia(Bitmap src) {
+        return applyToCopy(SEPIA, src);
+    }
+
+    /** Desenfoque gaussiano (aproximado con tres box blurs); sigma en píxeles de {@code src}. */
+    public static Bitmap blur(Bitmap src, float sigma) {
+        return applyToCopy(new FilterChain.Builder("Blur").gaussianBlur(sigma).tier(QualityTier.FULL).build(), src);
+    }
+
+    private static Bitmap applyToCopy(FilterChain chain, Bitmap src) {
+        Bitmap out = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
+        apply(chain, src, out, new FrameBuffer(), null);
+        return out;
+    }
+}
@@ -0,0 +1,119 @@
+package com.david.smartcamerax.utils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FramePacer
+ * <p>
+ * Planificador de ritmo para el preview filtrado con semántica "latest-wins":
+ * - Como máximo un frame en vuelo. Si llega otro mientras tanto no se encola: se descarta y cuenta
+ *   como "coalesced" (el siguiente frame disponible lo sustituye).
+ * - El intervalo entre frames se adapta a la media móvil del tiempo de procesado medido, acotado
+ *   entre un mínimo (FPS máximo) y un máximo. Así se alcanza el mayor FPS sostenible sin que la
+ *   cola del executor crezca cuando el filtro es lento.
+ * - Los frames que llegan antes de que toque (por encima del ritmo sostenible) cuentan como "dropped".
+ *
+ * Tiempos en nanosegundos (System.nanoTime) pasados por el llamador, para poder probarlo en la JVM.
+ * Thread-safe: begin suele llamarse desde el hilo principal/análisis y end desde el worker.
+ */
+public class FramePacer {
+
+    // Peso de la última medida en la media móvil exponencial
+    private static final double EMA_ALPHA = 0.25;
+    // Margen sobre el tiempo de procesado para dejar CPU al resto (UI, análisis)
+    private static final double HEADROOM = 1.1;
+
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+
+    private boolean inFlight;
+    private long startNanos;
+    private long lastStartNanos = Long.MIN_VALUE;
+    private double emaProcessingNanos;
+    private long intervalNanos;
+
+    private long processed;
+    private long dropped;
+    private long coalesced;
+
+    /**
+     * @param minIntervalMs intervalo mínimo entre frames (p.ej. 33 ms = 30 FPS máximo)
+     * @param maxIntervalMs intervalo máximo (ritmo mínimo aunque el filtro sea muy lento)
+     */
+    public FramePacer(long minIntervalMs, long maxIntervalMs) {
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.maxIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(minIntervalMs, maxIntervalMs));
+        this.intervalNanos = minIntervalNanos;
+    }
+
+    /**
+     * Intenta empezar un frame. Si devuelve true el llamador debe procesarlo y llamar a
+     * {@link #end(long)} al terminar (también si falla).
+     */
+    public synchronized boolean tryBegin(long nowNanos) {
+        if (inFlight) {
+            coalesced++;
+            return false;
+        }
+        if (lastStartNanos != Long.MIN_VALUE && nowNanos - lastStartNanos < intervalNanos) {
+            dropped++;
+            return false;
+        }
+        inFlight = true;
+        startNanos = nowNanos;
+        lastStartNanos = nowNanos;
+        return true;
+    }
+
+    /** Marca el frame en vuelo como terminado y ajusta el ritmo con su duración. */
+    public synchronized void end(long nowNanos) {
+        if (!inFlight) return;
+        inFlight = false;
+        processed++;
+        long duration = Math.max(0, nowNanos - startNanos);
+        emaProcessingNanos = emaProcessingNanos == 0
+                ? duration
+                : emaProcessingNanos + EMA_ALPHA * (duration - emaProcessingNanos);
+        long target = (long) (emaProcessingNanos * HEADROOM);
+        intervalNanos = Math.max(minIntervalNanos, Math.min(maxIntervalNanos, target));
+    }
+
+    /** Frame sustituido antes de llegar a pantalla (lo reporta quien publica el resultado). */
+    public synchronized void onCoalesced() {
+        coalesced++;
+    }
+
+    /** Milisegundos hasta el próximo intento, para loops que se re-programan (Handler.postDelayed). */
+    public synchronized long nextDelayMs(long nowNanos) {
+        long due = lastStartNanos == Long.MIN_VALUE ? nowNanos : lastStartNanos + intervalNanos;
+        long waitNanos = inFlight ? minIntervalNanos : Math.max(0, due - nowNanos);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized double getAverageProcessingMs() {
+        return emaProcessingNanos / 1e6;
+    }
+
+    /** FPS objetivo actual según el tiempo de procesado medido. */
+    public synchronized double getTargetFps() {
+        return 1e9 / intervalNanos;
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "processed=%d dropped=%d coalesced=%d avg=%.1fms targetFps=%.1f",
+                processed, dropped, coalesced, emaProcessingNanos / 1e6, 1e9 / intervalNanos);
+    }
+}
@@ -0,0 +1,262 @@
+package com.david.smartcamerax.utils;
+
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LaneScheduler
+ * <p>
+ * Executors separados por tipo de trabajo, para que el análisis, los efectos del preview y la E/S no
+ * se serialicen en un solo hilo ni se quiten tiempo entre sí:
+ * - analysis: frames de ImageAnalysis (SmartAnalyzer / FilterPreviewAnalyzer). Prioridad alta, cola
+ *   corta y CALLER_RUNS: con KEEP_ONLY_LATEST CameraX no entrega otro frame hasta cerrar el anterior,
+ *   así que la cola casi nunca se llena; si pasa, el hilo de CameraX lo ejecuta (contrapresión).
+ * - preview: render del overlay filtrado. Prioridad normal, cola de 2 y DROP_OLDEST: solo importa el
+ *   frame más reciente.
+ * - io: guardado de fotos, lectura de LUTs y ficheros. Prioridad baja, cola amplia y CALLER_RUNS como
+ *   último recurso (nunca se descarta una foto). Un solo hilo: las tareas se ejecutan en orden.
+ *
+ * Cada carril (Lane) es un ThreadPoolExecutor con cola acotada que mide en Metrics el tiempo en cola
+ * ("lane.&lt;nombre&gt;.wait") y de ejecución ("lane.&lt;nombre&gt;.run") y cuenta descartes y
+ * ejecuciones en el llamador; la profundidad de cola (actual y máxima) está en stats().
+ *
+ * Una tarea que reserva algo al encolarse (p.ej. el turno de un FramePacer) implementa Droppable: si
+ * el carril la descarta sin ejecutarla (cualquier política, tras shutdown() o en shutdownNow()) se
+ * llama a onDropped() para que lo libere.
+ */
+public final class LaneScheduler {
+
+    /** Qué hacer cuando la cola de un carril está llena. */
+    public enum DropPolicy {
+        /** Descarta la tarea más antigua de la cola y encola la nueva (latest-wins). */
+        DROP_OLDEST,
+        /** Descarta la tarea nueva. */
+        DROP_NEWEST,
+        /** Ejecuta la tarea nueva en el hilo que la envía (contrapresión, no se pierde nada). */
+        CALLER_RUNS
+    }
+
+    /** Tarea que necesita saber si se descartó sin ejecutarse. */
+    public interface Droppable extends Runnable {
+        /** La tarea no se ejecutará; se llama en el hilo que provocó el descarte. */
+        void onDropped();
+    }
+
+    private final Lane analysis;
+    private final Lane preview;
+    private final Lane io;
+
+    public LaneScheduler(Lane analysis, Lane preview, Lane io) {
+        this.analysis = analysis;
+        this.preview = preview;
+        this.io = io;
+    }
+
+    /** Configuración por defecto de la cámara (ver cabecera). */
+    public static LaneScheduler create() {
+        return new LaneScheduler(
+                new Lane("analysis", 1, 4, Thread.MAX_PRIORITY - 1, DropPolicy.CALLER_RUNS),
+                new Lane("preview", 1, 2, Thread.NORM_PRIORITY, DropPolicy.DROP_OLDEST),
+                new Lane("io", 1, 128, Thread.NORM_PRIORITY - 2, DropPolicy.CALLER_RUNS));
+    }
+
+    public Lane analysis() {
+        return analysis;
+    }
+
+    public Lane preview() {
+        return preview;
+    }
+
+    public Lane io() {
+        return io;
+    }
+
+    /**
+     * Cierre ordenado: el preview descarta lo pendiente (frames que ya nadie verá); el análisis termina
+     * lo encolado para que cada ImageProxy se cierre, y la E/S también (fotos a medio guardar). No bloquea.
+     */
+    public void shutdown() {
+        analysis.shutdown();
+        preview.shutdownNow();
+        io.shutdown();
+    }
+
+    /** Espera a que terminen los tres carriles; true si lo hicieron antes de {@code timeoutMs}. */
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Lane lane : new Lane[]{analysis, preview, io}) {
+            long left = deadline - System.nanoTime();
+            if (!lane.awaitTermination(Math.max(0, left), TimeUnit.NANOSECONDS)) return false;
+        }
+        return true;
+    }
+
+    /** Una línea por carril: profundidad de cola, descartes y ejecuciones en el llamador. */
+    public String stats() {
+        return analysis.stats() + " | " + preview.stats() + " | " + io.stats();
+    }
+
+    /**
+     * Lane
+     * <p>
+     * ThreadPoolExecutor de tamaño fijo con cola acotada, prioridad de hilo y política de descarte.
+     * Las tareas se envuelven para medir su espera en cola; shutdownNow() devuelve las envueltas.
+     */
+    public static final class Lane extends ThreadPoolExecutor {
+
+        private final String name;
+        private final int capacity;
+        private final LatencyHistogram waitTime;
+        private final LatencyHistogram runTime;
+        private final Counter dropped;
+        private final Counter callerRuns;
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        // Inicio de la tarea actual de cada hilo del carril (para runTime)
+        private final ThreadLocal<long[]> started = ThreadLocal.withInitial(() -> new long[1]);
+
+        public Lane(String name, int threads, int capacity, int priority, DropPolicy policy) {
+            super(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity),
+                    threadFactory(name, priority), handler(policy));
+            this.name = name;
+            this.capacity = capacity;
+            this.waitTime = Metrics.histogram("lane." + name + ".wait");
+            this.runTime = Metrics.histogram("lane." + name + ".run");
+            this.dropped = Metrics.counter("lane." + name + ".dropped");
+            this.callerRuns = Metrics.counter("lane." + name + ".caller_runs");
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new Timed(command, System.nanoTime()));
+            int depth = getQueue().size();
+            int max;
+            while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+                // reintentar hasta publicar el máximo
+            }
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            long now = System.nanoTime();
+            // Las tareas que ejecuta el llamador (CALLER_RUNS) no pasan por aquí: no esperaron en cola
+            if (r instanceof Timed) waitTime.recordNanos(now - ((Timed) r).enqueuedNanos);
+            started.get()[0] = now;
+            super.beforeExecute(t, r);
+        }
+
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            runTime.recordSince(started.get()[0]);
+        }
+
+        /** Como ThreadPoolExecutor.shutdownNow(); además avisa a las tareas Droppable que no se ejecutarán. */
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pending = super.shutdownNow();
+            for (Runnable r : pending) notifyDropped(r);
+            return pending;
+        }
+
+        /** Tareas esperando en la cola ahora mismo. */
+        public int getQueueDepth() {
+            return getQueue().size();
+        }
+
+        /** Máxima profundidad de cola observada al encolar. */
+        public int getMaxQueueDepth() {
+            return maxDepth.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        public long getCallerRuns() {
+            return callerRuns.get();
+        }
+
+        public String stats() {
+            return String.format(Locale.US, "%s depth=%d/%d max=%d dropped=%d callerRuns=%d done=%d",
+                    name, getQueueDepth(), capacity, getMaxQueueDepth(), dropped.get(), callerRuns.get(),
+                    getCompletedTaskCount());
+        }
+
+        private void drop(Runnable r) {
+            dropped.inc();
+            notifyDropped(r);
+        }
+
+        private static void notifyDropped(Runnable r) {
+            Runnable task = r instanceof Timed ? ((Timed) r).task : r;
+            if (task instanceof Droppable) ((Droppable) task).onDropped();
+        }
+
+        private static ThreadFactory threadFactory(String name, int priority) {
+            AtomicInteger count = new AtomicInteger();
+            return r -> {
+                Thread t = new Thread(r, "lane-" + name + "-" + count.incrementAndGet());
+                t.setPriority(priority);
+                t.setDaemon(true);
+                return t;
+            };
+        }
+
+        private static RejectedExecutionHandler handler(DropPolicy policy) {
+            return (r, executor) -> {
+                Lane lane = (Lane) executor;
+                // Tras shutdown() no se ejecuta nada nuevo, en ningún modo
+                if (lane.isShutdown()) {
+                    lane.drop(r);
+                    return;
+                }
+                switch (policy) {
+                    case DROP_OLDEST:
+                        Runnable oldest = lane.getQueue().poll();
+                        if (oldest != null) lane.drop(oldest);
+                        // Hueco libre salvo carrera con otro productor: en ese caso se descarta la nueva
+                        if (!lane.getQueue().offer(r)) lane.drop(r);
+                        break;
+                    case DROP_NEWEST:
+                        lane.drop(r);
+                        break;
+                    case CALLER_RUNS:
+                        lane.callerRuns.inc();
+                        r.run();
+                        break;
+                }
+            };
+        }
+    }
+
+    // Tarea con su instante de encolado
+    private static final class Timed implements Runnable {
+        final Runnable task;
+        final long enqueuedNanos;
+
+        Timed(Runnable task, long enqueuedNanos) {
+            this.task = task;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
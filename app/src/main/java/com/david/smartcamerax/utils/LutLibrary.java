@@ -0,0 +1,116 @@
+package com.david.smartcamerax.utils;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.Lut3D;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LutLibrary
+ * <p>
+ * Descubre y carga LUTs .cube como filtros adicionales:
+ * - assets/luts/*.cube (incluidas en el APK)
+ * - filesDir/luts/*.cube (añadidas por el usuario o descargadas)
+ *
+ * Las LUTs parseadas se guardan en una caché de proceso (LRU por bytes de tabla), de modo que
+ * cambiar de filtro o volver a abrir la cámara no vuelve a leer ni parsear el fichero.
+ * La carga hace I/O: llamar a loadPresets() fuera del hilo principal.
+ */
+public class LutLibrary {
+
+    private static final String TAG = "LutLibrary";
+    public static final String LUT_DIR = "luts";
+    private static final String EXTENSION = ".cube";
+    // Suficiente para varias LUTs de 33^3 (~140 KB cada una)
+    private static final int CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static final LruCache<String, Lut3D> CACHE = new LruCache<String, Lut3D>(CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Lut3D value) {
+            return value.getTableBytes();
+        }
+    };
+
+    /**
+     * Devuelve una FilterChain por cada LUT disponible (assets primero, luego almacenamiento de la app).
+     * Las LUTs que no se pueden parsear se registran y se omiten.
+     */
+    public static List<FilterChain> loadPresets(Context ctx) {
+        List<FilterChain> result = new ArrayList<>();
+        try {
+            String[] assets = ctx.getAssets().list(LUT_DIR);
+            if (assets != null) {
+                Arrays.sort(assets);
+                for (String name : assets) {
+                    if (!name.endsWith(EXTENSION)) continue;
+                    Lut3D lut = loadAsset(ctx, LUT_DIR + "/" + name);
+                    if (lut != null) result.add(toChain(lut));
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "loadPresets: error listando assets", e);
+        }
+        File dir = new File(ctx.getFilesDir(), LUT_DIR);
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File f : files) {
+                Lut3D lut = loadFile(f);
+                if (lut != null) result.add(toChain(lut));
+            }
+        }
+        return result;
+    }
+
+    public static Lut3D loadAsset(Context ctx, String assetPath) {
+        String key = "asset:" + assetPath;
+        Lut3D cached = CACHE.get(key);
+        if (cached != null) return cached;
+        try (InputStream in = ctx.getAssets().open(assetPath)) {
+            return parseAndCache(key, in);
+        } catch (IOException e) {
+            Log.w(TAG, "loadAsset: LUT no válida " + assetPath, e);
+            return null;
+        }
+    }
+
+    public static Lut3D loadFile(File file) {
+        // La fecha de modificación forma parte de la clave: si el fichero cambia se vuelve a parsear
+        String key = "file:" + file.getAbsolutePath() + ":" + file.lastModified();
+        Lut3D cached = CACHE.get(key);
+        if (cached != null) return cached;
+        try (InputStream in = new FileInputStream(file)) {
+            return parseAndCache(key, in);
+        } catch (IOException e) {
+            Log.w(TAG, "loadFile: LUT no válida " + file, e);
+            return null;
+        }
+    }
+
+    private static Lut3D parseAndCache(String key, InputStream in) throws IOException {
+        long start = System.nanoTime();
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        Lut3D lut = Lut3D.parseCube(reader);
+        CACHE.put(key, lut);
+        Log.d(TAG, "LUT " + lut.getTitle() + " (" + lut.getSize() + "^3) parseada en "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return lut;
+    }
+
+    private static FilterChain toChain(Lut3D lut) {
+        return new FilterChain.Builder(lut.getTitle()).stage(lut).build();
+    }
+}
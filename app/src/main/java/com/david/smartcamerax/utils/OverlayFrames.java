@@ -0,0 +1,111 @@
+package com.david.smartcamerax.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * OverlayFrames
+ * <p>
+ * Triple buffer de bitmaps para el overlay de filtros, apoyado en un BitmapPool:
+ * - "rendering": el bitmap que el hilo de filtrado está escribiendo (obtain()).
+ * - "pending": el último frame publicado que el hilo principal aún no ha mostrado (publish()).
+ * - "displayed": el que tiene el ImageView; solo vuelve al pool cuando otro lo sustituye en pantalla.
+ *
+ * Así el frame visible nunca se sobrescribe. Si se publica un frame antes de que el anterior llegue
+ * a pantalla, gana el más reciente y el sustituido vuelve al pool.
+ *
+ * Tras clear() los frames que aún estaban renderizándose se descartan al publicarse (no vuelven a
+ * ocupar "displayed" ni llegan a pantalla) hasta que resume() reactiva el overlay.
+ */
+public class OverlayFrames {
+
+    public interface FrameSink {
+        /** Se llama en el hilo principal con el frame a mostrar. */
+        void onFrame(@NonNull Bitmap frame);
+    }
+
+    private final BitmapPool pool;
+    private final Handler mainHandler;
+    private final FrameSink sink;
+    private final AtomicReference<Bitmap> pending = new AtomicReference<>();
+    // Solo se toca desde el hilo principal
+    private Bitmap displayed;
+    // true entre clear() y resume(): lo que se publique es de un render anterior
+    private volatile boolean cleared;
+
+    private final Runnable presentRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Bitmap next = pending.getAndSet(null);
+            if (next == null) return;
+            if (cleared) {
+                pool.release(next);
+                return;
+            }
+            sink.onFrame(next);
+            if (displayed != null && displayed != next) pool.release(displayed);
+            displayed = next;
+        }
+    };
+
+    public OverlayFrames(@NonNull BitmapPool pool, @NonNull Handler mainHandler, @NonNull FrameSink sink) {
+        this.pool = pool;
+        this.mainHandler = mainHandler;
+        this.sink = sink;
+    }
+
+    /** Bitmap destino para el siguiente frame (hilo de filtrado). */
+    public Bitmap obtain(int width, int height) {
+        return pool.acquire(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /** Devuelve al pool un bitmap obtenido que finalmente no se publica. */
+    public void discard(Bitmap bitmap) {
+        pool.release(bitmap);
+    }
+
+    /**
+     * Publica un frame terminado; se mostrará en el hilo principal.
+     *
+     * @return true si sustituyó a un frame que aún no había llegado a pantalla
+     */
+    public boolean publish(@NonNull Bitmap frame) {
+        if (cleared) {
+            pool.release(frame);
+            return false;
+        }
+        Bitmap superseded = pending.getAndSet(frame);
+        if (superseded != null) {
+            // Aún no se había mostrado: el present ya programado mostrará el nuevo
+            pool.release(superseded);
+            return true;
+        }
+        mainHandler.post(presentRunnable);
+        return false;
+    }
+
+    /**
+     * Suelta el frame pendiente y el mostrado (hilo principal). Llamar después de quitar el bitmap
+     * del ImageView.
+     */
+    public void clear() {
+        cleared = true;
+        mainHandler.removeCallbacks(presentRunnable);
+        pool.release(pending.getAndSet(null));
+        pool.release(displayed);
+        displayed = null;
+    }
+
+    /** Vuelve a aceptar frames tras clear() (hilo principal, al reactivar el overlay). */
+    public void resume() {
+        cleared = false;
+    }
+
+    public BitmapPool getPool() {
+        return pool;
+    }
+}
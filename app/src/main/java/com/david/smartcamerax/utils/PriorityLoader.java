@@ -0,0 +1,275 @@
+package com.david.smartcamerax.utils;
+
+import com.david.smartcamerax.metrics.Counter;
+import com.david.smartcamerax.metrics.LatencyHistogram;
+import com.david.smartcamerax.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PriorityLoader
+ * <p>
+ * Cargador asíncrono por clave con prioridades y cancelación, pensado para miniaturas de una grilla:
+ * - Dos prioridades: VISIBLE (una celda en pantalla la espera) y PREFETCH (filas por delante del
+ *   scroll). Los hilos siempre toman antes lo visible; dentro de cada prioridad, en orden de llegada.
+ * - Un trabajo por clave: si una celda pide algo que ya está en cola (p.ej. prefetched), se suma al
+ *   mismo trabajo y éste sube a VISIBLE.
+ * - request() devuelve un Request; cancel() (p.ej. en onViewRecycled) lo retira y, si nadie más
+ *   espera esa clave y aún no empezó, el trabajo sale de la cola. Un trabajo ya en curso no se
+ *   interrumpe, pero su resultado no se entrega a peticiones canceladas.
+ * - Los callbacks se entregan en {@code callbackExecutor} (el hilo principal en la galería) y se
+ *   vuelve a mirar ahí si la petición se canceló: cancel() y la entrega ocurren en el mismo hilo, así
+ *   que un resultado viejo nunca llega a una celda reciclada.
+ * - Métricas "&lt;nombre&gt;.wait" (tiempo en cola), "&lt;nombre&gt;.load" y "&lt;nombre&gt;.cancelled";
+ *   profundidad de cola (actual y máxima) en stats().
+ *
+ * Sin dependencias de Android para probarlo en la JVM.
+ */
+public class PriorityLoader<K, V> {
+
+    public static final int VISIBLE = 0;
+    public static final int PREFETCH = 1;
+
+    /** Carga bloqueante de un valor; se ejecuta en los hilos del loader. null = no disponible. */
+    public interface Source<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    public interface Callback<V> {
+        /** {@code value} puede ser null si la carga falló. */
+        void onLoaded(V value);
+    }
+
+    /** Petición de una celda: cancel() antes de que llegue el resultado lo descarta. */
+    public final class Request {
+        private final Job job;
+        private final Callback<V> callback;
+        private boolean cancelled;
+
+        Request(Job job, Callback<V> callback) {
+            this.job = job;
+            this.callback = callback;
+        }
+
+        public void cancel() {
+            synchronized (PriorityLoader.this) {
+                if (cancelled) return;
+                cancelled = true;
+                if (job == null) return;
+                job.waiters.remove(this);
+                if (job.waiters.isEmpty()) dequeue(job);
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (PriorityLoader.this) {
+                return cancelled;
+            }
+        }
+    }
+
+    // Un trabajo por clave; la prioridad solo cambia mientras está fuera de la cola
+    private final class Job implements Runnable, Comparable<Job> {
+        final K key;
+        final long seq;
+        final long enqueuedNanos = System.nanoTime();
+        final List<Request> waiters = new ArrayList<>(1);
+        int priority;
+        boolean running;
+
+        Job(K key, int priority, long seq) {
+            this.key = key;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) return Integer.compare(priority, other.priority);
+            return Long.compare(seq, other.seq);
+        }
+
+        @Override
+        public void run() {
+            synchronized (PriorityLoader.this) {
+                if (running || jobs.get(key) != this) return; // cancelado mientras salía de la cola
+                running = true;
+            }
+            waitTime.recordSince(enqueuedNanos);
+            long start = System.nanoTime();
+            V value;
+            try {
+                value = source.load(key);
+            } catch (Exception e) {
+                value = null;
+            }
+            loadTime.recordSince(start);
+            List<Request> ready;
+            synchronized (PriorityLoader.this) {
+                jobs.remove(key);
+                completed++;
+                ready = new ArrayList<>(waiters);
+            }
+            for (Request request : ready) {
+                deliver(request, value);
+            }
+        }
+    }
+
+    private final Source<K, V> source;
+    private final Executor callbackExecutor;
+    private final ThreadPoolExecutor executor;
+    private final Map<K, Job> jobs = new HashMap<>();
+    private long seq;
+
+    private final LatencyHistogram waitTime;
+    private final LatencyHistogram loadTime;
+    private final Counter cancelledCounter;
+    private long completed;
+    private long cancelledJobs;
+    private int maxQueueDepth;
+
+    public PriorityLoader(String name, int threads, int threadPriority, Source<K, V> source, Executor callbackExecutor) {
+        this.source = source;
+        this.callbackExecutor = callbackExecutor;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setPriority(threadPriority);
+            t.setDaemon(true);
+            return t;
+        });
+        this.waitTime = Metrics.histogram(name + ".wait");
+        this.loadTime = Metrics.histogram(name + ".load");
+        this.cancelledCounter = Metrics.counter(name + ".cancelled");
+    }
+
+    /** Pide {@code key} con prioridad VISIBLE; {@code callback} se llama en el callbackExecutor. */
+    public synchronized Request request(K key, Callback<V> callback) {
+        Job job = jobs.get(key);
+        if (job == null) {
+            job = enqueue(key, VISIBLE);
+            if (job == null) {
+                Request rejected = new Request(null, callback);
+                rejected.cancelled = true;
+                return rejected;
+            }
+        } else if (job.priority != VISIBLE && !job.running) {
+            // Estaba prefetched y ahora una celda lo espera: pasa delante
+            // Si remove() falla un hilo ya lo tomó: se ejecutará igual, no se reencola
+            if (executor.remove(job)) {
+                job.priority = VISIBLE;
+                executor.execute(job);
+            }
+        }
+        Request request = new Request(job, callback);
+        job.waiters.add(request);
+        return request;
+    }
+
+    /** Encola {@code key} con prioridad PREFETCH si no está ya pedido. No hay callback. */
+    public synchronized void prefetch(K key) {
+        if (!jobs.containsKey(key)) enqueue(key, PREFETCH);
+    }
+
+    /** Descarta los prefetch aún en cola (p.ej. el scroll cambió de dirección). */
+    public synchronized int cancelPrefetches() {
+        int cancelled = 0;
+        Iterator<Job> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            Job job = it.next();
+            if (job.priority == PREFETCH && !job.running && job.waiters.isEmpty()) {
+                executor.remove(job);
+                it.remove();
+                cancelled++;
+            }
+        }
+        cancelledJobs += cancelled;
+        cancelledCounter.add(cancelled);
+        return cancelled;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (this) {
+            jobs.clear();
+        }
+    }
+
+    /** Espera a que terminen los hilos tras shutdown(); true si terminaron a tiempo. */
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Claves pedidas que aún no terminaron (en cola o cargándose). */
+    public synchronized int getPending() {
+        return jobs.size();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /** Trabajos sacados de la cola sin ejecutarse (todas sus peticiones canceladas, o prefetch descartado). */
+    public synchronized long getCancelled() {
+        return cancelledJobs;
+    }
+
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "queue=%d max=%d pending=%d completed=%d cancelled=%d wait %s",
+                executor.getQueue().size(), maxQueueDepth, jobs.size(), completed, cancelledJobs,
+                waitTime.snapshot());
+    }
+
+    // Con el lock tomado. null si el executor ya está cerrado
+    private Job enqueue(K key, int priority) {
+        Job job = new Job(key, priority, seq++);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        jobs.put(key, job);
+        maxQueueDepth = Math.max(maxQueueDepth, executor.getQueue().size());
+        return job;
+    }
+
+    // Con el lock tomado: nadie espera ya el trabajo
+    private void dequeue(Job job) {
+        if (job.running || jobs.get(job.key) != job) return;
+        executor.remove(job);
+        jobs.remove(job.key);
+        cancelledJobs++;
+        cancelledCounter.inc();
+    }
+
+    private void deliver(Request request, V value) {
+        try {
+            callbackExecutor.execute(() -> {
+                if (!request.isCancelled() && request.callback != null) request.callback.onLoaded(value);
+            });
+        } catch (RejectedExecutionException e) {
+            // Receptor cerrado: nadie espera ya el resultado
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.david.smartcamerax.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * SizedLruCache
+ * <p>
+ * Caché LRU con presupuesto en bytes (no en número de entradas), para bitmaps de tamaños distintos:
+ * - El tamaño de cada valor lo da {@code sizer} (p.ej. Bitmap::getAllocationByteCount) al insertarlo.
+ * - Al superar {@code maxBytes} se descartan los menos usados (LinkedHashMap en orden de acceso).
+ *   Un valor mayor que el presupuesto entero no se guarda.
+ * - Los descartes no reciclan nada: un bitmap expulsado puede seguir en pantalla y lo libera el GC.
+ * - Contadores de aciertos, fallos y expulsiones para comprobar el tamaño elegido.
+ *
+ * Sincronizada: se lee desde el hilo principal (bind) y se escribe desde los hilos de decodificación.
+ */
+public class SizedLruCache<K, V> {
+
+    private final long maxBytes;
+    private final ToIntFunction<V> sizer;
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SizedLruCache(long maxBytes, ToIntFunction<V> sizer) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes <= 0");
+        this.maxBytes = maxBytes;
+        this.sizer = sizer;
+    }
+
+    /** Valor de {@code key} (y pasa a ser el más reciente), o null. */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    /** true si {@code key} está; no cuenta como acierto ni cambia el orden (p.ej. para decidir un prefetch). */
+    public synchronized boolean contains(K key) {
+        return map.containsKey(key);
+    }
+
+    /** Guarda {@code value}; devuelve false si no cabe ni con la caché vacía. */
+    public synchronized boolean put(K key, V value) {
+        int size = sizer.applyAsInt(value);
+        if (size > maxBytes) {
+            remove(key);
+            return false;
+        }
+        V previous = map.put(key, value);
+        if (previous != null) bytes -= sizer.applyAsInt(previous);
+        bytes += size;
+        trimTo(maxBytes);
+        return true;
+    }
+
+    public synchronized V remove(K key) {
+        V previous = map.remove(key);
+        if (previous != null) bytes -= sizer.applyAsInt(previous);
+        return previous;
+    }
+
+    /** Descarta los menos recientes hasta ocupar como mucho {@code targetBytes} (p.ej. onTrimMemory). */
+    public synchronized void trimTo(long targetBytes) {
+        Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+        while (bytes > targetBytes && it.hasNext()) {
+            Map.Entry<K, V> eldest = it.next();
+            bytes -= sizer.applyAsInt(eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US, "entries=%d bytes=%d/%d hits=%d misses=%d evictions=%d",
+                map.size(), bytes, maxBytes, hits, misses, evictions);
+    }
+}
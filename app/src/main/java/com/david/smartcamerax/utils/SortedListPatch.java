@@ -0,0 +1,56 @@
+package com.david.smartcamerax.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * SortedListPatch
+ * <p>
+ * Aplica un cambio incremental (altas/modificaciones y bajas por clave) a una lista ya ordenada, sin
+ * reordenarla entera:
+ * - Las bajas y los elementos que se reemplazan se saltan al recorrer la lista actual.
+ * - Las altas se ordenan (son pocas) y se intercalan en una sola pasada: O(n + m log m).
+ * - {@code limit}: si la lista solo tiene cargado un prefijo (galería paginada), las altas que caen
+ *   después de ese último elemento se ignoran; ya llegarán con su página. null = lista completa.
+ *
+ * Devuelve siempre una lista nueva (ListAdapter.submitList compara contra la anterior) y sin claves
+ * repetidas: también sirve para añadir una página que pudiera solaparse con algo ya insertado.
+ */
+public final class SortedListPatch {
+
+    private SortedListPatch() {
+    }
+
+    public static <T> List<T> apply(List<T> current, Collection<T> upserts, Set<Long> removed,
+                                    ToLongFunction<T> key, Comparator<T> order, T limit) {
+        // Una versión por clave (la última gana), sin las que se borran y dentro del prefijo cargado
+        Map<Long, T> latest = new LinkedHashMap<>();
+        for (T item : upserts) {
+            long k = key.applyAsLong(item);
+            if (removed.contains(k)) continue;
+            if (limit != null && order.compare(item, limit) > 0) continue;
+            latest.put(k, item);
+        }
+        List<T> added = new ArrayList<>(latest.values());
+        added.sort(order);
+        Set<Long> skip = new HashSet<>(removed);
+        skip.addAll(latest.keySet());
+
+        List<T> result = new ArrayList<>(current.size() + added.size());
+        int j = 0;
+        for (T item : current) {
+            if (skip.contains(key.applyAsLong(item))) continue;
+            while (j < added.size() && order.compare(added.get(j), item) < 0) result.add(added.get(j++));
+            result.add(item);
+        }
+        while (j < added.size()) result.add(added.get(j++));
+        return result;
+    }
+}
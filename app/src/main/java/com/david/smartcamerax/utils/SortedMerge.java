@@ -0,0 +1,97 @@
+package com.david.smartcamerax.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * SortedMerge
+ * <p>
+ * Mezcla k fuentes ya ordenadas (p.ej. las consultas de fotos y de videos, ambas por fecha
+ * descendente) leyéndolas por ventanas, sin cargar ninguna entera:
+ * - Cada fuente entrega ventanas de hasta {@code windowSize} elementos a partir del último leído
+ *   (Source.loadAfter; paginación por clave, no por OFFSET).
+ * - Un montículo con la cabeza de cada fuente da el siguiente elemento en O(log k); cuando la ventana
+ *   de una fuente se vacía se pide la siguiente. En memoria hay como mucho k ventanas.
+ * - nextPage(n) devuelve los n siguientes en orden global; una fuente que devuelve menos de
+ *   {@code windowSize} elementos se da por terminada.
+ *
+ * El orden de {@code order} debe ser el mismo con el que cada fuente ordena (y total: sin empates
+ * entre elementos distintos, p.ej. fecha y luego id). No es thread-safe: se usa desde un solo hilo.
+ */
+public final class SortedMerge<T> {
+
+    /** Fuente ordenada por ventanas. */
+    public interface Source<T> {
+        /** Hasta {@code limit} elementos que van después de {@code last} (null: desde el principio). */
+        List<T> loadAfter(T last, int limit);
+    }
+
+    // Estado de lectura de una fuente: ventana actual y último elemento leído
+    private final class Cursor {
+        final Source<T> source;
+        final ArrayDeque<T> window = new ArrayDeque<>();
+        T last;
+        boolean exhausted;
+
+        Cursor(Source<T> source) {
+            this.source = source;
+        }
+
+        // Pide la siguiente ventana si la actual se vació; false si la fuente terminó
+        boolean fill() {
+            if (!window.isEmpty()) return true;
+            if (exhausted) return false;
+            List<T> page = source.loadAfter(last, windowSize);
+            windowsLoaded++;
+            if (page.size() < windowSize) exhausted = true;
+            if (page.isEmpty()) return false;
+            window.addAll(page);
+            last = page.get(page.size() - 1);
+            return true;
+        }
+    }
+
+    private final int windowSize;
+    private final List<Cursor> cursors = new ArrayList<>();
+    private final PriorityQueue<Cursor> heads;
+    private boolean started;
+    private int windowsLoaded;
+
+    public SortedMerge(Comparator<T> order, int windowSize, List<? extends Source<T>> sources) {
+        if (windowSize <= 0) throw new IllegalArgumentException("windowSize <= 0");
+        this.windowSize = windowSize;
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> order.compare(a.window.peekFirst(), b.window.peekFirst()));
+        for (Source<T> source : sources) cursors.add(new Cursor(source));
+    }
+
+    /** Los {@code count} siguientes elementos en orden global (menos si se acaban las fuentes). */
+    public List<T> nextPage(int count) {
+        if (!started) {
+            started = true;
+            for (Cursor cursor : cursors) {
+                if (cursor.fill()) heads.add(cursor);
+            }
+        }
+        List<T> page = new ArrayList<>(count);
+        while (page.size() < count && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            page.add(cursor.window.pollFirst());
+            if (cursor.fill()) heads.add(cursor);
+        }
+        return page;
+    }
+
+    /** true si ya se entregó todo. */
+    public boolean isExhausted() {
+        return started && heads.isEmpty();
+    }
+
+    /** Ventanas pedidas a las fuentes hasta ahora (consultas a MediaStore en la galería). */
+    public int getWindowsLoaded() {
+        return windowsLoaded;
+    }
+}
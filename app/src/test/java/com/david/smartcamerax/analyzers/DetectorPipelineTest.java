@@ -0,0 +1,346 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DetectorPipelineTest {
+
+    private static final int W = 64;
+    private static final int H = 48;
+
+    /** Detector falso: devuelve un resultado fijo tras {@code latencyMs} (0 = en el mismo hilo). */
+    private static class FakeDetector implements Detector {
+        final String name;
+        final AnalysisResult.Kind kind;
+        final long latencyMs;
+        final ScheduledExecutorService executor;
+        final List<DetectorInput> inputs = new CopyOnWriteArrayList<>();
+        final List<Callback> pending = new ArrayList<>();
+        boolean manual;
+        boolean closed;
+
+        FakeDetector(String name, AnalysisResult.Kind kind, long latencyMs, ScheduledExecutorService executor) {
+            this.name = name;
+            this.kind = kind;
+            this.latencyMs = latencyMs;
+            this.executor = executor;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public AnalysisResult.Kind getKind() {
+            return kind;
+        }
+
+        @Override
+        public void detect(DetectorInput input, Callback callback) {
+            inputs.add(input);
+            if (manual) {
+                pending.add(callback);
+            } else if (latencyMs == 0) {
+                callback.onSuccess(result(input));
+            } else {
+                executor.schedule(() -> callback.onSuccess(result(input)), latencyMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        AnalysisResult result(DetectorInput input) {
+            AnalysisResult.Builder out = new AnalysisResult.Builder();
+            if (kind == AnalysisResult.Kind.TEXT) out.addText("hola", 1, 2, 11, 12);
+            else out.addBarcode("QR-1", 256, 1, 2, 11, 12);
+            return out.build(input.getTimestampNanos(), input.getWidth(), input.getHeight());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class RecordingListener implements DetectorPipeline.Listener {
+        final List<AnalysisResult> results = new CopyOnWriteArrayList<>();
+        final List<String> errors = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onResult(AnalysisResult result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(String detector, Exception e) {
+            errors.add(detector);
+        }
+
+        AnalysisResult last() {
+            return results.isEmpty() ? AnalysisResult.EMPTY : results.get(results.size() - 1);
+        }
+    }
+
+    private static CameraFrame frame() {
+        return frame(0);
+    }
+
+    // Escena uniforme de luminancia {@code luma}
+    private static CameraFrame frame(int luma) {
+        ByteBuffer y = ByteBuffer.allocate(W * H);
+        for (int i = 0; i < W * H; i++) y.put(i, (byte) luma);
+        ByteBuffer u = ByteBuffer.allocate(W / 2 * H / 2);
+        ByteBuffer v = ByteBuffer.allocate(W / 2 * H / 2);
+        return new CameraFrame(W, H, 0, y, W, u, v, W / 2, 1);
+    }
+
+    // Franjas verticales de 2 px en la mitad superior: pasa la puerta de presencia
+    private static CameraFrame striped() {
+        CameraFrame striped = frame();
+        for (int row = 0; row < H / 2; row++) {
+            for (int col = 0; col < W; col++) {
+                if (col % 4 < 2) striped.getY().put(row * W + col, (byte) 255);
+            }
+        }
+        return striped;
+    }
+
+    @Test
+    public void slowDetector_doesNotBlockFastOne() {
+        FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 0, null);
+        text.manual = true;
+        FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 0, null);
+        RecordingListener listener = new RecordingListener();
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(listener)
+                .add(text, 1, 1f)
+                .add(barcode, 1, 1f)
+                .build();
+
+        AtomicInteger closes = new AtomicInteger();
+        for (int i = 0; i < 30; i++) {
+            pipeline.submit(frame(), closes::incrementAndGet);
+        }
+        // El texto sigue en vuelo sobre su copia NV21; los códigos se confirman igualmente
+        assertEquals(1, text.inputs.size());
+        assertNotNull(text.inputs.get(0).getNv21());
+        assertEquals(30, barcode.inputs.size());
+        assertEquals(29, pipeline.getScheduler(AnalysisResult.Kind.TEXT).getSkipped());
+        assertEquals(1, listener.last().getItems(AnalysisResult.Kind.BARCODE).size());
+        assertEquals(30, closes.get());
+
+        text.pending.remove(0).onSuccess(text.result(text.inputs.get(0)));
+        assertEquals(30, closes.get());
+        assertTrue(text.pending.isEmpty());
+
+        pipeline.close();
+        assertTrue(text.closed);
+        assertTrue(barcode.closed);
+    }
+
+    @Test
+    public void frameClosesOnSubmit_soSlowLaneDoesNotStallCamera() {
+        FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 0, null);
+        text.manual = true;
+        FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 0, null);
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(new RecordingListener())
+                .add(text, 1, 1f)
+                .add(barcode, 1, 1f)
+                .build();
+
+        // Como KEEP_ONLY_LATEST: la cámara solo entrega el siguiente frame cuando se cerró el anterior
+        AtomicInteger open = new AtomicInteger();
+        int delivered = 0;
+        for (int i = 0; i < 30 && open.get() == 0; i++) {
+            open.incrementAndGet();
+            pipeline.submit(frame(), open::decrementAndGet);
+            delivered++;
+        }
+        assertEquals(30, delivered);
+        assertEquals(1, text.pending.size());
+        assertEquals(30, barcode.inputs.size());
+    }
+
+    @Test
+    public void frameWithoutPlanes_staysOpenUntilLastLaneFinishes() {
+        FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 0, null);
+        text.manual = true;
+        FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 0, null);
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(new RecordingListener())
+                .add(text, 1, 1f)
+                .add(barcode, 1, 1f)
+                .build();
+
+        // Un Bitmap RGBA no se copia: la imagen se entrega tal cual y se retiene mientras se lee
+        Object bitmap = new Object();
+        AtomicInteger closes = new AtomicInteger();
+        assertEquals(2, pipeline.submit(CameraFrame.ofNativeImage(W, H, 0, bitmap), closes::incrementAndGet));
+        assertSame(bitmap, text.inputs.get(0).getNativeImage());
+        assertEquals(0, closes.get());
+
+        text.pending.remove(0).onSuccess(text.result(text.inputs.get(0)));
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void centerRoi_cropsToNv21AndTranslatesBoxes() {
+        FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 0, null);
+        RecordingListener listener = new RecordingListener();
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(listener)
+                .add(barcode, 1, 1f)
+                .voting(1, 1)
+                .build();
+        RegionOfInterest roi = RegionOfInterest.center(0.5f);
+        pipeline.setRegionOfInterest(roi);
+        RegionOfInterest.Region region = RegionOfInterest.center(0.5f).next(W, H);
+
+        AtomicInteger closes = new AtomicInteger();
+        assertEquals(1, pipeline.submit(frame(), closes::incrementAndGet));
+        assertEquals(1, closes.get());
+
+        DetectorInput input = barcode.inputs.get(0);
+        assertNull(input.getNativeImage());
+        assertEquals(region.getWidth(), input.getWidth());
+        assertEquals(YuvCropper.nv21Size(region.getWidth(), region.getHeight()), input.getNv21().length);
+
+        AnalysisResult.Item item = listener.last().getItems().get(0);
+        assertEquals(1 + region.getLeft(), item.getLeft());
+        assertEquals(2 + region.getTop(), item.getTop());
+        assertEquals(W, listener.last().getFrameWidth());
+    }
+
+    @Test
+    public void presenceGate_skipsFramesWithoutText() {
+        FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 0, null);
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(new RecordingListener())
+                .add(text, 1, 1f)
+                .presenceGate(new TextPresenceDetector())
+                .build();
+        AtomicInteger closes = new AtomicInteger();
+
+        // Plano Y uniforme: se descarta sin llamar al detector
+        assertEquals(0, pipeline.submit(frame(), closes::incrementAndGet));
+        assertEquals(1, closes.get());
+        assertTrue(text.inputs.isEmpty());
+
+        // Franjas verticales de 2 px en la mitad superior (trazos): se lanza
+        assertEquals(1, pipeline.submit(striped(), closes::incrementAndGet));
+        assertEquals(1, text.inputs.size());
+        assertEquals(1, pipeline.getPresenceGate().getRejected());
+        assertEquals(1, pipeline.getPresenceGate().getAccepted());
+    }
+
+    @Test
+    public void presenceReject_expiresStableResult() {
+        FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 0, null);
+        RecordingListener listener = new RecordingListener();
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(listener)
+                .add(text, 1, 1f)
+                .presenceGate(new TextPresenceDetector())
+                .build();
+        AtomicInteger closes = new AtomicInteger();
+
+        // A (3 de 5 votos) -> escena en blanco -> A otra vez: A se vuelve a emitir
+        for (int i = 0; i < 3; i++) pipeline.submit(striped(), closes::incrementAndGet);
+        for (int i = 0; i < 5; i++) assertEquals(0, pipeline.submit(frame(), closes::incrementAndGet));
+        for (int i = 0; i < 3; i++) pipeline.submit(striped(), closes::incrementAndGet);
+
+        assertEquals(6, text.inputs.size());
+        assertEquals(3, listener.results.size());
+        assertEquals(1, listener.results.get(0).getItems().size());
+        assertTrue(listener.results.get(1).isEmpty());
+        assertEquals(1, listener.results.get(2).getItems().size());
+        assertEquals(11, closes.get());
+    }
+
+    @Test
+    public void sceneGate_comparesEachLaneWithWhatItLastSaw() {
+        FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 0, null);
+        FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 0, null);
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(new RecordingListener())
+                .add(text, 3, 1f)
+                .add(barcode, 1, 1f)
+                .sceneGate(new SceneChangeGate(6f, 10_000))
+                .build();
+        AtomicInteger closes = new AtomicInteger();
+
+        // Escenas por frame: el texto toca en los frames 2 y 5, los códigos en todos
+        int[] scenes = {0, 0, 100, 200, 200, 200};
+        for (int luma : scenes) pipeline.submit(frame(luma), closes::incrementAndGet);
+
+        // Los códigos ven cada cambio (0, 100, 200); el texto vio 100 en el frame 2 y en el 5 la
+        // escena ya es otra aunque los códigos la procesaran en el frame 3
+        assertEquals(3, barcode.inputs.size());
+        assertEquals(2, text.inputs.size());
+        assertEquals(scenes.length, closes.get());
+    }
+
+    @Test
+    public void failingDetector_reportsErrorAndFreesLane() {
+        FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 0, null) {
+            @Override
+            public void detect(DetectorInput input, Callback callback) {
+                inputs.add(input);
+                throw new IllegalStateException("backend caído");
+            }
+        };
+        RecordingListener listener = new RecordingListener();
+        DetectorPipeline pipeline = new DetectorPipeline.Builder(listener).add(barcode, 1, 1f).build();
+
+        AtomicInteger closes = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, pipeline.submit(frame(), closes::incrementAndGet));
+        }
+        assertEquals(3, barcode.inputs.size());
+        assertEquals(3, listener.errors.size());
+        assertEquals(3, closes.get());
+        assertFalse(pipeline.getScheduler(AnalysisResult.Kind.BARCODE).isBusy());
+    }
+
+    @Test
+    public void throughput_withTimedFakes() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        try {
+            FakeDetector text = new FakeDetector("text", AnalysisResult.Kind.TEXT, 150, executor);
+            FakeDetector barcode = new FakeDetector("barcode", AnalysisResult.Kind.BARCODE, 5, executor);
+            RecordingListener listener = new RecordingListener();
+            DetectorPipeline pipeline = new DetectorPipeline.Builder(listener)
+                    .add(text, 3, 0.5f)
+                    .add(barcode, 1, 1f)
+                    .build();
+
+            int frames = 45;
+            AtomicInteger closes = new AtomicInteger();
+            for (int i = 0; i < frames; i++) {
+                pipeline.submit(frame(), closes::incrementAndGet);
+                Thread.sleep(33);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (closes.get() < frames && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            DetectorScheduler textScheduler = pipeline.getScheduler(AnalysisResult.Kind.TEXT);
+            DetectorScheduler barcodeScheduler = pipeline.getScheduler(AnalysisResult.Kind.BARCODE);
+            // Todos los frames se cierran una vez y cada carril los cuenta como lanzados o saltados
+            assertEquals(frames, closes.get());
+            assertEquals(frames, textScheduler.getRuns() + textScheduler.getSkipped());
+            assertEquals(frames, barcodeScheduler.getRuns() + barcodeScheduler.getSkipped());
+            // Márgenes amplios: el reloj de un CI cargado no es exacto
+            assertTrue(barcodeScheduler.stats(), barcodeScheduler.getRuns() >= frames / 2);
+            assertTrue(textScheduler.stats(), textScheduler.getRuns() <= frames / 3);
+            assertTrue(textScheduler.getRuns() < barcodeScheduler.getRuns());
+            assertFalse(listener.last().getItems(AnalysisResult.Kind.BARCODE).isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DetectorSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+    // 30 fps
+    private static final long FRAME = 33 * MS;
+
+    // Simula frames a 30 fps con un detector de latencia fija; devuelve cuántas veces arrancó
+    private static int simulate(DetectorScheduler scheduler, long latencyNanos, int frames) {
+        long finishAt = -1;
+        int runs = 0;
+        for (int i = 0; i < frames; i++) {
+            long now = i * FRAME;
+            if (finishAt >= 0 && now >= finishAt) {
+                scheduler.finish(finishAt);
+                finishAt = -1;
+            }
+            scheduler.tick();
+            if (scheduler.isDue(now)) {
+                scheduler.start(now);
+                finishAt = now + latencyNanos;
+                runs++;
+            } else {
+                scheduler.skip();
+            }
+        }
+        return runs;
+    }
+
+    @Test
+    public void fastDetector_runsEveryFrame() {
+        DetectorScheduler barcodes = new DetectorScheduler("barcode", 1, 1f);
+        assertEquals(90, simulate(barcodes, 10 * MS, 90));
+        assertEquals(0, barcodes.getSkipped());
+    }
+
+    @Test
+    public void everyNth_isHonoured() {
+        DetectorScheduler text = new DetectorScheduler("text", 3, 1f);
+        assertEquals(30, simulate(text, 10 * MS, 90));
+    }
+
+    @Test
+    public void slowDetector_isThrottledByDutyCycle() {
+        // 200 ms con duty 0.5: como mucho cada 400 ms, ~8 veces en 3 s (sin ajuste serían ~13)
+        DetectorScheduler text = new DetectorScheduler("text", 1, 0.5f);
+        int runs = simulate(text, 200 * MS, 90);
+        assertTrue("runs " + runs, runs >= 7 && runs <= 8);
+        assertEquals(400, text.getMinIntervalNanos() / MS);
+
+        DetectorScheduler busyOnly = new DetectorScheduler("text", 1, 1f);
+        int busyRuns = simulate(busyOnly, 200 * MS, 90);
+        assertTrue("busy runs " + busyRuns, busyRuns > runs);
+    }
+
+    @Test
+    public void refCountedFrame_closesOnLastRelease() {
+        AtomicInteger closed = new AtomicInteger();
+        RefCountedFrame frame = new RefCountedFrame(closed::incrementAndGet);
+        frame.retain();
+        frame.retain();
+        assertFalse(frame.release());
+        assertFalse(frame.release());
+        assertEquals(0, closed.get());
+        assertTrue(frame.release());
+        assertEquals(1, closed.get());
+        try {
+            frame.retain();
+            fail("retain() tras cerrar");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+    }
+}
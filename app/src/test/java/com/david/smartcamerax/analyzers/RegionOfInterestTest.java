@@ -0,0 +1,118 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class RegionOfInterestTest {
+
+    private static final int W = 640;
+    private static final int H = 480;
+
+    // Posición (x, y) en la imagen rotada de un píxel (x, y) del sensor, como la rotación de ML Kit
+    private static int[] rotate(int x, int y, int width, int height, int rotation) {
+        switch (rotation) {
+            case 90: return new int[]{height - 1 - y, x};
+            case 180: return new int[]{width - 1 - x, height - 1 - y};
+            case 270: return new int[]{y, width - 1 - x};
+            default: return new int[]{x, y};
+        }
+    }
+
+    @Test
+    public void center_isCenteredAndEven() {
+        RegionOfInterest.Region r = RegionOfInterest.center(0.5f).next(W, H);
+        assertEquals(160, r.getLeft());
+        assertEquals(120, r.getTop());
+        assertEquals(320, r.getWidth());
+        assertEquals(240, r.getHeight());
+        assertFalse(r.covers(W, H));
+        assertTrue(RegionOfInterest.full().next(W, H).covers(W, H));
+
+        RegionOfInterest.Region odd = RegionOfInterest.center(0.37f).next(641, 479);
+        assertEquals(0, (odd.getLeft() | odd.getTop() | odd.getWidth() | odd.getHeight()) & 1);
+        assertTrue(odd.getLeft() + odd.getWidth() <= 641 && odd.getTop() + odd.getHeight() <= 479);
+    }
+
+    @Test
+    public void tiles_roundRobinCoverWholeFrame() {
+        RegionOfInterest roi = RegionOfInterest.tiles(2, 2, 0.1f);
+        boolean[] covered = new boolean[W * H];
+        for (int i = 0; i < roi.getTileCount(); i++) {
+            assertEquals(i, roi.getNextTile());
+            RegionOfInterest.Region r = roi.next(W, H);
+            assertTrue(r.getLeft() >= 0 && r.getLeft() + r.getWidth() <= W);
+            assertTrue(r.getTop() >= 0 && r.getTop() + r.getHeight() <= H);
+            for (int y = r.getTop(); y < r.getTop() + r.getHeight(); y++) {
+                for (int x = r.getLeft(); x < r.getLeft() + r.getWidth(); x++) covered[y * W + x] = true;
+            }
+        }
+        // Ciclo completo: vuelve a la primera baldosa
+        assertEquals(0, roi.getNextTile());
+        for (boolean c : covered) assertTrue(c);
+    }
+
+    @Test
+    public void offsets_mapCroppedRotatedCoordinatesToFullFrame() {
+        // Baldosa central inferior: no toca ningún borde salvo el de abajo
+        RegionOfInterest roi = RegionOfInterest.tiles(3, 2, 0.15f);
+        roi.next(W, H);
+        roi.next(W, H);
+        roi.next(W, H);
+        roi.next(W, H);
+        RegionOfInterest.Region r = roi.next(W, H);
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            int dx = r.offsetX(rotation, W, H);
+            int dy = r.offsetY(rotation, W, H);
+            int[][] corners = {
+                    {r.getLeft(), r.getTop()},
+                    {r.getLeft() + r.getWidth() - 1, r.getTop() + r.getHeight() - 1},
+                    {r.getLeft() + 7, r.getTop() + r.getHeight() - 3}};
+            for (int[] p : corners) {
+                int[] full = rotate(p[0], p[1], W, H, rotation);
+                int[] crop = rotate(p[0] - r.getLeft(), p[1] - r.getTop(), r.getWidth(), r.getHeight(), rotation);
+                assertEquals("x rot " + rotation, full[0], crop[0] + dx);
+                assertEquals("y rot " + rotation, full[1], crop[1] + dy);
+            }
+        }
+    }
+
+    @Test
+    public void cropToNv21_copiesLumaAndInterleavesChroma() {
+        int w = 16;
+        int h = 8;
+        int yStride = 20;
+        int uvStride = 20;
+        // Semiplanar (pixelStride 2) como en la mayoría de dispositivos
+        ByteBuffer y = ByteBuffer.allocate(yStride * h);
+        ByteBuffer u = ByteBuffer.allocate(uvStride * h / 2);
+        ByteBuffer v = ByteBuffer.allocate(uvStride * h / 2);
+        for (int row = 0; row < h; row++) {
+            for (int x = 0; x < w; x++) y.put(row * yStride + x, (byte) (row * 16 + x));
+        }
+        for (int row = 0; row < h / 2; row++) {
+            for (int x = 0; x < w / 2; x++) {
+                u.put(row * uvStride + x * 2, (byte) (100 + row * 8 + x));
+                v.put(row * uvStride + x * 2, (byte) (200 + row * 8 + x));
+            }
+        }
+        byte[] out = new byte[YuvCropper.nv21Size(6, 4)];
+        YuvCropper.cropToNv21(y, yStride, u, v, uvStride, 2, 4, 2, 6, 4, out);
+
+        for (int row = 0; row < 4; row++) {
+            for (int x = 0; x < 6; x++) {
+                assertEquals((byte) ((row + 2) * 16 + x + 4), out[row * 6 + x]);
+            }
+        }
+        int o = 24;
+        for (int row = 0; row < 2; row++) {
+            for (int x = 0; x < 3; x++) {
+                assertEquals("V", (byte) (200 + (row + 1) * 8 + x + 2), out[o++]);
+                assertEquals("U", (byte) (100 + (row + 1) * 8 + x + 2), out[o++]);
+            }
+        }
+        assertEquals(0, y.position());
+    }
+}
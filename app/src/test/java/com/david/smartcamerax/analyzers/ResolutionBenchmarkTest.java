@@ -0,0 +1,74 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class ResolutionBenchmarkTest {
+
+    private static ResolutionBenchmark.Sample sample(String profile, int w, int h, double p50, float accuracy) {
+        return new ResolutionBenchmark.Sample(profile, w, h, p50, p50 * 1.5, accuracy, 15);
+    }
+
+    @Test
+    public void choose_smallestAccurateWithinBudget() {
+        ResolutionBenchmark benchmark = new ResolutionBenchmark();
+        benchmark.add(sample("barcode", 640, 480, 18, 1f));
+        benchmark.add(sample("barcode", 1280, 720, 35, 1f));
+        benchmark.add(sample("barcode", 1920, 1080, 70, 1f));
+        benchmark.add(sample("balanced", 640, 480, 60, 0.4f));
+        benchmark.add(sample("balanced", 1280, 720, 120, 0.95f));
+        benchmark.add(sample("balanced", 1920, 1080, 260, 1f));
+
+        AnalysisProfile barcode = benchmark.apply(AnalysisProfile.barcode());
+        assertEquals(640, barcode.getWidth());
+        assertEquals(480, barcode.getHeight());
+        // La resolución del benchmark no cambia la región de interés del preset
+        assertEquals(RegionOfInterest.Mode.CENTER, barcode.getRegionOfInterest().getMode());
+        AnalysisProfile balanced = benchmark.apply(AnalysisProfile.balanced());
+        assertEquals(1280, balanced.getWidth());
+        assertEquals(RegionOfInterest.Mode.FULL, balanced.getRegionOfInterest().getMode());
+        // Sin muestras: la resolución del preset
+        assertEquals(1920, benchmark.apply(AnalysisProfile.denseText()).getWidth());
+    }
+
+    @Test
+    public void choose_fallsBackToFastestAccurateThenMostAccurate() {
+        ResolutionBenchmark overBudget = new ResolutionBenchmark();
+        overBudget.add(sample("dense_text", 1280, 720, 500, 0.92f));
+        overBudget.add(sample("dense_text", 1920, 1080, 900, 0.99f));
+        assertEquals(1280, overBudget.choose(AnalysisProfile.denseText()).getWidth());
+
+        ResolutionBenchmark inaccurate = new ResolutionBenchmark();
+        inaccurate.add(sample("dense_text", 1280, 720, 100, 0.5f));
+        inaccurate.add(sample("dense_text", 1920, 1080, 200, 0.8f));
+        assertEquals(1920, inaccurate.choose(AnalysisProfile.denseText()).getWidth());
+    }
+
+    @Test
+    public void csv_roundTripsAndRejectsMalformedLines() throws IOException {
+        ResolutionBenchmark benchmark = new ResolutionBenchmark();
+        benchmark.add(sample("barcode", 640, 480, 18.25, 0.967f));
+        StringWriter out = new StringWriter();
+        benchmark.write(out);
+
+        ResolutionBenchmark read = ResolutionBenchmark.read(new StringReader("# comentario\n" + out));
+        assertEquals(1, read.getSamples().size());
+        ResolutionBenchmark.Sample s = read.getSamples().get(0);
+        assertEquals("barcode", s.getProfile());
+        assertEquals(480, s.getHeight());
+        assertEquals(18.25, s.getP50Ms(), 1e-9);
+        assertEquals(0.967f, s.getAccuracy(), 1e-6f);
+
+        try {
+            ResolutionBenchmark.read(new StringReader("barcode,640,x,1,1,1,1\n"));
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().startsWith("Línea 1"));
+        }
+    }
+}
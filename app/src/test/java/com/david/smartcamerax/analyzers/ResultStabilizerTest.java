@@ -0,0 +1,73 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResultStabilizerTest {
+
+    private static AnalysisResult frame(long t, String... values) {
+        AnalysisResult.Builder b = new AnalysisResult.Builder();
+        for (String v : values) {
+            if (v.startsWith("qr:")) {
+                b.addBarcode(v.substring(3), 256, 10, 10, 50, 50);
+            } else {
+                b.addText(v, 0, (int) t, 100, (int) t + 10);
+            }
+        }
+        return b.build(t, 640, 480);
+    }
+
+    @Test
+    public void repeatedResult_isEmittedOnce() {
+        ResultStabilizer s = new ResultStabilizer(5, 3);
+        assertNull(s.offer(frame(1, "hola")));
+        assertNull(s.offer(frame(2, "hola")));
+        AnalysisResult stable = s.offer(frame(3, "hola"));
+        assertNotNull(stable);
+        assertEquals("TEXTO: hola", stable.toDisplayString());
+        for (int i = 4; i < 20; i++) assertNull(s.offer(frame(i, "hola")));
+        assertEquals(1, s.getEmitted());
+    }
+
+    @Test
+    public void flicker_isNotConfirmed() {
+        ResultStabilizer s = new ResultStabilizer(5, 3);
+        assertNull(s.offer(frame(1, "ruido")));
+        assertNull(s.offer(frame(2)));
+        assertNull(s.offer(frame(3, "otro")));
+        assertNull(s.offer(frame(4)));
+        assertNull(s.offer(frame(5)));
+        assertEquals(0, s.getEmitted());
+    }
+
+    @Test
+    public void confirmed_survivesMissedFramesAndExpiresAfterWindow() {
+        ResultStabilizer s = new ResultStabilizer(4, 2);
+        s.offer(frame(1, "qr:abc"));
+        AnalysisResult stable = s.offer(frame(2, "qr:abc", "texto"));
+        assertEquals("QR: abc", stable.toDisplayString());
+        // Lecturas fallidas sueltas no retiran el código
+        assertNull(s.offer(frame(3)));
+        assertNull(s.offer(frame(4, "qr:abc")));
+        assertNull(s.offer(frame(5)));
+        assertNull(s.offer(frame(6)));
+        assertNull(s.offer(frame(7)));
+        // Cuarto frame sin verlo: sale de la ventana y se emite el vacío
+        AnalysisResult gone = s.offer(frame(8));
+        assertNotNull(gone);
+        assertTrue(gone.isEmpty());
+    }
+
+    @Test
+    public void emittedResult_carriesLatestBoundsAndNormalizedText() {
+        ResultStabilizer s = new ResultStabilizer(3, 2);
+        s.offer(frame(1, "  dos   palabras "));
+        AnalysisResult stable = s.offer(frame(7, "dos palabras"));
+        AnalysisResult.Item item = stable.getItems().get(0);
+        assertEquals("dos palabras", item.getValue());
+        assertEquals(7, item.getTop());
+        assertEquals(7, stable.getTimestampNanos());
+        assertEquals(1, stable.getItems(AnalysisResult.Kind.TEXT).size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SceneChangeGateTest {
+
+    private static final int W = 320;
+    private static final int H = 240;
+    // Stride mayor que el ancho, como en muchos planos Y reales
+    private static final int STRIDE = 336;
+    private static final long MS = 1_000_000L;
+
+    // Escena estática con textura y ruido de sensor opcional
+    private static ByteBuffer frame(long noiseSeed, int noise, int shift) {
+        ByteBuffer y = ByteBuffer.allocateDirect(STRIDE * H);
+        Random random = new Random(noiseSeed);
+        for (int row = 0; row < H; row++) {
+            for (int x = 0; x < W; x++) {
+                int v = ((x + shift) / 20 + row / 20) % 2 == 0 ? 60 : 190;
+                if (noise > 0) v += random.nextInt(2 * noise + 1) - noise;
+                y.put(row * STRIDE + x, (byte) Math.max(0, Math.min(255, v)));
+            }
+        }
+        return y;
+    }
+
+    @Test
+    public void staticNoisyScene_isSkipped() {
+        SceneChangeGate gate = new SceneChangeGate(6f, 2000);
+        assertTrue(gate.shouldProcess(frame(0, 4, 0), STRIDE, W, H, 0));
+        for (int i = 1; i <= 50; i++) {
+            assertFalse("frame " + i, gate.shouldProcess(frame(i, 4, 0), STRIDE, W, H, i * 33 * MS));
+        }
+        assertEquals(1, gate.getProcessed());
+        assertEquals(50, gate.getSkipped());
+        assertTrue(gate.getSkipRatio() > 0.95);
+    }
+
+    @Test
+    public void movedScene_isProcessed() {
+        SceneChangeGate gate = new SceneChangeGate(6f, 2000);
+        gate.shouldProcess(frame(0, 0, 0), STRIDE, W, H, 0);
+        assertTrue(gate.shouldProcess(frame(1, 0, 10), STRIDE, W, H, 33 * MS));
+        assertTrue(gate.getLastDifference() >= 6f);
+    }
+
+    @Test
+    public void staticScene_isRefreshedPeriodically() {
+        SceneChangeGate gate = new SceneChangeGate(6f, 1000);
+        ByteBuffer y = frame(0, 0, 0);
+        assertTrue(gate.shouldProcess(y, STRIDE, W, H, 0));
+        assertFalse(gate.shouldProcess(y, STRIDE, W, H, 999 * MS));
+        assertTrue(gate.shouldProcess(y, STRIDE, W, H, 1000 * MS));
+        assertEquals(1, gate.getForced());
+        assertFalse(gate.shouldProcess(y, STRIDE, W, H, 1500 * MS));
+
+        gate.invalidate();
+        assertTrue(gate.shouldProcess(y, STRIDE, W, H, 1501 * MS));
+    }
+
+    @Test
+    public void references_areIndependent() {
+        SceneChangeGate gate = new SceneChangeGate(6f, 10_000);
+        SceneChangeGate.Reference fast = new SceneChangeGate.Reference();
+        SceneChangeGate.Reference slow = new SceneChangeGate.Reference();
+        gate.sample(frame(0, 0, 0), STRIDE, W, H);
+        assertTrue(gate.shouldProcess(fast, 0));
+        assertTrue(gate.shouldProcess(slow, 0));
+
+        // Solo "fast" evalúa la escena movida: "slow" sigue comparando con la original
+        gate.sample(frame(0, 0, 10), STRIDE, W, H);
+        assertTrue(gate.shouldProcess(fast, 33 * MS));
+        assertFalse(gate.shouldProcess(fast, 66 * MS));
+        assertTrue(gate.shouldProcess(slow, 66 * MS));
+
+        gate.invalidate();
+        assertTrue(gate.shouldProcess(fast, 99 * MS));
+        assertTrue(gate.shouldProcess(slow, 99 * MS));
+    }
+}
@@ -0,0 +1,114 @@
+package com.david.smartcamerax.analyzers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TextPresenceDetectorTest {
+
+    private static final int W = 640;
+    private static final int H = 480;
+
+    // Plano Y con padding al final de cada fila, como los de la cámara
+    private static final int STRIDE = W + 32;
+
+    private static byte[] plane(int value) {
+        byte[] y = new byte[STRIDE * H];
+        Arrays.fill(y, (byte) value);
+        return y;
+    }
+
+    private static void fill(byte[] y, int left, int top, int right, int bottom, int value) {
+        for (int row = top; row < bottom; row++) {
+            for (int col = left; col < right; col++) {
+                y[row * STRIDE + col] = (byte) value;
+            }
+        }
+    }
+
+    // Líneas de "texto": glifos de 8x12 px hechos de trazos de 2 px, con espacios entre palabras
+    private static void drawText(byte[] y, int left, int top, int lines, int chars, long seed) {
+        Random random = new Random(seed);
+        for (int line = 0; line < lines; line++) {
+            int gy = top + line * 22;
+            for (int c = 0; c < chars; c++) {
+                if (random.nextInt(6) == 0) continue; // espacio
+                int gx = left + c * 10;
+                fill(y, gx, gy, gx + 2, gy + 12, 20);                         // trazo vertical
+                if (random.nextBoolean()) fill(y, gx + 6, gy, gx + 8, gy + 12, 20);
+                if (random.nextBoolean()) fill(y, gx, gy, gx + 8, gy + 2, 20); // trazo horizontal
+                if (random.nextBoolean()) fill(y, gx, gy + 5, gx + 8, gy + 7, 20);
+                if (random.nextBoolean()) fill(y, gx, gy + 10, gx + 8, gy + 12, 20);
+            }
+        }
+    }
+
+    private static float score(byte[] y) {
+        return new TextPresenceDetector().score(ByteBuffer.wrap(y), STRIDE, W, H);
+    }
+
+    @Test
+    public void flatAndSmoothScenes_scoreZero() {
+        assertEquals(0f, score(plane(128)), 0f);
+
+        byte[] gradient = plane(0);
+        for (int row = 0; row < H; row++) {
+            for (int col = 0; col < W; col++) {
+                gradient[row * STRIDE + col] = (byte) (col * 255 / W);
+            }
+        }
+        assertEquals(0f, score(gradient), 0f);
+    }
+
+    @Test
+    public void objectContours_areNotText() {
+        // Objetos grandes con bordes nítidos: una sola polaridad por celda y pocos bordes
+        byte[] y = plane(200);
+        fill(y, 0, 0, W / 2, H, 40);
+        fill(y, 400, 100, 560, 300, 90);
+        assertTrue(score(y) < TextPresenceDetector.DEFAULT_MIN_SCORE);
+    }
+
+    @Test
+    public void strongNoise_isNotText() {
+        byte[] y = plane(0);
+        Random random = new Random(7);
+        for (int i = 0; i < y.length; i++) y[i] = (byte) random.nextInt(256);
+        assertTrue(score(y) < TextPresenceDetector.DEFAULT_MIN_SCORE);
+    }
+
+    @Test
+    public void textBlock_isDetected() {
+        byte[] y = plane(235);
+        drawText(y, 60, 60, 8, 40, 1);
+        float score = score(y);
+        assertTrue("score=" + score, score >= 0.1f);
+    }
+
+    @Test
+    public void smallTextOrBarcode_passesDefaultThreshold() {
+        // Una sola línea corta de texto
+        byte[] text = plane(235);
+        drawText(text, 300, 220, 1, 12, 3);
+        TextPresenceDetector detector = new TextPresenceDetector();
+        assertTrue(detector.shouldProcess(ByteBuffer.wrap(text), STRIDE, W, H));
+
+        // Código 1D de 160x80 px: barras verticales de 2..6 px
+        byte[] barcode = plane(230);
+        Random random = new Random(11);
+        for (int x = 240; x < 400; ) {
+            int bar = 2 + random.nextInt(3) * 2;
+            fill(barcode, x, 200, Math.min(400, x + bar), 280, 15);
+            x += bar + 2 + random.nextInt(3) * 2;
+        }
+        assertTrue(detector.shouldProcess(ByteBuffer.wrap(barcode), STRIDE, W, H));
+
+        assertFalse(detector.shouldProcess(ByteBuffer.wrap(plane(90)), STRIDE, W, H));
+        assertEquals(2, detector.getAccepted());
+        assertEquals(1, detector.getRejected());
+    }
+}
@@ -0,0 +1,95 @@
+package com.david.smartcamerax.capture;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class StripJpegEncoderTest {
+
+    // Degradado suave con algo de textura: lo que un JPEG de calidad alta reproduce casi exacto
+    private static int[] gradient(int w, int h) {
+        int[] px = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int r = x * 255 / (w - 1);
+                int g = y * 255 / (h - 1);
+                int b = ((x + y) * 4) & 0xFF;
+                px[y * w + x] = 0xFF000000 | (r << 16) | (g << 8) | (b >> 1);
+            }
+        }
+        return px;
+    }
+
+    private static byte[] encode(int[] px, int w, int h, int strip, int rotation) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StripJpegEncoder encoder = new StripJpegEncoder(out, w, h, 95, rotation);
+        for (int top = 0; top < h; top += strip) {
+            encoder.writeRows(px, top * w, w, Math.min(strip, h - top));
+        }
+        encoder.finish();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void stripsDecodeToOriginal() throws IOException {
+        // Tamaño no múltiplo de 16 y franjas que no coinciden con las filas de MCU
+        int w = 83, h = 61;
+        int[] px = gradient(w, h);
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(encode(px, w, h, 7, 0)));
+        assertNotNull(img);
+        assertEquals(w, img.getWidth());
+        assertEquals(h, img.getHeight());
+        long error = 0;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int a = px[y * w + x];
+                int b = img.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    error += Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF));
+                }
+            }
+        }
+        double mean = error / (3.0 * w * h);
+        assertTrue("error medio " + mean, mean < 3.0);
+    }
+
+    @Test
+    public void stripHeight_doesNotChangeOutput() throws IOException {
+        int w = 40, h = 50;
+        int[] px = gradient(w, h);
+        assertArrayEquals(encode(px, w, h, h, 0), encode(px, w, h, 3, 0));
+    }
+
+    @Test
+    public void rotation_isWrittenAsExifOrientation() throws IOException {
+        byte[] jpeg = encode(gradient(16, 16), 16, 16, 16, 90);
+        // SOI, APP1 y la entrada 0x0112 con valor 6 en el IFD0
+        assertEquals((byte) 0xE1, jpeg[3]);
+        assertEquals('E', jpeg[6]);
+        assertEquals(0x01, jpeg[22]);
+        assertEquals(0x12, jpeg[23]);
+        assertEquals(6, jpeg[31]);
+        assertEquals(1, StripJpegEncoder.exifOrientation(0));
+        assertEquals(3, StripJpegEncoder.exifOrientation(180));
+        assertEquals(8, StripJpegEncoder.exifOrientation(270));
+    }
+
+    @Test
+    public void finish_requiresAllRows() throws IOException {
+        StripJpegEncoder encoder = new StripJpegEncoder(new ByteArrayOutputStream(), 8, 8, 90, 0);
+        encoder.writeRows(new int[64], 0, 8, 4);
+        try {
+            encoder.finish();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.david.smartcamerax.capture;
+
+import com.david.smartcamerax.filters.FilterChain;
+import com.david.smartcamerax.filters.QualityTier;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StripPipelineTest {
+
+    private static int[] randomPixels(int n, long seed) {
+        Random random = new Random(seed);
+        int[] px = new int[n];
+        for (int i = 0; i < n; i++) px[i] = 0xFF000000 | random.nextInt(0x1000000);
+        return px;
+    }
+
+    private static int[] runStrips(FilterChain chain, int[] src, int w, int h, long budget) throws Exception {
+        int[] out = new int[src.length];
+        int[] next = {0};
+        StripPipeline pipeline = new StripPipeline(chain, w, h, budget);
+        assertTrue(pipeline.getStripRows() < h);
+        pipeline.run((top, rows, dst) -> System.arraycopy(src, top * w, dst, 0, rows * w),
+                (argb, offset, stride, count) -> {
+                    for (int i = 0; i < count; i++) {
+                        System.arraycopy(argb, offset + i * stride, out, next[0] * w, w);
+                        next[0]++;
+                    }
+                }, null);
+        assertEquals(h, next[0]);
+        return out;
+    }
+
+    @Test
+    public void strips_matchWholeFrame() throws Exception {
+        int w = 96, h = 256;
+        int[] src = randomPixels(w * h, 21);
+        FilterChain[] chains = {
+                new FilterChain.Builder("color").sepia().contrast(1.2f).build(),
+                new FilterChain.Builder("blur").gaussianBlur(3f).tier(QualityTier.FULL).build(),
+                new FilterChain.Builder("mix").sepia().boxBlur(2).tier(QualityTier.QUARTER).edges().build(),
+                new FilterChain.Builder("sharp").sharpen(1f, 1.5f).tier(QualityTier.HALF).build()
+        };
+        for (FilterChain chain : chains) {
+            int[] expected = new int[src.length];
+            chain.apply(src, expected, w, h, null);
+            // Presupuesto pequeño para forzar muchas franjas
+            assertArrayEquals(chain.getName(), expected, runStrips(chain, src, w, h, 4L * w * 64));
+        }
+    }
+
+    @Test
+    public void stripBuffer_isSmallFractionOfFrame() {
+        int w = 4000, h = 3000;
+        FilterChain chain = new FilterChain.Builder("blur").gaussianBlur(1.5f).tier(QualityTier.QUARTER).build()
+                .scaled(h / 480f);
+        StripPipeline pipeline = new StripPipeline(chain, w, h, 4L * 1024 * 1024);
+        long frameBytes = 4L * w * h;
+        assertTrue(pipeline.getStripBytes() * 8 < frameBytes);
+        assertEquals(0, pipeline.getStripRows() % 16);
+    }
+}
@@ -0,0 +1,85 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests JVM del motor de píxeles: no dependen de android.graphics.
+ */
+public class ColorMatrixKernelTest {
+
+    @Test
+    public void identity_preservesPixels() {
+        int[] src = {0xFF000000, 0xFFFFFFFF, 0x80123456, 0xFF7F7F7F};
+        int[] dst = new int[src.length];
+        ColorMatrixKernel.IDENTITY.apply(src, 0, dst, 0, src.length);
+        assertArrayEquals(src, dst);
+    }
+
+    @Test
+    public void grayscale_usesAndroidLumaWeights() {
+        int[] px = {0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFFFFFF};
+        ColorMatrixKernel.GRAYSCALE.apply(px, 0, px, 0, px.length);
+        assertEquals(0xFF363636, px[0]); // 0.213 * 255 = 54
+        assertEquals(0xFFB6B6B6, px[1]); // 0.715 * 255 = 182
+        assertEquals(0xFF121212, px[2]); // 0.072 * 255 = 18
+        assertEquals(0xFFFFFFFF, px[3]);
+    }
+
+    @Test
+    public void sepia_clampsAndKeepsAlpha() {
+        int[] px = {0x80FFFFFF};
+        ColorMatrixKernel.SEPIA.apply(px, 0, px, 0, 1);
+        assertEquals(0x80, px[0] >>> 24);
+        assertEquals(255, (px[0] >> 16) & 0xFF);
+        assertEquals(255, (px[0] >> 8) & 0xFF);
+        assertEquals(239, px[0] & 0xFF); // 0.937 * 255
+    }
+
+    @Test
+    public void inPlace_matchesSeparateOutput() {
+        int[] src = randomPixels(1920 * 4, 7);
+        int[] out = new int[src.length];
+        ColorMatrixKernel.SEPIA.apply(src, 0, out, 0, src.length);
+        ColorMatrixKernel.SEPIA.applyRows(src, src, 1920, 0, 4);
+        assertArrayEquals(out, src);
+    }
+
+    @Test
+    public void rgbaBuffer_matchesIntPath() {
+        int[] argb = randomPixels(257, 3);
+        ByteBuffer rgba = ByteBuffer.allocateDirect(argb.length * 4);
+        for (int i = 0; i < argb.length; i++) {
+            int c = argb[i];
+            rgba.put(i * 4, (byte) (c >> 16)).put(i * 4 + 1, (byte) (c >> 8))
+                    .put(i * 4 + 2, (byte) c).put(i * 4 + 3, (byte) (c >>> 24));
+        }
+        ColorMatrixKernel.GRAYSCALE.apply(argb, 0, argb, 0, argb.length);
+        ColorMatrixKernel.GRAYSCALE.applyRgba(rgba, 0, rgba, 0, argb.length);
+        for (int i = 0; i < argb.length; i++) {
+            int c = argb[i];
+            assertEquals((c >> 16) & 0xFF, rgba.get(i * 4) & 0xFF);
+            assertEquals(c & 0xFF, rgba.get(i * 4 + 2) & 0xFF);
+            assertEquals(c >>> 24, rgba.get(i * 4 + 3) & 0xFF);
+        }
+    }
+
+    @Test
+    public void frameBuffer_reusesArrayForSameSize() {
+        FrameBuffer buffer = new FrameBuffer();
+        int[] first = buffer.obtain(1920 * 1080);
+        assertSame(first, buffer.obtain(1920 * 1080));
+        assertSame(first, buffer.obtain(640 * 480));
+        assertNotSame(first, buffer.obtain(4000 * 3000));
+    }
+
+    static int[] randomPixels(int n, long seed) {
+        java.util.Random rnd = new java.util.Random(seed);
+        int[] px = new int[n];
+        for (int i = 0; i < n; i++) px[i] = rnd.nextInt();
+        return px;
+    }
+}
@@ -0,0 +1,59 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * Tiempo por frame del box blur y del gaussiano (3 box) para radios 1..50 sobre un frame 720p.
+ * Con ventana deslizante el tiempo debe mantenerse plano al crecer el radio; el 2D directo se
+ * mide solo en radios pequeños como referencia (crece con (2r+1)^2).
+ * No es un test: se ejecuta a mano (main) en la máquina o dispositivo a medir.
+ */
+public class ConvolutionBenchmark {
+
+    private static final int W = 1280;
+    private static final int H = 720;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 15;
+    private static final int[] RADII = {1, 2, 5, 10, 20, 30, 40, 50};
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int[] src = ColorMatrixKernelTest.randomPixels(W * H, 1);
+        int[] dst = new int[src.length];
+        System.out.println("cores=" + Runtime.getRuntime().availableProcessors() + " threads=" + threads
+                + " frame=" + W + "x" + H);
+        System.out.println("radius  box ms  gauss ms  naive2D ms");
+        try (TiledExecutor tiles = new TiledExecutor(threads)) {
+            for (int r : RADII) {
+                double box = time(SeparableBlur.box(r), src, dst, tiles);
+                // Gaussiana con el mismo soporte aproximado que el box de radio r
+                double gauss = time(SeparableBlur.gaussian(r / 1.5f), src, dst, tiles);
+                String naive = r <= 5 ? String.format("%10.2f", timeNaive(src, dst, r)) : "         -";
+                System.out.printf("%6d  %6.2f  %8.2f  %s%n", r, box, gauss, naive);
+            }
+        }
+    }
+
+    private static double time(FrameFilter filter, int[] src, int[] dst, TiledExecutor tiles) {
+        for (int i = 0; i < WARMUP; i++) filter.apply(src, dst, W, H, tiles);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) filter.apply(src, dst, W, H, tiles);
+        return (System.nanoTime() - t0) / 1e6 / ITERATIONS;
+    }
+
+    // Kernel 2D sin separar, solo canal verde para acotar el tiempo de la referencia
+    private static double timeNaive(int[] src, int[] dst, int r) {
+        long t0 = System.nanoTime();
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int sum = 0;
+                for (int dy = -r; dy <= r; dy++) {
+                    int row = Math.min(Math.max(y + dy, 0), H - 1) * W;
+                    for (int dx = -r; dx <= r; dx++) {
+                        sum += (src[row + Math.min(Math.max(x + dx, 0), W - 1)] >> 8) & 0xFF;
+                    }
+                }
+                dst[y * W + x] = sum;
+            }
+        }
+        return (System.nanoTime() - t0) / 1e6;
+    }
+}
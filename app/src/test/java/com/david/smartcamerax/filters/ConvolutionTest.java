@@ -0,0 +1,136 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConvolutionTest {
+
+    private static final int W = 37;
+    private static final int H = 23;
+
+    // Box blur 2D directo con bordes replicados (referencia lenta)
+    private static int[] naiveBox(int[] src, int w, int h, int r) {
+        int[] out = new int[src.length];
+        int area = (2 * r + 1) * (2 * r + 1);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int sr = 0, sg = 0, sb = 0;
+                for (int dy = -r; dy <= r; dy++) {
+                    int yy = Math.min(Math.max(y + dy, 0), h - 1);
+                    for (int dx = -r; dx <= r; dx++) {
+                        int xx = Math.min(Math.max(x + dx, 0), w - 1);
+                        int p = src[yy * w + xx];
+                        sr += (p >> 16) & 0xFF;
+                        sg += (p >> 8) & 0xFF;
+                        sb += p & 0xFF;
+                    }
+                }
+                out[y * w + x] = (src[y * w + x] & 0xFF000000)
+                        | (Math.round(sr / (float) area) << 16) | (Math.round(sg / (float) area) << 8)
+                        | Math.round(sb / (float) area);
+            }
+        }
+        return out;
+    }
+
+    private static void assertClose(int[] expected, int[] actual, int tolerance) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("alpha " + i, expected[i] >>> 24, actual[i] >>> 24);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int a = (expected[i] >> shift) & 0xFF;
+                int b = (actual[i] >> shift) & 0xFF;
+                assertTrue("pixel " + i + " " + a + " vs " + b, Math.abs(a - b) <= tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void boxBlur_matchesNaiveKernel() {
+        int[] src = ColorMatrixKernelTest.randomPixels(W * H, 11);
+        for (int r : new int[]{1, 2, 5, 30}) {
+            int[] out = new int[src.length];
+            SeparableBlur.box(r).apply(src, out, W, H, null);
+            // Separable redondea dos veces: como mucho 1 nivel frente al 2D directo
+            assertClose(naiveBox(src, W, H, r), out, 1);
+        }
+    }
+
+    @Test
+    public void blur_keepsConstantImage() {
+        int[] src = new int[W * H];
+        java.util.Arrays.fill(src, 0xFF7F3A10);
+        int[] out = new int[src.length];
+        SeparableBlur.gaussian(4f).apply(src, out, W, H, null);
+        assertArrayEquals(src, out);
+        new UnsharpMask(1.5f, 2f).apply(src, out, W, H, null);
+        assertArrayEquals(src, out);
+    }
+
+    @Test
+    public void gaussianRadii_matchVariance() {
+        for (float sigma : new float[]{1f, 2.5f, 6f, 20f}) {
+            int[] radii = Convolution.gaussianRadii(sigma, 3);
+            double variance = 0;
+            for (int r : radii) {
+                int width = 2 * r + 1;
+                variance += (width * width - 1) / 12.0;
+            }
+            assertTrue("sigma " + sigma + " varianza " + variance,
+                    Math.abs(Math.sqrt(variance) - sigma) < 0.5);
+        }
+        assertEquals(0, SeparableBlur.gaussian(0f).getRadii().length);
+    }
+
+    @Test
+    public void tiledAndInPlace_matchSequential() {
+        int w = 160, h = 120;
+        int[] src = ColorMatrixKernelTest.randomPixels(w * h, 3);
+        FrameFilter[] filters = {SeparableBlur.box(7), SeparableBlur.gaussian(3f), new UnsharpMask(1f, 1.5f), new SobelEdges()};
+        try (TiledExecutor tiles = new TiledExecutor(4)) {
+            for (FrameFilter f : filters) {
+                int[] expected = new int[src.length];
+                f.apply(src, expected, w, h, null);
+                int[] tiled = new int[src.length];
+                f.apply(src, tiled, w, h, tiles);
+                assertArrayEquals(expected, tiled);
+                int[] inPlace = src.clone();
+                f.apply(inPlace, inPlace, w, h, tiles);
+                assertArrayEquals(expected, inPlace);
+            }
+        }
+    }
+
+    @Test
+    public void sobel_flatIsBlackAndStepIsBright() {
+        int w = 8, h = 4;
+        int[] px = new int[w * h];
+        for (int i = 0; i < px.length; i++) px[i] = (i % w) < 4 ? 0xFF000000 : 0xFFFFFFFF;
+        int[] out = new int[px.length];
+        new SobelEdges().apply(px, out, w, h, null);
+        for (int y = 0; y < h; y++) {
+            assertEquals(0xFF000000, out[y * w]);
+            assertEquals(0xFF000000, out[y * w + 7]);
+            assertEquals(0xFFFFFFFF, out[y * w + 3]);
+            assertEquals(0xFFFFFFFF, out[y * w + 4]);
+        }
+    }
+
+    @Test
+    public void chain_splitsPointwiseGroupsAroundFrameFilters() {
+        FilterChain chain = new FilterChain.Builder("mix")
+                .sepia().contrast(1.1f).gaussianBlur(2f).grayscale().build();
+        assertEquals(3, chain.getStageCount());
+        assertTrue(chain.hasFrameFilters());
+        assertFalse(chain.isMonochrome());
+
+        int[] src = ColorMatrixKernelTest.randomPixels(W * H, 9);
+        int[] expected = src.clone();
+        new FilterChain.Builder("a").sepia().contrast(1.1f).build().apply(expected, expected, W, H, null);
+        SeparableBlur.gaussian(2f).apply(expected, expected, W, H, null);
+        new FilterChain.Builder("b").grayscale().build().apply(expected, expected, W, H, null);
+        int[] out = new int[src.length];
+        chain.apply(src, out, W, H, null);
+        assertArrayEquals(expected, out);
+    }
+}
@@ -0,0 +1,83 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FilterChainTest {
+
+    @Test
+    public void adjacentColorEffects_foldIntoSinglePass() {
+        FilterChain chain = new FilterChain.Builder("five")
+                .saturation(0.7f).sepia().contrast(1.1f).brightness(0.02f).tint(0xFFE0C0, 0.3f)
+                .build();
+        assertEquals(1, chain.getStageCount());
+        assertFalse(chain.isIdentity());
+    }
+
+    @Test
+    public void identityEffects_compileToNoStages() {
+        FilterChain chain = new FilterChain.Builder("noop")
+                .saturation(1f).contrast(1f).brightness(0f).build();
+        assertTrue(chain.isIdentity());
+        assertTrue(FilterChain.NONE.isIdentity());
+    }
+
+    @Test
+    public void fusedChain_matchesSequentialPasses() {
+        // Valores moderados para que las pasadas separadas no recorten en medio de la cadena
+        float[][] effects = {
+                ColorMatrices.saturation(0.6f),
+                ColorMatrices.contrast(0.8f),
+                ColorMatrices.sepia(),
+                ColorMatrices.brightness(-0.1f),
+                ColorMatrices.tint(0xFFD0A0, 0.5f)
+        };
+        FilterChain.Builder builder = new FilterChain.Builder("fused");
+        for (float[] m : effects) builder.colorMatrix(m);
+        FilterChain fused = builder.build();
+
+        int[] src = ColorMatrixKernelTest.randomPixels(64 * 64, 5);
+        for (int i = 0; i < src.length; i++) src[i] = 0xFF000000 | (src[i] & 0x7F7F7F);
+        int[] sequential = src.clone();
+        for (float[] m : effects) {
+            new ColorMatrixKernel(m).apply(sequential, 0, sequential, 0, sequential.length);
+        }
+        int[] out = new int[src.length];
+        fused.apply(src, out, 64, 64, null);
+
+        for (int i = 0; i < src.length; i++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int a = (out[i] >> shift) & 0xFF;
+                int b = (sequential[i] >> shift) & 0xFF;
+                assertTrue("pixel " + i + " diff " + a + " vs " + b, Math.abs(a - b) <= 3);
+            }
+        }
+    }
+
+    @Test
+    public void concat_appliesFirstThenSecond() {
+        // Primero contraste y después brillo (el orden importa por el offset del contraste)
+        float[] m = ColorMatrices.concat(ColorMatrices.brightness(0.1f), ColorMatrices.contrast(2f));
+        // contraste 2: x -> 2x - 128, luego +25.5
+        int[] px = {0xFF404040};
+        new ColorMatrixKernel(m).apply(px, 0, px, 0, 1);
+        assertEquals(26, px[0] & 0xFF);
+    }
+
+    @Test
+    public void parallelChain_isBitIdenticalToSequential() {
+        FilterChain chain = new FilterChain.Builder("vintage")
+                .saturation(0.7f).sepia().contrast(1.15f).brightness(-0.04f).tint(0xFFE8C8, 0.35f)
+                .stage(ColorMatrixKernel.GRAYSCALE)
+                .build();
+        int[] src = ColorMatrixKernelTest.randomPixels(640 * 480, 9);
+        int[] expected = new int[src.length];
+        chain.apply(src, expected, 640, 480, null);
+        int[] out = src.clone();
+        try (TiledExecutor tiles = new TiledExecutor(4)) {
+            chain.apply(out, out, 640, 480, tiles);
+        }
+        assertArrayEquals(expected, out);
+    }
+}
@@ -0,0 +1,111 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class Lut3DTest {
+
+    // LUT .cube generada: identidad o inversión de canales
+    private static String cube(int size, boolean invert) {
+        StringBuilder sb = new StringBuilder("# test\nTITLE \"Test\"\nLUT_3D_SIZE ").append(size).append('\n');
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    float fr = r / (float) (size - 1), fg = g / (float) (size - 1), fb = b / (float) (size - 1);
+                    if (invert) { fr = 1 - fr; fg = 1 - fg; fb = 1 - fb; }
+                    sb.append(fr).append(' ').append(fg).append(' ').append(fb).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void identityLut_isExactForEveryValue() throws IOException {
+        for (int size : new int[]{2, 17, 33}) {
+            Lut3D lut = Lut3D.parseCube(new StringReader(cube(size, false)));
+            int[] px = new int[256 * 3];
+            for (int v = 0; v < 256; v++) {
+                px[v] = 0xFF000000 | (v << 16);
+                px[256 + v] = 0x80000000 | (v << 8) | (255 - v);
+                px[512 + v] = 0xFF000000 | (v << 16) | ((v * 7 & 0xFF) << 8) | (v * 13 & 0xFF);
+            }
+            int[] out = new int[px.length];
+            lut.applyRows(px, out, 256, 0, 3);
+            assertArrayEquals("size=" + size, px, out);
+        }
+    }
+
+    @Test
+    public void invertLut_interpolatesLinearly() throws IOException {
+        Lut3D lut = Lut3D.parseCube(new StringReader(cube(5, true)));
+        int[] px = {0xFF000000, 0xFFFFFFFF, 0xFF204060, 0xFF7F8081};
+        int[] out = new int[px.length];
+        lut.applyRows(px, out, px.length, 0, 1);
+        for (int i = 0; i < px.length; i++) {
+            assertEquals(0xFF000000 | (~px[i] & 0xFFFFFF), out[i]);
+        }
+    }
+
+    @Test
+    public void parse_readsTitleAndDomain() throws IOException {
+        // Dominio de entrada 0..2: el blanco (1.0) cae a mitad de la rejilla
+        String text = "TITLE \"Doble\"\nDOMAIN_MIN 0 0 0\nDOMAIN_MAX 2 2 2\nLUT_3D_SIZE 2\n"
+                + "0 0 0\n1 0 0\n0 1 0\n1 1 0\n0 0 1\n1 0 1\n0 1 1\n1 1 1\n";
+        Lut3D lut = Lut3D.parseCube(new StringReader(text));
+        assertEquals("Doble", lut.getTitle());
+        assertEquals(2, lut.getSize());
+        int[] px = {0xFF000000, 0xFFFFFFFF};
+        lut.applyRows(px, px, px.length, 0, 1);
+        assertEquals(0xFF000000, px[0]);
+        assertEquals(0xFF808080, px[1]);
+    }
+
+    @Test
+    public void domain_mapsInputCoordinatesNotOutputValues() throws IOException {
+        // La rejilla cubre entradas 0..0.5 y devuelve la propia coordenada: identidad dentro del
+        // dominio y recorte a 0.5 fuera de él. Las salidas no se reescalan con el dominio.
+        String text = "DOMAIN_MIN 0 0 0\nDOMAIN_MAX 0.5 0.5 0.5\nLUT_3D_SIZE 2\n"
+                + "0 0 0\n.5 0 0\n0 .5 0\n.5 .5 0\n0 0 .5\n.5 0 .5\n0 .5 .5\n.5 .5 .5\n";
+        Lut3D lut = Lut3D.parseCube(new StringReader(text));
+        int[] px = {0xFF402010, 0xFFFFFFFF};
+        int[] out = new int[px.length];
+        lut.applyRows(px, out, px.length, 0, 1);
+        assertEquals(0xFF402010, out[0]);
+        assertEquals(0xFF808080, out[1]);
+    }
+
+    @Test
+    public void parse_rejectsIncompleteLut() {
+        try {
+            Lut3D.parseCube(new StringReader("LUT_3D_SIZE 2\n0 0 0\n1 1 1\n"));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("incompleta"));
+        }
+    }
+
+    @Test
+    public void parse_rejectsOversizedLutBeforeReadingData() {
+        try {
+            Lut3D.parseCube(new StringReader("LUT_3D_SIZE " + (Lut3D.MAX_SIZE + 1) + "\n0 0 0\n"));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("fuera de rango"));
+        }
+    }
+
+    @Test
+    public void lut_worksAsChainStage() throws IOException {
+        Lut3D lut = Lut3D.parseCube(new StringReader(cube(9, true)));
+        FilterChain chain = new FilterChain.Builder("lut").grayscale().stage(lut).build();
+        assertEquals(2, chain.getStageCount());
+        int[] px = {0xFFFFFFFF};
+        chain.apply(px, px, 1, 1, null);
+        assertEquals(0xFF000000, px[0]);
+    }
+}
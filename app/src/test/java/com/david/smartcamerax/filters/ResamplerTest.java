@@ -0,0 +1,91 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ResamplerTest {
+
+    @Test
+    public void downsample_averagesBlocks() {
+        // 4x2 -> 2x1: cada bloque 2x2 se promedia
+        int[] src = {
+                0xFF000000, 0xFF040404, 0xFFFF0000, 0xFFFF0000,
+                0xFF080808, 0xFF0C0C0C, 0xFF0000FF, 0xFF0000FF
+        };
+        int[] dst = new int[2];
+        Resampler.downsample(src, 4, 2, 2, dst, null);
+        assertEquals(0xFF060606, dst[0]);
+        assertEquals(0xFF800080, dst[1]);
+    }
+
+    @Test
+    public void downsample_smallerThanFactor_averagesWholeImage() {
+        // 3x3 con factor 4: el bloque se recorta a 3x3 (área 9, no potencia de 2)
+        int[] src = new int[9];
+        Arrays.fill(src, 0xFF808080);
+        int[] dst = new int[1];
+        Resampler.downsample(src, 3, 3, 4, dst, null);
+        assertEquals(0xFF808080, dst[0]);
+
+        // 3x1 con factor 4: media redondeada de 0, 0x30 y 0x60 por canal
+        int[] row = {0xFF000000, 0xFF303030, 0xFF606060};
+        Resampler.downsample(row, 3, 1, 4, dst, null);
+        assertEquals(0xFF303030, dst[0]);
+    }
+
+    @Test
+    public void constantImage_survivesRoundTrip() {
+        int w = 101, h = 67;
+        int[] src = new int[w * h];
+        Arrays.fill(src, 0xFF3C7A19);
+        for (QualityTier tier : QualityTier.values()) {
+            int sw = tier.scale(w), sh = tier.scale(h);
+            int[] small = new int[sw * sh];
+            Resampler.downsample(src, w, h, tier.getFactor(), small, null);
+            int[] back = new int[w * h];
+            Resampler.upscale(small, sw, sh, back, w, h, null);
+            assertArrayEquals(tier.name(), src, back);
+        }
+    }
+
+    @Test
+    public void upscale_interpolatesLinearlyBetweenCenters() {
+        // 2x1 -> 4x1: centros de origen en x=0.5 y x=2.5 del destino
+        int[] src = {0xFF000000, 0xFF808080};
+        int[] dst = new int[4];
+        Resampler.upscale(src, 2, 1, dst, 4, 1, null);
+        assertEquals(0xFF000000, dst[0]);
+        assertEquals(0xFF202020, dst[1]);
+        assertEquals(0xFF606060, dst[2]);
+        assertEquals(0xFF808080, dst[3]);
+    }
+
+    @Test
+    public void chainTier_defaultsAndTiledMatchesSequential() {
+        assertEquals(QualityTier.FULL, new FilterChain.Builder("c").sepia().build().getTier());
+        assertEquals(QualityTier.HALF, new FilterChain.Builder("b").gaussianBlur(2f).build().getTier());
+        FilterChain quarter = new FilterChain.Builder("q").boxBlur(2).tier(QualityTier.QUARTER).build();
+        assertEquals(QualityTier.QUARTER, quarter.getTier());
+
+        int w = 160, h = 120;
+        int[] src = ColorMatrixKernelTest.randomPixels(w * h, 4);
+        int[] expected = new int[src.length];
+        quarter.applyAtTier(src, expected, w, h, null);
+        int[] tiled = src.clone();
+        try (TiledExecutor tiles = new TiledExecutor(3)) {
+            quarter.applyAtTier(tiled, tiled, w, h, tiles);
+        }
+        assertArrayEquals(expected, tiled);
+
+        // A FULL applyAtTier es exactamente apply
+        FilterChain full = new FilterChain.Builder("f").sepia().build();
+        int[] a = new int[src.length];
+        int[] b = new int[src.length];
+        full.apply(src, a, w, h, null);
+        full.applyAtTier(src, b, w, h, null);
+        assertArrayEquals(a, b);
+    }
+}
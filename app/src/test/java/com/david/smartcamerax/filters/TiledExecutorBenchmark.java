@@ -0,0 +1,38 @@
+package com.david.smartcamerax.filters;
+
+/**
+ * Curva de speedup 1..N hilos de los kernels de grises y sepia sobre un frame 1080p.
+ * No es un test: se ejecuta a mano (main) en la máquina o dispositivo a medir.
+ */
+public class TiledExecutorBenchmark {
+
+    private static final int W = 1920;
+    private static final int H = 1080;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 60;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int[] src = ColorMatrixKernelTest.randomPixels(W * H, 1);
+        int[] dst = new int[src.length];
+        System.out.println("cores=" + Runtime.getRuntime().availableProcessors() + " frame=" + W + "x" + H);
+        System.out.println("kernel     threads  ms/frame  speedup");
+        String[] names = {"grayscale", "sepia"};
+        ColorMatrixKernel[] kernels = {ColorMatrixKernel.GRAYSCALE, ColorMatrixKernel.SEPIA};
+        for (int k = 0; k < kernels.length; k++) {
+            ColorMatrixKernel kernel = kernels[k];
+            TiledExecutor.RowKernel job = (from, to) -> kernel.applyRows(src, dst, W, from, to);
+            double base = 0;
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                try (TiledExecutor tiles = new TiledExecutor(threads)) {
+                    for (int i = 0; i < WARMUP; i++) tiles.forEachBand(H, job);
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < ITERATIONS; i++) tiles.forEachBand(H, job);
+                    double ms = (System.nanoTime() - t0) / 1e6 / ITERATIONS;
+                    if (threads == 1) base = ms;
+                    System.out.printf("%-10s %7d  %8.2f  %6.2fx%n", names[k], threads, ms, base / ms);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TiledExecutorTest {
+
+    private static final int W = 1920;
+    private static final int H = 1080;
+
+    @Test
+    public void parallelOutput_isBitIdenticalToSequential() {
+        int[] src = ColorMatrixKernelTest.randomPixels(W * H, 11);
+        for (ColorMatrixKernel kernel : new ColorMatrixKernel[]{ColorMatrixKernel.GRAYSCALE, ColorMatrixKernel.SEPIA}) {
+            int[] expected = new int[src.length];
+            kernel.apply(src, 0, expected, 0, src.length);
+            for (int threads = 1; threads <= 8; threads++) {
+                int[] out = new int[src.length];
+                try (TiledExecutor tiles = new TiledExecutor(threads)) {
+                    tiles.forEachBand(H, (from, to) -> kernel.applyRows(src, out, W, from, to));
+                }
+                assertArrayEquals("threads=" + threads, expected, out);
+            }
+        }
+    }
+
+    @Test
+    public void everyRowIsVisitedExactlyOnce() {
+        int[] visits = new int[1001];
+        try (TiledExecutor tiles = new TiledExecutor(4)) {
+            for (int round = 0; round < 20; round++) {
+                tiles.forEachBand(visits.length, (from, to) -> {
+                    for (int r = from; r < to; r++) visits[r]++;
+                });
+            }
+        }
+        for (int v : visits) assertEquals(20, v);
+    }
+
+    @Test
+    public void backToBackCalls_neverLeakBandsIntoTheNextCall() {
+        // Llamadas cortas seguidas: un helper rezagado no debe tomar bandas ni kernel de la siguiente,
+        // y cada llamada vuelve con todas sus filas ya escritas
+        try (TiledExecutor tiles = new TiledExecutor(4)) {
+            for (int round = 0; round < 2000; round++) {
+                int[] visits = new int[64 + (round % 3) * 16];
+                tiles.forEachBand(visits.length, (from, to) -> {
+                    for (int r = from; r < to; r++) visits[r]++;
+                });
+                for (int v : visits) assertEquals(1, v);
+            }
+        }
+    }
+
+    @Test
+    public void kernelFailure_isRethrownToCaller() {
+        try (TiledExecutor tiles = new TiledExecutor(3)) {
+            tiles.forEachBand(H, (from, to) -> {
+                if (from > 0) throw new IllegalStateException("boom");
+            });
+            fail("expected exception");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+    }
+}
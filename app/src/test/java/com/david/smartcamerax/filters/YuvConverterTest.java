@@ -0,0 +1,78 @@
+package com.david.smartcamerax.filters;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvConverterTest {
+
+    // Plano Y 4x2 con stride 6 (relleno al final de cada fila, como en muchos sensores)
+    private static ByteBuffer lumaPlane() {
+        ByteBuffer y = ByteBuffer.allocate(12);
+        byte[] rows = {1, 2, 3, 4, 0, 0, 5, 6, 7, 8, 0, 0};
+        y.put(rows);
+        return y;
+    }
+
+    private static int[] gray(int[] argb) {
+        int[] g = new int[argb.length];
+        for (int i = 0; i < argb.length; i++) g[i] = argb[i] & 0xFF;
+        return g;
+    }
+
+    @Test
+    public void luma_respectsRowStride() {
+        int[] out = new int[8];
+        YuvConverter.lumaToArgb(lumaPlane(), 6, 4, 2, 0, false, out);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8}, gray(out));
+        assertEquals(0xFF010101, out[0]);
+    }
+
+    @Test
+    public void luma_rotates90Clockwise() {
+        int[] out = new int[8];
+        YuvConverter.lumaToArgb(lumaPlane(), 6, 4, 2, 90, false, out);
+        // Salida 2x4: la primera columna del sensor pasa a ser la primera fila leída de abajo a arriba
+        assertArrayEquals(new int[]{5, 1, 6, 2, 7, 3, 8, 4}, gray(out));
+    }
+
+    @Test
+    public void luma_rotates180And270AndMirrors() {
+        int[] out = new int[8];
+        YuvConverter.lumaToArgb(lumaPlane(), 6, 4, 2, 180, false, out);
+        assertArrayEquals(new int[]{8, 7, 6, 5, 4, 3, 2, 1}, gray(out));
+        YuvConverter.lumaToArgb(lumaPlane(), 6, 4, 2, 270, false, out);
+        assertArrayEquals(new int[]{4, 8, 3, 7, 2, 6, 1, 5}, gray(out));
+        YuvConverter.lumaToArgb(lumaPlane(), 6, 4, 2, 0, true, out);
+        assertArrayEquals(new int[]{4, 3, 2, 1, 8, 7, 6, 5}, gray(out));
+    }
+
+    @Test
+    public void neutralChroma_givesGray_andRedChromaGivesRed() {
+        ByteBuffer y = ByteBuffer.allocate(4);
+        for (int i = 0; i < 4; i++) y.put(i, (byte) 100);
+        // Chroma intercalada (pixelStride 2), un único bloque 2x2
+        ByteBuffer uv = ByteBuffer.allocate(2);
+        uv.put(0, (byte) 128).put(1, (byte) 128);
+        ByteBuffer u = uv.duplicate();
+        ByteBuffer v = ByteBuffer.allocate(2);
+        v.put(0, (byte) 128);
+        int[] out = new int[4];
+        YuvConverter.yuvToArgb(y, 2, u, v, 2, 2, 2, 2, 0, false, out);
+        for (int c : out) assertEquals(0xFF646464, c);
+
+        v.put(0, (byte) 228); // Cr alto -> rojo
+        YuvConverter.yuvToArgb(y, 2, u, v, 2, 2, 2, 2, 0, false, out);
+        int r = (out[0] >> 16) & 0xFF;
+        int g = (out[0] >> 8) & 0xFF;
+        assertTrue(r > 200 && g < 50);
+    }
+
+    @Test
+    public void grayscaleChain_isMonochrome() {
+        assertTrue(new FilterChain.Builder("bw").grayscale().build().isMonochrome());
+        assertFalse(new FilterChain.Builder("sepia").sepia().build().isMonochrome());
+    }
+}
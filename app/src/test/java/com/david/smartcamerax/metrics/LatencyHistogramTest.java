@@ -0,0 +1,74 @@
+package com.david.smartcamerax.metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void buckets_areContiguousAndMonotonic() {
+        int previous = -1;
+        for (long micros = 0; micros < 1 << 20; micros += 1 + micros / 64) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue("monótono en " + micros, bucket >= previous);
+            assertTrue(LatencyHistogram.lowerBound(bucket) <= micros);
+            assertTrue(bucket + 1 >= LatencyHistogram.BUCKETS || micros < LatencyHistogram.lowerBound(bucket + 1));
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE / 1000));
+    }
+
+    @Test
+    public void percentiles_withinBucketError() {
+        LatencyHistogram h = new LatencyHistogram("test");
+        // 1..1000 ms uniformes: p50 = 500 ms, p99 = 990 ms
+        for (int i = 1; i <= 1000; i++) h.recordNanos(i * MS);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(1000, s.getCount());
+        assertEquals(500.5, s.getMeanMs(), 0.01);
+        assertEquals(1000.0, s.getMaxMs(), 0.01);
+        assertEquals(500, s.percentileMs(50), 500 * 0.125);
+        assertEquals(990, s.percentileMs(99), 990 * 0.125);
+        assertTrue(s.percentileMs(100) <= s.getMaxMs());
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram("concurrent");
+        Counter c = new Counter("c");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    h.recordNanos(random.nextInt(50_000) * 1000L);
+                    c.inc();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(80_000, h.getCount());
+        assertEquals(80_000, h.snapshot().getCount());
+        assertEquals(80_000, c.get());
+    }
+
+    @Test
+    public void registry_reusesByNameAndReports() {
+        LatencyHistogram a = Metrics.histogram("test.registry");
+        assertSame(a, Metrics.histogram("test.registry"));
+        a.recordNanos(3 * MS);
+        Metrics.counter("test.registry.count").add(7);
+        String report = Metrics.report();
+        assertTrue(report, report.contains("test.registry "));
+        assertTrue(report, report.contains("test.registry.count"));
+        Metrics.reset();
+        assertEquals(0, a.getCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.david.smartcamerax.storage;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class OcrIndexTest {
+
+    @Test
+    public void tokenize_normalizesAccentsCaseAndKeepsNumbers() {
+        // Las letras sueltas no sirven para buscar; los números sí
+        assertEquals(Arrays.asList("factura", "4711", "cafe", "pagina", "7"),
+                OcrIndex.tokenize("FACTURA 4711 - Café, página 7 a"));
+    }
+
+    @Test
+    public void search_prefixAndAllTerms() {
+        OcrIndex index = new OcrIndex();
+        index.put(10, 100, "Factura 4711\nCliente: Pérez");
+        index.put(11, 100, "Factura 4800");
+        index.put(12, 100, "Ticket de compra");
+
+        assertEquals(Arrays.asList(11L, 10L), index.search("fact"));
+        assertEquals(Collections.singletonList(10L), index.search("factura 47"));
+        assertEquals(Collections.singletonList(10L), index.search("PEREZ"));
+        assertTrue(index.search("factura ticket").isEmpty());
+        assertTrue(index.search("  ").isEmpty());
+    }
+
+    @Test
+    public void incrementalUpdates_replaceAndForget() {
+        OcrIndex index = new OcrIndex();
+        index.put(1, 100, "albarán 12");
+        assertFalse(index.needsIndexing(1, 100));
+        assertTrue(index.needsIndexing(1, 101));
+        assertTrue(index.needsIndexing(2, 100));
+
+        // Foto editada: los tokens viejos desaparecen
+        index.put(1, 101, "factura 13");
+        assertTrue(index.search("albaran").isEmpty());
+        assertEquals(Collections.singletonList(1L), index.search("13"));
+
+        index.put(2, 100, "factura 14");
+        assertEquals(1, index.retainOnly(Collections.singletonList(2L)));
+        assertEquals(Collections.singletonList(2L), index.search("factura"));
+        assertEquals(1, index.size());
+        assertEquals(2, index.tokenCount());
+    }
+
+    @Test
+    public void persistence_roundTrip() throws Exception {
+        OcrIndex index = new OcrIndex();
+        index.put(5, 500, "Contrato de alquiler 2024");
+        index.put(6, 600, "");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+
+        OcrIndex loaded = OcrIndex.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, loaded.size());
+        assertFalse(loaded.needsIndexing(6, 600));
+        assertEquals(Collections.singletonList(5L), loaded.search("alq 2024"));
+        assertFalse(loaded.isDirty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.david.smartcamerax.storage;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ScanHistoryTest {
+
+    @Test
+    public void dedupe_suppressesWhileInViewAndExpiresAfterTtl() {
+        ScanDedupeCache cache = new ScanDedupeCache(16, 1_000);
+        assertTrue(cache.shouldRecord("QR-1", 0));
+        // Sigue en el encuadre: cada avistamiento renueva la marca
+        for (long t = 100; t <= 5_000; t += 100) {
+            assertFalse(cache.shouldRecord("QR-1", t));
+        }
+        assertTrue(cache.shouldRecord("QR-2", 5_000));
+        // Fuera del encuadre más que el TTL: escaneo nuevo
+        assertTrue(cache.shouldRecord("QR-1", 6_001));
+        assertEquals(3, cache.getRecorded());
+        assertEquals(50, cache.getSuppressed());
+    }
+
+    @Test
+    public void dedupe_evictsLeastRecentlySeen() {
+        ScanDedupeCache cache = new ScanDedupeCache(2, 60_000);
+        cache.shouldRecord("A", 0);
+        cache.shouldRecord("B", 1);
+        cache.shouldRecord("A", 2);      // A pasa a ser el más reciente
+        cache.shouldRecord("C", 3);      // expulsa B
+        assertEquals(2, cache.size());
+        assertFalse(cache.shouldRecord("A", 4));
+        assertTrue(cache.shouldRecord("B", 5));
+    }
+
+    @Test
+    public void dedupe_heldCodeThatFlickersIsNotRecordedAgain() {
+        ScanDedupeCache cache = new ScanDedupeCache(16, 10_000);
+        assertEquals(Arrays.asList("A"), cache.updateConfirmed(Arrays.asList("A"), 0));
+        // Entra otro código con A aún confirmado: solo se registra B
+        assertEquals(Arrays.asList("B"), cache.updateConfirmed(Arrays.asList("A", "B"), 5_000));
+        // A lleva 15 s delante y parpadea: sale y vuelve enseguida, no es un escaneo nuevo
+        assertTrue(cache.updateConfirmed(Collections.emptyList(), 15_000).isEmpty());
+        assertTrue(cache.updateConfirmed(Arrays.asList("A"), 15_500).isEmpty());
+        // Fuera del encuadre más que el TTL desde que dejó de verse: escaneo nuevo
+        assertTrue(cache.updateConfirmed(Collections.emptyList(), 16_000).isEmpty());
+        assertEquals(Arrays.asList("A"), cache.updateConfirmed(Arrays.asList("A"), 26_001));
+        assertEquals(3, cache.getRecorded());
+    }
+
+    @Test
+    public void writer_batchesBySizeAndFlushesRemainder() throws InterruptedException {
+        List<Integer> batchSizes = new ArrayList<>();
+        List<ScanRecord> stored = new ArrayList<>();
+        ScanHistoryWriter writer = new ScanHistoryWriter(batch -> {
+            synchronized (stored) {
+                batchSizes.add(batch.size());
+                stored.addAll(batch);
+            }
+        }, 10, 60_000);
+
+        for (int i = 0; i < 25; i++) {
+            writer.enqueue(ScanRecord.of("code-" + i, 256, i));
+        }
+        writer.flushAndWait(2_000);
+        synchronized (stored) {
+            assertEquals(25, stored.size());
+            assertEquals("code-0", stored.get(0).value);
+            assertEquals("code-24", stored.get(24).value);
+            for (int size : batchSizes) assertTrue(size <= 10);
+            // Nunca una escritura por escaneo
+            assertTrue(batchSizes.size() <= 3);
+        }
+        assertEquals(0, writer.getPending());
+        writer.close();
+        writer.enqueue(ScanRecord.of("tarde", 256, 99));
+        assertEquals(0, writer.getPending());
+    }
+
+    @Test
+    public void writer_flushRacingCloseNeverThrows() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            ScanHistoryWriter writer = new ScanHistoryWriter(batch -> { }, 10, 60_000);
+            writer.enqueue(ScanRecord.of("A", 256, 1));
+            Thread closer = new Thread(writer::close);
+            closer.start();
+            for (int i = 0; i < 20; i++) {
+                writer.flush().get(2, TimeUnit.SECONDS);
+            }
+            closer.join();
+            writer.flushAndWait(100);
+        }
+    }
+
+    @Test
+    public void writer_requeuesFailedBatch() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        List<ScanRecord> stored = new ArrayList<>();
+        ScanHistoryWriter writer = new ScanHistoryWriter(batch -> {
+            if (attempts.incrementAndGet() == 1) throw new IOException("disco lleno");
+            synchronized (stored) {
+                stored.addAll(batch);
+            }
+        }, 10, 60_000);
+
+        writer.enqueue(ScanRecord.of("A", 256, 1));
+        writer.enqueue(ScanRecord.of("B", 256, 2));
+        writer.flushAndWait(2_000);
+        assertEquals(2, writer.getPending());
+        writer.flushAndWait(2_000);
+        assertEquals(0, writer.getPending());
+        synchronized (stored) {
+            assertEquals(2, stored.size());
+        }
+        assertEquals(2, writer.getWritten());
+        writer.close();
+    }
+}
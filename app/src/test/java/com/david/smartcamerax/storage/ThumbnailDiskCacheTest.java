@@ -0,0 +1,60 @@
+package com.david.smartcamerax.storage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ThumbnailDiskCacheTest {
+
+    // Se borra con su contenido al acabar cada test
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private File newDir() throws Exception {
+        return tmp.newFolder();
+    }
+
+    @Test
+    public void putGet_keyIncludesModificationDate() throws Exception {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(newDir(), 1024);
+        cache.put(ThumbnailDiskCache.key(7, 100, 240), new byte[]{1, 2, 3});
+
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(ThumbnailDiskCache.key(7, 100, 240)));
+        // Foto editada u otro tamaño de celda: otra miniatura
+        assertNull(cache.get(ThumbnailDiskCache.key(7, 101, 240)));
+        assertNull(cache.get(ThumbnailDiskCache.key(7, 100, 360)));
+    }
+
+    @Test
+    public void trimsLeastRecentlyUsedByBytes() throws Exception {
+        File dir = newDir();
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(dir, 250);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[100]);
+
+        assertNull(cache.get("b"));
+        assertFalse(new File(dir, "b.jpg").exists());
+        assertEquals(200, cache.getBytes());
+    }
+
+    @Test
+    public void reopen_rebuildsIndexAndDropsTemporaries() throws Exception {
+        File dir = newDir();
+        new ThumbnailDiskCache(dir, 1024).put("a", new byte[10]);
+        // Escritura interrumpida de otro proceso
+        File partial = new File(dir, "b.jpg.tmp");
+        assertTrue(partial.createNewFile());
+
+        ThumbnailDiskCache reopened = new ThumbnailDiskCache(dir, 1024);
+        assertEquals(1, reopened.size());
+        assertEquals(10, reopened.getBytes());
+        assertNotNull(reopened.get("a"));
+        assertFalse(partial.exists());
+    }
+}
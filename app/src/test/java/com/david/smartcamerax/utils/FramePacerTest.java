@@ -0,0 +1,53 @@
+package com.david.smartcamerax.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FramePacerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void onlyOneFrameInFlight_othersAreCoalesced() {
+        FramePacer pacer = new FramePacer(10, 500);
+        assertTrue(pacer.tryBegin(0));
+        assertFalse(pacer.tryBegin(20 * MS));
+        assertFalse(pacer.tryBegin(40 * MS));
+        assertEquals(2, pacer.getCoalesced());
+        pacer.end(50 * MS);
+        assertTrue(pacer.tryBegin(60 * MS));
+        assertEquals(1, pacer.getProcessed());
+    }
+
+    @Test
+    public void interval_adaptsToProcessingTime() {
+        FramePacer pacer = new FramePacer(10, 500);
+        long now = 0;
+        // Filtro de ~80 ms: el ritmo objetivo debe bajar a ~11 FPS
+        for (int i = 0; i < 20; i++) {
+            while (!pacer.tryBegin(now)) now += MS;
+            now += 80 * MS;
+            pacer.end(now);
+        }
+        assertEquals(80, pacer.getAverageProcessingMs(), 1);
+        assertEquals(1000.0 / 88, pacer.getTargetFps(), 0.5);
+        // Un frame justo después de terminar llega antes de tiempo: se descarta
+        assertFalse(pacer.tryBegin(now + MS));
+        assertTrue(pacer.getDropped() > 0);
+    }
+
+    @Test
+    public void interval_isClampedToMinAndMax() {
+        FramePacer fast = new FramePacer(33, 500);
+        fast.tryBegin(0);
+        fast.end(MS);
+        assertEquals(1000.0 / 33, fast.getTargetFps(), 0.5);
+
+        FramePacer slow = new FramePacer(33, 500);
+        slow.tryBegin(0);
+        slow.end(2000 * MS);
+        assertEquals(2.0, slow.getTargetFps(), 0.01);
+        assertEquals(500, slow.nextDelayMs(0));
+    }
+}
@@ -0,0 +1,153 @@
+package com.david.smartcamerax.utils;
+
+import com.david.smartcamerax.metrics.Metrics;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LaneSchedulerTest {
+
+    // Nombres distintos por test: las métricas son globales
+    private static LaneScheduler.Lane lane(String name, int capacity, LaneScheduler.DropPolicy policy) {
+        return new LaneScheduler.Lane("test." + name, 1, capacity, Thread.NORM_PRIORITY, policy);
+    }
+
+    // Ocupa el único hilo del carril hasta que se abra el latch
+    private static CountDownLatch block(LaneScheduler.Lane lane) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        lane.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void dropOldest_keepsLatestTasks() throws Exception {
+        LaneScheduler.Lane lane = lane("drop_oldest", 2, LaneScheduler.DropPolicy.DROP_OLDEST);
+        CountDownLatch release = block(lane);
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final int n = i;
+            lane.execute(() -> ran.add(n));
+        }
+        assertEquals(2, lane.getQueueDepth());
+        assertEquals(2, lane.getMaxQueueDepth());
+        assertEquals(3, lane.getDropped());
+        release.countDown();
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of(3, 4), ran);
+    }
+
+    @Test
+    public void droppedTasks_areNotifiedUnderEveryPolicy() throws Exception {
+        // Como el render del preview: cada tarea reserva un turno que debe devolverse siempre
+        AtomicInteger inFlight = new AtomicInteger();
+        for (LaneScheduler.DropPolicy policy : new LaneScheduler.DropPolicy[]{
+                LaneScheduler.DropPolicy.DROP_OLDEST, LaneScheduler.DropPolicy.DROP_NEWEST}) {
+            LaneScheduler.Lane lane = lane("droppable_" + policy, 2, policy);
+            CountDownLatch release = block(lane);
+            for (int i = 0; i < 5; i++) {
+                inFlight.incrementAndGet();
+                lane.execute(new LaneScheduler.Droppable() {
+                    @Override
+                    public void run() {
+                        inFlight.decrementAndGet();
+                    }
+
+                    @Override
+                    public void onDropped() {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            assertEquals(3, lane.getDropped());
+            assertEquals(2, inFlight.get());
+            // Lo que quedaba en cola al cerrar con shutdownNow() también se avisa
+            lane.shutdownNow();
+            release.countDown();
+            assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(0, inFlight.get());
+        }
+    }
+
+    @Test
+    public void dropNewest_discardsIncomingTask() throws Exception {
+        LaneScheduler.Lane lane = lane("drop_newest", 1, LaneScheduler.DropPolicy.DROP_NEWEST);
+        CountDownLatch release = block(lane);
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        lane.execute(() -> ran.add(1));
+        lane.execute(() -> ran.add(2));
+        assertEquals(1, lane.getDropped());
+        release.countDown();
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1), ran);
+    }
+
+    @Test
+    public void callerRuns_executesOnSubmittingThreadWhenFull() throws Exception {
+        LaneScheduler.Lane lane = lane("caller_runs", 1, LaneScheduler.DropPolicy.CALLER_RUNS);
+        CountDownLatch release = block(lane);
+        lane.execute(() -> { });
+        Thread[] runner = new Thread[1];
+        lane.execute(() -> runner[0] = Thread.currentThread());
+        assertSame(Thread.currentThread(), runner[0]);
+        assertEquals(1, lane.getCallerRuns());
+        assertEquals(0, lane.getDropped());
+        release.countDown();
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void waitTime_isRecordedPerLane() throws Exception {
+        LaneScheduler.Lane lane = lane("wait", 4, LaneScheduler.DropPolicy.DROP_NEWEST);
+        CountDownLatch release = block(lane);
+        CountDownLatch done = new CountDownLatch(1);
+        lane.execute(done::countDown);
+        Thread.sleep(20);
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+        // La tarea que bloqueaba más la que esperó; la segunda esperó al menos los 20 ms del bloqueo
+        assertEquals(2, Metrics.histogram("lane.test.wait.wait").getCount());
+        assertTrue(Metrics.histogram("lane.test.wait.wait").snapshot().getMaxMs() >= 15);
+        assertEquals(2, Metrics.histogram("lane.test.wait.run").getCount());
+    }
+
+    @Test
+    public void shutdown_finishesIoAndRejectsNewWorkSilently() throws Exception {
+        LaneScheduler lanes = new LaneScheduler(
+                lane("sd.analysis", 2, LaneScheduler.DropPolicy.CALLER_RUNS),
+                lane("sd.preview", 2, LaneScheduler.DropPolicy.DROP_OLDEST),
+                lane("sd.io", 8, LaneScheduler.DropPolicy.CALLER_RUNS));
+        CountDownLatch release = block(lanes.io());
+        List<Integer> saved = new CopyOnWriteArrayList<>();
+        lanes.io().execute(() -> saved.add(1));
+        lanes.io().execute(() -> saved.add(2));
+        lanes.shutdown();
+        // Tras el cierre no se ejecuta nada nuevo, ni siquiera en el llamador
+        lanes.io().execute(() -> saved.add(3));
+        assertEquals(1, lanes.io().getDropped());
+        release.countDown();
+        assertTrue(lanes.awaitTermination(5000));
+        assertEquals(List.of(1, 2), saved);
+        assertTrue(lanes.stats().contains("test.sd.io depth=0/8 max=2"));
+    }
+}
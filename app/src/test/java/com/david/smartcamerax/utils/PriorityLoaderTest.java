@@ -0,0 +1,116 @@
+package com.david.smartcamerax.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PriorityLoaderTest {
+
+    // Un hilo; la clave "block" lo ocupa hasta abrir el latch, así la cola se llena de forma determinista
+    private static final class GatedSource implements PriorityLoader.Source<String, String> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> loaded = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String load(String key) throws Exception {
+            if (key.equals("block")) {
+                started.countDown();
+                release.await();
+            }
+            loaded.add(key);
+            return key.toUpperCase();
+        }
+    }
+
+    // Nombres distintos por test: las métricas son globales
+    private static PriorityLoader<String, String> loader(String name, GatedSource source) throws InterruptedException {
+        PriorityLoader<String, String> loader = new PriorityLoader<>("test." + name, 1, Thread.NORM_PRIORITY,
+                source, Runnable::run);
+        loader.prefetch("block");
+        assertTrue(source.started.await(2, TimeUnit.SECONDS));
+        return loader;
+    }
+
+    private static void drain(PriorityLoader<?, ?> loader) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (loader.getPending() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        // La entrega del último resultado ocurre tras dejar de estar pendiente
+        loader.shutdown();
+        assertTrue(loader.awaitTermination(2000));
+    }
+
+    @Test
+    public void visibleRequestsRunBeforePrefetches() throws Exception {
+        GatedSource source = new GatedSource();
+        PriorityLoader<String, String> loader = loader("order", source);
+        loader.prefetch("p1");
+        loader.prefetch("p2");
+        loader.request("v1", value -> { });
+        loader.request("v2", value -> { });
+        assertEquals(4, loader.getMaxQueueDepth());
+
+        source.release.countDown();
+        drain(loader);
+        assertEquals(Arrays.asList("block", "v1", "v2", "p1", "p2"), source.loaded);
+    }
+
+    @Test
+    public void cancelledRequest_leavesQueueAndIsNotDelivered() throws Exception {
+        GatedSource source = new GatedSource();
+        PriorityLoader<String, String> loader = loader("cancel", source);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        PriorityLoader<String, String>.Request gone = loader.request("a", delivered::add);
+        loader.request("b", delivered::add);
+        gone.cancel();
+        assertEquals(1, loader.getQueueDepth());
+        assertEquals(1, loader.getCancelled());
+
+        source.release.countDown();
+        drain(loader);
+        assertEquals(Arrays.asList("block", "b"), source.loaded);
+        assertEquals(Arrays.asList("B"), delivered);
+    }
+
+    @Test
+    public void requestJoinsPrefetchedJobAndPromotesIt() throws Exception {
+        GatedSource source = new GatedSource();
+        PriorityLoader<String, String> loader = loader("promote", source);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        loader.prefetch("p1");
+        loader.prefetch("a");
+        loader.request("a", delivered::add);
+        assertEquals(2, loader.getQueueDepth());
+
+        source.release.countDown();
+        drain(loader);
+        // Una sola carga de "a", antes que el prefetch que llegó primero
+        assertEquals(Arrays.asList("block", "a", "p1"), source.loaded);
+        assertEquals(Arrays.asList("A"), delivered);
+    }
+
+    @Test
+    public void cancelPrefetches_keepsVisibleRequests() throws Exception {
+        GatedSource source = new GatedSource();
+        PriorityLoader<String, String> loader = loader("direction", source);
+        loader.prefetch("p1");
+        loader.prefetch("p2");
+        loader.request("v1", value -> { });
+        assertEquals(2, loader.cancelPrefetches());
+        assertEquals(1, loader.getQueueDepth());
+
+        source.release.countDown();
+        drain(loader);
+        assertEquals(Arrays.asList("block", "v1"), source.loaded);
+        assertEquals(2, loader.getCancelled());
+    }
+}
@@ -0,0 +1,52 @@
+package com.david.smartcamerax.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SizedLruCacheTest {
+
+    // El valor es su propio tamaño en bytes
+    private static SizedLruCache<String, Integer> cache(long maxBytes) {
+        return new SizedLruCache<>(maxBytes, Integer::intValue);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByBytes() {
+        SizedLruCache<String, Integer> cache = cache(100);
+        cache.put("a", 40);
+        cache.put("b", 40);
+        // "a" pasa a ser el más reciente: el expulsado debe ser "b"
+        assertNotNull(cache.get("a"));
+        cache.put("c", 40);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(80, cache.getBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void oversizeValueIsRejected() {
+        SizedLruCache<String, Integer> cache = cache(100);
+        cache.put("a", 40);
+        assertFalse(cache.put("a", 150));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void replaceAndTrimKeepByteCount() {
+        SizedLruCache<String, Integer> cache = cache(100);
+        cache.put("a", 30);
+        cache.put("b", 30);
+        cache.put("a", 50);
+        assertEquals(80, cache.getBytes());
+
+        cache.trimTo(50);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("a"));
+        assertEquals(50, cache.getBytes());
+    }
+}
@@ -0,0 +1,75 @@
+package com.david.smartcamerax.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SortedListPatchTest {
+
+    // Como MediaItem: orden por fecha descendente y luego id; la clave es el id
+    private static final class Item {
+        final long id;
+        final long date;
+
+        Item(long id, long date) {
+            this.id = id;
+            this.date = date;
+        }
+
+        @Override
+        public String toString() {
+            return id + "@" + date;
+        }
+    }
+
+    private static final Comparator<Item> ORDER = (a, b) -> a.date != b.date
+            ? Long.compare(b.date, a.date) : Long.compare(b.id, a.id);
+
+    private static List<Item> patch(List<Item> current, List<Item> upserts, Long[] removed, Item limit) {
+        return SortedListPatch.apply(current, upserts, new HashSet<>(Arrays.asList(removed)), i -> i.id, ORDER, limit);
+    }
+
+    private static String ids(List<Item> items) {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : items) sb.append(item.id).append(' ');
+        return sb.toString().trim();
+    }
+
+    @Test
+    public void insertsInOrderAndRemoves() {
+        List<Item> current = Arrays.asList(new Item(5, 500), new Item(4, 400), new Item(2, 200));
+        List<Item> result = patch(current, Arrays.asList(new Item(9, 900), new Item(3, 300)), new Long[]{4L}, null);
+        assertEquals("9 5 3 2", ids(result));
+    }
+
+    @Test
+    public void modifiedItemMovesAndIsNotDuplicated() {
+        List<Item> current = Arrays.asList(new Item(5, 500), new Item(4, 400), new Item(2, 200));
+        // El 2 cambia de fecha y llega dos veces en la misma ráfaga: cuenta la última versión
+        List<Item> result = patch(current, Arrays.asList(new Item(2, 450), new Item(2, 600)), new Long[0], null);
+        assertEquals("2 5 4", ids(result));
+        assertEquals(600, result.get(0).date);
+    }
+
+    @Test
+    public void upsertsBeyondLoadedPrefixAreLeftForTheirPage() {
+        List<Item> current = Arrays.asList(new Item(5, 500), new Item(4, 400));
+        List<Item> result = patch(current, Arrays.asList(new Item(9, 900), new Item(1, 100)), new Long[0], current.get(1));
+        assertEquals("9 5 4", ids(result));
+    }
+
+    @Test
+    public void appendingAnOverlappingPageKeepsKeysUnique() {
+        List<Item> current = Arrays.asList(new Item(9, 900), new Item(5, 500));
+        List<Item> page = Arrays.asList(new Item(4, 400), new Item(9, 900), new Item(3, 300));
+        List<Item> result = SortedListPatch.apply(current, page, Collections.emptySet(), i -> i.id, ORDER, null);
+        assertEquals("9 5 4 3", ids(result));
+        assertNotSame(current, result);
+    }
+}
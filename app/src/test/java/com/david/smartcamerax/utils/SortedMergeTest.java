@@ -0,0 +1,87 @@
+package com.david.smartcamerax.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class SortedMergeTest {
+
+    private static final Comparator<Integer> DESC = Comparator.reverseOrder();
+
+    // Fuente ordenada descendente que cuenta las ventanas pedidas
+    private static final class ListSource implements SortedMerge.Source<Integer> {
+        final List<Integer> items;
+        int windows;
+
+        ListSource(Integer... items) {
+            this.items = Arrays.asList(items);
+        }
+
+        @Override
+        public List<Integer> loadAfter(Integer last, int limit) {
+            windows++;
+            int from = last == null ? 0 : items.indexOf(last) + 1;
+            return new ArrayList<>(items.subList(from, Math.min(items.size(), from + limit)));
+        }
+    }
+
+    @Test
+    public void mergesInGlobalOrderAcrossPages() {
+        ListSource images = new ListSource(90, 70, 60, 30, 10);
+        ListSource videos = new ListSource(80, 65, 20);
+        SortedMerge<Integer> merge = new SortedMerge<>(DESC, 2, Arrays.asList(images, videos));
+
+        assertEquals(Arrays.asList(90, 80, 70), merge.nextPage(3));
+        assertFalse(merge.isExhausted());
+        assertEquals(Arrays.asList(65, 60, 30, 20), merge.nextPage(4));
+        assertEquals(Collections.singletonList(10), merge.nextPage(4));
+        assertTrue(merge.isExhausted());
+        assertTrue(merge.nextPage(4).isEmpty());
+    }
+
+    @Test
+    public void readsOnlyTheWindowsItNeeds() {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 10_000; i > 0; i--) all.add(i);
+        ListSource big = new ListSource(all.toArray(new Integer[0]));
+        ListSource empty = new ListSource();
+        SortedMerge<Integer> merge = new SortedMerge<>(DESC, 100, Arrays.asList(big, empty));
+
+        List<Integer> page = merge.nextPage(60);
+        assertEquals(60, page.size());
+        assertEquals(Integer.valueOf(10_000), page.get(0));
+        // Primera página: una ventana de cada fuente, no la biblioteca entera
+        assertEquals(1, big.windows);
+        assertEquals(1, empty.windows);
+        merge.nextPage(60);
+        assertEquals(2, big.windows);
+    }
+
+    @Test
+    public void matchesFullSortOnRandomInput() {
+        Random random = new Random(7);
+        List<Integer> expected = new ArrayList<>();
+        List<ListSource> sources = new ArrayList<>();
+        for (int s = 0; s < 3; s++) {
+            List<Integer> items = new ArrayList<>();
+            for (int i = 0; i < 200; i++) items.add(random.nextInt(1_000_000) * 3 + s); // sin repetidos entre fuentes
+            items = new ArrayList<>(new TreeSet<>(items).descendingSet());
+            expected.addAll(items);
+            sources.add(new ListSource(items.toArray(new Integer[0])));
+        }
+        expected.sort(DESC);
+        SortedMerge<Integer> merge = new SortedMerge<>(DESC, 32, sources);
+
+        List<Integer> merged = new ArrayList<>();
+        while (!merge.isExhausted()) merged.addAll(merge.nextPage(50));
+        assertEquals(expected, merged);
+    }
+}